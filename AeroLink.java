@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 import java.util.HashMap;
 
@@ -6,11 +9,21 @@ import java.util.HashMap;
  * This serves as the entry point and controller for the application
  */
 public class AeroLink {
-    private static Scanner scanner = new Scanner(System.in);
+    private static Scanner scanner = new Scanner(System.in);  // The only reader of System.in
     private static FlightManager flightManager = new FlightManager();
     private static PassengerManager passengerManager = new PassengerManager();
-    private static BookingManager bookingManager = new BookingManager();
+    private static BookingManager bookingManager = new BookingManager(flightManager, passengerManager);
     private static ServiceManager serviceManager = new ServiceManager();
+    private static Reaccommodator reaccommodator = new Reaccommodator(flightManager, bookingManager);
+    private static DelayPropagator delayPropagator = new DelayPropagator(flightManager, bookingManager);
+    private static PersistenceManager persistence;  // Journals every change; null if the journal could not be opened
+
+    // Console menus are thin adapters over the manager APIs
+    private static FlightConsole flightConsole = new FlightConsole(flightManager, reaccommodator, scanner);
+    private static PassengerConsole passengerConsole = new PassengerConsole(passengerManager, scanner);
+    private static BookingConsole bookingConsole = new BookingConsole(bookingManager, flightManager, passengerManager,
+            delayPropagator, scanner);
+    private static ServiceConsole serviceConsole = new ServiceConsole(serviceManager, scanner);
     private static boolean isLoggedIn = false;
     private static HashMap<String, String> adminCredentials = new HashMap<>();
 
@@ -19,6 +32,7 @@ public class AeroLink {
         adminCredentials.put("admin", "admin123");
 
         System.out.println("\n===== Welcome to AeroLink Airport Management System =====");
+        openJournal();
 
         // Main program loop
         boolean exit = false;
@@ -42,51 +56,93 @@ public class AeroLink {
 
                 switch (choice) {
                     case 1:
-                        flightManager.addFlight();
+                        flightConsole.addFlight();
                         break;
                     case 2:
-                        passengerManager.addPassenger();
+                        passengerConsole.addPassenger();
                         break;
                     case 3:
-                        bookingManager.bookFlight(flightManager, passengerManager);
+                        bookingConsole.bookFlight();
                         break;
                     case 4:
-                        serviceManager.requestGroundService();
+                        serviceConsole.requestGroundService();
                         break;
                     case 5:
-                        flightManager.cancelFlight();
+                        flightConsole.cancelFlight();
                         break;
                     case 6:
-                        flightManager.viewAllFlights();
+                        flightConsole.viewAllFlights();
                         break;
                     case 7:
-                        passengerManager.viewAllPassengers();
+                        passengerConsole.viewAllPassengers();
                         break;
                     case 8:
-                        bookingManager.viewAllBookings();
+                        bookingConsole.viewAllBookings();
                         break;
                     case 9:
-                        flightManager.predictFlightDelay();
+                        flightConsole.predictFlightDelay();
                         break;
                     case 10:
-                        flightManager.updateFlightDetails();
+                        flightConsole.updateFlightDetails();
                         break;
                     case 11:
-                        passengerManager.updatePassengerDetails();
+                        passengerConsole.updatePassengerDetails();
                         break;
                     case 12:
-                        flightManager.deleteFlight();
+                        flightConsole.deleteFlight();
                         break;
                     case 13:
-                        passengerManager.deletePassenger();
+                        passengerConsole.deletePassenger();
                         break;
                     case 14:
-                        flightManager.searchFlights();
+                        flightConsole.searchFlights();
                         break;
                     case 15:
-                        passengerManager.searchPassengers();
+                        passengerConsole.searchPassengers();
                         break;
                     case 16:
+                        flightConsole.searchFlightsByRoute();
+                        break;
+                    case 17:
+                        serviceConsole.viewAllServices();
+                        break;
+                    case 18:
+                        serviceConsole.completeService();
+                        break;
+                    case 19:
+                        flightConsole.importSchedule();
+                        break;
+                    case 20:
+                        serviceConsole.changeServicePriority();
+                        break;
+                    case 21:
+                        serviceConsole.toggleDispatcher();
+                        break;
+                    case 22:
+                        flightConsole.forecastDelays();
+                        break;
+                    case 23:
+                        bookingConsole.linkTurnaround();
+                        break;
+                    case 24:
+                        bookingConsole.propagateDelay();
+                        break;
+                    case 25:
+                        flightConsole.searchItineraries();
+                        break;
+                    case 26:
+                        flightConsole.viewSearchCacheStats();
+                        break;
+                    case 27:
+                        bookingConsole.cancelBooking();
+                        break;
+                    case 28:
+                        bookingConsole.joinWaitlist();
+                        break;
+                    case 29:
+                        bookingConsole.bookGroup();
+                        break;
+                    case 30:
                         System.out.println("Thank you for using AeroLink Airport Management System!");
                         exit = true;
                         break;
@@ -105,9 +161,40 @@ public class AeroLink {
             }
         }
 
+        serviceConsole.stopDispatcher();  // Completions must still reach the journal
+        closeJournal();
         scanner.close();
     }
 
+    /**
+     * Restores the saved state from the journal and starts journaling new changes
+     * If the journal cannot be opened the system still runs, but nothing is saved
+     */
+    private static void openJournal() {
+        try {
+            persistence = PersistenceManager.open(Paths.get("aerolink-data"),
+                    flightManager, passengerManager, bookingManager, serviceManager);
+            if (flightManager.hasFlights() || passengerManager.hasPassengers() ||
+                    bookingManager.hasBookings() || serviceManager.hasServices()) {
+                System.out.println("Restored saved data (" + persistence.getReplayedRecords() +
+                        " changes replayed from the journal).");
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Warning: Could not open the journal, changes will not be saved: " + e.getMessage());
+        }
+    }
+
+    private static void closeJournal() {
+        if (persistence == null) {
+            return;
+        }
+        try {
+            persistence.close();
+        } catch (IOException e) {
+            System.out.println("Warning: Could not close the journal: " + e.getMessage());
+        }
+    }
+
     /**
      * Handles admin login functionality
      * @return true if login is successful, false otherwise
@@ -144,7 +231,21 @@ public class AeroLink {
         System.out.println("13. Delete Passenger");
         System.out.println("14. Search Flights");
         System.out.println("15. Search Passengers");
-        System.out.println("16. Exit");
+        System.out.println("16. Search Flights by Route");
+        System.out.println("17. View All Ground Services");
+        System.out.println("18. Complete Ground Service");
+        System.out.println("19. Import Flight Schedule");
+        System.out.println("20. Change Ground Service Priority");
+        System.out.println("21. Start/Stop Ground Service Dispatcher");
+        System.out.println("22. Forecast Delays for a Time Window");
+        System.out.println("23. Link Aircraft Turnaround");
+        System.out.println("24. Propagate Flight Delay to Connections");
+        System.out.println("25. Search Itineraries with Connections");
+        System.out.println("26. View Search Cache Statistics");
+        System.out.println("27. Cancel Booking");
+        System.out.println("28. Join Flight Waitlist");
+        System.out.println("29. Book Group");
+        System.out.println("30. Exit");
         System.out.print("Enter your choice: ");
     }
 }
\ No newline at end of file
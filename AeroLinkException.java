@@ -0,0 +1,30 @@
+/**
+ * AeroLinkException class for errors reported by the manager APIs
+ * Carries a Reason so callers can react to the kind of failure without parsing the message
+ */
+public class AeroLinkException extends RuntimeException {
+    /**
+     * Kinds of failure a manager operation can report
+     */
+    public enum Reason {
+        NOT_FOUND,         // No record with the given ID
+        INVALID_INPUT,     // A value failed validation
+        DUPLICATE,         // The record or booking already exists
+        NO_SEATS,          // The flight is full
+        FLIGHT_CANCELLED,  // The flight has been cancelled
+        INVALID_STATE      // The operation does not apply to the record's current state
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final Reason reason;
+
+    public AeroLinkException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
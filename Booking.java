@@ -1,4 +1,3 @@
-import java.util.UUID;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -17,12 +16,23 @@ public class Booking {
      * Constructor for Booking class
      */
     public Booking(String passengerId, String flightId) {
-        this.bookingId = UUID.randomUUID().toString().substring(0, 8);
+        this.bookingId = IdGenerator.nextId();
         this.passengerId = passengerId;
         this.flightId = flightId;
         this.bookingTime = LocalDateTime.now();
     }
 
+    /**
+     * Constructor used when restoring a saved booking, keeping its original ID and time
+     */
+    public Booking(String bookingId, String passengerId, String flightId, LocalDateTime bookingTime) {
+        IdGenerator.observe(bookingId);  // New IDs must not reuse a restored one
+        this.bookingId = bookingId;
+        this.passengerId = passengerId;
+        this.flightId = flightId;
+        this.bookingTime = bookingTime;
+    }
+
     // Getters and setters
     public String getBookingId() {
         return bookingId;
@@ -0,0 +1,287 @@
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * BookingConsole class with the interactive booking menus
+ * Only prompts and prints; every operation is delegated to BookingManager
+ */
+public class BookingConsole {
+    private BookingManager bookingManager;
+    private FlightManager flightManager;
+    private PassengerManager passengerManager;
+    private DelayPropagator delayPropagator;
+    private Scanner scanner;
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd-MM-yyyy");
+
+    public BookingConsole(BookingManager bookingManager, FlightManager flightManager,
+                          PassengerManager passengerManager, DelayPropagator delayPropagator, Scanner scanner) {
+        this.bookingManager = bookingManager;
+        this.flightManager = flightManager;
+        this.passengerManager = passengerManager;
+        this.delayPropagator = delayPropagator;
+        this.scanner = scanner;
+    }
+
+    /**
+     * Book a flight for a passenger
+     */
+    public void bookFlight() {
+        try {
+            System.out.println("\n===== Book Flight =====");
+
+            // Check if flights are available
+            if (!flightManager.hasFlights()) {
+                System.out.println("No flights available for booking.");
+                return;
+            }
+
+            // Check if passengers are registered
+            if (!passengerManager.hasPassengers()) {
+                System.out.println("No passengers registered. Please add a passenger first.");
+                return;
+            }
+
+            // Display available flights with available seats
+            System.out.println("\nAvailable Flights:");
+            boolean hasAvailableFlights = false;
+
+            for (Flight flight : flightManager.flights()) {
+                if (flight.hasAvailableSeats() && !flight.isCancelled()) {
+                    System.out.println("ID: " + flight.getFlightId() +
+                            " | Flight: " + flight.getFlightName() +
+                            " | From: " + flight.getOrigin() +
+                            " | To: " + flight.getDestination() +
+                            " | Available Seats: " + flight.getAvailableSeats());
+                    hasAvailableFlights = true;
+                }
+            }
+
+            if (!hasAvailableFlights) {
+                System.out.println("No flights with available seats.");
+                return;
+            }
+
+            System.out.print("\nEnter Flight ID to book: ");
+            String flightId = scanner.nextLine().trim();
+
+            Flight flight = flightManager.getFlightById(flightId);
+            if (flight == null) {
+                System.out.println("Flight not found with ID: " + flightId);
+                return;
+            }
+
+            if (flight.isCancelled()) {
+                System.out.println("This flight has been cancelled.");
+                return;
+            }
+
+            if (!flight.hasAvailableSeats()) {
+                System.out.println("No available seats on this flight. Use 'Join Flight Waitlist' to wait for one.");
+                return;
+            }
+
+            // Display registered passengers
+            System.out.println("\nRegistered Passengers:");
+            for (Passenger passenger : passengerManager.passengers()) {
+                System.out.println("ID: " + passenger.getPassengerId() +
+                        " | Name: " + passenger.getName() +
+                        " | Passport: " + passenger.getPassportNumber());
+            }
+
+            System.out.print("\nEnter Passenger ID to book for: ");
+            String passengerId = scanner.nextLine().trim();
+
+            Booking booking = bookingManager.book(passengerId, flightId);
+
+            System.out.println("Flight booked successfully!");
+            System.out.println("Booking ID: " + booking.getBookingId());
+        } catch (AeroLinkException e) {
+            System.out.println(e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Error booking flight: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cancel a booking; the seat goes to the next waitlisted passenger, if any
+     */
+    public void cancelBooking() {
+        System.out.println("\n===== Cancel Booking =====");
+        if (!bookingManager.hasBookings()) {
+            System.out.println("No bookings available.");
+            return;
+        }
+
+        System.out.print("Enter Booking ID to cancel: ");
+        String bookingId = scanner.nextLine().trim();
+        try {
+            Booking booking = bookingManager.cancelBooking(bookingId);
+            System.out.println("Booking " + booking.getBookingId() + " cancelled.");
+            int waiting = bookingManager.getWaitlist(booking.getFlightId()).size();
+            if (waiting > 0) {
+                System.out.println("The seat goes to the next of " + waiting + " waitlisted passenger(s).");
+            }
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Book several passengers on one or more flights at once; either every booking is made or none
+     */
+    public void bookGroup() {
+        System.out.println("\n===== Book Group =====");
+        try {
+            System.out.print("Flight IDs (comma-separated, e.g. both legs of a trip): ");
+            List<String> flightIds = splitIds(scanner.nextLine());
+            System.out.print("Passenger IDs (comma-separated): ");
+            List<String> passengerIds = splitIds(scanner.nextLine());
+
+            List<Booking> group = bookingManager.bookGroup(passengerIds, flightIds);
+            System.out.println(group.size() + " bookings made for " + passengerIds.size() + " passenger(s):");
+            for (Booking booking : group) {
+                System.out.println("Booking ID: " + booking.getBookingId() +
+                        " | Passenger: " + booking.getPassengerId() +
+                        " | Flight: " + booking.getFlightId());
+            }
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage() + " No bookings were made.");
+        }
+    }
+
+    private static List<String> splitIds(String line) {
+        ArrayList<String> ids = new ArrayList<>();
+        for (String id : line.split(",")) {
+            if (!id.trim().isEmpty()) {
+                ids.add(id.trim());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Put a passenger on the waitlist of a full flight
+     */
+    public void joinWaitlist() {
+        System.out.println("\n===== Join Flight Waitlist =====");
+        try {
+            System.out.print("Enter Flight ID: ");
+            String flightId = scanner.nextLine().trim();
+            System.out.print("Enter Passenger ID: ");
+            String passengerId = scanner.nextLine().trim();
+            System.out.print("Priority (1 = highest, 5 = lowest) [3]: ");
+            String priorityStr = scanner.nextLine().trim();
+            int priority = priorityStr.isEmpty() ? 3 : Integer.parseInt(priorityStr);
+
+            int position = bookingManager.joinWaitlist(passengerId, flightId, priority);
+            System.out.println("Added to the waitlist at position " + position +
+                    ". The passenger is booked automatically when a seat frees up.");
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter a valid number.");
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Record that one flight's aircraft operates another flight next
+     */
+    public void linkTurnaround() {
+        System.out.println("\n===== Link Aircraft Turnaround =====");
+        try {
+            System.out.print("Inbound Flight ID: ");
+            String inboundId = scanner.nextLine().trim();
+            System.out.print("Outbound Flight ID (same aircraft): ");
+            String outboundId = scanner.nextLine().trim();
+
+            delayPropagator.linkTurnaround(inboundId, outboundId);
+            System.out.println("Turnaround linked: delays on flight " + inboundId + " now carry over to flight " + outboundId + ".");
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Propagate a flight's delay to the flights and passenger connections that depend on it
+     */
+    public void propagateDelay() {
+        System.out.println("\n===== Propagate Flight Delay =====");
+        try {
+            System.out.print("Enter Flight ID: ");
+            String flightId = scanner.nextLine().trim();
+            System.out.print("Arrival delay in minutes (blank to use the delay forecast): ");
+            String minutes = scanner.nextLine().trim();
+
+            DelayPropagator.Result result;
+            if (minutes.isEmpty()) {
+                result = delayPropagator.propagate(flightManager.predictFlightDelay(flightId));
+            } else {
+                Flight flight = flightManager.getFlightById(flightId);
+                if (flight == null) {
+                    System.out.println("Flight not found with ID: " + flightId);
+                    return;
+                }
+                int delay = Integer.parseInt(minutes);
+                if (delay < 0) {
+                    System.out.println("Error: Delay cannot be negative.");
+                    return;
+                }
+                result = delayPropagator.propagate(flightId, flight.getArrivalTime().plusMinutes(delay));
+            }
+
+            if (result.getAffected().isEmpty()) {
+                System.out.println("No change: the flight already had this estimate.");
+                return;
+            }
+            System.out.println("\nAffected Flights:");
+            for (DelayPropagator.Estimate estimate : result.getAffected()) {
+                Flight flight = estimate.getFlight();
+                System.out.println(flight.getFlightName() + " (" + flight.getFlightId() + ") | " +
+                        flight.getOrigin() + " -> " + flight.getDestination() +
+                        " | Departs " + estimate.getDeparture().format(formatter) + " (+" + estimate.getDepartureDelay() + " min)" +
+                        " | Arrives " + estimate.getArrival().format(formatter) + " (+" + estimate.getArrivalDelay() + " min)");
+            }
+            printConnections("Newly Broken Connections", result.getBroken());
+            printConnections("Connections No Longer at Risk", result.getRestored());
+            System.out.println("Connections currently broken: " + delayPropagator.getBrokenConnections().size());
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter a valid number.");
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void printConnections(String title, Collection<DelayPropagator.Connection> connections) {
+        if (connections.isEmpty()) {
+            return;
+        }
+        System.out.println("\n" + title + ":");
+        for (DelayPropagator.Connection connection : connections) {
+            System.out.println(connection);
+        }
+    }
+
+    /**
+     * View all bookings
+     */
+    public void viewAllBookings() {
+        System.out.println("\n===== All Bookings =====");
+
+        if (!bookingManager.hasBookings()) {
+            System.out.println("No bookings available.");
+            return;
+        }
+
+        int count = 1;
+        for (Booking booking : bookingManager.bookings()) {
+            System.out.println("\nBooking #" + count + ":");
+            System.out.println(booking);
+            System.out.println("------------------------------");
+            count++;
+        }
+    }
+}
@@ -1,183 +1,833 @@
-import java.util.Scanner;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Stack;
+import java.util.Collection;
 import java.util.Deque;
-import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * BookingManager class to manage all booking-related operations
+ * Headless API: methods take IDs and return results or throw AeroLinkException,
+ * the console prompts live in BookingConsole. Safe to share between request threads.
  * Uses various data structures:
- * - ArrayList for storage of bookings
- * - HashMap for quick booking lookup by ID
- * - Stack for tracking recent bookings
- * - Deque for processing booking requests
+ * - RecordStore for storage of bookings with quick lookup by ID
+ * - LongObjectMaps of queues indexing bookings by passenger and by flight, in booking order
+ * - Concurrent set of (passenger, flight) pairs for O(1) duplicate detection
+ * - HashSet to reject repeated IDs in a group booking
+ * - Deque used as a stack for tracking recent bookings
+ * - BookingPipeline ring buffer through which single bookings and cancellations are applied, in batches
+ * - Waitlist of passengers per full flight, promoted on a background thread when a seat frees up
  */
 public class BookingManager {
-    private ArrayList<Booking> bookings;  // ArrayList for bookings storage
-    private HashMap<String, Booking> bookingMap;  // HashMap for quick booking lookup by ID
-    private Stack<Booking> recentBookings;  // Stack to track recent bookings
-    private Deque<String> bookingRequests;  // Deque for booking requests
-    private Scanner scanner;
+    private static final int REQUEST_CAPACITY = 4096;  // Queued requests before submitters have to wait
+    private static final int MAX_REQUEST_BATCH = 256;  // Most requests applied per journal flush
+
+    private RecordStore<Booking> bookings;  // Thread-safe bookings storage with lookup by ID
+    private Deque<Booking> recentBookings;  // Lock-free deque used as a stack of recent bookings
+    private BookingPipeline requests;  // Asynchronous booking requests, applied by one consumer thread
+    private LongObjectMap<ConcurrentLinkedQueue<Booking>> byPassenger;  // Passenger ID -> bookings, written under the store lock
+    private LongObjectMap<ConcurrentLinkedQueue<Booking>> byFlight;  // Flight ID -> bookings, written under the store lock
+    private Set<BookingKey> bookedPairs;  // (passenger, flight) pairs that have a booking or one being made
+    private FlightManager flightManager;
+    private PassengerManager passengerManager;
+    private volatile ChangeLog changeLog = ChangeLog.NONE;  // Journals every booking once persistence is attached
+    private Waitlist waitlist;  // Passengers waiting for a seat on a full flight
+    private ExecutorService promoter;  // One thread, so promotions for a flight never run concurrently
+    private LongAdder promoted = new LongAdder();
 
     /**
      * Constructor initializes the data structures
      */
-    public BookingManager() {
-        this.bookings = new ArrayList<>();  // Dynamic array for storing all bookings
-        this.bookingMap = new HashMap<>();  // HashMap for O(1) lookup by ID
-        this.recentBookings = new Stack<>();  // Stack for maintaining history of recent bookings
-        this.bookingRequests = new ArrayDeque<>();  // Deque for processing booking requests
-        this.scanner = new Scanner(System.in);
+    public BookingManager(FlightManager flightManager, PassengerManager passengerManager) {
+        this.flightManager = flightManager;
+        this.passengerManager = passengerManager;
+        this.bookings = new RecordStore<>();  // Insertion-ordered storage with O(1) lookup by ID
+        this.recentBookings = new ConcurrentLinkedDeque<>();  // Stack for maintaining history of recent bookings
+        this.requests = new BookingPipeline(REQUEST_CAPACITY, MAX_REQUEST_BATCH, this::applyRequests);
+        this.byPassenger = new LongObjectMap<>();
+        this.byFlight = new LongObjectMap<>();
+        this.bookedPairs = ConcurrentHashMap.newKeySet();
+        this.waitlist = new Waitlist();
+        this.promoter = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "waitlist-promoter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A passenger and flight pair, by numeric ID
+     */
+    private static final class BookingKey {
+        final long passengerKey;
+        final long flightKey;
+
+        BookingKey(String passengerId, String flightId) {
+            this.passengerKey = IdGenerator.decode(passengerId);
+            this.flightKey = IdGenerator.decode(flightId);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof BookingKey)) {
+                return false;
+            }
+            BookingKey key = (BookingKey) other;
+            return passengerKey == key.passengerKey && flightKey == key.flightKey;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(passengerKey * 31 + flightKey);
+        }
+    }
+
+    /**
+     * A booking change that is journaled, but not necessarily durable yet
+     */
+    private static final class Change {
+        final Booking booking;
+        final long ticket;
+
+        Change(Booking booking, long ticket) {
+            this.booking = booking;
+            this.ticket = ticket;
+        }
     }
 
     /**
      * Book a flight for a passenger
-     * Uses various data structures for efficient operations
+     * Goes through the request pipeline like bookAsync, so concurrent callers share its batches
+     * @return the new booking
+     * @throws AeroLinkException NOT_FOUND, FLIGHT_CANCELLED, NO_SEATS or DUPLICATE
+     */
+    public Booking book(String passengerId, String flightId) {
+        if (requests.isConsumerThread()) {
+            // Called back on the pipeline's own thread, which cannot wait for itself
+            Change change = placeBooking(passengerId, flightId);
+            try {
+                changeLog.awaitDurable(change.ticket);
+            } catch (RuntimeException e) {
+                withdraw(change.booking);
+                throw e;
+            }
+            return change.booking;
+        }
+        return await(bookAsync(passengerId, flightId));
+    }
+
+    /**
+     * Queue a booking to be made on the request pipeline's thread
+     * Returns at once, unless the pipeline is full; a burst of requests is applied in batches
+     * that share one journal flush.
+     * @return completes with the new booking once it is durable, or with the AeroLinkException book would throw
+     */
+    public CompletableFuture<Booking> bookAsync(String passengerId, String flightId) {
+        return requests.submit(BookingPipeline.Command.book(passengerId, flightId));
+    }
+
+    /**
+     * Queue a cancellation to be made on the request pipeline's thread
+     * @return completes with the cancelled booking once the cancellation is durable
+     */
+    public CompletableFuture<Booking> cancelAsync(String bookingId) {
+        return requests.submit(BookingPipeline.Command.cancel(bookingId));
+    }
+
+    /**
+     * Apply a batch of queued requests in order, then wait for the journal once for all of them
+     * Each request succeeds or fails on its own. If the journal cannot make the batch durable, the
+     * requests that were applied fail: their bookings are taken back, so a retry can book again,
+     * while their cancellations stay made, as the seats may already have gone to waitlisted passengers.
      */
-    public void bookFlight(FlightManager flightManager, PassengerManager passengerManager) {
+    private void applyRequests(List<BookingPipeline.Command> batch) {
+        long ticket = 0;
+        ArrayList<BookingPipeline.Command> applied = new ArrayList<>(batch.size());
+        ArrayList<Booking> placed = new ArrayList<>(batch.size());  // Bookings the applied requests made
+        for (BookingPipeline.Command command : batch) {
+            try {
+                boolean book = command.getType() == BookingPipeline.Type.BOOK;
+                Change change = book ? placeBooking(command.getPassengerId(), command.getFlightId())
+                        : removeBooking(command.getBookingId());
+                command.succeed(change.booking);
+                applied.add(command);
+                if (book) {
+                    placed.add(change.booking);
+                }
+                ticket = Math.max(ticket, change.ticket);
+            } catch (RuntimeException e) {
+                command.fail(e);  // E.g. no seats, or the journal could not be written; nothing was changed
+            }
+        }
+        if (applied.isEmpty()) {
+            return;
+        }
         try {
-            System.out.println("\n===== Book Flight =====");
+            changeLog.awaitDurable(ticket);
+        } catch (RuntimeException e) {
+            for (Booking booking : placed) {
+                withdraw(booking);
+            }
+            for (BookingPipeline.Command command : applied) {
+                command.fail(e);
+            }
+        }
+    }
 
-            // Check if flights are available
-            ArrayList<Flight> availableFlights = flightManager.getAllFlights();
-            if (availableFlights.isEmpty()) {
-                System.out.println("No flights available for booking.");
-                return;
+    /**
+     * Take back a booking that could not be made durable, as if it had been cancelled
+     * A cancellation is journaled too, in case the booking's record reaches the disk after all.
+     */
+    private void withdraw(Booking booking) {
+        synchronized (bookings) {
+            if (bookings.remove(booking.getBookingId()) == null) {
+                return;  // Already cancelled
             }
+            unindex(booking);
+            try {
+                changeLog.bookingCancelled(booking.getBookingId());
+            } catch (RuntimeException e) {
+                // The journal is failing anyway; the booking's own record is not known to be saved either
+            }
+        }
+        freeSeat(booking);
+    }
 
-            // Check if passengers are registered
-            ArrayList<Passenger> registeredPassengers = passengerManager.getAllPassengers();
-            if (registeredPassengers.isEmpty()) {
-                System.out.println("No passengers registered. Please add a passenger first.");
-                return;
+    /**
+     * Wait for a queued request and throw what the synchronous call would have thrown
+     */
+    private static Booking await(CompletableFuture<Booking> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw e;
+        }
+    }
 
-            // Display available flights with available seats
-            System.out.println("\nAvailable Flights:");
-            boolean hasAvailableFlights = false;
+    /**
+     * Average number of queued requests applied per journal flush; grows with load
+     */
+    public double getAverageRequestBatch() {
+        return requests.getAverageBatchSize();
+    }
 
-            for (Flight flight : availableFlights) {
-                if (flight.hasAvailableSeats() && !flight.isCancelled()) {
-                    System.out.println("ID: " + flight.getFlightId() +
-                            " | Flight: " + flight.getFlightName() +
-                            " | From: " + flight.getOrigin() +
-                            " | To: " + flight.getDestination() +
-                            " | Available Seats: " + flight.getAvailableSeats());
-                    hasAvailableFlights = true;
-                }
+    /**
+     * Everything book does except waiting for the journal
+     */
+    private Change placeBooking(String passengerId, String flightId) {
+        Flight flight = flightManager.getFlightById(flightId);
+        if (flight == null) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Flight not found with ID: " + flightId);
+        }
+        if (flight.isCancelled()) {
+            throw new AeroLinkException(AeroLinkException.Reason.FLIGHT_CANCELLED, "This flight has been cancelled.");
+        }
+        if (!flight.hasAvailableSeats()) {
+            throw new AeroLinkException(AeroLinkException.Reason.NO_SEATS, "No available seats on this flight.");
+        }
+        if (waitlist.hasWaiting(flightId)) {
+            promoteLater(flight, false);
+            throw new AeroLinkException(AeroLinkException.Reason.NO_SEATS,
+                    "Seats on this flight go to waitlisted passengers first.");
+        }
+
+        Passenger passenger = passengerManager.getPassengerById(passengerId);
+        if (passenger == null) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Passenger not found with ID: " + passengerId);
+        }
+
+        Booking booking;
+        long ticket;
+        // Store the IDs as the records spell them, not as they were typed
+        passengerId = passenger.getPassengerId();
+        flightId = flight.getFlightId();
+
+        // Claiming the pair is the duplicate check: of two concurrent attempts only one can add it
+        BookingKey key = new BookingKey(passengerId, flightId);
+        if (!bookedPairs.add(key)) {
+            throw new AeroLinkException(AeroLinkException.Reason.DUPLICATE,
+                    "This passenger already has a booking for this flight.");
+        }
+
+        boolean seatTaken = false;
+        boolean booked = false;
+        try {
+            // Update flight's booked seats
+            if (!flight.bookSeat()) {
+                throw new AeroLinkException(AeroLinkException.Reason.NO_SEATS, "Failed to book flight. No available seats.");
             }
+            seatTaken = true;
 
-            if (!hasAvailableFlights) {
-                System.out.println("No flights with available seats.");
-                return;
+            // Create booking and add it to data structures
+            booking = new Booking(passengerId, flightId);
+            ticket = record(booking);
+            booked = true;
+        } finally {
+            if (!booked) {
+                if (seatTaken) {
+                    flight.cancelBooking();  // E.g. the journal write failed; the seat must not leak
+                }
+                bookedPairs.remove(key);  // Let the passenger try again
             }
+        }
+        return new Change(booking, ticket);
+    }
+
+    /**
+     * Journal a new booking and make it visible; its seat must already be taken
+     * @return the journal ticket to wait for
+     */
+    private long record(Booking booking) {
+        // Journaled under the store's write lock, so replay rebuilds the same order
+        synchronized (bookings) {
+            long ticket = changeLog.bookingCreated(booking);
+            bookings.add(booking.getBookingId(), booking);
+            index(booking);
+            recentBookings.push(booking);  // Add to recent bookings stack
+            return ticket;
+        }
+    }
 
-            System.out.print("\nEnter Flight ID to book: ");
-            String flightId = scanner.nextLine().trim();
+    /**
+     * Book a group of passengers on one or more flights, all or nothing
+     * Every passenger is booked on every flight, e.g. a family on each leg of its journey.
+     * Each flight's capacity is checked and its seats reserved once for the whole group,
+     * and the bookings are journaled and indexed under one store lock.
+     * @return the new bookings, flight by flight, passengers in the order given
+     * @throws AeroLinkException INVALID_INPUT, NOT_FOUND, FLIGHT_CANCELLED, NO_SEATS or DUPLICATE;
+     *         nothing is booked then, nor when the journal cannot save the bookings
+     */
+    public List<Booking> bookGroup(List<String> passengerIds, List<String> flightIds) {
+        if (passengerIds.isEmpty() || flightIds.isEmpty()) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                    "A group booking needs at least one passenger and one flight.");
+        }
 
+        // Resolve and check everything before taking any seat
+        ArrayList<Flight> flights = new ArrayList<>(flightIds.size());
+        HashSet<Long> seen = new HashSet<>();
+        for (String flightId : flightIds) {
             Flight flight = flightManager.getFlightById(flightId);
             if (flight == null) {
-                System.out.println("Flight not found with ID: " + flightId);
-                return;
+                throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Flight not found with ID: " + flightId);
+            }
+            if (!seen.add(IdGenerator.decode(flightId))) {
+                throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT, "Flight " + flightId + " is listed twice.");
+            }
+            if (flight.isCancelled()) {
+                throw new AeroLinkException(AeroLinkException.Reason.FLIGHT_CANCELLED,
+                        "Flight " + flightId + " has been cancelled.");
+            }
+            if (waitlist.hasWaiting(flightId)) {
+                promoteLater(flight, false);
+                throw new AeroLinkException(AeroLinkException.Reason.NO_SEATS,
+                        "Seats on flight " + flightId + " go to waitlisted passengers first.");
+            }
+            flights.add(flight);
+        }
+        ArrayList<Passenger> passengers = new ArrayList<>(passengerIds.size());
+        seen.clear();
+        for (String passengerId : passengerIds) {
+            Passenger passenger = passengerManager.getPassengerById(passengerId);
+            if (passenger == null) {
+                throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Passenger not found with ID: " + passengerId);
             }
+            if (!seen.add(IdGenerator.decode(passengerId))) {
+                throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                        "Passenger " + passengerId + " is listed twice.");
+            }
+            passengers.add(passenger);
+        }
 
-            if (!flight.hasAvailableSeats()) {
-                System.out.println("No available seats on this flight.");
-                return;
+        int groupSize = passengers.size();
+        ArrayList<BookingKey> claimed = new ArrayList<>(groupSize * flights.size());
+        int reserved = 0;  // Flights whose seats have been taken
+        ArrayList<Booking> created = new ArrayList<>(groupSize * flights.size());
+        long ticket = 0;
+        boolean booked = false;
+        try {
+            for (Flight flight : flights) {
+                for (Passenger passenger : passengers) {
+                    BookingKey key = new BookingKey(passenger.getPassengerId(), flight.getFlightId());
+                    if (!bookedPairs.add(key)) {
+                        throw new AeroLinkException(AeroLinkException.Reason.DUPLICATE,
+                                "Passenger " + passenger.getPassengerId() + " already has a booking for flight " +
+                                        flight.getFlightId() + ".");
+                    }
+                    claimed.add(key);
+                }
+            }
+            for (Flight flight : flights) {
+                if (!flight.reserveSeats(groupSize)) {
+                    throw new AeroLinkException(AeroLinkException.Reason.NO_SEATS,
+                            "Flight " + flight.getFlightId() + " does not have " + groupSize + " seats available.");
+                }
+                reserved++;
             }
 
-            if (flight.isCancelled()) {
-                System.out.println("This flight has been cancelled.");
-                return;
+            for (Flight flight : flights) {
+                for (Passenger passenger : passengers) {
+                    created.add(new Booking(passenger.getPassengerId(), flight.getFlightId()));
+                }
             }
+            synchronized (bookings) {
+                ticket = changeLog.bookingsCreated(created);
+                bookings.addAll(created, Booking::getBookingId);
+                indexGroup(created, flights, passengers);
+                for (Booking booking : created) {
+                    recentBookings.push(booking);
+                }
+            }
+            booked = true;
+        } finally {
+            if (!booked) {
+                for (int i = 0; i < reserved; i++) {
+                    flights.get(i).releaseSeats(groupSize);
+                }
+                bookedPairs.removeAll(claimed);
+            }
+        }
+        // One wait for the whole group: the last ticket covers every booking before it
+        try {
+            changeLog.awaitDurable(ticket);
+        } catch (RuntimeException e) {
+            for (Booking booking : created) {
+                withdraw(booking);  // Still all or nothing
+            }
+            throw e;
+        }
+        return created;
+    }
+
+    /**
+     * Cancel a booking
+     * If passengers are waiting for the flight, the seat is not released but handed to the next of them
+     * on the promoter thread, so no other booking can take it in between.
+     * Goes through the request pipeline like cancelAsync.
+     * @return the cancelled booking
+     * @throws AeroLinkException NOT_FOUND
+     */
+    public Booking cancelBooking(String bookingId) {
+        if (requests.isConsumerThread()) {
+            Change change = removeBooking(bookingId);
+            changeLog.awaitDurable(change.ticket);
+            return change.booking;
+        }
+        return await(cancelAsync(bookingId));
+    }
 
-            // Display registered passengers
-            System.out.println("\nRegistered Passengers:");
-            for (Passenger passenger : registeredPassengers) {
-                System.out.println("ID: " + passenger.getPassengerId() +
-                        " | Name: " + passenger.getName() +
-                        " | Passport: " + passenger.getPassportNumber());
+    /**
+     * Everything cancelBooking does except waiting for the journal
+     */
+    private Change removeBooking(String bookingId) {
+        Booking booking = bookings.get(bookingId);
+        if (booking == null) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Booking not found with ID: " + bookingId);
+        }
+        long ticket;
+        synchronized (bookings) {
+            if (bookings.remove(booking.getBookingId()) == null) {
+                throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Booking not found with ID: " + bookingId);
             }
+            ticket = changeLog.bookingCancelled(booking.getBookingId());
+            unindex(booking);
+        }
+        freeSeat(booking);
+        return new Change(booking, ticket);
+    }
 
-            System.out.print("\nEnter Passenger ID to book for: ");
-            String passengerId = scanner.nextLine().trim();
+    /**
+     * Free the pair and the seat of a booking taken out of the store; the seat goes to the waitlist first
+     */
+    private void freeSeat(Booking booking) {
+        bookedPairs.remove(new BookingKey(booking.getPassengerId(), booking.getFlightId()));
+        Flight flight = flightManager.getFlightById(booking.getFlightId());
+        if (flight != null) {
+            if (!flight.isCancelled() && waitlist.hasWaiting(flight.getFlightId())) {
+                promoteLater(flight, true);
+            } else {
+                flight.cancelBooking();
+            }
+        }
+    }
 
-            Passenger passenger = passengerManager.getPassengerById(passengerId);
-            if (passenger == null) {
-                System.out.println("Passenger not found with ID: " + passengerId);
-                return;
+    /**
+     * Reserve a seat on a flight for a booking that is about to be moved there with moveBooking
+     * Like book, it leaves the seats of a flight with a waitlist to the waitlisted passengers
+     * @return false if the flight is cancelled, full or has passengers waiting for a seat
+     */
+    public boolean reserveSeat(Flight flight) {
+        if (flight.isCancelled() || waitlist.hasWaiting(flight.getFlightId())) {
+            return false;
+        }
+        return flight.bookSeat();
+    }
+
+    /**
+     * Move a booking to another flight, e.g. because its flight was cancelled
+     * The seat on the new flight must already be reserved with reserveSeat; if this throws,
+     * the caller still holds it and should release it. The old flight's seat is released here.
+     * If the journal fails after the old booking's cancellation was written, the old booking stays cancelled.
+     * @return the new booking
+     * @throws AeroLinkException NOT_FOUND if the booking no longer exists,
+     *         or DUPLICATE if the passenger is already booked on the new flight
+     */
+    public Booking moveBooking(String bookingId, Flight target) {
+        Booking old = bookings.get(bookingId);
+        if (old == null) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Booking not found with ID: " + bookingId);
+        }
+        BookingKey key = new BookingKey(old.getPassengerId(), target.getFlightId());
+        if (!bookedPairs.add(key)) {
+            throw new AeroLinkException(AeroLinkException.Reason.DUPLICATE,
+                    "This passenger already has a booking for flight " + target.getFlightId() + ".");
+        }
+
+        Booking replacement = new Booking(old.getPassengerId(), target.getFlightId());
+        long ticket;
+        boolean oldRemoved = false;
+        try {
+            // Both records are journaled under one lock, so they end up next to each other and share a flush
+            synchronized (bookings) {
+                if (!bookings.contains(old.getBookingId())) {
+                    throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND,
+                            "Booking not found with ID: " + bookingId);
+                }
+                changeLog.bookingCancelled(old.getBookingId());  // If this fails, nothing has changed
+                bookings.remove(old.getBookingId());
+                unindex(old);
+                oldRemoved = true;
+                ticket = record(replacement);
+            }
+        } catch (RuntimeException e) {
+            bookedPairs.remove(key);
+            if (oldRemoved) {
+                releaseSeat(old);  // The old booking is cancelled even though the new one could not be made
             }
+            throw e;
+        }
+        releaseSeat(old);
+        changeLog.awaitDurable(ticket);
+        return replacement;
+    }
+
+    /**
+     * Free the pair and the seat of a booking that has been taken out of the store by a move
+     */
+    private void releaseSeat(Booking booking) {
+        bookedPairs.remove(new BookingKey(booking.getPassengerId(), booking.getFlightId()));
+        Flight flight = flightManager.getFlightById(booking.getFlightId());
+        if (flight != null) {
+            flight.cancelBooking();
+        }
+    }
 
-            // Check if passenger already has a booking for this flight
-            for (Booking booking : bookings) {
-                if (booking.getPassengerId().equals(passengerId) &&
-                        booking.getFlightId().equals(flightId)) {
-                    System.out.println("This passenger already has a booking for this flight.");
-                    return;
+    /**
+     * Put a passenger on the waitlist of a full flight
+     * @param priority 1 (highest) to 5; passengers with the same priority are served in order
+     * @return the passenger's position on the waitlist
+     * @throws AeroLinkException NOT_FOUND, INVALID_INPUT, FLIGHT_CANCELLED, DUPLICATE,
+     *         or INVALID_STATE if the flight still has seats
+     */
+    public int joinWaitlist(String passengerId, String flightId, int priority) {
+        if (priority < 1 || priority > 5) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT, "Priority must be between 1 and 5.");
+        }
+        Flight flight = flightManager.getFlightById(flightId);
+        if (flight == null) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Flight not found with ID: " + flightId);
+        }
+        if (flight.isCancelled()) {
+            throw new AeroLinkException(AeroLinkException.Reason.FLIGHT_CANCELLED, "This flight has been cancelled.");
+        }
+        Passenger passenger = passengerManager.getPassengerById(passengerId);
+        if (passenger == null) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Passenger not found with ID: " + passengerId);
+        }
+        if (bookedPairs.contains(new BookingKey(passengerId, flightId))) {
+            throw new AeroLinkException(AeroLinkException.Reason.DUPLICATE,
+                    "This passenger already has a booking for this flight.");
+        }
+        if (flight.hasAvailableSeats() && !waitlist.hasWaiting(flightId)) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_STATE,
+                    "This flight still has seats; book it instead.");
+        }
+
+        int position = waitlist.add(passenger.getPassengerId(), flight.getFlightId(), priority);
+        promoteLater(flight, false);  // A seat may have freed up while the passenger was being added
+        return position;
+    }
+
+    /**
+     * Take a passenger off a flight's waitlist
+     * @throws AeroLinkException NOT_FOUND if the passenger was not waiting for the flight
+     */
+    public void leaveWaitlist(String passengerId, String flightId) {
+        if (!waitlist.remove(passengerId, flightId)) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND,
+                    "This passenger is not on the waitlist for this flight.");
+        }
+    }
+
+    /**
+     * Passengers waiting for a flight, in the order they will be offered seats
+     */
+    public ArrayList<Waitlist.Entry> getWaitlist(String flightId) {
+        return waitlist.entries(flightId);
+    }
+
+    /**
+     * Number of waitlisted passengers who have been given a booking
+     */
+    public long getPromotedCount() {
+        return promoted.sum();
+    }
+
+    private void promoteLater(Flight flight, boolean seatHeld) {
+        promoter.execute(() -> promote(flight, seatHeld));
+    }
+
+    /**
+     * Give free seats on a flight to waitlisted passengers, in waitlist order
+     * If a booking cannot be journaled, the passenger keeps their place on the waitlist and the run stops.
+     * If the journal cannot make the run's bookings durable, they stay made and the failure is reported.
+     * @param seatHeld whether the caller already holds a seat for the next passenger
+     */
+    private void promote(Flight flight, boolean seatHeld) {
+        String flightId = flight.getFlightId();
+        long ticket = 0;
+        try {
+            while (!flight.isCancelled() && flightManager.getFlightById(flightId) != null) {
+                if (!seatHeld) {
+                    if (!waitlist.hasWaiting(flightId) || !flight.bookSeat()) {
+                        break;
+                    }
+                    seatHeld = true;
+                }
+                Waitlist.Entry next = waitlist.poll(flightId);
+                if (next == null) {
+                    break;
+                }
+                // Passengers deleted or booked on the flight in the meantime are skipped; the seat stays held
+                Passenger passenger = passengerManager.getPassengerById(next.getPassengerId());
+                BookingKey key = new BookingKey(next.getPassengerId(), flightId);
+                if (passenger == null || !bookedPairs.add(key)) {
+                    continue;
                 }
+                try {
+                    ticket = record(new Booking(passenger.getPassengerId(), flightId));
+                } catch (RuntimeException e) {
+                    bookedPairs.remove(key);
+                    waitlist.putBack(next);  // Nothing was booked, so the passenger is still waiting
+                    throw e;
+                }
+                seatHeld = false;
+                promoted.increment();
+            }
+            // One wait for the whole run, so the journal can flush the promotions together
+            changeLog.awaitDurable(ticket);
+        } catch (RuntimeException e) {
+            System.err.println("Warning: Waitlist for flight " + flightId + " could not be promoted: " + e.getMessage());
+        } finally {
+            if (seatHeld) {
+                flight.cancelBooking();  // Nobody left to take it
             }
+        }
+    }
 
-            // Add booking request to the deque
-            bookingRequests.add(passengerId + ":" + flightId);
+    /**
+     * Re-apply a booking cancellation while replaying the journal
+     * Releases the seat unconditionally; a waitlist promotion is replayed as its own booking
+     */
+    public void restoreCancellation(String bookingId) {
+        Booking booking;
+        synchronized (bookings) {
+            booking = bookings.remove(bookingId);
+            if (booking == null) {
+                return;
+            }
+            unindex(booking);
+        }
+        bookedPairs.remove(new BookingKey(booking.getPassengerId(), booking.getFlightId()));
+        Flight flight = flightManager.getFlightById(booking.getFlightId());
+        if (flight != null) {
+            flight.setBookedSeats(Math.max(0, flight.getBookedSeats() - 1));
+        }
+    }
 
-            // Process booking request
-            String request = bookingRequests.poll();
-            String[] parts = request.split(":");
-            String reqPassengerId = parts[0];
-            String reqFlightId = parts[1];
+    /**
+     * Re-apply a saved booking while replaying the journal
+     * Takes the seat unconditionally: the booking was valid when it was made
+     */
+    public void restoreBooking(Booking booking) {
+        synchronized (bookings) {
+            if (!bookings.add(booking.getBookingId(), booking)) {
+                return;
+            }
+            index(booking);
+        }
+        bookedPairs.add(new BookingKey(booking.getPassengerId(), booking.getFlightId()));
+        recentBookings.push(booking);
+        Flight flight = flightManager.getFlightById(booking.getFlightId());
+        if (flight != null) {
+            flight.setBookedSeats(flight.getBookedSeats() + 1);
+        }
+    }
 
-            // Create booking
-            Booking booking = new Booking(reqPassengerId, reqFlightId);
+    /**
+     * Set every flight's booked seats to the number of its bookings; call once a restore is complete
+     * A snapshot reads the live views without a consistent cut, so it can hold a booking whose flight it
+     * missed; the flight then comes back from the journal after the booking. Counting at the end makes
+     * the seat counts independent of the order in which records were restored.
+     */
+    public void recountSeats() {
+        for (Flight flight : flightManager.flights()) {
+            ConcurrentLinkedQueue<Booking> forFlight = byFlight.get(IdGenerator.decode(flight.getFlightId()));
+            int booked = forFlight == null ? 0 : forFlight.size();
+            if (flight.getBookedSeats() != booked) {
+                flight.setBookedSeats(booked);
+            }
+        }
+    }
 
-            // Update flight's booked seats
-            if (flight.bookSeat()) {
-                // Add booking to data structures
-                bookings.add(booking);
-                bookingMap.put(booking.getBookingId(), booking);
-                recentBookings.push(booking);  // Add to recent bookings stack
-
-                System.out.println("Flight booked successfully!");
-                System.out.println("Booking ID: " + booking.getBookingId());
-            } else {
-                System.out.println("Failed to book flight. No available seats.");
+    /**
+     * Add bookings loaded from a snapshot
+     * Seat counts are derived from the bookings, so each flight is updated once for the whole batch
+     */
+    public void restoreBookings(List<Booking> batch) {
+        ArrayList<Booking> added = new ArrayList<>(batch.size());
+        synchronized (bookings) {
+            for (Booking booking : batch) {
+                if (bookings.add(booking.getBookingId(), booking)) {  // Skips bookings already restored
+                    index(booking);
+                    added.add(booking);
+                }
+            }
+        }
+        HashMap<String, int[]> seatsByFlight = new HashMap<>();
+        for (Booking booking : added) {
+            bookedPairs.add(new BookingKey(booking.getPassengerId(), booking.getFlightId()));
+            recentBookings.push(booking);
+            seatsByFlight.computeIfAbsent(booking.getFlightId(), id -> new int[1])[0]++;
+        }
+        for (Map.Entry<String, int[]> entry : seatsByFlight.entrySet()) {
+            Flight flight = flightManager.getFlightById(entry.getKey());
+            if (flight != null) {
+                flight.setBookedSeats(flight.getBookedSeats() + entry.getValue()[0]);
             }
-        } catch (Exception e) {
-            System.out.println("Error booking flight: " + e.getMessage());
         }
     }
 
     /**
-     * View all bookings
-     * Uses ArrayList for display
+     * Add a booking to the passenger and flight indexes; must hold the store's write lock
      */
-    public void viewAllBookings() {
-        System.out.println("\n===== All Bookings =====");
+    private void index(Booking booking) {
+        indexUnder(byPassenger, booking.getPassengerId(), booking);
+        indexUnder(byFlight, booking.getFlightId(), booking);
+    }
 
-        if (bookings.isEmpty()) {
-            System.out.println("No bookings available.");
-            return;
+    /**
+     * Add a group's bookings to the indexes with one update per flight and per passenger; must hold the store's write lock
+     * @param created the bookings flight by flight, each flight's in passenger order
+     */
+    private void indexGroup(List<Booking> created, List<Flight> flights, List<Passenger> passengers) {
+        int groupSize = passengers.size();
+        for (int f = 0; f < flights.size(); f++) {
+            indexUnder(byFlight, flights.get(f).getFlightId(), created.subList(f * groupSize, (f + 1) * groupSize));
         }
+        ArrayList<Booking> forPassenger = new ArrayList<>(flights.size());
+        for (int p = 0; p < groupSize; p++) {
+            forPassenger.clear();
+            for (int f = 0; f < flights.size(); f++) {
+                forPassenger.add(created.get(f * groupSize + p));
+            }
+            indexUnder(byPassenger, passengers.get(p).getPassengerId(), forPassenger);
+        }
+    }
 
-        int count = 1;
-        for (Booking booking : bookings) {
-            System.out.println("\nBooking #" + count + ":");
-            System.out.println(booking);
-            System.out.println("------------------------------");
-            count++;
+    /**
+     * Remove a booking from the passenger and flight indexes; must hold the store's write lock
+     */
+    private void unindex(Booking booking) {
+        ConcurrentLinkedQueue<Booking> forPassenger = byPassenger.get(IdGenerator.decode(booking.getPassengerId()));
+        if (forPassenger != null) {
+            forPassenger.remove(booking);
+        }
+        ConcurrentLinkedQueue<Booking> forFlight = byFlight.get(IdGenerator.decode(booking.getFlightId()));
+        if (forFlight != null) {
+            forFlight.remove(booking);
+        }
+    }
+
+    private static void indexUnder(LongObjectMap<ConcurrentLinkedQueue<Booking>> index, String id, Booking booking) {
+        queueFor(index, id).add(booking);
+    }
+
+    private static void indexUnder(LongObjectMap<ConcurrentLinkedQueue<Booking>> index, String id,
+                                   Collection<Booking> batch) {
+        queueFor(index, id).addAll(batch);
+    }
+
+    private static ConcurrentLinkedQueue<Booking> queueFor(LongObjectMap<ConcurrentLinkedQueue<Booking>> index, String id) {
+        long key = IdGenerator.decode(id);
+        ConcurrentLinkedQueue<Booking> list = index.get(key);
+        if (list == null) {
+            list = new ConcurrentLinkedQueue<>();
+            index.put(key, list);
         }
+        return list;
+    }
+
+    /**
+     * Wait for bookings that are being added to become visible, e.g. before a snapshot
+     */
+    public void awaitPendingInserts() {
+        bookings.awaitWriters();
+    }
+
+    public void setChangeLog(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    public boolean hasBookings() {
+        return !bookings.isEmpty();
+    }
+
+    /**
+     * Live view of all bookings in the order they were made, iterated without locking
+     */
+    public Iterable<Booking> bookings() {
+        return bookings.values();
+    }
+
+    public Booking getBookingById(String bookingId) {
+        return bookings.get(bookingId);
     }
 
     /**
      * Get the most recent booking
-     * Uses Stack to retrieve the most recent booking
+     * Uses the recent bookings stack to retrieve the most recent booking
      * @return the most recent Booking object, or null if none
      */
     public Booking getMostRecentBooking() {
-        if (recentBookings.isEmpty()) {
-            return null;
+        Booking booking;
+        while ((booking = recentBookings.peek()) != null && bookings.get(booking.getBookingId()) == null) {
+            recentBookings.remove(booking);  // Cancelled since; dropped here rather than searched for on every cancellation
         }
-        return recentBookings.peek();
+        return booking;
     }
 
     /**
@@ -186,15 +836,7 @@ public class BookingManager {
      * @return ArrayList of bookings for the passenger
      */
     public ArrayList<Booking> getBookingsForPassenger(String passengerId) {
-        ArrayList<Booking> passengerBookings = new ArrayList<>();
-
-        for (Booking booking : bookings) {
-            if (booking.getPassengerId().equals(passengerId)) {
-                passengerBookings.add(booking);
-            }
-        }
-
-        return passengerBookings;
+        return copyOf(byPassenger.get(IdGenerator.decode(passengerId)));
     }
 
     /**
@@ -203,14 +845,10 @@ public class BookingManager {
      * @return ArrayList of bookings for the flight
      */
     public ArrayList<Booking> getBookingsForFlight(String flightId) {
-        ArrayList<Booking> flightBookings = new ArrayList<>();
-
-        for (Booking booking : bookings) {
-            if (booking.getFlightId().equals(flightId)) {
-                flightBookings.add(booking);
-            }
-        }
+        return copyOf(byFlight.get(IdGenerator.decode(flightId)));
+    }
 
-        return flightBookings;
+    private static ArrayList<Booking> copyOf(ConcurrentLinkedQueue<Booking> list) {
+        return list == null ? new ArrayList<>() : new ArrayList<>(list);
     }
 }
\ No newline at end of file
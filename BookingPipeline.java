@@ -0,0 +1,238 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * BookingPipeline class to queue booking requests and apply them asynchronously, in batches
+ * Any number of threads submit commands and get a future back; a single consumer thread takes
+ * everything queued so far and hands it to the handler as one batch, so the changes of a burst
+ * share one journal flush. The queue is bounded: when it is full, submit waits for room,
+ * which slows producers down to the rate the consumer can apply changes (backpressure).
+ *
+ * Producers claim a slot with one compare-and-set on the claim counter and then publish their
+ * command into it; only the consumer empties slots and advances the consumed counter.
+ * Uses various data structures:
+ * - AtomicReferenceArray as a ring buffer of commands, its size a power of two
+ * - AtomicLong claim counter shared by producers; volatile consumed counter owned by the consumer
+ * - LongAdder counters for commands and batches applied
+ */
+public class BookingPipeline {
+    private static final long FULL_WAIT_NANOS = 50_000;  // How long a producer parks before re-checking for room
+
+    private final int mask;  // Capacity - 1, to turn a sequence number into a slot index
+    private final int maxBatch;
+    private AtomicReferenceArray<Command> slots;
+    private AtomicLong claimed = new AtomicLong();  // Sequence number the next producer takes
+    private volatile long consumed;  // Sequence number of the next command the consumer takes
+    private volatile boolean sleeping;  // The consumer is parked, or about to park
+    private Consumer<List<Command>> handler;
+    private Thread consumer;
+
+    private LongAdder applied = new LongAdder();
+    private LongAdder batches = new LongAdder();
+
+    /**
+     * What a command asks for
+     */
+    public enum Type {
+        BOOK,
+        CANCEL
+    }
+
+    /**
+     * One booking request and the future its caller waits on
+     * The handler records the outcome with succeed or fail; the pipeline completes the future
+     * once the handler has returned, i.e. once the whole batch is durable. A later fail overrides
+     * succeed, e.g. when the change was made but could not be made durable.
+     */
+    public static class Command {
+        private final Type type;
+        private final String passengerId;
+        private final String flightId;
+        private final String bookingId;
+        private final CompletableFuture<Booking> future = new CompletableFuture<>();
+        private Booking result;
+        private RuntimeException error;
+        private boolean handled;  // The handler recorded an outcome
+
+        private Command(Type type, String passengerId, String flightId, String bookingId) {
+            this.type = type;
+            this.passengerId = passengerId;
+            this.flightId = flightId;
+            this.bookingId = bookingId;
+        }
+
+        public static Command book(String passengerId, String flightId) {
+            return new Command(Type.BOOK, passengerId, flightId, null);
+        }
+
+        public static Command cancel(String bookingId) {
+            return new Command(Type.CANCEL, null, null, bookingId);
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getPassengerId() {
+            return passengerId;
+        }
+
+        public String getFlightId() {
+            return flightId;
+        }
+
+        public String getBookingId() {
+            return bookingId;
+        }
+
+        /**
+         * @return the booking made or cancelled
+         */
+        public CompletableFuture<Booking> getFuture() {
+            return future;
+        }
+
+        public void succeed(Booking booking) {
+            this.result = booking;
+            this.handled = true;
+        }
+
+        public void fail(RuntimeException error) {
+            this.error = error;
+            this.handled = true;
+        }
+    }
+
+    /**
+     * @param capacity how many commands can wait; rounded up to a power of two
+     * @param maxBatch most commands handed to the handler at once
+     * @param handler applies a batch of commands in order and records each outcome on its command;
+     *                if it throws, the commands it had not recorded an outcome for fail with its exception
+     */
+    public BookingPipeline(int capacity, int maxBatch, Consumer<List<Command>> handler) {
+        if (capacity <= 0 || capacity > (1 << 30) || maxBatch <= 0) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                    "Pipeline capacity and batch size must be greater than zero.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.maxBatch = maxBatch;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.handler = handler;
+        this.consumer = new Thread(this::consumeLoop, "booking-pipeline");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Queue a command, waiting while the queue is full
+     * @return the command's future, completed once its change is applied and durable
+     */
+    public CompletableFuture<Booking> submit(Command command) {
+        long sequence;
+        while (true) {
+            sequence = claimed.get();
+            if (sequence - consumed > mask) {
+                LockSupport.parkNanos(this, FULL_WAIT_NANOS);  // Full: let the consumer catch up
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+        slots.set((int) sequence & mask, command);  // Publishes the command to the consumer
+        if (sleeping) {
+            LockSupport.unpark(consumer);
+        }
+        return command.future;
+    }
+
+    /**
+     * Commands queued but not yet taken by the consumer
+     */
+    public int size() {
+        return (int) Math.max(0, claimed.get() - consumed);
+    }
+
+    /**
+     * Whether the caller is the consumer thread, e.g. a future's callback; it must not wait on a command
+     */
+    public boolean isConsumerThread() {
+        return Thread.currentThread() == consumer;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public long getAppliedCount() {
+        return applied.sum();
+    }
+
+    /**
+     * Average number of commands applied together; larger under load
+     */
+    public double getAverageBatchSize() {
+        long count = batches.sum();
+        return count == 0 ? 0 : (double) applied.sum() / count;
+    }
+
+    /**
+     * Take whatever is queued, up to maxBatch, apply it and complete the futures; park when idle
+     */
+    private void consumeLoop() {
+        ArrayList<Command> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            long next = consumed;
+            while (batch.size() < maxBatch) {
+                int index = (int) next & mask;
+                Command command = slots.get(index);
+                if (command == null) {
+                    break;  // Nothing queued, or claimed but not yet published
+                }
+                slots.set(index, null);
+                batch.add(command);
+                next++;
+            }
+
+            if (batch.isEmpty()) {
+                sleeping = true;
+                if (slots.get((int) next & mask) == null) {  // Re-check, so a command published meanwhile is not missed
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+                continue;
+            }
+            consumed = next;  // Frees the slots for producers
+
+            RuntimeException failure = null;
+            try {
+                handler.accept(batch);
+            } catch (RuntimeException e) {
+                failure = e;  // The handler stopped early; commands it did not get to were never applied
+            }
+            applied.add(batch.size());  // Counted first, so a caller whose future completed sees its batch counted
+            batches.increment();
+            for (Command command : batch) {
+                if (command.error != null) {
+                    command.future.completeExceptionally(command.error);
+                } else if (!command.handled) {
+                    command.future.completeExceptionally(failure != null ? failure
+                            : new IllegalStateException("The booking request was not handled."));
+                } else {
+                    command.future.complete(command.result);
+                }
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.List;
+
+/**
+ * Listener interface for mutations the managers make
+ * Lets PersistenceManager journal every change without the managers knowing about files.
+ * Each method only queues the change and returns a ticket; managers call it while they still
+ * hold the lock that orders the change, then wait for durability with awaitDurable after releasing it.
+ * The default methods do nothing, so NONE keeps a manager purely in memory.
+ */
+public interface ChangeLog {
+    ChangeLog NONE = new ChangeLog() {};
+
+    /**
+     * Called after a flight was added, updated or cancelled
+     */
+    default long flightSaved(Flight flight) {
+        return 0;
+    }
+
+    default long flightDeleted(String flightId) {
+        return 0;
+    }
+
+    /**
+     * Called after a passenger was added or updated
+     */
+    default long passengerSaved(Passenger passenger) {
+        return 0;
+    }
+
+    default long passengerDeleted(String passengerId) {
+        return 0;
+    }
+
+    default long bookingCreated(Booking booking) {
+        return 0;
+    }
+
+    /**
+     * Called for the bookings of a group, which are made together
+     * @return the ticket of the last booking, which covers all of them
+     */
+    default long bookingsCreated(List<Booking> group) {
+        long ticket = 0;
+        for (Booking booking : group) {
+            ticket = bookingCreated(booking);
+        }
+        return ticket;
+    }
+
+    default long bookingCancelled(String bookingId) {
+        return 0;
+    }
+
+    default long serviceRequested(Service service) {
+        return 0;
+    }
+
+    default long serviceCompleted(String serviceId) {
+        return 0;
+    }
+
+    default long servicePriorityChanged(String serviceId, int priority) {
+        return 0;
+    }
+
+    /**
+     * Wait until the change with the given ticket, and every change before it, is durable
+     */
+    default void awaitDurable(long ticket) {
+    }
+}
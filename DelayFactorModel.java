@@ -0,0 +1,19 @@
+import java.util.SplittableRandom;
+
+/**
+ * Interface for one factor of a flight delay forecast, e.g. weather or air traffic
+ * Models are plugged into a DelayForecaster, which calls them from many threads at once,
+ * so they must not keep mutable state. Their random numbers come from the generator they
+ * are handed, which the forecaster seeds per flight, so a forecast can be reproduced.
+ */
+public interface DelayFactorModel {
+    /**
+     * Name shown in the per-factor breakdown
+     */
+    String getName();
+
+    /**
+     * @return predicted delay in minutes caused by this factor, zero or more
+     */
+    int predictMinutes(Flight flight, DelayForecaster.Conditions conditions, SplittableRandom random);
+}
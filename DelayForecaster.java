@@ -0,0 +1,224 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * DelayForecaster class to predict flight delays from pluggable factor models
+ * Every flight gets its own random generator derived from the forecast seed and its ID, so
+ * forecasts are reproducible and can be computed for many flights in parallel.
+ * Results are cached per flight; the cache is dropped as a whole when the models, the seed or
+ * the weather change, and a cached forecast is never used for a flight whose schedule has changed since.
+ * Uses various data structures:
+ * - LongObjectMap caching the latest forecast per flight ID
+ * - ConcurrentHashMap of weather severity per airport
+ * - Parallel streams (the common fork-join pool) for batch forecasts
+ */
+public class DelayForecaster {
+    private volatile Generation current;  // Replaced as a whole whenever an input changes
+    private ConcurrentHashMap<String, Double> weather;  // Airport -> severity from 0 (clear) to 1 (severe)
+
+    /**
+     * The inputs forecasts are computed from, with the forecasts computed from them
+     */
+    private static class Generation {
+        final List<DelayFactorModel> models;
+        final long seed;
+        final Conditions conditions;
+        final LongObjectMap<DelayPrediction> cache = new LongObjectMap<>();
+
+        Generation(List<DelayFactorModel> models, long seed, Conditions conditions) {
+            this.models = models;
+            this.seed = seed;
+            this.conditions = conditions;
+        }
+    }
+
+    /**
+     * Read-only view of the current conditions handed to the models
+     */
+    public static final class Conditions {
+        private final Map<String, Double> weather;
+
+        private Conditions(Map<String, Double> weather) {
+            this.weather = weather;
+        }
+
+        /**
+         * @return weather severity at an airport, from 0 (clear) to 1 (severe); 0 if none was reported
+         */
+        public double weatherAt(String airport) {
+            return weather.getOrDefault(normalize(airport), 0.0);
+        }
+    }
+
+    /**
+     * Forecaster with the default factor models and a fixed seed
+     */
+    public DelayForecaster() {
+        this(defaultModels(), 42L);
+    }
+
+    public DelayForecaster(List<DelayFactorModel> models, long seed) {
+        this.weather = new ConcurrentHashMap<>();
+        this.current = new Generation(List.copyOf(models), seed, new Conditions(Map.of()));
+    }
+
+    /**
+     * Forecast one flight, from the cache if its forecast is still valid
+     */
+    public DelayPrediction forecast(Flight flight) {
+        return forecast(flight, current);
+    }
+
+    /**
+     * Forecast many flights in parallel and record each predicted arrival on its flight
+     * @return the forecasts, in the order of the given flights
+     */
+    public List<DelayPrediction> forecastAll(Collection<Flight> flights) {
+        Generation generation = current;
+        return flights.parallelStream()
+                .map(flight -> forecast(flight, generation))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Forget a flight's forecast, e.g. after its schedule changed
+     */
+    public void invalidate(Flight flight) {
+        current.cache.remove(IdGenerator.decode(flight.getFlightId()));
+        flight.setPredictedArrival(null);
+    }
+
+    /**
+     * Report the weather at an airport; every cached forecast is dropped
+     * @param severity from 0 (clear) to 1 (severe)
+     * @throws AeroLinkException INVALID_INPUT if the severity is out of range
+     */
+    public synchronized void setWeather(String airport, double severity) {
+        if (!(severity >= 0 && severity <= 1)) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                    "Weather severity must be between 0 and 1.");
+        }
+        weather.put(normalize(airport), severity);
+        Generation old = current;
+        current = new Generation(old.models, old.seed, new Conditions(Map.copyOf(weather)));
+    }
+
+    /**
+     * Replace the factor models; every cached forecast is dropped
+     */
+    public synchronized void setModels(List<DelayFactorModel> models) {
+        Generation old = current;
+        current = new Generation(List.copyOf(models), old.seed, old.conditions);
+    }
+
+    /**
+     * Change the seed forecasts are drawn from; every cached forecast is dropped
+     */
+    public synchronized void setSeed(long seed) {
+        Generation old = current;
+        current = new Generation(old.models, seed, old.conditions);
+    }
+
+    public List<DelayFactorModel> getModels() {
+        return current.models;
+    }
+
+    private static DelayPrediction forecast(Flight flight, Generation generation) {
+        long key = IdGenerator.decode(flight.getFlightId());
+        DelayPrediction cached = generation.cache.get(key);
+        LocalDateTime departure = flight.getDepartureTime();
+        LocalDateTime arrival = flight.getArrivalTime();
+        if (cached != null && cached.isFor(departure, arrival)) {
+            return cached;
+        }
+
+        SplittableRandom random = new SplittableRandom(mix(generation.seed, key));
+        LinkedHashMap<String, Integer> factorDelays = new LinkedHashMap<>();
+        for (DelayFactorModel model : generation.models) {
+            factorDelays.put(model.getName(),
+                    Math.max(0, model.predictMinutes(flight, generation.conditions, random.split())));
+        }
+        DelayPrediction prediction = new DelayPrediction(flight, departure, arrival, factorDelays);
+        generation.cache.put(key, prediction);
+        flight.setPredictedArrival(prediction.getPredictedArrival());
+        return prediction;
+    }
+
+    /**
+     * Seed for one flight: the forecast seed and flight ID mixed so that neighbouring IDs differ widely
+     */
+    private static long mix(long seed, long key) {
+        long z = seed + key * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static String normalize(String airport) {
+        return airport == null ? "" : airport.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * The factors the single-flight prediction has always reported
+     */
+    public static List<DelayFactorModel> defaultModels() {
+        List<DelayFactorModel> models = new ArrayList<>();
+        models.add(new FactorModel("Weather conditions") {
+            @Override
+            public int predictMinutes(Flight flight, Conditions conditions, SplittableRandom random) {
+                // The worse end of the trip dominates; clear skies still leave a little variation
+                double severity = Math.max(conditions.weatherAt(flight.getOrigin()),
+                        conditions.weatherAt(flight.getDestination()));
+                return (int) Math.round(severity * 90 * (0.5 + random.nextDouble())) + random.nextInt(10);
+            }
+        });
+        models.add(new FactorModel("Air traffic") {
+            @Override
+            public int predictMinutes(Flight flight, Conditions conditions, SplittableRandom random) {
+                int hour = flight.getDepartureTime().getHour();
+                boolean peak = (hour >= 7 && hour < 10) || (hour >= 17 && hour < 20);
+                return (peak ? 10 : 0) + random.nextInt(20);
+            }
+        });
+        models.add(new FactorModel("Technical issues") {
+            @Override
+            public int predictMinutes(Flight flight, Conditions conditions, SplittableRandom random) {
+                // Usually nothing; occasionally a long hold for a fault
+                return random.nextInt(20) == 0 ? 30 + random.nextInt(60) : random.nextInt(5);
+            }
+        });
+        models.add(new FactorModel("Airport conditions") {
+            @Override
+            public int predictMinutes(Flight flight, Conditions conditions, SplittableRandom random) {
+                // Fuller flights take longer to board
+                double load = flight.getCapacity() == 0 ? 0 : (double) flight.getBookedSeats() / flight.getCapacity();
+                return (int) Math.round(load * 10) + random.nextInt(10);
+            }
+        });
+        return models;
+    }
+
+    /**
+     * Base for the built-in models: just a name
+     */
+    private abstract static class FactorModel implements DelayFactorModel {
+        private final String name;
+
+        FactorModel(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+
+/**
+ * DelayPrediction class holding the result of a flight delay prediction
+ * Keeps the per-factor breakdown in the order the factors were analysed,
+ * and the schedule it was computed for, so a forecast for an older schedule is recognised
+ */
+public class DelayPrediction {
+    private Flight flight;
+    private LocalDateTime scheduledDeparture;  // Schedule the prediction was made for
+    private LocalDateTime scheduledArrival;
+    private LinkedHashMap<String, Integer> factorDelays;  // Factor name -> predicted minutes
+    private int totalDelay;
+
+    public DelayPrediction(Flight flight, LocalDateTime scheduledDeparture, LocalDateTime scheduledArrival,
+                           LinkedHashMap<String, Integer> factorDelays) {
+        this.flight = flight;
+        this.scheduledDeparture = scheduledDeparture;
+        this.scheduledArrival = scheduledArrival;
+        this.factorDelays = factorDelays;
+        int total = 0;
+        for (int minutes : factorDelays.values()) {
+            total += minutes;
+        }
+        this.totalDelay = total;
+    }
+
+    public Flight getFlight() {
+        return flight;
+    }
+
+    public LinkedHashMap<String, Integer> getFactorDelays() {
+        return factorDelays;
+    }
+
+    public int getTotalDelay() {
+        return totalDelay;
+    }
+
+    public LocalDateTime getScheduledArrival() {
+        return scheduledArrival;
+    }
+
+    public LocalDateTime getPredictedArrival() {
+        return scheduledArrival.plusMinutes(totalDelay);
+    }
+
+    /**
+     * Whether this prediction was made for the given schedule
+     */
+    public boolean isFor(LocalDateTime departure, LocalDateTime arrival) {
+        return scheduledDeparture.equals(departure) && scheduledArrival.equals(arrival);
+    }
+}
@@ -0,0 +1,396 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DelayPropagator class to carry a flight's predicted delay on to the flights and passengers that depend on it
+ * Flights are linked in two ways:
+ * - turnaround: the aircraft of an inbound flight operates an outbound flight from the same airport,
+ *   so the outbound flight cannot leave before the inbound one has arrived and been turned around
+ * - passenger connection: a passenger is booked on a flight into an airport and on a flight out of it
+ *   within the connection window; these come straight from BookingManager's indexes, so they are always current
+ * When a flight's predicted arrival moves, only the flights downstream of it are recomputed, and the walk
+ * stops at every flight whose estimate does not change. Passenger connections are re-checked only for the
+ * flights whose estimates changed.
+ * Links and broken connections are re-checked whenever they are used: a turnaround link is dropped once either
+ * flight is deleted, cancelled or rescheduled so that the two no longer connect, and a broken connection once
+ * either booking is cancelled or either flight is gone. Links that would close a loop are refused.
+ * Uses various data structures:
+ * - LongObjectMap of turnaround links and of current estimates per flight ID
+ * - ArrayDeque as the work list of flights to recompute, with a HashSet of the flights already on it
+ * - ConcurrentHashMap of broken connections
+ */
+public class DelayPropagator {
+    private static final Duration MIN_CONNECTION = Duration.ofMinutes(45);  // Shortest transfer a passenger can make
+    private static final Duration MAX_CONNECTION = Duration.ofHours(8);  // Longer gaps are separate trips, not connections
+    private static final Duration MIN_TURNAROUND = Duration.ofMinutes(30);  // Shortest time to turn an aircraft around
+
+    private FlightManager flightManager;
+    private BookingManager bookingManager;
+    private LongObjectMap<Flight> nextLeg;  // Inbound flight ID -> outbound flight flown by the same aircraft
+    private LongObjectMap<Flight> previousLeg;  // Outbound flight ID -> inbound flight
+    private LongObjectMap<Estimate> estimates;  // Flight ID -> latest estimate; missing means on schedule
+    private ConcurrentHashMap<String, Connection> broken;  // "inbound booking|outbound booking" -> broken connection
+
+    /**
+     * Predicted times of one flight, valid only for the schedule it was computed from
+     */
+    public static class Estimate {
+        private final Flight flight;
+        private final LocalDateTime scheduledDeparture;
+        private final LocalDateTime scheduledArrival;
+        private final LocalDateTime ownArrival;  // The flight's own prediction, before knock-on delays
+        private final LocalDateTime departure;
+        private final LocalDateTime arrival;
+
+        Estimate(Flight flight, LocalDateTime ownArrival, LocalDateTime departure, LocalDateTime arrival) {
+            this.flight = flight;
+            this.scheduledDeparture = flight.getDepartureTime();
+            this.scheduledArrival = flight.getArrivalTime();
+            this.ownArrival = ownArrival;
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+
+        boolean isCurrent() {
+            return scheduledDeparture.equals(flight.getDepartureTime()) && scheduledArrival.equals(flight.getArrivalTime());
+        }
+
+        public Flight getFlight() {
+            return flight;
+        }
+
+        public LocalDateTime getDeparture() {
+            return departure;
+        }
+
+        public LocalDateTime getArrival() {
+            return arrival;
+        }
+
+        public long getDepartureDelay() {
+            return Duration.between(scheduledDeparture, departure).toMinutes();
+        }
+
+        public long getArrivalDelay() {
+            return Duration.between(scheduledArrival, arrival).toMinutes();
+        }
+    }
+
+    /**
+     * A passenger's transfer from one booked flight to another
+     */
+    public static class Connection {
+        private final Booking inbound;
+        private final Booking outbound;
+        private final long slackMinutes;  // Predicted time between arriving and departing
+
+        Connection(Booking inbound, Booking outbound, long slackMinutes) {
+            this.inbound = inbound;
+            this.outbound = outbound;
+            this.slackMinutes = slackMinutes;
+        }
+
+        public Booking getInbound() {
+            return inbound;
+        }
+
+        public Booking getOutbound() {
+            return outbound;
+        }
+
+        public long getSlackMinutes() {
+            return slackMinutes;
+        }
+
+        @Override
+        public String toString() {
+            return "Passenger " + inbound.getPassengerId() + ": flight " + inbound.getFlightId() +
+                    " -> flight " + outbound.getFlightId() + " (" + slackMinutes + " min to connect)";
+        }
+    }
+
+    /**
+     * What one propagation changed
+     */
+    public static class Result {
+        private final ArrayList<Estimate> affected = new ArrayList<>();
+        private final ArrayList<Connection> broken = new ArrayList<>();
+        private final ArrayList<Connection> restored = new ArrayList<>();
+
+        /**
+         * Flights whose estimates changed, the delayed flight first
+         */
+        public ArrayList<Estimate> getAffected() {
+            return affected;
+        }
+
+        /**
+         * Connections that this propagation broke
+         */
+        public ArrayList<Connection> getBroken() {
+            return broken;
+        }
+
+        /**
+         * Previously broken connections that can be made again
+         */
+        public ArrayList<Connection> getRestored() {
+            return restored;
+        }
+    }
+
+    public DelayPropagator(FlightManager flightManager, BookingManager bookingManager) {
+        this.flightManager = flightManager;
+        this.bookingManager = bookingManager;
+        this.nextLeg = new LongObjectMap<>();
+        this.previousLeg = new LongObjectMap<>();
+        this.estimates = new LongObjectMap<>();
+        this.broken = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Record that the aircraft of the inbound flight operates the outbound flight next
+     * @throws AeroLinkException NOT_FOUND, INVALID_INPUT if the flights do not connect,
+     *         or INVALID_STATE if either flight already has a turnaround link on that side
+     *         or the link would close a loop of turnarounds
+     */
+    public synchronized void linkTurnaround(String inboundId, String outboundId) {
+        Flight inbound = requireFlight(inboundId);
+        Flight outbound = requireFlight(outboundId);
+        if (!normalize(inbound.getDestination()).equals(normalize(outbound.getOrigin()))) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                    "Flight " + outboundId + " does not depart from where flight " + inboundId + " arrives.");
+        }
+        if (outbound.getDepartureTime().isBefore(inbound.getArrivalTime())) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                    "Flight " + outboundId + " departs before flight " + inboundId + " arrives.");
+        }
+        if (nextLegOf(inbound) != null || previousLegOf(outbound) != null) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_STATE,
+                    "One of these flights is already linked to another turnaround.");
+        }
+        for (Flight flight = outbound; flight != null; flight = nextLegOf(flight)) {
+            if (flight == inbound) {
+                throw new AeroLinkException(AeroLinkException.Reason.INVALID_STATE,
+                        "Flight " + outboundId + " already leads on to flight " + inboundId + "; the link would close a loop.");
+            }
+        }
+        nextLeg.put(keyOf(inbound), outbound);
+        previousLeg.put(keyOf(outbound), inbound);
+    }
+
+    /**
+     * @return the flight operated next by the same aircraft, or null if none is linked
+     * @throws AeroLinkException NOT_FOUND
+     */
+    public synchronized Flight getNextLeg(String flightId) {
+        return nextLegOf(requireFlight(flightId));
+    }
+
+    /**
+     * Use a delay prediction as the flight's own predicted arrival and propagate it
+     */
+    public Result propagate(DelayPrediction prediction) {
+        return propagate(prediction.getFlight().getFlightId(), prediction.getPredictedArrival());
+    }
+
+    /**
+     * Set a flight's own predicted arrival and recompute everything downstream of it
+     * @throws AeroLinkException NOT_FOUND
+     */
+    public synchronized Result propagate(String flightId, LocalDateTime predictedArrival) {
+        Flight start = requireFlight(flightId);
+        Result result = new Result();
+
+        ArrayDeque<Flight> work = new ArrayDeque<>();
+        HashSet<Flight> visited = new HashSet<>();  // linkTurnaround refuses loops; this guards the walk regardless
+        work.add(start);
+        visited.add(start);
+        boolean first = true;
+        while (!work.isEmpty()) {
+            Flight flight = work.poll();
+            Estimate old = estimateOf(flight);
+            LocalDateTime ownArrival = first ? predictedArrival : old.ownArrival;
+            first = false;
+
+            Estimate updated = compute(flight, ownArrival);
+            if (updated.departure.equals(old.departure) && updated.arrival.equals(old.arrival)
+                    && updated.ownArrival.equals(old.ownArrival)) {
+                continue;  // Nothing downstream of this flight can change
+            }
+            estimates.put(keyOf(flight), updated);
+            result.affected.add(updated);
+            checkConnections(flight, result);
+
+            Flight next = nextLegOf(flight);
+            if (next != null && visited.add(next)) {
+                work.add(next);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the flight's current estimate; a flight without one is expected on schedule
+     */
+    public synchronized Estimate getEstimate(String flightId) {
+        return estimateOf(requireFlight(flightId));
+    }
+
+    /**
+     * Every connection currently predicted to be missed
+     * Connections whose bookings were cancelled or whose flights were deleted or cancelled since are dropped here
+     */
+    public Collection<Connection> getBrokenConnections() {
+        broken.values().removeIf(connection -> !isLive(connection.inbound) || !isLive(connection.outbound));
+        return new ArrayList<>(broken.values());
+    }
+
+    /**
+     * The flight's times given its own predicted arrival and the predicted arrival of its aircraft
+     */
+    private Estimate compute(Flight flight, LocalDateTime ownArrival) {
+        LocalDateTime departure = flight.getDepartureTime();
+        Flight previous = previousLegOf(flight);
+        if (previous != null) {
+            LocalDateTime ready = estimateOf(previous).arrival.plus(MIN_TURNAROUND);
+            if (ready.isAfter(departure)) {
+                departure = ready;
+            }
+        }
+        // A late departure arrives at least as late; the flight's own prediction can only add to that
+        LocalDateTime arrival = flight.getArrivalTime().plus(Duration.between(flight.getDepartureTime(), departure));
+        if (ownArrival.isAfter(arrival)) {
+            arrival = ownArrival;
+        }
+        return new Estimate(flight, ownArrival, departure, arrival);
+    }
+
+    private Estimate estimateOf(Flight flight) {
+        Estimate estimate = estimates.get(keyOf(flight));
+        if (estimate != null && estimate.isCurrent()) {
+            return estimate;
+        }
+        // Schedule changed since, or never estimated: on time
+        return new Estimate(flight, flight.getArrivalTime(), flight.getDepartureTime(), flight.getArrivalTime());
+    }
+
+    /**
+     * Re-check every passenger connection into and out of a flight whose estimate changed
+     */
+    private void checkConnections(Flight flight, Result result) {
+        String airportIn = normalize(flight.getOrigin());
+        String airportOut = normalize(flight.getDestination());
+        for (Booking booking : bookingManager.getBookingsForFlight(flight.getFlightId())) {
+            for (Booking other : bookingManager.getBookingsForPassenger(booking.getPassengerId())) {
+                Flight otherFlight = flightManager.getFlightById(other.getFlightId());
+                if (otherFlight == null || otherFlight == flight || otherFlight.isCancelled()) {
+                    continue;
+                }
+                // Connections are defined by the schedule the passenger booked, then checked against the estimates
+                if (normalize(otherFlight.getDestination()).equals(airportIn)
+                        && isConnection(otherFlight.getArrivalTime(), flight.getDepartureTime())) {
+                    check(other, otherFlight, booking, flight, result);
+                } else if (normalize(otherFlight.getOrigin()).equals(airportOut)
+                        && isConnection(flight.getArrivalTime(), otherFlight.getDepartureTime())) {
+                    check(booking, flight, other, otherFlight, result);
+                }
+            }
+        }
+    }
+
+    private void check(Booking inbound, Flight inboundFlight, Booking outbound, Flight outboundFlight, Result result) {
+        long slack = Duration.between(estimateOf(inboundFlight).arrival, estimateOf(outboundFlight).departure).toMinutes();
+        String key = inbound.getBookingId() + "|" + outbound.getBookingId();
+        Connection connection = new Connection(inbound, outbound, slack);
+        if (slack < MIN_CONNECTION.toMinutes()) {
+            if (broken.put(key, connection) == null) {
+                result.broken.add(connection);
+            }
+        } else if (broken.remove(key) != null) {
+            result.restored.add(connection);
+        }
+    }
+
+    /**
+     * The flight linked after this one, or null; a link that no longer holds is dropped
+     */
+    private Flight nextLegOf(Flight inbound) {
+        Flight outbound = nextLeg.get(keyOf(inbound));
+        if (outbound != null && !holds(inbound, outbound)) {
+            unlink(inbound, outbound);
+            return null;
+        }
+        return outbound;
+    }
+
+    /**
+     * The flight linked before this one, or null; a link that no longer holds is dropped
+     */
+    private Flight previousLegOf(Flight outbound) {
+        Flight inbound = previousLeg.get(keyOf(outbound));
+        if (inbound != null && !holds(inbound, outbound)) {
+            unlink(inbound, outbound);
+            return null;
+        }
+        return inbound;
+    }
+
+    /**
+     * Whether a turnaround link still stands: both flights are scheduled, flying and still connect
+     */
+    private boolean holds(Flight inbound, Flight outbound) {
+        return isScheduled(inbound) && isScheduled(outbound)
+                && normalize(inbound.getDestination()).equals(normalize(outbound.getOrigin()))
+                && !outbound.getDepartureTime().isBefore(inbound.getArrivalTime());
+    }
+
+    private void unlink(Flight inbound, Flight outbound) {
+        nextLeg.remove(keyOf(inbound));
+        previousLeg.remove(keyOf(outbound));
+    }
+
+    /**
+     * Whether a booking still exists and its flight is still scheduled
+     */
+    private boolean isLive(Booking booking) {
+        if (bookingManager.getBookingById(booking.getBookingId()) != booking) {
+            return false;
+        }
+        Flight flight = flightManager.getFlightById(booking.getFlightId());
+        return flight != null && isScheduled(flight);
+    }
+
+    /**
+     * Whether the flight is still in FlightManager and not cancelled
+     */
+    private boolean isScheduled(Flight flight) {
+        return flightManager.getFlightById(flight.getFlightId()) == flight && !flight.isCancelled();
+    }
+
+    private static long keyOf(Flight flight) {
+        return IdGenerator.decode(flight.getFlightId());
+    }
+
+    private static boolean isConnection(LocalDateTime arrival, LocalDateTime departure) {
+        return !departure.isBefore(arrival) && !departure.isAfter(arrival.plus(MAX_CONNECTION));
+    }
+
+    private Flight requireFlight(String flightId) {
+        Flight flight = flightManager.getFlightById(flightId);
+        if (flight == null) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Flight not found with ID: " + flightId);
+        }
+        return flight;
+    }
+
+    private static String normalize(String airport) {
+        return airport == null ? "" : airport.trim().toUpperCase(Locale.ROOT);
+    }
+}
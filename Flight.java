@@ -1,4 +1,4 @@
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -8,15 +8,16 @@ import java.time.format.DateTimeFormatter;
  */
 public class Flight implements Comparable<Flight> {
     private String flightId;
-    private String flightName;
-    private String origin;
-    private String destination;
-    private LocalDateTime departureTime;
-    private LocalDateTime arrivalTime;
-    private int capacity;
-    private int bookedSeats;
-    private boolean cancelled;
-    private double price;  // ✅ Added price field
+    private volatile String flightName;  // Volatile so updates are visible to other request threads
+    private volatile String origin;
+    private volatile String destination;
+    private volatile LocalDateTime departureTime;
+    private volatile LocalDateTime arrivalTime;
+    private final AtomicLong seats;  // Capacity in the high 32 bits, booked seats in the low 32; one compare-and-set covers both
+    private volatile boolean cancelled;
+    private volatile double price;  // ✅ Added price field
+    private volatile FlightChangeListener changeListener;  // Notified when seat counts change
+    private volatile LocalDateTime predictedArrival;  // Latest forecast from DelayForecaster, null if none
 
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd-MM-yyyy");
 
@@ -25,14 +26,22 @@ public class Flight implements Comparable<Flight> {
      */
     public Flight(String flightName, String origin, String destination,
                   LocalDateTime departureTime, LocalDateTime arrivalTime, int capacity, double price) {
-        this.flightId = UUID.randomUUID().toString().substring(0, 8);
+        this(IdGenerator.nextId(), flightName, origin, destination, departureTime, arrivalTime, capacity, price);
+    }
+
+    /**
+     * Constructor used when restoring a saved flight, keeping its original ID
+     */
+    public Flight(String flightId, String flightName, String origin, String destination,
+                  LocalDateTime departureTime, LocalDateTime arrivalTime, int capacity, double price) {
+        IdGenerator.observe(flightId);  // New IDs must not reuse a restored one
+        this.flightId = flightId;
         this.flightName = flightName;
         this.origin = origin;
         this.destination = destination;
         this.departureTime = departureTime;
         this.arrivalTime = arrivalTime;
-        this.capacity = capacity;
-        this.bookedSeats = 0;
+        this.seats = new AtomicLong(pack(capacity, 0));
         this.cancelled = false;
         this.price = price;  // ✅ Initialize price
     }
@@ -83,19 +92,21 @@ public class Flight implements Comparable<Flight> {
     }
 
     public int getCapacity() {
-        return capacity;
+        return capacity(seats.get());
     }
 
     public void setCapacity(int capacity) {
-        this.capacity = capacity;
+        seats.getAndUpdate(state -> pack(capacity, booked(state)));
+        notifySeatsChanged();
     }
 
     public int getBookedSeats() {
-        return bookedSeats;
+        return booked(seats.get());
     }
 
     public void setBookedSeats(int bookedSeats) {
-        this.bookedSeats = bookedSeats;
+        seats.getAndUpdate(state -> pack(capacity(state), bookedSeats));
+        notifySeatsChanged();
     }
 
     public boolean isCancelled() {
@@ -114,28 +125,117 @@ public class Flight implements Comparable<Flight> {
         this.price = price;
     }
 
+    public LocalDateTime getPredictedArrival() {
+        return predictedArrival;
+    }
+
+    public void setPredictedArrival(LocalDateTime predictedArrival) {
+        this.predictedArrival = predictedArrival;
+    }
+
+    public void setChangeListener(FlightChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Reserve one seat
+     * Lock-free: the capacity check and the increment happen in one compare-and-set,
+     * so any number of threads can book the same flight without overselling
+     * @return true if a seat was reserved
+     */
     public boolean bookSeat() {
-        if (bookedSeats < capacity && !cancelled) {
-            bookedSeats++;
-            return true;
+        return reserveSeats(1);
+    }
+
+    /**
+     * Reserve several seats at once, e.g. for a group; either all of them or none
+     * @return true if the seats were reserved
+     */
+    public boolean reserveSeats(int count) {
+        while (true) {
+            long state = seats.get();
+            int booked = booked(state);
+            if (count > capacity(state) - booked || cancelled) {
+                return false;
+            }
+            if (seats.compareAndSet(state, pack(capacity(state), booked + count))) {
+                notifySeatsChanged();
+                return true;
+            }
         }
-        return false;
     }
 
+    /**
+     * Change the capacity unless more seats are already booked than the new capacity
+     * The check and the change happen in one compare-and-set, so a concurrent booking
+     * cannot slip in between them
+     * @return true if the capacity was changed
+     */
+    public boolean resize(int capacity) {
+        while (true) {
+            long state = seats.get();
+            if (booked(state) > capacity) {
+                return false;
+            }
+            if (seats.compareAndSet(state, pack(capacity, booked(state)))) {
+                notifySeatsChanged();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release one seat
+     * @return true if a seat was released
+     */
     public boolean cancelBooking() {
-        if (bookedSeats > 0) {
-            bookedSeats--;
-            return true;
+        return releaseSeats(1);
+    }
+
+    /**
+     * Release several seats at once
+     * @return true if the seats were released, false if fewer than that many were booked
+     */
+    public boolean releaseSeats(int count) {
+        while (true) {
+            long state = seats.get();
+            int booked = booked(state);
+            if (booked < count) {
+                return false;
+            }
+            if (seats.compareAndSet(state, pack(capacity(state), booked - count))) {
+                notifySeatsChanged();
+                return true;
+            }
+        }
+    }
+
+    private void notifySeatsChanged() {
+        if (changeListener != null) {
+            changeListener.seatsChanged(this);
         }
-        return false;
     }
 
     public boolean hasAvailableSeats() {
-        return bookedSeats < capacity && !cancelled;
+        long state = seats.get();
+        return booked(state) < capacity(state) && !cancelled;
     }
 
     public int getAvailableSeats() {
-        return capacity - bookedSeats;
+        long state = seats.get();
+        return capacity(state) - booked(state);
+    }
+
+    private static long pack(int capacity, int booked) {
+        return ((long) capacity << 32) | (booked & 0xFFFFFFFFL);
+    }
+
+    private static int capacity(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int booked(long state) {
+        return (int) state;
     }
 
     @Override
@@ -151,8 +251,8 @@ public class Flight implements Comparable<Flight> {
                 "Destination: " + destination + "\n" +
                 "Departure: " + departureTime.format(formatter) + "\n" +
                 "Arrival: " + arrivalTime.format(formatter) + "\n" +
-                "Capacity: " + capacity + "\n" +
-                "Booked Seats: " + bookedSeats + "\n" +
+                "Capacity: " + getCapacity() + "\n" +
+                "Booked Seats: " + getBookedSeats() + "\n" +
                 "Available Seats: " + getAvailableSeats() + "\n" +
                 "Price: ₹" + price + "\n" +  // ✅ Show price
                 "Status: " + (cancelled ? "Cancelled" : "Active");
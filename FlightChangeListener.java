@@ -0,0 +1,10 @@
+/**
+ * Listener interface for changes made directly on a Flight
+ * Lets FlightManager keep its indexes current when a booking changes the seat counts
+ */
+public interface FlightChangeListener {
+    /**
+     * Called after the booked seats or capacity of a flight changed
+     */
+    void seatsChanged(Flight flight);
+}
@@ -0,0 +1,498 @@
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * FlightConsole class with the interactive flight menus
+ * Only prompts and prints; every operation is delegated to FlightManager
+ * (and to Reaccommodator for the passengers of a cancelled flight)
+ */
+public class FlightConsole {
+    private FlightManager flightManager;
+    private Reaccommodator reaccommodator;
+    private Scanner scanner;
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd-MM-yyyy");
+    private static final int ITINERARIES_SHOWN = 5;  // Default number of itineraries offered
+
+    public FlightConsole(FlightManager flightManager, Reaccommodator reaccommodator, Scanner scanner) {
+        this.flightManager = flightManager;
+        this.reaccommodator = reaccommodator;
+        this.scanner = scanner;
+    }
+
+    public void addFlight() {
+        try {
+            System.out.println("\n===== Add New Flight =====");
+
+            System.out.print("Enter Flight Name: ");
+            String flightName = scanner.nextLine().trim();
+
+            System.out.print("Enter Origin: ");
+            String origin = scanner.nextLine().trim();
+
+            System.out.print("Enter Destination: ");
+            String destination = scanner.nextLine().trim();
+
+            LocalDateTime departureTime = getDateTime("Enter Departure Time (HH:mm dd-MM-yyyy): ");
+            LocalDateTime arrivalTime = getDateTime("Enter Arrival Time (HH:mm dd-MM-yyyy): ");
+
+            if (arrivalTime.isBefore(departureTime)) {
+                System.out.println("Error: Arrival time cannot be before departure time.");
+                return;
+            }
+
+            System.out.print("Enter Capacity: ");
+            int capacity = Integer.parseInt(scanner.nextLine().trim());
+
+            if (capacity <= 0) {
+                System.out.println("Error: Capacity must be greater than zero.");
+                return;
+            }
+
+            System.out.print("Enter Flight Price: ");
+            double price = Double.parseDouble(scanner.nextLine().trim());
+
+            Flight flight = flightManager.createFlight(flightName, origin, destination,
+                    departureTime, arrivalTime, capacity, price);
+
+            System.out.println("Flight added successfully!");
+            System.out.println("Flight ID: " + flight.getFlightId());
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter valid numeric values.");
+        } catch (DateTimeParseException e) {
+            System.out.println("Error: Invalid date format. Please use HH:mm dd-MM-yyyy");
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Error adding flight: " + e.getMessage());
+        }
+    }
+
+    private LocalDateTime getDateTime(String prompt) throws DateTimeParseException {
+        System.out.print(prompt);
+        String dateTimeStr = scanner.nextLine().trim();
+        return LocalDateTime.parse(dateTimeStr, formatter);
+    }
+
+    public void cancelFlight() {
+        System.out.println("\n===== Cancel Flight =====");
+        if (!flightManager.hasFlights()) {
+            System.out.println("No flights available to cancel.");
+            return;
+        }
+
+        // Display all flights first
+        System.out.println("\nAvailable Flights:");
+        int count = 1;
+        for (Flight flight : flightManager.flights()) {
+            if (!flight.isCancelled()) {
+                System.out.println(count + ". ID: " + flight.getFlightId() +
+                        " | Flight: " + flight.getFlightName() +
+                        " | From: " + flight.getOrigin() +
+                        " | To: " + flight.getDestination());
+                count++;
+            }
+        }
+
+        if (count == 1) {
+            System.out.println("No active flights available to cancel.");
+            return;
+        }
+
+        System.out.print("\nEnter Flight ID to cancel: ");
+        String flightId = scanner.nextLine().trim();
+
+        try {
+            flightManager.cancelFlight(flightId);
+            System.out.println("Flight cancelled successfully!");
+
+            Reaccommodator.Result result = reaccommodator.reaccommodate(flightId);
+            int affected = result.getRebooked().size() + result.getAlreadyBooked().size() + result.getUnplaced().size()
+                    + result.getFailed().size();
+            if (affected > 0) {
+                System.out.println("Re-accommodated " + result.getRebooked().size() + " of " + affected +
+                        " passenger(s) on other flights in " + result.getMillis() + " ms.");
+                if (!result.getAlreadyBooked().isEmpty()) {
+                    System.out.println(result.getAlreadyBooked().size() + " passenger(s) already held a booking on an alternative.");
+                }
+                if (!result.getFailed().isEmpty()) {
+                    System.out.println(result.getFailed().size() + " booking(s) could not be moved: " +
+                            result.getError().getMessage());
+                }
+                if (!result.getUnplaced().isEmpty()) {
+                    System.out.println("No seats found within 48 hours for " + result.getUnplaced().size() + " passenger(s); their bookings:");
+                    for (Booking booking : result.getUnplaced()) {
+                        System.out.println("  Booking ID: " + booking.getBookingId() + " | Passenger ID: " + booking.getPassengerId());
+                    }
+                }
+            }
+        } catch (AeroLinkException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    public void deleteFlight() {
+        System.out.println("\n===== Delete Flight =====");
+        if (!flightManager.hasFlights()) {
+            System.out.println("No flights available to delete.");
+            return;
+        }
+
+        // Display all flights first
+        System.out.println("\nAvailable Flights:");
+        printFlightList();
+
+        System.out.print("\nEnter Flight ID to delete: ");
+        String flightId = scanner.nextLine().trim();
+
+        try {
+            flightManager.deleteFlight(flightId);
+            System.out.println("Flight deleted successfully!");
+        } catch (AeroLinkException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    public void updateFlightDetails() {
+        System.out.println("\n===== Update Flight Details =====");
+        if (!flightManager.hasFlights()) {
+            System.out.println("No flights available to update.");
+            return;
+        }
+
+        // Display all flights first
+        System.out.println("\nAvailable Flights:");
+        printFlightList();
+
+        System.out.print("\nEnter Flight ID to update: ");
+        String flightId = scanner.nextLine().trim();
+        Flight flight = flightManager.getFlightById(flightId);
+
+        if (flight == null) {
+            System.out.println("Flight not found with ID: " + flightId);
+            return;
+        }
+
+        System.out.println("Current flight details:");
+        System.out.println(flight);
+
+        try {
+            System.out.println("\nEnter new details (leave blank to keep current value):");
+
+            System.out.print("Flight Name [" + flight.getFlightName() + "]: ");
+            String flightName = blankToNull(scanner.nextLine().trim());
+
+            System.out.print("Origin [" + flight.getOrigin() + "]: ");
+            String origin = blankToNull(scanner.nextLine().trim());
+
+            System.out.print("Destination [" + flight.getDestination() + "]: ");
+            String destination = blankToNull(scanner.nextLine().trim());
+
+            System.out.print("Departure Time [" + flight.getDepartureTime().format(formatter) + "]: ");
+            String departureStr = scanner.nextLine().trim();
+            LocalDateTime departureTime = departureStr.isEmpty() ? null : LocalDateTime.parse(departureStr, formatter);
+
+            System.out.print("Arrival Time [" + flight.getArrivalTime().format(formatter) + "]: ");
+            String arrivalStr = scanner.nextLine().trim();
+            LocalDateTime arrivalTime = arrivalStr.isEmpty() ? null : LocalDateTime.parse(arrivalStr, formatter);
+
+            System.out.print("Capacity [" + flight.getCapacity() + "]: ");
+            String capacityStr = scanner.nextLine().trim();
+            Integer capacity = capacityStr.isEmpty() ? null : Integer.parseInt(capacityStr);
+
+            System.out.print("Price [₹" + flight.getPrice() + "]: ");
+            String priceStr = scanner.nextLine().trim();
+            Double price = priceStr.isEmpty() ? null : Double.parseDouble(priceStr);
+
+            flightManager.updateFlight(flightId, flightName, origin, destination,
+                    departureTime, arrivalTime, capacity, price);
+            System.out.println("Flight details updated successfully!");
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter valid numeric values.");
+        } catch (DateTimeParseException e) {
+            System.out.println("Error: Invalid date format. Please use HH:mm dd-MM-yyyy");
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Error updating flight: " + e.getMessage());
+        }
+    }
+
+    public void viewAllFlights() {
+        System.out.println("\n===== All Flights =====");
+        if (!flightManager.hasFlights()) {
+            System.out.println("No flights available.");
+            return;
+        }
+
+        int count = 1;
+        for (Flight flight : flightManager.flights()) {
+            System.out.println("\nFlight #" + count + ":");
+            System.out.println(flight);
+            System.out.println("------------------------------");
+            count++;
+        }
+    }
+
+    public void predictFlightDelay() {
+        System.out.println("\n===== Predict Flight Delay =====");
+        if (!flightManager.hasFlights()) {
+            System.out.println("No flights available to predict delays.");
+            return;
+        }
+
+        System.out.print("Enter Flight ID to predict delay: ");
+        String flightId = scanner.nextLine().trim();
+
+        DelayPrediction prediction;
+        try {
+            prediction = flightManager.predictFlightDelay(flightId);
+        } catch (AeroLinkException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        Flight flight = prediction.getFlight();
+
+        System.out.println("\nAnalyzing potential delay factors:");
+        for (Map.Entry<String, Integer> factor : prediction.getFactorDelays().entrySet()) {
+            System.out.println("- " + factor.getKey() + ": " + factor.getValue() + " minutes");
+        }
+
+        System.out.println("\nPredicted delay for flight " + flight.getFlightName() + " (" + flightId + "): " +
+                prediction.getTotalDelay() + " minutes");
+
+        System.out.println("Original arrival: " + flight.getArrivalTime().format(formatter));
+        System.out.println("Predicted arrival: " + prediction.getPredictedArrival().format(formatter));
+    }
+
+    public void searchFlightsByRoute() {
+        System.out.println("\n===== Search Flights by Route =====");
+        if (!flightManager.hasFlights()) {
+            System.out.println("No flights available.");
+            return;
+        }
+
+        try {
+            System.out.print("Enter Origin: ");
+            String origin = scanner.nextLine().trim();
+
+            System.out.print("Enter Destination: ");
+            String destination = scanner.nextLine().trim();
+
+            System.out.print("Earliest Departure (HH:mm dd-MM-yyyy, blank for any): ");
+            String fromStr = scanner.nextLine().trim();
+            LocalDateTime fromTime = fromStr.isEmpty() ? null : LocalDateTime.parse(fromStr, formatter);
+
+            System.out.print("Latest Departure (HH:mm dd-MM-yyyy, blank for any): ");
+            String toStr = scanner.nextLine().trim();
+            LocalDateTime toTime = toStr.isEmpty() ? null : LocalDateTime.parse(toStr, formatter);
+
+            printResults(flightManager.findFlights(origin, destination, fromTime, toTime));
+        } catch (DateTimeParseException e) {
+            System.out.println("Error: Invalid date format. Please use HH:mm dd-MM-yyyy");
+        }
+    }
+
+    /**
+     * Find journeys with connections between two airports
+     */
+    public void searchItineraries() {
+        System.out.println("\n===== Search Itineraries with Connections =====");
+        if (!flightManager.hasFlights()) {
+            System.out.println("No flights available.");
+            return;
+        }
+
+        try {
+            System.out.print("Enter Origin: ");
+            String origin = scanner.nextLine().trim();
+
+            System.out.print("Enter Destination: ");
+            String destination = scanner.nextLine().trim();
+
+            System.out.print("Earliest Departure (HH:mm dd-MM-yyyy, blank for now): ");
+            String fromStr = scanner.nextLine().trim();
+            LocalDateTime fromTime = fromStr.isEmpty() ? LocalDateTime.now() : LocalDateTime.parse(fromStr, formatter);
+
+            System.out.print("Latest Departure (HH:mm dd-MM-yyyy, blank for 24 hours later): ");
+            String toStr = scanner.nextLine().trim();
+            LocalDateTime toTime = toStr.isEmpty() ? fromTime.plusDays(1) : LocalDateTime.parse(toStr, formatter);
+
+            System.out.print("Sort by (1 = fastest, 2 = cheapest) [1]: ");
+            String sortStr = scanner.nextLine().trim();
+            ItinerarySearch.SortBy sortBy = sortStr.equals("2") ? ItinerarySearch.SortBy.CHEAPEST : ItinerarySearch.SortBy.FASTEST;
+
+            System.out.print("Number of itineraries [" + ITINERARIES_SHOWN + "]: ");
+            String countStr = scanner.nextLine().trim();
+            int count = countStr.isEmpty() ? ITINERARIES_SHOWN : Integer.parseInt(countStr);
+
+            long start = System.nanoTime();
+            ArrayList<ItinerarySearch.Itinerary> itineraries =
+                    flightManager.findItineraries(origin, destination, fromTime, toTime, count, sortBy);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            if (itineraries.isEmpty()) {
+                System.out.println("No itineraries with available seats found.");
+                return;
+            }
+            int number = 1;
+            for (ItinerarySearch.Itinerary itinerary : itineraries) {
+                System.out.println("\nOption " + number++ + ": " + itinerary);
+            }
+            System.out.println("\nFound " + itineraries.size() + " itineraries in " + millis + " ms. Book each leg by its flight ID.");
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter a valid number.");
+        } catch (DateTimeParseException e) {
+            System.out.println("Error: Invalid date format. Please use HH:mm dd-MM-yyyy");
+        }
+    }
+
+    /**
+     * Show how well repeated searches are served from the cache
+     */
+    public void viewSearchCacheStats() {
+        System.out.println("\n===== Search Cache Statistics =====");
+        System.out.println(flightManager.getQueryCacheStats());
+    }
+
+    public void searchFlights() {
+        System.out.println("\n===== Search Flights =====");
+        if (!flightManager.hasFlights()) {
+            System.out.println("No flights available.");
+            return;
+        }
+
+        System.out.print("Enter keyword (name/origin/destination): ");
+        String keyword = scanner.nextLine().trim();
+
+        if (keyword.isEmpty()) {
+            System.out.println("Search keyword cannot be empty.");
+            return;
+        }
+
+        printResults(flightManager.searchFlights(keyword));
+    }
+
+    public void importSchedule() {
+        System.out.println("\n===== Import Flight Schedule =====");
+        System.out.println("Each line: name, origin, destination, departure, arrival, capacity, price");
+        System.out.println("(comma or tab separated, times as HH:mm dd-MM-yyyy)");
+        System.out.print("Enter schedule file path: ");
+        String path = scanner.nextLine().trim();
+
+        if (path.isEmpty()) {
+            System.out.println("File path cannot be empty.");
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            ScheduleImporter.ImportResult result = new ScheduleImporter(flightManager).importFile(Paths.get(path));
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("Imported " + result.getImportedCount() + " flights in " + millis + " ms.");
+            if (result.getErrorCount() > 0) {
+                System.out.println(result.getErrorCount() + " lines were rejected:");
+                for (ScheduleImporter.LineError error : result.getErrors()) {
+                    System.out.println("- " + error);
+                }
+                if (result.getErrorCount() > result.getErrors().size()) {
+                    System.out.println("- ... " + (result.getErrorCount() - result.getErrors().size()) + " more");
+                }
+            }
+        } catch (InvalidPathException e) {
+            System.out.println("Error: Invalid file path.");
+        } catch (IOException e) {
+            System.out.println("Error importing schedule: " + e.getMessage());
+        }
+    }
+
+    private void printFlightList() {
+        int count = 1;
+        for (Flight flight : flightManager.flights()) {
+            System.out.println(count + ". ID: " + flight.getFlightId() +
+                    " | Flight: " + flight.getFlightName() +
+                    " | From: " + flight.getOrigin() +
+                    " | To: " + flight.getDestination() +
+                    " | Status: " + (flight.isCancelled() ? "Cancelled" : "Active"));
+            count++;
+        }
+    }
+
+    /**
+     * Forecast delays for every flight departing in a time window, optionally after a weather update
+     */
+    public void forecastDelays() {
+        System.out.println("\n===== Forecast Delays =====");
+        if (!flightManager.hasFlights()) {
+            System.out.println("No flights available to predict delays.");
+            return;
+        }
+
+        try {
+            System.out.print("Airport with changed weather (blank for none): ");
+            String airport = scanner.nextLine().trim();
+            if (!airport.isEmpty()) {
+                System.out.print("Weather severity (0 = clear, 1 = severe): ");
+                flightManager.getForecaster().setWeather(airport, Double.parseDouble(scanner.nextLine().trim()));
+            }
+
+            System.out.print("Earliest Departure (HH:mm dd-MM-yyyy, blank for start of today): ");
+            String fromStr = scanner.nextLine().trim();
+            LocalDateTime fromTime = fromStr.isEmpty() ? LocalDate.now().atStartOfDay() : LocalDateTime.parse(fromStr, formatter);
+
+            System.out.print("Latest Departure (HH:mm dd-MM-yyyy, blank for 24 hours later): ");
+            String toStr = scanner.nextLine().trim();
+            LocalDateTime toTime = toStr.isEmpty() ? fromTime.plusDays(1) : LocalDateTime.parse(toStr, formatter);
+
+            long start = System.nanoTime();
+            List<DelayPrediction> forecasts = flightManager.forecastDelays(fromTime, toTime);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            if (forecasts.isEmpty()) {
+                System.out.println("No flights depart in this window.");
+                return;
+            }
+            System.out.println("\nFlight | Route | Scheduled Arrival | Predicted Arrival | Delay");
+            for (DelayPrediction forecast : forecasts) {
+                Flight flight = forecast.getFlight();
+                System.out.println(flight.getFlightName() + " (" + flight.getFlightId() + ") | " +
+                        flight.getOrigin() + " -> " + flight.getDestination() + " | " +
+                        forecast.getScheduledArrival().format(formatter) + " | " +
+                        forecast.getPredictedArrival().format(formatter) + " | " +
+                        forecast.getTotalDelay() + " min");
+            }
+            System.out.println("Forecast " + forecasts.size() + " flights in " + millis + " ms.");
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter a valid number.");
+        } catch (DateTimeParseException e) {
+            System.out.println("Error: Invalid date format. Please use HH:mm dd-MM-yyyy");
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void printResults(ArrayList<Flight> results) {
+        System.out.println("Search results:");
+        if (results.isEmpty()) {
+            System.out.println("No matching flights found.");
+            return;
+        }
+        for (Flight flight : results) {
+            System.out.println(flight);
+            System.out.println("------------------------------");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -1,410 +1,506 @@
-import java.util.Scanner;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.PriorityQueue;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.Random;
 
+/**
+ * FlightManager class to manage all flight-related operations
+ * Headless API: methods take plain values and return results or throw AeroLinkException,
+ * the console prompts live in FlightConsole.
+ * Uses various data structures:
+ * - RecordStore for storage of flights with quick lookup by ID
+ * - RouteIndex for origin/destination lookup
+ * - NGramIndex for keyword search
+ * - SortedFlightView for the sorted listings
+ * - DelayForecaster for delay predictions, cached per flight
+ * - QueryCache for the results of repeated searches
+ */
 public class FlightManager {
-    private ArrayList<Flight> flights;
-    private HashMap<String, Flight> flightMap;
-    private Scanner scanner;
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd-MM-yyyy");
+    private static final int QUERY_CACHE_CAPACITY = 256;  // Distinct searches whose results are kept
+    private RecordStore<Flight> flights;  // Thread-safe ID lookup plus insertion order
+    private RouteIndex routeIndex;  // origin -> destination -> flights ordered by departure
+    private ItinerarySearch itinerarySearch;  // Connection search over the route index
+    private NGramIndex<Flight> searchIndex;  // Trigram index over name/origin/destination
+    private SortedFlightView<LocalDateTime> byDeparture;  // Sorted views kept current on every change
+    private SortedFlightView<LocalDateTime> byArrival;
+    private SortedFlightView<String> byName;
+    private SortedFlightView<Integer> byAvailableSeats;
+    private volatile ChangeLog changeLog = ChangeLog.NONE;  // Journals every change once persistence is attached
+    private DelayForecaster forecaster;  // Forecasts are dropped when a flight's schedule changes
+    private QueryCache queryCache;  // Search results, dropped when a flight they depend on changes
 
     public FlightManager() {
-        this.flights = new ArrayList<>();
-        this.flightMap = new HashMap<>();
-        this.scanner = new Scanner(System.in);
+        this.flights = new RecordStore<>();
+        this.routeIndex = new RouteIndex();
+        this.itinerarySearch = new ItinerarySearch(routeIndex);
+        this.searchIndex = new NGramIndex<>();
+        this.byDeparture = new SortedFlightView<>(Flight::getDepartureTime, false);
+        this.byArrival = new SortedFlightView<>(Flight::getArrivalTime, false);
+        this.byName = new SortedFlightView<>(Flight::getFlightName, false);
+        this.byAvailableSeats = new SortedFlightView<>(Flight::getAvailableSeats, true);
+        this.forecaster = new DelayForecaster();
+        this.queryCache = new QueryCache(QUERY_CACHE_CAPACITY, FlightManager::queryGroups);
     }
 
-    public void addFlight() {
-        try {
-            System.out.println("\n===== Add New Flight =====");
-
-            System.out.print("Enter Flight Name: ");
-            String flightName = scanner.nextLine().trim();
-
-            System.out.print("Enter Origin: ");
-            String origin = scanner.nextLine().trim();
-
-            System.out.print("Enter Destination: ");
-            String destination = scanner.nextLine().trim();
-
-            LocalDateTime departureTime = getDateTime("Enter Departure Time (HH:mm dd-MM-yyyy): ");
-            LocalDateTime arrivalTime = getDateTime("Enter Arrival Time (HH:mm dd-MM-yyyy): ");
-
-            if (arrivalTime.isBefore(departureTime)) {
-                System.out.println("Error: Arrival time cannot be before departure time.");
-                return;
-            }
-
-            System.out.print("Enter Capacity: ");
-            int capacity = Integer.parseInt(scanner.nextLine().trim());
-
-            if (capacity <= 0) {
-                System.out.println("Error: Capacity must be greater than zero.");
-                return;
-            }
-
-            System.out.print("Enter Flight Price: ");
-            double price = Double.parseDouble(scanner.nextLine().trim());
-
-            Flight flight = new Flight(flightName, origin, destination, departureTime, arrivalTime, capacity, price);
-            flights.add(flight);
-            flightMap.put(flight.getFlightId(), flight);
-
-            System.out.println("Flight added successfully!");
-            System.out.println("Flight ID: " + flight.getFlightId());
-        } catch (NumberFormatException e) {
-            System.out.println("Error: Please enter valid numeric values.");
-        } catch (DateTimeParseException e) {
-            System.out.println("Error: Invalid date format. Please use HH:mm dd-MM-yyyy");
-        } catch (Exception e) {
-            System.out.println("Error adding flight: " + e.getMessage());
+    /**
+     * Create a flight and add it to every index
+     * @return the new flight
+     * @throws AeroLinkException INVALID_INPUT if the schedule, capacity or price is invalid
+     */
+    public Flight createFlight(String flightName, String origin, String destination,
+                               LocalDateTime departureTime, LocalDateTime arrivalTime, int capacity, double price) {
+        validateFlight(departureTime, arrivalTime, capacity, price);
+
+        Flight flight = new Flight(flightName, origin, destination, departureTime, arrivalTime, capacity, price);
+        long ticket;
+        // Journaled under the store's write lock before it is visible, so the journal has the store's order
+        // and no later change to the flight can overtake it
+        synchronized (flights) {
+            ticket = changeLog.flightSaved(flight);
+            flights.add(flight.getFlightId(), flight);
         }
+        index(flight);
+        changeLog.awaitDurable(ticket);
+        return flight;
     }
 
-    private LocalDateTime getDateTime(String prompt) throws DateTimeParseException {
-        System.out.print(prompt);
-        String dateTimeStr = scanner.nextLine().trim();
-        return LocalDateTime.parse(dateTimeStr, formatter);
-    }
-
-
-    public void cancelFlight() {
-        System.out.println("\n===== Cancel Flight =====");
-        if (flights.isEmpty()) {
-            System.out.println("No flights available to cancel.");
-            return;
+    /**
+     * Add a batch of already validated flights, e.g. from a schedule import
+     * The store is locked once for the whole batch, then each index is updated in one pass
+     * @throws AeroLinkException INVALID_INPUT if any flight is invalid; nothing is added then
+     */
+    public void addFlights(List<Flight> batch) {
+        for (Flight flight : batch) {
+            validateFlight(flight.getDepartureTime(), flight.getArrivalTime(), flight.getCapacity(), flight.getPrice());
         }
-
-        // Display all flights first
-        System.out.println("\nAvailable Flights:");
-        int count = 1;
-        for (Flight flight : flights) {
-            if (!flight.isCancelled()) {
-                System.out.println(count + ". ID: " + flight.getFlightId() +
-                        " | Flight: " + flight.getFlightName() +
-                        " | From: " + flight.getOrigin() +
-                        " | To: " + flight.getDestination());
-                count++;
+        long ticket = 0;
+        synchronized (flights) {
+            for (Flight flight : batch) {
+                ticket = changeLog.flightSaved(flight);
             }
+            flights.addAll(batch, Flight::getFlightId);
         }
-
-        if (count == 1) {
-            System.out.println("No active flights available to cancel.");
-            return;
+        for (Flight flight : batch) {
+            routeIndex.add(flight);
         }
-
-        System.out.print("\nEnter Flight ID to cancel: ");
-        String flightId = scanner.nextLine().trim();
-        Flight flight = flightMap.get(flightId);
-
-        if (flight == null) {
-            System.out.println("Flight not found with ID: " + flightId);
-            return;
+        for (Flight flight : batch) {
+            searchIndex.add(flight, flight.getFlightName(), flight.getOrigin(), flight.getDestination());
         }
-
-        if (flight.isCancelled()) {
-            System.out.println("This flight is already cancelled.");
-            return;
+        for (Flight flight : batch) {
+            addToSortedViews(flight);
+            flight.setChangeListener(this::onSeatsChanged);
         }
-
-        flight.setCancelled(true);
-        System.out.println("Flight cancelled successfully!");
+        queryCache.invalidateAll();  // Cheaper than checking every cached search against every new flight
+        changeLog.awaitDurable(ticket);  // The whole batch shares the journal's group commit
     }
 
-    public void deleteFlight() {
-        System.out.println("\n===== Delete Flight =====");
-        if (flights.isEmpty()) {
-            System.out.println("No flights available to delete.");
-            return;
-        }
-
-        // Display all flights first
-        System.out.println("\nAvailable Flights:");
-        int count = 1;
-        for (Flight flight : flights) {
-            System.out.println(count + ". ID: " + flight.getFlightId() +
-                    " | Flight: " + flight.getFlightName() +
-                    " | From: " + flight.getOrigin() +
-                    " | To: " + flight.getDestination() +
-                    " | Status: " + (flight.isCancelled() ? "Cancelled" : "Active"));
-            count++;
+    /**
+     * Check the rules every new flight must satisfy; updateFlight applies the same rules
+     * @throws AeroLinkException INVALID_INPUT if the schedule, capacity or price is invalid
+     */
+    static void validateFlight(LocalDateTime departureTime, LocalDateTime arrivalTime, int capacity, double price) {
+        if (arrivalTime.isBefore(departureTime)) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                    "Arrival time cannot be before departure time.");
         }
-
-        System.out.print("\nEnter Flight ID to delete: ");
-        String flightId = scanner.nextLine().trim();
-        Flight flight = flightMap.get(flightId);
-
-        if (flight == null) {
-            System.out.println("Flight not found with ID: " + flightId);
-            return;
+        if (capacity <= 0) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                    "Capacity must be greater than zero.");
         }
-
-        flights.remove(flight);
-        flightMap.remove(flightId);
-        System.out.println("Flight deleted successfully!");
+        validatePrice(price);
     }
 
-    public void updateFlightDetails() {
-        System.out.println("\n===== Update Flight Details =====");
-        if (flights.isEmpty()) {
-            System.out.println("No flights available to update.");
-            return;
-        }
-
-        // Display all flights first
-        System.out.println("\nAvailable Flights:");
-        int count = 1;
-        for (Flight flight : flights) {
-            System.out.println(count + ". ID: " + flight.getFlightId() +
-                    " | Flight: " + flight.getFlightName() +
-                    " | From: " + flight.getOrigin() +
-                    " | To: " + flight.getDestination() +
-                    " | Status: " + (flight.isCancelled() ? "Cancelled" : "Active"));
-            count++;
-        }
-
-        System.out.print("\nEnter Flight ID to update: ");
-        String flightId = scanner.nextLine().trim();
-        Flight flight = flightMap.get(flightId);
-
-        if (flight == null) {
-            System.out.println("Flight not found with ID: " + flightId);
-            return;
+    private static void validatePrice(double price) {
+        if (!(price > 0)) {  // Also rejects NaN
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                    "Price must be greater than zero.");
         }
+    }
 
-        System.out.println("Current flight details:");
-        System.out.println(flight);
+    /**
+     * Update a flight's details
+     * All values are validated before anything is changed; null keeps the current value
+     * @return the updated flight
+     * @throws AeroLinkException NOT_FOUND or INVALID_INPUT
+     */
+    public Flight updateFlight(String flightId, String flightName, String origin, String destination,
+                               LocalDateTime departureTime, LocalDateTime arrivalTime, Integer capacity, Double price) {
+        Flight flight = requireFlight(flightId);
+        long ticket;
+
+        // Index changes for one flight are made under its lock, so a concurrent delete cannot be undone
+        synchronized (flight) {
+            if (!flights.contains(flightId)) {
+                throw notFound(flightId);
+            }
 
-        try {
-            System.out.println("\nEnter new details (leave blank to keep current value):");
+            LocalDateTime newDeparture = departureTime != null ? departureTime : flight.getDepartureTime();
+            LocalDateTime newArrival = arrivalTime != null ? arrivalTime : flight.getArrivalTime();
+            if (newArrival.isBefore(newDeparture)) {
+                throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                        "Arrival time cannot be before departure time.");
+            }
+            if (capacity != null && capacity <= 0) {
+                throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                        "Capacity must be greater than zero.");
+            }
+            if (price != null) {
+                validatePrice(price);
+            }
+            // Checked and applied in one step against concurrent bookings, before anything else changes
+            if (capacity != null && !flight.resize(capacity)) {
+                throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT,
+                        "New capacity cannot be less than the current booked seats.");
+            }
 
-            System.out.print("Flight Name [" + flight.getFlightName() + "]: ");
-            String flightName = scanner.nextLine().trim();
-            if (!flightName.isEmpty()) {
+            if (flightName != null) {
                 flight.setFlightName(flightName);
             }
-
-            System.out.print("Origin [" + flight.getOrigin() + "]: ");
-            String origin = scanner.nextLine().trim();
-            if (!origin.isEmpty()) {
+            if (origin != null) {
                 flight.setOrigin(origin);
             }
-
-            System.out.print("Destination [" + flight.getDestination() + "]: ");
-            String destination = scanner.nextLine().trim();
-            if (!destination.isEmpty()) {
+            if (destination != null) {
                 flight.setDestination(destination);
             }
-
-            System.out.print("Departure Time [" + flight.getDepartureTime().format(formatter) + "]: ");
-            String departureStr = scanner.nextLine().trim();
-            if (!departureStr.isEmpty()) {
-                flight.setDepartureTime(LocalDateTime.parse(departureStr, formatter));
+            flight.setDepartureTime(newDeparture);
+            flight.setArrivalTime(newArrival);
+            if (price != null) {
+                flight.setPrice(price);
             }
 
-            System.out.print("Arrival Time [" + flight.getArrivalTime().format(formatter) + "]: ");
-            String arrivalStr = scanner.nextLine().trim();
-            if (!arrivalStr.isEmpty()) {
-                flight.setArrivalTime(LocalDateTime.parse(arrivalStr, formatter));
-            }
+            reindex(flight);
+            ticket = changeLog.flightSaved(flight);
+        }
+        changeLog.awaitDurable(ticket);
+        return flight;
+    }
 
-            System.out.print("Capacity [" + flight.getCapacity() + "]: ");
-            String capacityStr = scanner.nextLine().trim();
-            if (!capacityStr.isEmpty()) {
-                int newCapacity = Integer.parseInt(capacityStr);
-                if (newCapacity < flight.getBookedSeats()) {
-                    System.out.println("Error: New capacity cannot be less than the current booked seats.");
-                    return;
-                }
-                flight.setCapacity(newCapacity);
+    /**
+     * Cancel a flight; it stays listed but no longer serves its route
+     * @return the cancelled flight
+     * @throws AeroLinkException NOT_FOUND, or INVALID_STATE if it was already cancelled
+     */
+    public Flight cancelFlight(String flightId) {
+        Flight flight = requireFlight(flightId);
+        long ticket;
+        synchronized (flight) {
+            if (flight.isCancelled()) {
+                throw new AeroLinkException(AeroLinkException.Reason.INVALID_STATE,
+                        "This flight is already cancelled.");
             }
+            flight.setCancelled(true);
+            routeIndex.remove(flight);  // Cancelled flights no longer serve their route
+            queryCache.flightChanged(flight);
+            ticket = changeLog.flightSaved(flight);
+        }
+        changeLog.awaitDurable(ticket);
+        return flight;
+    }
 
-            System.out.print("Price [₹" + flight.getPrice() + "]: ");
-            String priceStr = scanner.nextLine().trim();
-            if (!priceStr.isEmpty()) {
-                double newPrice = Double.parseDouble(priceStr);
-                if (newPrice <= 0) {
-                    System.out.println("Error: Price must be greater than zero.");
-                    return;
-                }
-                flight.setPrice(newPrice);
+    /**
+     * Delete a flight and drop it from every index
+     * @return the deleted flight
+     * @throws AeroLinkException NOT_FOUND
+     */
+    public Flight deleteFlight(String flightId) {
+        Flight flight = requireFlight(flightId);
+        long ticket;
+        synchronized (flight) {
+            if (flights.remove(flightId) == null) {
+                throw notFound(flightId);
             }
-
-            System.out.println("Flight details updated successfully!");
-        } catch (NumberFormatException e) {
-            System.out.println("Error: Please enter valid numeric values.");
-        } catch (DateTimeParseException e) {
-            System.out.println("Error: Invalid date format. Please use HH:mm dd-MM-yyyy");
-        } catch (Exception e) {
-            System.out.println("Error updating flight: " + e.getMessage());
+            unindex(flight);
+            ticket = changeLog.flightDeleted(flightId);
         }
+        changeLog.awaitDurable(ticket);
+        return flight;
     }
 
-    public void viewAllFlights() {
-        System.out.println("\n===== All Flights =====");
-        if (flights.isEmpty()) {
-            System.out.println("No flights available.");
+    /**
+     * Re-apply a saved flight while replaying the journal
+     * Adds the flight if it is new, otherwise overwrites its details; nothing is validated or journaled
+     */
+    public void restoreFlight(String flightId, String flightName, String origin, String destination,
+                              LocalDateTime departureTime, LocalDateTime arrivalTime, int capacity, double price,
+                              boolean cancelled) {
+        Flight flight = flights.get(flightId);
+        if (flight == null) {
+            flight = new Flight(flightId, flightName, origin, destination, departureTime, arrivalTime, capacity, price);
+            flight.setCancelled(cancelled);
+            flights.add(flightId, flight);
+            index(flight);
             return;
         }
+        synchronized (flight) {
+            flight.setFlightName(flightName);
+            flight.setOrigin(origin);
+            flight.setDestination(destination);
+            flight.setDepartureTime(departureTime);
+            flight.setArrivalTime(arrivalTime);
+            flight.setCapacity(capacity);
+            flight.setPrice(price);
+            flight.setCancelled(cancelled);
+            reindex(flight);
+        }
+    }
 
-        int count = 1;
-        for (Flight flight : flights) {
-            System.out.println("\nFlight #" + count + ":");
-            System.out.println(flight);
-            System.out.println("------------------------------");
-            count++;
+    /**
+     * Re-apply a flight deletion while replaying the journal
+     */
+    public void restoreDeletion(String flightId) {
+        Flight flight = flights.remove(flightId);
+        if (flight != null) {
+            synchronized (flight) {
+                unindex(flight);
+            }
         }
     }
 
-    public void predictFlightDelay() {
-        System.out.println("\n===== Predict Flight Delay =====");
-        if (flights.isEmpty()) {
-            System.out.println("No flights available to predict delays.");
-            return;
+    /**
+     * Add flights loaded from a snapshot; nothing is validated or journaled
+     */
+    public void restoreFlights(List<Flight> batch) {
+        flights.addAll(batch, Flight::getFlightId);
+        for (Flight flight : batch) {
+            index(flight);
         }
+    }
 
-        System.out.print("Enter Flight ID to predict delay: ");
-        String flightId = scanner.nextLine().trim();
-        Flight flight = flightMap.get(flightId);
+    /**
+     * Wait for flights that are being added to become visible
+     * A flight is journaled just before it is added, so after a journal roll this makes
+     * sure every flight journaled in an older segment can be seen by a snapshot
+     */
+    public void awaitPendingInserts() {
+        flights.awaitWriters();
+    }
 
-        if (flight == null) {
-            System.out.println("Flight not found with ID: " + flightId);
-            return;
-        }
+    public void setChangeLog(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
 
-        Queue<String> delayFactors = new LinkedList<>();
-        delayFactors.add("Weather conditions");
-        delayFactors.add("Air traffic");
-        delayFactors.add("Technical issues");
-        delayFactors.add("Airport conditions");
-
-        System.out.println("\nAnalyzing potential delay factors:");
-        Random random = new Random();
-        int totalDelay = 0;
-
-        while (!delayFactors.isEmpty()) {
-            String factor = delayFactors.poll();
-            int factorDelay = random.nextInt(30);
-            System.out.println("- " + factor + ": " + factorDelay + " minutes");
-            totalDelay += factorDelay;
-        }
+    /**
+     * Predict the delay of a flight from the forecaster's delay factors
+     * @throws AeroLinkException NOT_FOUND
+     */
+    public DelayPrediction predictFlightDelay(String flightId) {
+        return forecaster.forecast(requireFlight(flightId));
+    }
+
+    /**
+     * Forecast every active flight departing within the window, in parallel
+     * Each flight's predicted arrival is stored on the flight
+     * @return forecasts ordered by departure time
+     */
+    public List<DelayPrediction> forecastDelays(LocalDateTime fromTime, LocalDateTime toTime) {
+        ArrayList<Flight> window = byDeparture.range(fromTime, toTime);
+        window.removeIf(Flight::isCancelled);
+        return forecaster.forecastAll(window);
+    }
 
-        System.out.println("\nPredicted delay for flight " + flight.getFlightName() + " (" + flightId + "): " + totalDelay + " minutes");
+    /**
+     * The forecaster, e.g. to report weather or plug in other factor models
+     */
+    public DelayForecaster getForecaster() {
+        return forecaster;
+    }
 
-        LocalDateTime newArrival = flight.getArrivalTime().plusMinutes(totalDelay);
-        System.out.println("Original arrival: " + flight.getArrivalTime().format(formatter));
-        System.out.println("Predicted arrival: " + newArrival.format(formatter));
+    public boolean hasFlights() {
+        return !flights.isEmpty();
     }
 
     public ArrayList<Flight> getAllFlights() {
-        return new ArrayList<>(flights);
+        return flights.snapshot();
+    }
+
+    /**
+     * Live view of all flights in the order they were added, iterated without locking
+     */
+    public Iterable<Flight> flights() {
+        return flights.values();
     }
 
     public Flight getFlightById(String flightId) {
-        return flightMap.get(flightId);
+        return flights.get(flightId);
+    }
+
+    /**
+     * Find active flights on a route departing within the given window
+     * Uses the route index, so only the matching route is visited
+     * @param fromTime earliest departure (inclusive), or null for no lower bound
+     * @param toTime latest departure (inclusive), or null for no upper bound
+     * @return flights ordered by departure time
+     */
+    public ArrayList<Flight> findFlights(String origin, String destination, LocalDateTime fromTime, LocalDateTime toTime) {
+        String route = "route|" + normalize(origin) + "|" + normalize(destination);
+        return queryCache.get(route + "|" + fromTime + "|" + toTime, route, flight -> !flight.isCancelled()
+                        && normalize(flight.getOrigin()).equals(normalize(origin))
+                        && normalize(flight.getDestination()).equals(normalize(destination))
+                        && (fromTime == null || !flight.getDepartureTime().isBefore(fromTime))
+                        && (toTime == null || !flight.getDepartureTime().isAfter(toTime)),
+                () -> routeIndex.find(origin, destination, fromTime, toTime));
+    }
+
+    /**
+     * Find the k best itineraries of up to three connecting flights with seats on every leg
+     * Reads the route index, so flights added, cancelled or rescheduled are taken into account straight away
+     * @param fromTime earliest departure of the first flight (inclusive)
+     * @param toTime latest departure of the first flight (inclusive)
+     * @return at most k itineraries, best first
+     */
+    public ArrayList<ItinerarySearch.Itinerary> findItineraries(String origin, String destination,
+                                                               LocalDateTime fromTime, LocalDateTime toTime,
+                                                               int k, ItinerarySearch.SortBy sortBy) {
+        return itinerarySearch.search(origin, destination, fromTime, toTime, k, sortBy);
     }
 
+    /**
+     * Find flights whose name, origin or destination contains the keyword (case-insensitive)
+     * Uses the trigram index instead of scanning every flight
+     * @return matching flights ordered by flight name
+     */
+    public ArrayList<Flight> searchFlights(String keyword) {
+        String key = normalize(keyword);
+        return queryCache.get("search|" + key, "search|" + key, flight -> normalize(flight.getFlightName()).contains(key)
+                        || normalize(flight.getOrigin()).contains(key)
+                        || normalize(flight.getDestination()).contains(key),
+                () -> {
+                    ArrayList<Flight> results = searchIndex.search(keyword);
+                    results.sort((a, b) -> a.getFlightName().compareToIgnoreCase(b.getFlightName()));
+                    return results;
+                });
+    }
+
+    /**
+     * Get all flights sorted by the given attribute
+     * Reads a sorted view that is kept current, so nothing is re-sorted here. Not cached: copying a
+     * cached listing costs as much as reading the view, and any flight change would drop it.
+     * @param attribute "departure", "arrival", "name" or "available" (most free seats first)
+     */
     public ArrayList<Flight> getSortedFlights(String attribute) {
-        PriorityQueue<Flight> priorityQueue;
+        return sortedView(attribute).list();
+    }
 
-        switch (attribute.toLowerCase()) {
-            case "departure":
-                priorityQueue = new PriorityQueue<>();
-                break;
+    /**
+     * Get one page of flights sorted by the given attribute, e.g. for a departure board
+     * @param after the last flight of the previous page, or null for the first page
+     * @param limit maximum number of flights on the page
+     */
+    public ArrayList<Flight> getSortedFlightsPage(String attribute, Flight after, int limit) {
+        return sortedView(attribute).page(after, limit);
+    }
+
+    private SortedFlightView<?> sortedView(String attribute) {
+        switch (attribute.toLowerCase(Locale.ROOT)) {
             case "arrival":
-                priorityQueue = new PriorityQueue<>(Comparator.comparing(Flight::getArrivalTime));
-                break;
+                return byArrival;
             case "name":
-                priorityQueue = new PriorityQueue<>(Comparator.comparing(Flight::getFlightName));
-                break;
+                return byName;
             case "available":
-                priorityQueue = new PriorityQueue<>(Comparator.comparing(Flight::getAvailableSeats).reversed());
-                break;
+                return byAvailableSeats;
+            case "departure":
             default:
-                priorityQueue = new PriorityQueue<>();
+                return byDeparture;
         }
-
-        priorityQueue.addAll(flights);
-        ArrayList<Flight> sortedFlights = new ArrayList<>();
-        while (!priorityQueue.isEmpty()) {
-            sortedFlights.add(priorityQueue.poll());
-        }
-
-        return sortedFlights;
     }
 
-    class FlightSearchNode {
-        Flight data;
-        FlightSearchNode left, right;
+    /**
+     * Search statistics, e.g. to size the cache
+     */
+    public QueryCache.Stats getQueryCacheStats() {
+        return queryCache.getStats();
+    }
 
-        public FlightSearchNode(Flight data) {
-            this.data = data;
-            this.left = null;
-            this.right = null;
+    private void index(Flight flight) {
+        if (!flight.isCancelled()) {
+            routeIndex.add(flight);
         }
+        searchIndex.add(flight, flight.getFlightName(), flight.getOrigin(), flight.getDestination());
+        addToSortedViews(flight);
+        flight.setChangeListener(this::onSeatsChanged);
+        queryCache.flightChanged(flight);
     }
 
-    public void searchFlights() {
-        System.out.println("\n===== Search Flights =====");
-        if (flights.isEmpty()) {
-            System.out.println("No flights available.");
-            return;
+    private void reindex(Flight flight) {
+        if (flight.isCancelled()) {
+            routeIndex.remove(flight);
+        } else {
+            routeIndex.reindex(flight);
         }
+        searchIndex.update(flight, flight.getFlightName(), flight.getOrigin(), flight.getDestination());
+        refreshSortedViews(flight);
+        forecaster.invalidate(flight);
+        queryCache.flightChanged(flight);
+    }
 
-        System.out.print("Enter keyword (name/origin/destination): ");
-        String keyword = scanner.nextLine().trim().toLowerCase();
-
-        if (keyword.isEmpty()) {
-            System.out.println("Search keyword cannot be empty.");
-            return;
-        }
+    private void unindex(Flight flight) {
+        routeIndex.remove(flight);
+        searchIndex.remove(flight);
+        flight.setChangeListener(null);
+        removeFromSortedViews(flight);
+        forecaster.invalidate(flight);
+        queryCache.flightChanged(flight);
+    }
 
-        FlightSearchNode root = null;
-        for (Flight flight : flights) {
-            root = insertFlightNode(root, flight);
-        }
+    private void addToSortedViews(Flight flight) {
+        byDeparture.add(flight);
+        byArrival.add(flight);
+        byName.add(flight);
+        byAvailableSeats.add(flight);
+    }
 
-        System.out.println("Search results:");
-        if (!searchFlightTree(root, keyword)) {
-            System.out.println("No matching flights found.");
-        }
+    private void removeFromSortedViews(Flight flight) {
+        byDeparture.remove(flight);
+        byArrival.remove(flight);
+        byName.remove(flight);
+        byAvailableSeats.remove(flight);
     }
 
-    private FlightSearchNode insertFlightNode(FlightSearchNode root, Flight flight) {
-        if (root == null) return new FlightSearchNode(flight);
-        if (flight.getFlightName().compareToIgnoreCase(root.data.getFlightName()) < 0)
-            root.left = insertFlightNode(root.left, flight);
-        else
-            root.right = insertFlightNode(root.right, flight);
-        return root;
+    private void refreshSortedViews(Flight flight) {
+        byDeparture.refresh(flight);
+        byArrival.refresh(flight);
+        byName.refresh(flight);
+        byAvailableSeats.refresh(flight);
     }
 
-    private boolean searchFlightTree(FlightSearchNode node, String keyword) {
-        if (node == null) return false;
-        boolean foundLeft = searchFlightTree(node.left, keyword);
-        boolean foundCurrent = false;
+    /**
+     * Re-key the seat ordering when a booking or cancellation changes a flight's seat counts
+     */
+    private void onSeatsChanged(Flight flight) {
+        byAvailableSeats.refresh(flight);
+    }
 
-        Flight f = node.data;
-        if (f.getFlightName().toLowerCase().contains(keyword) ||
-                f.getOrigin().toLowerCase().contains(keyword) ||
-                f.getDestination().toLowerCase().contains(keyword)) {
-            System.out.println(f);
-            System.out.println("------------------------------");
-            foundCurrent = true;
+    /**
+     * The query-cache groups of every search a flight could match: its route, and each keyword
+     * that is part of its name, origin or destination
+     */
+    private static ArrayList<String> queryGroups(Flight flight) {
+        ArrayList<String> groups = new ArrayList<>();
+        groups.add("route|" + normalize(flight.getOrigin()) + "|" + normalize(flight.getDestination()));
+        for (String field : new String[] {flight.getFlightName(), flight.getOrigin(), flight.getDestination()}) {
+            String text = normalize(field);
+            for (int start = 0; start < text.length(); start++) {
+                for (int end = start + 1; end <= text.length(); end++) {
+                    groups.add("search|" + text.substring(start, end));
+                }
+            }
         }
+        return groups;
+    }
 
-        boolean foundRight = searchFlightTree(node.right, keyword);
-        return foundLeft || foundCurrent || foundRight;
+    private Flight requireFlight(String flightId) {
+        Flight flight = flights.get(flightId);
+        if (flight == null) {
+            throw notFound(flightId);
+        }
+        return flight;
     }
-}
 
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
 
+    private static AeroLinkException notFound(String flightId) {
+        return new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Flight not found with ID: " + flightId);
+    }
+}
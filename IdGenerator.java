@@ -0,0 +1,87 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * IdGenerator class to hand out record IDs
+ * IDs are a monotonic 64-bit counter shared by all record types, so they never collide,
+ * printed in Crockford base32 (digits and upper-case letters without I, L, O and U).
+ * The first IDs are one or two characters long; a billion records still fit in six.
+ * Restored records report their IDs through observe(), so new IDs always continue after them.
+ */
+public final class IdGenerator {
+    private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] VALUES = new byte[128];  // Character -> digit value, -1 if not a digit
+    private static final AtomicLong last = new AtomicLong();  // Last value handed out or observed
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+            VALUES[Character.toLowerCase(DIGITS[i])] = (byte) i;
+        }
+        // Characters people mistype for digits are read as those digits
+        VALUES['O'] = VALUES['o'] = 0;
+        VALUES['I'] = VALUES['i'] = VALUES['L'] = VALUES['l'] = 1;
+    }
+
+    private IdGenerator() {
+    }
+
+    /**
+     * @return a new ID, greater than every ID handed out or observed before
+     */
+    public static String nextId() {
+        return encode(last.incrementAndGet());
+    }
+
+    /**
+     * Make sure later IDs are greater than an ID restored from disk
+     */
+    public static void observe(String id) {
+        long value = decode(id);
+        long current = last.get();
+        while (value > current && !last.compareAndSet(current, value)) {  // Only writes when it moves forward
+            current = last.get();
+        }
+    }
+
+    public static String encode(long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("IDs are positive: " + value);
+        }
+        char[] buffer = new char[13];  // 64 bits need at most 13 base32 digits
+        int start = buffer.length;
+        do {
+            buffer[--start] = DIGITS[(int) (value & 31)];
+            value >>>= 5;
+        } while (value != 0);
+        return new String(buffer, start, buffer.length - start);
+    }
+
+    /**
+     * Read an ID typed by a user or stored on disk; case and the characters I, L and O are forgiven
+     * @return the ID's value, or -1 if the text is not a valid ID
+     */
+    public static long decode(String id) {
+        if (id == null) {
+            return -1;
+        }
+        int length = id.length();
+        if (length == 0 || length > 13) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            int digit = c < 128 ? VALUES[c] : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            if (length == 13 && i == 0 && digit > 15) {
+                return -1;  // Would overflow 64 bits
+            }
+            value = (value << 5) | digit;
+        }
+        return value > 0 ? value : -1;
+    }
+}
@@ -0,0 +1,209 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * IndexedServiceHeap class to queue pending ground services by priority
+ * A binary min-heap that also remembers where each service sits in it, so a service can be
+ * removed or re-prioritized by ID in O(log n) instead of rebuilding or scanning the queue.
+ * Services are ordered by Service.compareTo: priority, then request time, then request order.
+ * Safe for concurrent use: every operation holds the heap's lock for O(log n) steps at most.
+ * Uses various data structures:
+ * - Array holding the heap
+ * - LongObjectMap from numeric service ID to the service's heap entry
+ */
+public class IndexedServiceHeap {
+    private Entry[] heap = new Entry[16];
+    private int size;
+    private LongObjectMap<Entry> byId = new LongObjectMap<>();
+
+    /**
+     * A queued service and its current position in the heap array
+     */
+    private static class Entry {
+        final Service service;
+        int index;
+
+        Entry(Service service, int index) {
+            this.service = service;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Queue a service
+     * @return false if it is already queued
+     */
+    public synchronized boolean add(Service service) {
+        long key = IdGenerator.decode(service.getServiceId());
+        if (byId.containsKey(key)) {
+            return false;
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        Entry entry = new Entry(service, size);
+        heap[size++] = entry;
+        byId.put(key, entry);
+        siftUp(entry.index);
+        return true;
+    }
+
+    /**
+     * @return the first service in priority order without removing it, or null if the heap is empty
+     */
+    public synchronized Service peek() {
+        return size == 0 ? null : heap[0].service;
+    }
+
+    /**
+     * Remove and return the first service in priority order
+     * @return the service, or null if the heap is empty
+     */
+    public synchronized Service poll() {
+        if (size == 0) {
+            return null;
+        }
+        Service first = heap[0].service;
+        removeAt(0);
+        return first;
+    }
+
+    /**
+     * Remove a service wherever it is in the heap
+     * @return the removed service, or null if it was not queued
+     */
+    public synchronized Service remove(String serviceId) {
+        Entry entry = byId.get(IdGenerator.decode(serviceId));
+        if (entry == null) {
+            return null;
+        }
+        removeAt(entry.index);
+        return entry.service;
+    }
+
+    /**
+     * Give a queued service a new priority and move it to its new place
+     * The service's priority is only changed here, while its position is fixed up
+     * @return false if the service is not queued
+     */
+    public synchronized boolean changePriority(String serviceId, int priority) {
+        Entry entry = byId.get(IdGenerator.decode(serviceId));
+        if (entry == null) {
+            return false;
+        }
+        int old = entry.service.getPriority();
+        entry.service.setPriority(priority);
+        if (priority < old) {
+            siftUp(entry.index);
+        } else if (priority > old) {
+            siftDown(entry.index);
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(String serviceId) {
+        return byId.containsKey(IdGenerator.decode(serviceId));
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Copy of all queued services in priority order; O(n log n)
+     */
+    public synchronized ArrayList<Service> toSortedList() {
+        ArrayList<Service> sorted = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sorted.add(heap[i].service);
+        }
+        sorted.sort(null);
+        return sorted;
+    }
+
+    /**
+     * The first k services in priority order, without removing them
+     * Walks the heap from the root with a small frontier queue, so it costs O(k log k) however large the heap is
+     */
+    public synchronized ArrayList<Service> topK(int k) {
+        ArrayList<Service> top = new ArrayList<>(Math.min(k, size));
+        if (size == 0 || k <= 0) {
+            return top;
+        }
+        // Children of a taken entry are the only new candidates for the next place
+        PriorityQueue<Entry> frontier = new PriorityQueue<>((a, b) -> a.service.compareTo(b.service));
+        frontier.add(heap[0]);
+        while (top.size() < k && !frontier.isEmpty()) {
+            Entry entry = frontier.poll();
+            top.add(entry.service);
+            int child = 2 * entry.index + 1;
+            if (child < size) {
+                frontier.add(heap[child]);
+            }
+            if (child + 1 < size) {
+                frontier.add(heap[child + 1]);
+            }
+        }
+        return top;
+    }
+
+    private void removeAt(int index) {
+        Entry removed = heap[index];
+        byId.remove(IdGenerator.decode(removed.service.getServiceId()));
+        size--;
+        if (index == size) {
+            heap[size] = null;
+            return;
+        }
+        // Move the last entry into the gap; it may belong above or below it
+        Entry last = heap[size];
+        heap[size] = null;
+        heap[index] = last;
+        last.index = index;
+        siftDown(index);
+        if (heap[index] == last) {
+            siftUp(index);
+        }
+    }
+
+    private void siftUp(int index) {
+        Entry entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].service.compareTo(entry.service) <= 0) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(entry, index);
+    }
+
+    private void siftDown(int index) {
+        Entry entry = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && heap[right].service.compareTo(heap[child].service) < 0) {
+                child = right;
+            }
+            if (entry.service.compareTo(heap[child].service) <= 0) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(entry, index);
+    }
+
+    private void place(Entry entry, int index) {
+        heap[index] = entry;
+        entry.index = index;
+    }
+}
@@ -0,0 +1,213 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * ItinerarySearch class to find the best one-stop and multi-stop journeys between two airports
+ * The flight network is searched as a time-expanded graph: every flight is an edge from its departure
+ * to its arrival, and a passenger at an airport can take any flight leaving it between the minimum and
+ * maximum connection time after arriving. Departures come from RouteIndex, which FlightManager keeps up
+ * to date as flights are added, cancelled or rescheduled, so there is no separate graph to rebuild.
+ * Partial itineraries are expanded best first. A journey's cost after a given flight only depends on that
+ * flight, so each (flight, number of legs) needs to be expanded at most k times to find the k best journeys.
+ * Uses various data structures:
+ * - PriorityQueue of partial itineraries ordered by cost
+ * - IdentityHashMap counting how often each flight has been expanded, per number of legs
+ * - RouteIndex's per-origin departure index
+ */
+public class ItinerarySearch {
+    private static final Duration MIN_CONNECTION = Duration.ofMinutes(45);  // Shortest transfer a passenger can make
+    private static final Duration MAX_CONNECTION = Duration.ofHours(8);  // Longest wait offered between flights
+    private static final int MAX_LEGS = 3;
+
+    private RouteIndex routeIndex;
+
+    /**
+     * What makes one itinerary better than another
+     */
+    public enum SortBy {
+        FASTEST,   // Shortest time from first departure to last arrival
+        CHEAPEST   // Lowest total fare
+    }
+
+    /**
+     * One journey: flights taken in order
+     */
+    public static class Itinerary {
+        private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd-MM-yyyy");
+        private final List<Flight> legs;
+
+        Itinerary(List<Flight> legs) {
+            this.legs = Collections.unmodifiableList(legs);
+        }
+
+        public List<Flight> getLegs() {
+            return legs;
+        }
+
+        public LocalDateTime getDeparture() {
+            return legs.get(0).getDepartureTime();
+        }
+
+        public LocalDateTime getArrival() {
+            return legs.get(legs.size() - 1).getArrivalTime();
+        }
+
+        public Duration getDuration() {
+            return Duration.between(getDeparture(), getArrival());
+        }
+
+        public double getTotalPrice() {
+            double total = 0;
+            for (Flight leg : legs) {
+                total += leg.getPrice();
+            }
+            return total;
+        }
+
+        public int getStops() {
+            return legs.size() - 1;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            Duration duration = getDuration();
+            text.append(getStops() == 0 ? "Direct" : getStops() + " stop(s)")
+                    .append(" | ").append(duration.toHours()).append("h ").append(duration.toMinutesPart()).append("m")
+                    .append(" | $").append(String.format("%.2f", getTotalPrice()));
+            for (Flight leg : legs) {
+                text.append("\n  ").append(leg.getFlightName()).append(" (").append(leg.getFlightId()).append(") ")
+                        .append(leg.getOrigin()).append(" ").append(leg.getDepartureTime().format(formatter))
+                        .append(" -> ").append(leg.getDestination()).append(" ").append(leg.getArrivalTime().format(formatter));
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * A partial itinerary ending with one flight
+     */
+    private static class Label {
+        final Flight flight;
+        final Label previous;
+        final int legs;
+        final LocalDateTime start;  // Departure of the first flight
+        final double cost;
+
+        Label(Flight flight, Label previous, double cost) {
+            this.flight = flight;
+            this.previous = previous;
+            this.legs = previous == null ? 1 : previous.legs + 1;
+            this.start = previous == null ? flight.getDepartureTime() : previous.start;
+            this.cost = cost;
+        }
+
+        boolean visits(String airport) {
+            for (Label label = this; label != null; label = label.previous) {
+                if (sameAirport(label.flight.getDestination(), airport)
+                        || (label.previous == null && sameAirport(label.flight.getOrigin(), airport))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Itinerary toItinerary() {
+            ArrayList<Flight> legs = new ArrayList<>();
+            for (Label label = this; label != null; label = label.previous) {
+                legs.add(label.flight);
+            }
+            Collections.reverse(legs);
+            return new Itinerary(legs);
+        }
+    }
+
+    public ItinerarySearch(RouteIndex routeIndex) {
+        this.routeIndex = routeIndex;
+    }
+
+    /**
+     * Find the k best itineraries with seats on every leg, of up to three flights
+     * @param fromTime earliest departure of the first flight (inclusive)
+     * @param toTime latest departure of the first flight (inclusive)
+     * @return at most k itineraries, best first
+     */
+    public ArrayList<Itinerary> search(String origin, String destination, LocalDateTime fromTime, LocalDateTime toTime,
+                                       int k, SortBy sortBy) {
+        ArrayList<Itinerary> results = new ArrayList<>();
+        if (k <= 0 || sameAirport(origin, destination)) {
+            return results;
+        }
+
+        // Ties go to the earlier arrival
+        PriorityQueue<Label> queue = new PriorityQueue<>((a, b) -> {
+            int result = Double.compare(a.cost, b.cost);
+            return result != 0 ? result : a.flight.getArrivalTime().compareTo(b.flight.getArrivalTime());
+        });
+        for (Flight flight : routeIndex.departingFrom(origin, fromTime, toTime)) {
+            if (flight.hasAvailableSeats()) {
+                queue.add(new Label(flight, null, cost(null, flight, sortBy)));
+            }
+        }
+
+        IdentityHashMap<Flight, int[]> expanded = new IdentityHashMap<>();  // Flight -> times expanded, by legs - 1
+        while (!queue.isEmpty() && results.size() < k) {
+            Label label = queue.poll();
+            int[] times = expanded.computeIfAbsent(label.flight, flight -> new int[MAX_LEGS]);
+            if (++times[label.legs - 1] > k) {
+                continue;  // k better ways to reach this flight were already expanded
+            }
+
+            String airport = label.flight.getDestination();
+            if (sameAirport(airport, destination)) {
+                results.add(label.toItinerary());
+                continue;
+            }
+            if (label.legs == MAX_LEGS) {
+                continue;
+            }
+
+            LocalDateTime arrival = label.flight.getArrivalTime();
+            LocalDateTime earliest = arrival.plus(MIN_CONNECTION);
+            LocalDateTime latest = arrival.plus(MAX_CONNECTION);
+            // The last possible leg has to reach the destination, so only that route is read
+            Collection<Flight> next = label.legs + 1 == MAX_LEGS
+                    ? routeIndex.find(airport, destination, earliest, latest)
+                    : routeIndex.departingFrom(airport, earliest, latest);
+            for (Flight flight : next) {
+                String to = flight.getDestination();
+                if (!flight.hasAvailableSeats() || (!sameAirport(to, destination) && label.visits(to))) {
+                    continue;
+                }
+                int[] seen = expanded.get(flight);
+                if (seen == null || seen[label.legs] < k) {
+                    queue.add(new Label(flight, label, cost(label, flight, sortBy)));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Cost of extending a partial itinerary with a flight; never less than the partial itinerary's cost
+     * @param label the partial itinerary, or null when the flight is the first leg
+     */
+    private static double cost(Label label, Flight next, SortBy sortBy) {
+        if (sortBy == SortBy.CHEAPEST) {
+            return (label == null ? 0 : label.cost) + next.getPrice();
+        }
+        LocalDateTime start = label == null ? next.getDepartureTime() : label.start;
+        return Duration.between(start, next.getArrivalTime()).toMinutes();
+    }
+
+    private static boolean sameAirport(String a, String b) {
+        return a != null && b != null && a.trim().equalsIgnoreCase(b.trim());
+    }
+}
@@ -0,0 +1,418 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Journal class: an append-only, checksummed log of records on disk
+ * Every record is framed as [length][CRC32][payload]. Writers only queue their record;
+ * a single flusher thread writes everything queued so far and then forces it to disk,
+ * so concurrent writers share one fsync (group commit) instead of each paying for their own.
+ *
+ * The log is split into numbered segment files (journal-00000001.log, ...). roll() starts a new
+ * segment, so a snapshot can cover everything before it and the older segments can be deleted.
+ * When the journal is opened, a torn or corrupt tail left by a crash is detected by its
+ * length or checksum and cut off, so the file always ends on a complete record.
+ */
+public class Journal implements AutoCloseable {
+    private static final int HEADER = 0x41454C31;  // "AEL1"
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private FileChannel channel;  // Current segment; only the flusher writes to it
+    private final Object lock = new Object();
+    private long segment;  // Number of the segment records are currently written to
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();  // Framed records waiting for the flusher
+    private ByteArrayOutputStream nextPending;  // While a roll is in progress: records for the next segment
+    private long rollTicket;  // Last ticket that still belongs to the segment being rolled away from
+    private long lastQueued;  // Ticket of the last queued record
+    private long lastDurable;  // Ticket of the last record known to be on disk
+    private IOException failure;  // Set once a write fails; every later call reports it
+    private boolean closed;
+    private Thread flusher;
+
+    private Journal(Path directory, FileChannel channel, long segment) {
+        this.directory = directory;
+        this.channel = channel;
+        this.segment = segment;
+    }
+
+    /**
+     * Open (or create) a journal and replay every complete record from the given segment on
+     * Segments before firstSegment are already covered by a snapshot and are deleted.
+     * @param replay receives each record's payload in the order it was written
+     */
+    public static Journal open(Path directory, long firstSegment, Consumer<byte[]> replay) throws IOException {
+        Files.createDirectories(directory);
+        ArrayList<Long> segments = listSegments(directory);
+        for (long number : segments) {
+            if (number < firstSegment) {
+                Files.delete(segmentPath(directory, number));
+            }
+        }
+        segments.removeIf(number -> number < firstSegment);
+
+        long expected = firstSegment;
+        for (long number : segments) {
+            if (number != expected) {
+                throw new IOException("Journal segment " + expected + " is missing in " + directory);
+            }
+            expected++;
+        }
+
+        long current = segments.isEmpty() ? firstSegment : segments.get(segments.size() - 1);
+        for (int i = 0; i < segments.size() - 1; i++) {
+            // Older segments were forced before the next one was started, so they must be complete
+            try (FileChannel older = FileChannel.open(segmentPath(directory, segments.get(i)), StandardOpenOption.READ)) {
+                if (replay(older, replay) != older.size()) {
+                    throw new IOException("Journal segment " + segments.get(i) + " is corrupt");
+                }
+            }
+        }
+
+        FileChannel channel = openSegment(directory, current);
+        try {
+            long validEnd = replay(channel, replay);
+            if (validEnd < channel.size()) {
+                channel.truncate(validEnd);  // Drop the torn tail of a crashed write
+                channel.force(true);
+            }
+            channel.position(validEnd);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        Journal journal = new Journal(directory, channel, current);
+        journal.flusher = new Thread(journal::flushLoop, "journal-flusher");
+        journal.flusher.setDaemon(true);
+        journal.flusher.start();
+        return journal;
+    }
+
+    private static ArrayList<Long> listSegments(Path directory) throws IOException {
+        ArrayList<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment written by this class
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%08d", number) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Open a segment, writing the header if it is new
+     */
+    private static FileChannel openSegment(Path directory, long number) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(directory, number), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < 4) {  // New, or the crash came before its header was complete
+            channel.truncate(0);
+            channel.write(ByteBuffer.allocate(4).putInt(0, HEADER), 0);
+            channel.force(true);
+            channel.position(4);
+        }
+        return channel;
+    }
+
+    /**
+     * Read records from the start of a segment
+     * @return the offset just past the last complete, valid record
+     */
+    private static long replay(FileChannel channel, Consumer<byte[]> replay) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        if (channel.read(header, 0) < 4 || header.getInt(0) != HEADER) {
+            throw new IOException("Not an AeroLink journal: " + channel);
+        }
+
+        long position = 4;
+        long size = channel.size();
+        ByteBuffer frame = ByteBuffer.allocate(8);
+        CRC32 crc = new CRC32();
+        while (position + 8 <= size) {
+            frame.clear();
+            readFully(channel, frame, position);
+            int length = frame.getInt(0);
+            int checksum = frame.getInt(4);
+            if (length < 0 || length > MAX_RECORD_BYTES || position + 8 + length > size) {
+                break;  // Torn or garbage frame
+            }
+
+            byte[] payload = new byte[length];
+            readFully(channel, ByteBuffer.wrap(payload), position + 8);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;  // Partially written record
+            }
+
+            replay.accept(payload);
+            position += 8 + length;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of journal");
+            }
+        }
+    }
+
+    /**
+     * Queue a record for writing without waiting for it to reach the disk
+     * Records are written in the order they are queued.
+     * @return a ticket to pass to awaitDurable
+     */
+    public long write(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        synchronized (lock) {
+            checkUsable();
+            DataOutputStream out = new DataOutputStream(nextPending != null ? nextPending : pending);
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+            lastQueued++;
+            lock.notifyAll();
+            return lastQueued;
+        }
+    }
+
+    /**
+     * Queue several records at once, e.g. the bookings of a group
+     * They are framed before the lock is taken and queued together, so the flusher writes them
+     * in one batch and one fsync instead of waking up for each.
+     * @return the ticket of the last record, which covers all of them
+     */
+    public long writeAll(List<byte[]> payloads) throws IOException {
+        ByteArrayOutputStream framed = new ByteArrayOutputStream();
+        DataOutputStream frames = new DataOutputStream(framed);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : payloads) {
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            frames.writeInt(payload.length);
+            frames.writeInt((int) crc.getValue());
+            frames.write(payload);
+        }
+        synchronized (lock) {
+            checkUsable();
+            framed.writeTo(nextPending != null ? nextPending : pending);
+            lastQueued += payloads.size();
+            lock.notifyAll();
+            return lastQueued;
+        }
+    }
+
+    /**
+     * Wait until the record with the given ticket, and everything before it, is on disk
+     */
+    public void awaitDurable(long ticket) throws IOException {
+        synchronized (lock) {
+            boolean interrupted = false;
+            while (lastDurable < ticket && failure == null) {
+                interrupted |= waitForFlusher();  // Durability was promised to the caller, so keep waiting
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (lastDurable < ticket) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Queue a record and wait until it is on disk
+     */
+    public void append(byte[] payload) throws IOException {
+        awaitDurable(write(payload));
+    }
+
+    /**
+     * Start a new segment: every record queued after this call goes to the new segment
+     * Writers are never blocked; the flusher finishes the old segment and switches files
+     * in the background, and this method waits for that switch.
+     * @return the number of the new segment
+     */
+    public long roll() throws IOException {
+        synchronized (lock) {
+            boolean interrupted = false;
+            try {
+                checkUsable();
+                while (nextPending != null) {
+                    interrupted |= waitForFlusher();  // Another roll is still in progress
+                    checkUsable();
+                }
+                long next = segment + 1;
+                nextPending = new ByteArrayOutputStream();
+                rollTicket = lastQueued;
+                lock.notifyAll();
+                while (segment < next && failure == null) {
+                    interrupted |= waitForFlusher();
+                }
+                if (segment < next) {
+                    throw failure;
+                }
+                return next;
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the segments before the given one, once a snapshot covers them
+     */
+    public void deleteSegmentsBefore(long number) throws IOException {
+        long current;
+        synchronized (lock) {
+            current = segment;
+        }
+        for (long older : listSegments(directory)) {
+            if (older < number && older < current) {
+                Files.deleteIfExists(segmentPath(directory, older));
+            }
+        }
+    }
+
+    public long getSegment() {
+        synchronized (lock) {
+            return segment;
+        }
+    }
+
+    /**
+     * Write everything queued so far, then force it to disk; repeats until closed
+     */
+    private void flushLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long batchEnd;
+            boolean rolling;
+            synchronized (lock) {
+                while (pending.size() == 0 && nextPending == null && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // Only close() stops the flusher
+                    }
+                }
+                if (pending.size() == 0 && nextPending == null) {
+                    return;  // Closed and fully flushed
+                }
+                batch = pending;
+                rolling = nextPending != null;
+                batchEnd = rolling ? rollTicket : lastQueued;
+                pending = new ByteArrayOutputStream();
+            }
+
+            FileChannel next = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);  // One fsync for every record in the batch
+                if (rolling) {
+                    next = openSegment(directory, segment + 1);
+                    channel.close();
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+
+            synchronized (lock) {
+                lastDurable = batchEnd;
+                if (rolling) {
+                    channel = next;
+                    segment++;
+                    pending = nextPending;
+                    nextPending = null;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait for the flusher to make progress; must hold the lock
+     * @return true if the thread was interrupted, which the caller restores once it is done waiting
+     */
+    private boolean waitForFlusher() {
+        try {
+            lock.wait();
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+
+    private void checkUsable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal unusable after an earlier write failure", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal is closed: " + directory);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Flush everything queued, then close the file
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
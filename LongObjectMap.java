@@ -0,0 +1,241 @@
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * LongObjectMap class: a hash map from positive long keys to objects
+ * Keys and values sit in two parallel arrays with linear probing, so an entry costs two array
+ * slots instead of a node object, a boxed key and a String. Removal shifts later entries back
+ * instead of leaving tombstones, so lookups never slow down after many deletes.
+ *
+ * Safe for concurrent use: writers take a StampedLock; readers first probe without locking
+ * and only fall back to the read lock if a write happened meanwhile.
+ */
+public class LongObjectMap<V> {
+    private static final int MIN_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;  // Replaced as a whole on resize, so readers see matching arrays
+    private volatile int size;  // Written only under the write lock
+
+    /**
+     * Key and value arrays of one capacity
+     */
+    private static class Table {
+        final long[] keys;  // 0 marks an empty slot
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+
+    public LongObjectMap() {
+        this.table = new Table(MIN_CAPACITY);
+    }
+
+    public V get(long key) {
+        if (key <= 0) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        V value = find(table, key);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(table, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Add an entry unless the key is already present
+     * @return the existing value, or null if the entry was added
+     */
+    public V putIfAbsent(long key, V value) {
+        checkKey(key);
+        long stamp = lock.writeLock();
+        try {
+            V existing = find(table, key);
+            if (existing != null) {
+                return existing;
+            }
+            insert(key, value);
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the previous value, or null if there was none
+     */
+    public V put(long key, V value) {
+        checkKey(key);
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int slot = slotOf(current, key);
+            if (slot >= 0) {
+                @SuppressWarnings("unchecked")
+                V previous = (V) current.values[slot];
+                current.values[slot] = value;
+                return previous;
+            }
+            insert(key, value);
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the removed value, or null if there was none
+     */
+    public V remove(long key) {
+        if (key <= 0) {
+            return null;
+        }
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int slot = slotOf(current, key);
+            if (slot < 0) {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            V removed = (V) current.values[slot];
+            shiftBack(current, slot);
+            size--;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Probe for a key; tolerates a concurrent writer because the caller validates its stamp
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> V find(Table current, long key) {
+        long[] keys = current.keys;
+        int mask = current.mask;
+        int slot = hash(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long k = keys[slot];
+            if (k == key) {
+                return (V) current.values[slot];
+            }
+            if (k == 0) {
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static int slotOf(Table current, long key) {
+        int slot = hash(key) & current.mask;
+        while (true) {
+            long k = current.keys[slot];
+            if (k == key) {
+                return slot;
+            }
+            if (k == 0) {
+                return -1;
+            }
+            slot = (slot + 1) & current.mask;
+        }
+    }
+
+    /**
+     * Add a key known to be absent; must hold the write lock
+     */
+    private void insert(long key, Object value) {
+        Table current = table;
+        if ((size + 1) * 2 > current.keys.length) {  // Keep the load factor at or below one half
+            current = resize(current, current.keys.length * 2);
+        }
+        int slot = hash(key) & current.mask;
+        while (current.keys[slot] != 0) {
+            slot = (slot + 1) & current.mask;
+        }
+        current.values[slot] = value;
+        current.keys[slot] = key;
+        size++;
+    }
+
+    private Table resize(Table old, int capacity) {
+        Table bigger = new Table(capacity);
+        for (int i = 0; i < old.keys.length; i++) {
+            long key = old.keys[i];
+            if (key != 0) {
+                int slot = hash(key) & bigger.mask;
+                while (bigger.keys[slot] != 0) {
+                    slot = (slot + 1) & bigger.mask;
+                }
+                bigger.keys[slot] = key;
+                bigger.values[slot] = old.values[i];
+            }
+        }
+        table = bigger;
+        return bigger;
+    }
+
+    /**
+     * Empty a slot and move later entries of the same probe run back into the gap
+     */
+    private static void shiftBack(Table current, int gap) {
+        long[] keys = current.keys;
+        Object[] values = current.values;
+        int mask = current.mask;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == 0) {
+                break;
+            }
+            int home = hash(key) & mask;
+            // Move the entry if its home slot is not cyclically within (gap, slot]
+            boolean movable = gap <= slot ? (home <= gap || home > slot) : (home <= gap && home > slot);
+            if (movable) {
+                keys[gap] = key;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+    }
+
+    /**
+     * Spread sequential IDs across the table
+     */
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    private static void checkKey(long key) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Keys must be positive: " + key);
+        }
+    }
+}
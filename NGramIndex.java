@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NGramIndex class for case-insensitive substring search
+ * Every record is split into overlapping trigrams (three-character pieces).
+ * A keyword can only occur in a record that contains all of the keyword's trigrams,
+ * so candidates come from intersecting posting lists and are then verified.
+ * Safe for concurrent use: searches never lock, and changes to the same record are applied one at a time.
+ * Uses various data structures:
+ * - ConcurrentHashMap from packed trigram to the set of records containing it (posting lists)
+ * - ConcurrentHashMap from record to the lowercased text it was indexed with
+ */
+public class NGramIndex<T> {
+    private static final int N = 3;
+    private static final char FIELD_SEPARATOR = '\n';  // Never part of a trimmed keyword, so no match spans two fields
+
+    private ConcurrentHashMap<Long, Set<T>> postings;  // trigram -> records containing it
+    private ConcurrentHashMap<T, String> indexedText;  // record -> lowercased searchable text
+
+    public NGramIndex() {
+        this.postings = new ConcurrentHashMap<>();
+        this.indexedText = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Index a record under the given searchable fields
+     * Re-indexes the record if it was already indexed
+     */
+    public void add(T record, String... fields) {
+        update(record, fields);
+    }
+
+    /**
+     * Remove a record from the index
+     */
+    public void remove(T record) {
+        indexedText.computeIfPresent(record, (r, text) -> {
+            unpost(r, text);
+            return null;
+        });
+    }
+
+    /**
+     * Re-index a record after its searchable fields changed
+     * Does nothing if the text is unchanged
+     */
+    public void update(T record, String... fields) {
+        String text = joinFields(fields);
+        indexedText.compute(record, (r, oldText) -> {
+            if (text.equals(oldText)) {
+                return oldText;
+            }
+            if (oldText != null) {
+                unpost(r, oldText);
+            }
+            post(r, text);
+            return text;
+        });
+    }
+
+    /**
+     * Find every record with a field containing the keyword (case-insensitive)
+     * @return matching records in no particular order
+     */
+    public ArrayList<T> search(String keyword) {
+        ArrayList<T> results = new ArrayList<>();
+        String key = keyword.trim().toLowerCase(Locale.ROOT);
+        if (key.isEmpty() || key.indexOf(FIELD_SEPARATOR) >= 0) {
+            return results;
+        }
+
+        // Keywords shorter than a trigram cannot use the posting lists
+        if (key.length() < N) {
+            for (Map.Entry<T, String> entry : indexedText.entrySet()) {
+                if (entry.getValue().indexOf(key) >= 0) {
+                    results.add(entry.getKey());
+                }
+            }
+            return results;
+        }
+
+        // Collect the posting list of every distinct trigram, smallest first
+        ArrayList<Set<T>> lists = new ArrayList<>();
+        for (int i = 0; i + N <= key.length(); i++) {
+            Set<T> records = postings.get(gramAt(key, i));
+            if (records == null || records.isEmpty()) {
+                return results;  // Some trigram occurs nowhere, so nothing can match
+            }
+            if (!containsSameList(lists, records)) {
+                lists.add(records);
+            }
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        // Intersect by probing the other lists, then verify the real substring
+        Set<T> smallest = lists.get(0);
+        for (T candidate : smallest) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(candidate);
+            }
+            String text = indexedText.get(candidate);  // null if removed since the lists were read
+            if (inAll && text != null && text.indexOf(key) >= 0) {
+                results.add(candidate);
+            }
+        }
+        return results;
+    }
+
+    public int size() {
+        return indexedText.size();
+    }
+
+    private void post(T record, String text) {
+        for (int i = 0; i + N <= text.length(); i++) {
+            Long gram = gramAt(text, i);
+            Set<T> records = postings.get(gram);
+            if (records == null) {
+                records = postings.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet());
+            }
+            records.add(record);
+        }
+    }
+
+    private void unpost(T record, String text) {
+        // Emptied posting lists are kept, so a concurrent post can never add to a list that was just dropped;
+        // their number is bounded by the distinct trigrams ever indexed
+        for (int i = 0; i + N <= text.length(); i++) {
+            Set<T> records = postings.get(gramAt(text, i));
+            if (records != null) {
+                records.remove(record);
+            }
+        }
+    }
+
+    private static <E> boolean containsSameList(ArrayList<Set<E>> lists, Set<E> records) {
+        for (Set<E> list : lists) {
+            if (list == records) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String joinFields(String... fields) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                text.append(FIELD_SEPARATOR);
+            }
+            if (fields[i] != null) {
+                text.append(fields[i].toLowerCase(Locale.ROOT));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Pack the three characters starting at index into one key
+     */
+    private static Long gramAt(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+}
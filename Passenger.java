@@ -1,4 +1,3 @@
-import java.util.UUID;
 
 /**
  * Passenger class to store passenger information
@@ -6,15 +5,23 @@ import java.util.UUID;
  */
 public class Passenger {
     private String passengerId;
-    private String name;
-    private int age;
-    private String passportNumber;
+    private volatile String name;  // Volatile so updates are visible to other request threads
+    private volatile int age;
+    private volatile String passportNumber;
 
     /**
      * Constructor for Passenger class
      */
     public Passenger(String name, int age, String passportNumber) {
-        this.passengerId = UUID.randomUUID().toString().substring(0, 8);
+        this(IdGenerator.nextId(), name, age, passportNumber);
+    }
+
+    /**
+     * Constructor used when restoring a saved passenger, keeping its original ID
+     */
+    public Passenger(String passengerId, String name, int age, String passportNumber) {
+        IdGenerator.observe(passengerId);  // New IDs must not reuse a restored one
+        this.passengerId = passengerId;
         this.name = name;
         this.age = age;
         this.passportNumber = passportNumber;
@@ -0,0 +1,172 @@
+import java.util.LinkedList;
+import java.util.Scanner;
+
+/**
+ * PassengerConsole class with the interactive passenger menus
+ * Only prompts and prints; every operation is delegated to PassengerManager
+ */
+public class PassengerConsole {
+    private PassengerManager passengerManager;
+    private Scanner scanner;
+
+    public PassengerConsole(PassengerManager passengerManager, Scanner scanner) {
+        this.passengerManager = passengerManager;
+        this.scanner = scanner;
+    }
+
+    public void addPassenger() {
+        try {
+            System.out.println("\n===== Add New Passenger =====");
+
+            System.out.print("Enter Passenger Name: ");
+            String name = scanner.nextLine().trim();
+
+            System.out.print("Enter Age: ");
+            int age = Integer.parseInt(scanner.nextLine().trim());
+            if (age <= 0) {
+                System.out.println("Error: Age must be greater than zero.");
+                return;
+            }
+
+            System.out.print("Enter Passport Number: ");
+            String passportNumber = scanner.nextLine().trim();
+
+            Passenger passenger = passengerManager.createPassenger(name, age, passportNumber);
+
+            System.out.println("Passenger added successfully!");
+            System.out.println("Passenger ID: " + passenger.getPassengerId());
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter a valid age.");
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Error adding passenger: " + e.getMessage());
+        }
+    }
+
+    public void deletePassenger() {
+        System.out.println("\n===== Delete Passenger =====");
+
+        if (!passengerManager.hasPassengers()) {
+            System.out.println("No passengers available to delete.");
+            return;
+        }
+
+        // Display all passengers first
+        System.out.println("\nRegistered Passengers:");
+        printPassengerList();
+
+        System.out.print("\nEnter Passenger ID to delete: ");
+        String passengerId = scanner.nextLine().trim();
+
+        try {
+            passengerManager.deletePassenger(passengerId);
+            System.out.println("Passenger deleted successfully!");
+        } catch (AeroLinkException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    public void viewAllPassengers() {
+        System.out.println("\n===== All Passengers =====");
+
+        if (!passengerManager.hasPassengers()) {
+            System.out.println("No passengers registered.");
+            return;
+        }
+
+        int count = 1;
+        for (Passenger passenger : passengerManager.passengers()) {
+            System.out.println("\nPassenger #" + count + ":");
+            System.out.println(passenger);
+            System.out.println("------------------------------");
+            count++;
+        }
+    }
+
+    public void updatePassengerDetails() {
+        System.out.println("\n===== Update Passenger Details =====");
+
+        if (!passengerManager.hasPassengers()) {
+            System.out.println("No passengers available to update.");
+            return;
+        }
+
+        // Display all passengers first
+        System.out.println("\nRegistered Passengers:");
+        printPassengerList();
+
+        System.out.print("\nEnter Passenger ID to update: ");
+        String passengerId = scanner.nextLine().trim();
+
+        Passenger passenger = passengerManager.getPassengerById(passengerId);
+        if (passenger == null) {
+            System.out.println("Passenger not found with ID: " + passengerId);
+            return;
+        }
+
+        System.out.println("Current passenger details:");
+        System.out.println(passenger);
+
+        try {
+            System.out.println("\nEnter new details (leave blank to keep current value):");
+
+            System.out.print("Name [" + passenger.getName() + "]: ");
+            String name = scanner.nextLine().trim();
+
+            System.out.print("Age [" + passenger.getAge() + "]: ");
+            String ageStr = scanner.nextLine().trim();
+            Integer age = ageStr.isEmpty() ? null : Integer.parseInt(ageStr);
+
+            System.out.print("Passport Number [" + passenger.getPassportNumber() + "]: ");
+            String passportNumber = scanner.nextLine().trim();
+
+            passengerManager.updatePassenger(passengerId,
+                    name.isEmpty() ? null : name, age, passportNumber.isEmpty() ? null : passportNumber);
+            System.out.println("Passenger details updated successfully!");
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter a valid age.");
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Error updating passenger: " + e.getMessage());
+        }
+    }
+
+    public void searchPassengers() {
+        System.out.println("\n===== Search Passengers =====");
+        if (!passengerManager.hasPassengers()) {
+            System.out.println("No passengers available.");
+            return;
+        }
+
+        System.out.print("Enter keyword (name/passport): ");
+        String keyword = scanner.nextLine().trim();
+
+        if (keyword.isEmpty()) {
+            System.out.println("Search keyword cannot be empty.");
+            return;
+        }
+
+        LinkedList<Passenger> results = passengerManager.searchPassengers(keyword);
+        System.out.println("Search results:");
+        if (results.isEmpty()) {
+            System.out.println("No matching passengers found.");
+            return;
+        }
+        for (Passenger passenger : results) {
+            System.out.println(passenger);
+            System.out.println("------------------------------");
+        }
+    }
+
+    private void printPassengerList() {
+        int count = 1;
+        for (Passenger passenger : passengerManager.passengers()) {
+            System.out.println(count + ". ID: " + passenger.getPassengerId() +
+                    " | Name: " + passenger.getName() +
+                    " | Passport: " + passenger.getPassportNumber());
+            count++;
+        }
+    }
+}
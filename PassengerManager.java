@@ -1,258 +1,214 @@
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PassengerManager class to manage all passenger-related operations
+ * Headless API: methods take plain values and return results or throw AeroLinkException,
+ * the console prompts live in PassengerConsole.
+ * Passport numbers are unique ignoring case and surrounding spaces; an index keyed by the
+ * normalized number makes both the uniqueness check and findByPassport constant time.
+ */
 public class PassengerManager {
-    private ArrayList<Passenger> passengers;
-    private HashMap<String, Passenger> passengerMap;
-    private Scanner scanner;
+    private RecordStore<Passenger> passengers;  // Thread-safe ID lookup plus insertion order
+    private NGramIndex<Passenger> searchIndex;  // Trigram index over name/passport
+    private ConcurrentHashMap<String, Passenger> byPassport;  // Normalized passport -> passenger; claimed with putIfAbsent
+    private volatile ChangeLog changeLog = ChangeLog.NONE;  // Journals every change once persistence is attached
 
     public PassengerManager() {
-        this.passengers = new ArrayList<>();
-        this.passengerMap = new HashMap<>();
-        this.scanner = new Scanner(System.in);
+        this.passengers = new RecordStore<>();
+        this.searchIndex = new NGramIndex<>();
+        this.byPassport = new ConcurrentHashMap<>();
     }
 
-    // Add Passenger - Uses ArrayList and HashMap
-    public void addPassenger() {
-        try {
-            System.out.println("\n===== Add New Passenger =====");
+    // Add Passenger - Uses RecordStore
+    public Passenger createPassenger(String name, int age, String passportNumber) {
+        if (age <= 0) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT, "Age must be greater than zero.");
+        }
 
-            System.out.print("Enter Passenger Name: ");
-            String name = scanner.nextLine().trim();
+        Passenger passenger = new Passenger(name, age, passportNumber);
+        String passportKey = normalize(passportNumber);
+        // Claiming the passport is the uniqueness check: of two registrations only one can claim it
+        if (byPassport.putIfAbsent(passportKey, passenger) != null) {
+            throw new AeroLinkException(AeroLinkException.Reason.DUPLICATE,
+                    "A passenger with this passport number already exists.");
+        }
 
-            System.out.print("Enter Age: ");
-            int age = Integer.parseInt(scanner.nextLine().trim());
-            if (age <= 0) {
-                System.out.println("Error: Age must be greater than zero.");
-                return;
+        long ticket;
+        // Journaled under the store's write lock before it is visible, so the journal has the store's order
+        synchronized (passengers) {
+            try {
+                ticket = changeLog.passengerSaved(passenger);
+            } catch (RuntimeException e) {
+                byPassport.remove(passportKey, passenger);  // Never stored, so release the passport
+                throw e;
             }
+            passengers.add(passenger.getPassengerId(), passenger);
+        }
+        searchIndex.add(passenger, name, passportNumber);
+        changeLog.awaitDurable(ticket);
+        return passenger;
+    }
 
-            System.out.print("Enter Passport Number: ");
-            String passportNumber = scanner.nextLine().trim();
-
-            // Check if passport number already exists
-            for (Passenger p : passengers) {
-                if (p.getPassportNumber().equalsIgnoreCase(passportNumber)) {
-                    System.out.println("Error: A passenger with this passport number already exists.");
-                    return;
-                }
+    // Delete Passenger - Uses RecordStore
+    public Passenger deletePassenger(String passengerId) {
+        Passenger passenger = requirePassenger(passengerId);
+        long ticket;
+        synchronized (passenger) {
+            if (passengers.remove(passengerId) == null) {
+                throw notFound(passengerId);
             }
-
-            Passenger passenger = new Passenger(name, age, passportNumber);
-            passengers.add(passenger);
-            passengerMap.put(passenger.getPassengerId(), passenger);
-
-            System.out.println("Passenger added successfully!");
-            System.out.println("Passenger ID: " + passenger.getPassengerId());
-        } catch (NumberFormatException e) {
-            System.out.println("Error: Please enter a valid age.");
-        } catch (Exception e) {
-            System.out.println("Error adding passenger: " + e.getMessage());
+            searchIndex.remove(passenger);
+            byPassport.remove(normalize(passenger.getPassportNumber()), passenger);
+            ticket = changeLog.passengerDeleted(passengerId);
         }
+        changeLog.awaitDurable(ticket);
+        return passenger;
     }
 
-    // Delete Passenger - Uses HashMap and ArrayList
-    public void deletePassenger() {
-        System.out.println("\n===== Delete Passenger =====");
-
-        if (passengers.isEmpty()) {
-            System.out.println("No passengers available to delete.");
-            return;
+    // Update Passenger Details - Uses RecordStore; null keeps the current value
+    public Passenger updatePassenger(String passengerId, String name, Integer age, String passportNumber) {
+        Passenger passenger = requirePassenger(passengerId);
+        if (age != null && age <= 0) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT, "Age must be greater than zero.");
         }
 
-        // Display all passengers first
-        System.out.println("\nRegistered Passengers:");
-        int count = 1;
-        for (Passenger passenger : passengers) {
-            System.out.println(count + ". ID: " + passenger.getPassengerId() +
-                    " | Name: " + passenger.getName() +
-                    " | Passport: " + passenger.getPassportNumber());
-            count++;
-        }
+        long ticket;
+        synchronized (passenger) {
+            if (!passengers.contains(passengerId)) {
+                throw notFound(passengerId);
+            }
 
-        System.out.print("\nEnter Passenger ID to delete: ");
-        String passengerId = scanner.nextLine().trim();
+            if (passportNumber != null) {
+                Passenger holder = byPassport.putIfAbsent(normalize(passportNumber), passenger);
+                if (holder != null && holder != passenger) {
+                    throw new AeroLinkException(AeroLinkException.Reason.DUPLICATE,
+                            "Another passenger with this passport number already exists.");
+                }
+                reindexPassport(passenger, passportNumber);
+            }
+            if (name != null) {
+                passenger.setName(name);
+            }
+            if (age != null) {
+                passenger.setAge(age);
+            }
 
-        Passenger passenger = passengerMap.get(passengerId);
-        if (passenger == null) {
-            System.out.println("Passenger not found with ID: " + passengerId);
-            return;
+            searchIndex.update(passenger, passenger.getName(), passenger.getPassportNumber());
+            ticket = changeLog.passengerSaved(passenger);
         }
-
-        passengers.remove(passenger);
-        passengerMap.remove(passengerId);
-
-        System.out.println("Passenger deleted successfully!");
+        changeLog.awaitDurable(ticket);
+        return passenger;
     }
 
-    // View All Passengers - Uses Collections.sort
-    public void viewAllPassengers() {
-        System.out.println("\n===== All Passengers =====");
-
-        if (passengers.isEmpty()) {
-            System.out.println("No passengers registered.");
+    // Restore Passenger - Re-applies a saved passenger while replaying the journal, without validation or journaling
+    public void restorePassenger(String passengerId, String name, int age, String passportNumber) {
+        Passenger passenger = passengers.get(passengerId);
+        if (passenger == null) {
+            passenger = new Passenger(passengerId, name, age, passportNumber);
+            passengers.add(passengerId, passenger);
+            searchIndex.add(passenger, name, passportNumber);
+            byPassport.put(normalize(passportNumber), passenger);
             return;
         }
-
-        // Use the original ArrayList order instead of sorting
-        int count = 1;
-        for (Passenger passenger : passengers) {
-            System.out.println("\nPassenger #" + count + ":");
-            System.out.println(passenger);
-            System.out.println("------------------------------");
-            count++;
+        synchronized (passenger) {
+            passenger.setName(name);
+            passenger.setAge(age);
+            byPassport.put(normalize(passportNumber), passenger);
+            reindexPassport(passenger, passportNumber);
+            searchIndex.update(passenger, name, passportNumber);
         }
     }
 
-    // Update Passenger Details - Uses HashMap
-    public void updatePassengerDetails() {
-        System.out.println("\n===== Update Passenger Details =====");
-
-        if (passengers.isEmpty()) {
-            System.out.println("No passengers available to update.");
-            return;
-        }
-
-        // Display all passengers first
-        System.out.println("\nRegistered Passengers:");
-        int count = 1;
-        for (Passenger passenger : passengers) {
-            System.out.println(count + ". ID: " + passenger.getPassengerId() +
-                    " | Name: " + passenger.getName() +
-                    " | Passport: " + passenger.getPassportNumber());
-            count++;
-        }
-
-        System.out.print("\nEnter Passenger ID to update: ");
-        String passengerId = scanner.nextLine().trim();
-
-        Passenger passenger = passengerMap.get(passengerId);
-        if (passenger == null) {
-            System.out.println("Passenger not found with ID: " + passengerId);
-            return;
+    // Restore Deletion - Re-applies a passenger deletion while replaying the journal
+    public void restoreDeletion(String passengerId) {
+        Passenger passenger = passengers.remove(passengerId);
+        if (passenger != null) {
+            searchIndex.remove(passenger);
+            byPassport.remove(normalize(passenger.getPassportNumber()), passenger);
         }
+    }
 
-        System.out.println("Current passenger details:");
-        System.out.println(passenger);
-
-        try {
-            System.out.println("\nEnter new details (leave blank to keep current value):");
-
-            System.out.print("Name [" + passenger.getName() + "]: ");
-            String name = scanner.nextLine().trim();
-            if (!name.isEmpty()) {
-                passenger.setName(name);
-            }
-
-            System.out.print("Age [" + passenger.getAge() + "]: ");
-            String ageStr = scanner.nextLine().trim();
-            if (!ageStr.isEmpty()) {
-                int age = Integer.parseInt(ageStr);
-                if (age <= 0) {
-                    System.out.println("Error: Age must be greater than zero.");
-                    return;
-                }
-                passenger.setAge(age);
+    // Restore Passengers - Adds passengers loaded from a snapshot, without validation or journaling
+    public void restorePassengers(List<Passenger> batch) {
+        for (Passenger passenger : batch) {
+            if (passengers.add(passenger.getPassengerId(), passenger)) {  // Skips passengers already restored
+                searchIndex.add(passenger, passenger.getName(), passenger.getPassportNumber());
+                byPassport.put(normalize(passenger.getPassportNumber()), passenger);
             }
+        }
+    }
 
-            System.out.print("Passport Number [" + passenger.getPassportNumber() + "]: ");
-            String passportNumber = scanner.nextLine().trim();
-            if (!passportNumber.isEmpty()) {
-                for (Passenger p : passengers) {
-                    if (p != passenger && p.getPassportNumber().equalsIgnoreCase(passportNumber)) {
-                        System.out.println("Error: Another passenger with this passport number already exists.");
-                        return;
-                    }
-                }
-                passenger.setPassportNumber(passportNumber);
-            }
+    // Wait for passengers that are being added to become visible, e.g. before a snapshot
+    public void awaitPendingInserts() {
+        passengers.awaitWriters();
+    }
 
-            System.out.println("Passenger details updated successfully!");
-        } catch (NumberFormatException e) {
-            System.out.println("Error: Please enter a valid age.");
-        } catch (Exception e) {
-            System.out.println("Error updating passenger: " + e.getMessage());
-        }
+    public void setChangeLog(ChangeLog changeLog) {
+        this.changeLog = changeLog;
     }
-    // Search Passenger - Uses LinkedList
+
+    // Search Passenger - Uses the trigram index, results ordered by name
     public LinkedList<Passenger> searchPassengers(String searchTerm) {
-        LinkedList<Passenger> results = new LinkedList<>();
-        for (Passenger passenger : passengers) {
-            if (passenger.getName().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                    passenger.getPassportNumber().toLowerCase().contains(searchTerm.toLowerCase())) {
-                results.add(passenger);
-            }
-        }
-        return results;
+        ArrayList<Passenger> matches = searchIndex.search(searchTerm);
+        matches.sort((a, b) -> a.getName().compareToIgnoreCase(b.getName()));
+        return new LinkedList<>(matches);
+    }
+
+    public boolean hasPassengers() {
+        return !passengers.isEmpty();
     }
 
     // Get All Passengers - Used by booking system
     public ArrayList<Passenger> getAllPassengers() {
-        return new ArrayList<>(passengers);
+        return passengers.snapshot();
+    }
+
+    // Live view of all passengers in registration order, iterated without locking
+    public Iterable<Passenger> passengers() {
+        return passengers.values();
     }
 
     // Get passenger by ID
     public Passenger getPassengerById(String passengerId) {
-        return passengerMap.get(passengerId);
+        return passengers.get(passengerId);
     }
-    class PassengerSearchNode {
-        Passenger data;
-        PassengerSearchNode left, right;
 
-        public PassengerSearchNode(Passenger data) {
-            this.data = data;
-            this.left = null;
-            this.right = null;
+    // Find Passenger by passport number, ignoring case and surrounding spaces; null if none
+    public Passenger findByPassport(String passportNumber) {
+        if (passportNumber == null) {
+            return null;
         }
-    }
-    public void searchPassengers() {
-        System.out.println("\n===== Search Passengers =====");
-        if (passengers.isEmpty()) {
-            System.out.println("No passengers available.");
-            return;
-        }
-
-        System.out.print("Enter keyword (name/passport): ");
-        String keyword = scanner.nextLine().trim().toLowerCase();
-
-        if (keyword.isEmpty()) {
-            System.out.println("Search keyword cannot be empty.");
-            return;
-        }
-
-        PassengerSearchNode root = null;
-        for (Passenger passenger : passengers) {
-            root = insertPassengerNode(root, passenger);
+        Passenger passenger = byPassport.get(normalize(passportNumber));
+        // A registration claims the passport just before it is stored; only report stored passengers
+        if (passenger == null || passengers.get(passenger.getPassengerId()) != passenger) {
+            return null;
         }
+        return passenger;
+    }
 
-        System.out.println("Search results:");
-        if (!searchPassengerTree(root, keyword)) {
-            System.out.println("No matching passengers found.");
+    // Move a passenger's index entry to a new passport number it has already claimed; must hold the passenger's lock
+    private void reindexPassport(Passenger passenger, String passportNumber) {
+        String oldKey = normalize(passenger.getPassportNumber());
+        passenger.setPassportNumber(passportNumber);
+        if (!oldKey.equals(normalize(passportNumber))) {
+            byPassport.remove(oldKey, passenger);
         }
     }
 
-    private PassengerSearchNode insertPassengerNode(PassengerSearchNode root, Passenger passenger) {
-        if (root == null) return new PassengerSearchNode(passenger);
-        if (passenger.getName().compareToIgnoreCase(root.data.getName()) < 0)
-            root.left = insertPassengerNode(root.left, passenger);
-        else
-            root.right = insertPassengerNode(root.right, passenger);
-        return root;
+    private static String normalize(String passportNumber) {
+        return passportNumber.trim().toUpperCase(Locale.ROOT);
     }
 
-    private boolean searchPassengerTree(PassengerSearchNode node, String keyword) {
-        if (node == null) return false;
-        boolean foundLeft = searchPassengerTree(node.left, keyword);
-        boolean foundCurrent = false;
-
-        Passenger p = node.data;
-        if (p.getName().toLowerCase().contains(keyword) ||
-                p.getPassportNumber().toLowerCase().contains(keyword)) {
-            System.out.println(p);
-            System.out.println("------------------------------");
-            foundCurrent = true;
+    private Passenger requirePassenger(String passengerId) {
+        Passenger passenger = passengers.get(passengerId);
+        if (passenger == null) {
+            throw notFound(passengerId);
         }
+        return passenger;
+    }
 
-        boolean foundRight = searchPassengerTree(node.right, keyword);
-        return foundLeft || foundCurrent || foundRight;
+    private static AeroLinkException notFound(String passengerId) {
+        return new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Passenger not found with ID: " + passengerId);
     }
 }
@@ -0,0 +1,344 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PersistenceManager class to keep the managers' state on disk
+ * Every mutation is written to a Journal as a small binary record. Periodically the whole
+ * state is written to a SnapshotFile and the journal segments it covers are dropped.
+ * On startup the snapshot is loaded and only the journal written since is replayed through
+ * the managers' restore methods, which rebuilds them exactly, IDs and timestamps included.
+ * Seat counts are not stored: they follow from the bookings.
+ *
+ * Replay is idempotent: a snapshot taken while changes are being made may already contain
+ * some of the records replayed on top of it.
+ */
+public class PersistenceManager implements ChangeLog, AutoCloseable {
+    // Record types; the numbers are stored on disk and must never be reused
+    private static final byte FLIGHT_SAVED = 1;
+    private static final byte FLIGHT_DELETED = 2;
+    private static final byte PASSENGER_SAVED = 3;
+    private static final byte PASSENGER_DELETED = 4;
+    private static final byte BOOKING_CREATED = 5;
+    private static final byte SERVICE_REQUESTED = 6;
+    private static final byte SERVICE_COMPLETED = 7;
+    private static final byte SERVICE_PRIORITY_CHANGED = 8;
+    private static final byte BOOKING_CANCELLED = 9;
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final long SNAPSHOT_INTERVAL_MINUTES = 5;
+
+    private FlightManager flightManager;
+    private PassengerManager passengerManager;
+    private BookingManager bookingManager;
+    private ServiceManager serviceManager;
+    private Path directory;
+    private Journal journal;
+    private int replayedRecords;
+    private AtomicLong changesSinceSnapshot = new AtomicLong();  // Nothing to snapshot while this is zero
+    private ScheduledExecutorService snapshotter;
+
+    private PersistenceManager(FlightManager flightManager, PassengerManager passengerManager,
+                               BookingManager bookingManager, ServiceManager serviceManager) {
+        this.flightManager = flightManager;
+        this.passengerManager = passengerManager;
+        this.bookingManager = bookingManager;
+        this.serviceManager = serviceManager;
+    }
+
+    /**
+     * Load the latest snapshot and replay the journal tail into the (empty) managers,
+     * then journal every further change they make and snapshot periodically
+     * @param directory holds the snapshot and the journal segments; created if missing
+     */
+    public static PersistenceManager open(Path directory, FlightManager flightManager,
+                                          PassengerManager passengerManager, BookingManager bookingManager,
+                                          ServiceManager serviceManager) throws IOException {
+        PersistenceManager persistence = new PersistenceManager(flightManager, passengerManager,
+                bookingManager, serviceManager);
+        persistence.directory = directory;
+        Files.createDirectories(directory);
+
+        long firstSegment = 1;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            firstSegment = SnapshotFile.load(snapshot, flightManager, passengerManager, bookingManager, serviceManager);
+        }
+        persistence.journal = Journal.open(directory, firstSegment, persistence::replay);
+        bookingManager.recountSeats();  // Bookings may have been restored before their flights
+        persistence.changesSinceSnapshot.set(persistence.replayedRecords);
+
+        flightManager.setChangeLog(persistence);
+        passengerManager.setChangeLog(persistence);
+        bookingManager.setChangeLog(persistence);
+        serviceManager.setChangeLog(persistence);
+
+        persistence.snapshotter = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        persistence.snapshotter.scheduleWithFixedDelay(persistence::periodicSnapshot,
+                SNAPSHOT_INTERVAL_MINUTES, SNAPSHOT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        return persistence;
+    }
+
+    /**
+     * Write a snapshot of all managers and drop the journal segments it covers
+     * Concurrent changes carry on while it runs; they go to a new journal segment.
+     */
+    public synchronized void snapshot() throws IOException {
+        long changes = changesSinceSnapshot.get();
+        long firstSegment = journal.roll();
+
+        // Inserts are journaled just before they become visible; wait for those journaled in
+        // the old segment so the snapshot is sure to contain them
+        flightManager.awaitPendingInserts();
+        passengerManager.awaitPendingInserts();
+        bookingManager.awaitPendingInserts();
+        serviceManager.awaitPendingInserts();
+
+        SnapshotFile.write(directory.resolve(SNAPSHOT_FILE), firstSegment,
+                flightManager, passengerManager, bookingManager, serviceManager);
+        journal.deleteSegmentsBefore(firstSegment);
+        changesSinceSnapshot.addAndGet(-changes);
+    }
+
+    private void periodicSnapshot() {
+        if (changesSinceSnapshot.get() == 0) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // The journal still has every change; the next run tries again
+            System.err.println("Warning: Snapshot failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of records replayed when the journal was opened
+     */
+    public int getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    @Override
+    public long flightSaved(Flight flight) {
+        return write(FLIGHT_SAVED, out -> {
+            out.writeUTF(flight.getFlightId());
+            out.writeUTF(flight.getFlightName());
+            out.writeUTF(flight.getOrigin());
+            out.writeUTF(flight.getDestination());
+            writeTime(out, flight.getDepartureTime());
+            writeTime(out, flight.getArrivalTime());
+            out.writeInt(flight.getCapacity());
+            out.writeDouble(flight.getPrice());
+            out.writeBoolean(flight.isCancelled());
+        });
+    }
+
+    @Override
+    public long flightDeleted(String flightId) {
+        return write(FLIGHT_DELETED, out -> out.writeUTF(flightId));
+    }
+
+    @Override
+    public long passengerSaved(Passenger passenger) {
+        return write(PASSENGER_SAVED, out -> {
+            out.writeUTF(passenger.getPassengerId());
+            out.writeUTF(passenger.getName());
+            out.writeInt(passenger.getAge());
+            out.writeUTF(passenger.getPassportNumber());
+        });
+    }
+
+    @Override
+    public long passengerDeleted(String passengerId) {
+        return write(PASSENGER_DELETED, out -> out.writeUTF(passengerId));
+    }
+
+    @Override
+    public long bookingCreated(Booking booking) {
+        return write(BOOKING_CREATED, out -> writeBooking(out, booking));
+    }
+
+    @Override
+    public long bookingsCreated(List<Booking> group) {
+        try {
+            ArrayList<byte[]> records = new ArrayList<>(group.size());
+            for (Booking booking : group) {
+                records.add(encode(BOOKING_CREATED, out -> writeBooking(out, booking)));
+            }
+            changesSinceSnapshot.addAndGet(records.size());
+            return journal.writeAll(records);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Change could not be saved: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeBooking(DataOutputStream out, Booking booking) throws IOException {
+        out.writeUTF(booking.getBookingId());
+        out.writeUTF(booking.getPassengerId());
+        out.writeUTF(booking.getFlightId());
+        writeTime(out, booking.getBookingTime());
+    }
+
+    @Override
+    public long bookingCancelled(String bookingId) {
+        return write(BOOKING_CANCELLED, out -> out.writeUTF(bookingId));
+    }
+
+    @Override
+    public long serviceRequested(Service service) {
+        return write(SERVICE_REQUESTED, out -> {
+            out.writeUTF(service.getServiceId());
+            out.writeUTF(service.getServiceType());
+            out.writeUTF(service.getDescription());
+            out.writeUTF(service.getLocation());
+            writeTime(out, service.getRequestTime());
+            out.writeInt(service.getPriority());
+        });
+    }
+
+    @Override
+    public long serviceCompleted(String serviceId) {
+        return write(SERVICE_COMPLETED, out -> out.writeUTF(serviceId));
+    }
+
+    @Override
+    public long servicePriorityChanged(String serviceId, int priority) {
+        return write(SERVICE_PRIORITY_CHANGED, out -> {
+            out.writeUTF(serviceId);
+            out.writeInt(priority);
+        });
+    }
+
+    @Override
+    public void awaitDurable(long ticket) {
+        try {
+            journal.awaitDurable(ticket);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Change could not be saved: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the fields of one record
+     */
+    private interface RecordWriter {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private long write(byte type, RecordWriter fields) {
+        try {
+            byte[] record = encode(type, fields);
+            changesSinceSnapshot.incrementAndGet();
+            return journal.write(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Change could not be saved: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] encode(byte type, RecordWriter fields) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        fields.writeTo(out);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Apply one journal record to the managers; runs before any change log is attached
+     */
+    private void replay(byte[] record) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            byte type = in.readByte();
+            switch (type) {
+                case FLIGHT_SAVED:
+                    flightManager.restoreFlight(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                            readTime(in), readTime(in), in.readInt(), in.readDouble(), in.readBoolean());
+                    break;
+                case FLIGHT_DELETED:
+                    flightManager.restoreDeletion(in.readUTF());
+                    break;
+                case PASSENGER_SAVED:
+                    passengerManager.restorePassenger(in.readUTF(), in.readUTF(), in.readInt(), in.readUTF());
+                    break;
+                case PASSENGER_DELETED:
+                    passengerManager.restoreDeletion(in.readUTF());
+                    break;
+                case BOOKING_CREATED:
+                    bookingManager.restoreBooking(new Booking(in.readUTF(), in.readUTF(), in.readUTF(), readTime(in)));
+                    break;
+                case BOOKING_CANCELLED:
+                    bookingManager.restoreCancellation(in.readUTF());
+                    break;
+                case SERVICE_REQUESTED:
+                    serviceManager.restoreService(new Service(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(),
+                            readTime(in), in.readInt()));
+                    break;
+                case SERVICE_COMPLETED:
+                    serviceManager.restoreCompletion(in.readUTF());
+                    break;
+                case SERVICE_PRIORITY_CHANGED:
+                    serviceManager.restorePriority(in.readUTF(), in.readInt());
+                    break;
+                default:
+                    throw new IOException("Unknown journal record type " + type);
+            }
+            replayedRecords++;
+        } catch (IOException e) {
+            // The checksum matched, so this is a record the code cannot read rather than a torn write
+            throw new UncheckedIOException("Corrupt journal record: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        long seconds = in.readLong();
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Detach from the managers, take a final snapshot so the next startup has nothing to replay,
+     * and flush the journal
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdown();  // Lets a running snapshot finish; interrupting it would close its file channel
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flightManager.setChangeLog(ChangeLog.NONE);
+        passengerManager.setChangeLog(ChangeLog.NONE);
+        bookingManager.setChangeLog(ChangeLog.NONE);
+        serviceManager.setChangeLog(ChangeLog.NONE);
+        try {
+            if (changesSinceSnapshot.get() > 0) {
+                snapshot();
+            }
+        } finally {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * QueryCache class to remember the results of repeated flight searches
+ * Bounded: when full, the least recently used result is evicted.
+ * Each cached result knows which flights it depends on, so a change to one flight only drops the results
+ * it could affect: those that contain the flight, and those whose query the flight now matches.
+ * Neither is found by scanning the cache: results are indexed by the flights they contain, and
+ * each query belongs to a group (e.g. its route) so only the queries in the groups a flight could
+ * fall into are tested against it. A change costs time in the results it affects, not the cache size.
+ * Cached queries must not depend on seat counts: bookings do not touch the cache.
+ * A result computed while a flight changed is not cached, so a cached result is never older than the flights.
+ * Uses various data structures:
+ * - LinkedHashMap in access order as the LRU list
+ * - HashMap from each flight to the cached results containing it
+ * - HashMap from each query group to its cached results
+ * - LongAdder counters for hits, misses, evictions and invalidations
+ */
+public class QueryCache {
+    private final int capacity;
+    private LinkedHashMap<String, Entry> entries;  // Normalized query -> result, least recently used first
+    private HashMap<Flight, HashSet<Entry>> byMember;  // Flight -> cached results it is part of
+    private HashMap<String, HashSet<Entry>> byGroup;  // Query group -> cached results of queries in it
+    private final Function<Flight, Collection<String>> groupsOf;  // Groups of the queries a flight could match
+    private volatile long changes;  // Bumped by every flight change; written only while holding this
+
+    private LongAdder hits = new LongAdder();
+    private LongAdder misses = new LongAdder();
+    private LongAdder evictions = new LongAdder();
+    private LongAdder invalidations = new LongAdder();
+
+    /**
+     * One cached result and the flights it depends on
+     */
+    private static class Entry {
+        final String key;
+        final String group;
+        final ArrayList<Flight> result;
+        final Predicate<Flight> matches;  // Whether a flight belongs in the result as it is now
+
+        Entry(String key, String group, ArrayList<Flight> result, Predicate<Flight> matches) {
+            this.key = key;
+            this.group = group;
+            this.result = result;
+            this.matches = matches;
+        }
+    }
+
+    /**
+     * @param groupsOf the groups of every query a flight, as it is now, could match; a query whose
+     *                 group is not listed must not match the flight
+     */
+    public QueryCache(int capacity, Function<Flight, Collection<String>> groupsOf) {
+        if (capacity <= 0) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT, "Cache capacity must be greater than zero.");
+        }
+        this.capacity = capacity;
+        this.groupsOf = groupsOf;
+        this.byMember = new HashMap<>();
+        this.byGroup = new HashMap<>();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= QueryCache.this.capacity) {
+                    return false;
+                }
+                evictions.increment();
+                unlink(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Return the cached result of a query, or run the query and cache its result
+     * @param key the query with its parameters normalized, e.g. "route|del|bom|..."
+     * @param group the query's group, e.g. "route|del|bom"; see the constructor
+     * @param matches whether a flight belongs in the result, used to tell which changes affect it
+     * @return a copy of the result the caller may modify
+     */
+    public ArrayList<Flight> get(String key, String group, Predicate<Flight> matches, Supplier<ArrayList<Flight>> query) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return new ArrayList<>(entry.result);
+            }
+        }
+        misses.increment();
+
+        long changesBefore = changes;
+        ArrayList<Flight> result = query.get();
+
+        synchronized (this) {
+            if (changes == changesBefore) {
+                Entry entry = new Entry(key, group, new ArrayList<>(result), matches);
+                Entry old = entries.put(key, entry);
+                if (old != null) {
+                    unlink(old);
+                }
+                link(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drop the results a flight's change could affect; call after the flight was added, updated, cancelled or deleted
+     */
+    public synchronized void flightChanged(Flight flight) {
+        changes++;
+        drop(affectedBy(flight));
+    }
+
+    /**
+     * Drop every cached result, e.g. after a bulk import
+     */
+    public synchronized void invalidateAll() {
+        changes++;
+        drop(new ArrayList<>(entries.values()));
+    }
+
+    /**
+     * The cached results that contain the flight or whose query it now matches
+     */
+    private Collection<Entry> affectedBy(Flight flight) {
+        LinkedHashSet<Entry> affected = new LinkedHashSet<>();
+        HashSet<Entry> containing = byMember.get(flight);
+        if (containing != null) {
+            affected.addAll(containing);
+        }
+        if (!byGroup.isEmpty()) {
+            for (String group : groupsOf.apply(flight)) {
+                HashSet<Entry> candidates = byGroup.get(group);
+                if (candidates == null) {
+                    continue;
+                }
+                for (Entry entry : candidates) {
+                    if (entry.matches.test(flight)) {
+                        affected.add(entry);
+                    }
+                }
+            }
+        }
+        return affected;
+    }
+
+    private void drop(Collection<Entry> affected) {
+        for (Entry entry : affected) {
+            entries.remove(entry.key);
+            unlink(entry);
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Add a cached result to the member and group indexes
+     */
+    private void link(Entry entry) {
+        byGroup.computeIfAbsent(entry.group, group -> new HashSet<>()).add(entry);
+        for (Flight flight : entry.result) {
+            byMember.computeIfAbsent(flight, member -> new HashSet<>()).add(entry);
+        }
+    }
+
+    /**
+     * Take a result that is no longer cached out of the indexes
+     */
+    private void unlink(Entry entry) {
+        removeFrom(byGroup, entry.group, entry);
+        for (Flight flight : entry.result) {
+            removeFrom(byMember, flight, entry);
+        }
+    }
+
+    private static <K> void removeFrom(HashMap<K, HashSet<Entry>> index, K key, Entry entry) {
+        HashSet<Entry> set = index.get(key);
+        if (set != null && set.remove(entry) && set.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Counters since the cache was created, e.g. to choose its capacity
+     */
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), size(), capacity);
+    }
+
+    /**
+     * Cache figures at one point in time
+     */
+    public static class Stats {
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long invalidations;
+        private int size;
+        private int capacity;
+
+        Stats(long hits, long misses, long evictions, long invalidations, int size, int capacity) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.size = size;
+            this.capacity = capacity;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Fraction of lookups answered from the cache, from 0 to 1
+         */
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        /**
+         * Results dropped to make room for newer ones; many evictions suggest a larger capacity
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * Results dropped because a flight they depend on changed
+         */
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Entries: %d/%d | Hits: %d | Misses: %d | Hit rate: %.1f%%%n" +
+                            "Evictions: %d | Invalidations: %d",
+                    size, capacity, hits, misses, getHitRate() * 100, evictions, invalidations);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reaccommodator class to move the passengers of a cancelled flight onto other flights on the same route
+ * Seats are allocated first, in a fair order: passengers who booked earlier get the earlier alternatives.
+ * Each seat is reserved through BookingManager.reserveSeat, so nothing is oversold even while other
+ * bookings are made, and flights with a waitlist keep their seats for the waitlisted passengers.
+ * The bookings are then moved in parallel, so their journal writes share flushes. A passenger who
+ * already holds a booking on their alternative is moved to the next alternative with a seat instead.
+ * A booking that cannot be moved because of an error stays where it is and is reported; the others
+ * are still moved.
+ * Uses various data structures:
+ * - The flight -> bookings index of BookingManager to find the affected passengers
+ * - RouteIndex (through FlightManager.findFlights) for the alternatives, in departure order
+ * - Fixed thread pool for moving the bookings
+ */
+public class Reaccommodator {
+    private static final Duration SEARCH_WINDOW = Duration.ofHours(48);  // How long after the cancelled departure alternatives may leave
+    private static final int THREADS = 8;  // Moves mostly wait for the journal, so more threads than cores help
+
+    private FlightManager flightManager;
+    private BookingManager bookingManager;
+    private ExecutorService workers;
+
+    /**
+     * Outcome of re-accommodating one cancelled flight
+     */
+    public static class Result {
+        private final ArrayList<Booking> rebooked = new ArrayList<>();
+        private final ArrayList<Booking> alreadyBooked = new ArrayList<>();
+        private final ArrayList<Booking> unplaced = new ArrayList<>();
+        private final ArrayList<Booking> failed = new ArrayList<>();
+        private RuntimeException error;
+        private long millis;
+
+        /**
+         * The new bookings on alternative flights
+         */
+        public List<Booking> getRebooked() {
+            return rebooked;
+        }
+
+        /**
+         * Cancelled bookings of passengers who already held a booking on an alternative,
+         * and for whom no other alternative had a free seat
+         */
+        public List<Booking> getAlreadyBooked() {
+            return alreadyBooked;
+        }
+
+        /**
+         * Bookings still on the cancelled flight because no alternative had a free seat
+         */
+        public List<Booking> getUnplaced() {
+            return unplaced;
+        }
+
+        /**
+         * Bookings still on the cancelled flight because moving them failed, e.g. the journal could not be written
+         */
+        public List<Booking> getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return the first error that made a move fail, or null if none failed
+         */
+        public RuntimeException getError() {
+            return error;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    /**
+     * One booking and the alternative flight whose seat was reserved for it
+     */
+    private static class Allocation {
+        final Booking booking;
+        final int alternative;  // Index of the alternative whose seat was reserved
+        Booking moved;  // The new booking, once moved
+        boolean duplicate;  // The passenger was already booked on an alternative
+        RuntimeException error;  // Why the move failed, if it did
+
+        Allocation(Booking booking, int alternative) {
+            this.booking = booking;
+            this.alternative = alternative;
+        }
+    }
+
+    public Reaccommodator(FlightManager flightManager, BookingManager bookingManager) {
+        this.flightManager = flightManager;
+        this.bookingManager = bookingManager;
+        this.workers = Executors.newFixedThreadPool(THREADS, task -> {
+            Thread thread = new Thread(task, "reaccommodation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Move every booking of a cancelled flight to the earliest alternative with a free seat
+     * @throws AeroLinkException NOT_FOUND, or INVALID_STATE if the flight is not cancelled
+     */
+    public Result reaccommodate(String flightId) {
+        long start = System.nanoTime();
+        Flight cancelled = flightManager.getFlightById(flightId);
+        if (cancelled == null) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Flight not found with ID: " + flightId);
+        }
+        if (!cancelled.isCancelled()) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_STATE,
+                    "Only the passengers of a cancelled flight can be re-accommodated.");
+        }
+
+        // First booked, first re-booked
+        ArrayList<Booking> affected = bookingManager.getBookingsForFlight(cancelled.getFlightId());
+        affected.sort(Comparator.comparing(Booking::getBookingTime)
+                .thenComparingLong(booking -> IdGenerator.decode(booking.getBookingId())));
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = cancelled.getDepartureTime().isAfter(now) ? cancelled.getDepartureTime() : now;
+        ArrayList<Flight> alternatives = flightManager.findFlights(cancelled.getOrigin(), cancelled.getDestination(),
+                from, cancelled.getDepartureTime().plus(SEARCH_WINDOW));
+
+        Result result = new Result();
+        ArrayList<Allocation> allocations = allocate(affected, alternatives, result);
+        move(allocations, alternatives, result);
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Reserve one seat per booking, in order; once an alternative is full, later passengers skip it
+     */
+    private ArrayList<Allocation> allocate(List<Booking> affected, List<Flight> alternatives, Result result) {
+        ArrayList<Allocation> allocations = new ArrayList<>(affected.size());
+        int next = 0;
+        for (Booking booking : affected) {
+            next = reserveFrom(alternatives, next);
+            if (next == alternatives.size()) {
+                result.unplaced.add(booking);
+            } else {
+                allocations.add(new Allocation(booking, next));
+            }
+        }
+        return allocations;
+    }
+
+    /**
+     * Reserve a seat on the first alternative from the given index on that has one
+     * @return the index of that alternative, or the number of alternatives if none has a seat
+     */
+    private int reserveFrom(List<Flight> alternatives, int index) {
+        while (index < alternatives.size() && !bookingManager.reserveSeat(alternatives.get(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private void move(List<Allocation> allocations, List<Flight> alternatives, Result result) {
+        ArrayList<Callable<Void>> tasks = new ArrayList<>(allocations.size());
+        for (Allocation allocation : allocations) {
+            tasks.add(() -> {
+                moveOne(allocation, alternatives);
+                return null;
+            });
+        }
+        List<Future<Void>> futures;
+        try {
+            futures = workers.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_STATE, "Re-accommodation was interrupted.");
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException e) {
+                // moveOne records its own failures; this is an Error, which does not stop the other moves
+                allocations.get(i).error = new IllegalStateException(
+                        "Re-accommodation failed: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();  // Every task has finished; keep the result
+            }
+        }
+        for (Allocation allocation : allocations) {
+            if (allocation.moved != null) {
+                result.rebooked.add(allocation.moved);
+            } else if (allocation.error != null) {
+                result.failed.add(allocation.booking);
+                if (result.error == null) {
+                    result.error = allocation.error;
+                }
+            } else if (allocation.duplicate) {
+                result.alreadyBooked.add(allocation.booking);
+            }
+            // Otherwise the booking was cancelled in the meantime
+        }
+    }
+
+    /**
+     * Move one booking to its reserved alternative, or to a later one if the passenger is already booked there
+     */
+    private void moveOne(Allocation allocation, List<Flight> alternatives) {
+        int index = allocation.alternative;
+        while (index < alternatives.size()) {
+            Flight target = alternatives.get(index);
+            try {
+                allocation.moved = bookingManager.moveBooking(allocation.booking.getBookingId(), target);
+                return;
+            } catch (AeroLinkException e) {
+                target.cancelBooking();  // The reserved seat was not used
+                if (e.getReason() != AeroLinkException.Reason.DUPLICATE) {
+                    return;  // The booking was cancelled in the meantime
+                }
+                allocation.duplicate = true;
+            } catch (RuntimeException e) {
+                target.cancelBooking();
+                allocation.error = e;  // E.g. the journal could not be written; the booking was not moved
+                return;
+            }
+            index = reserveFrom(alternatives, index + 1);
+        }
+
+        // No other alternative has a seat; the passenger keeps the booking they already hold on one
+        try {
+            bookingManager.cancelBooking(allocation.booking.getBookingId());
+        } catch (AeroLinkException cancelledMeanwhile) {
+            // Nothing left to cancel
+        } catch (RuntimeException e) {
+            allocation.error = e;
+        }
+    }
+}
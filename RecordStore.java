@@ -0,0 +1,180 @@
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * RecordStore class holding the primary copy of one kind of record
+ * Replaces the ArrayList + HashMap pair each manager used to keep in step by hand.
+ * Writers are serialized so the ID index and the insertion order always agree;
+ * the store's own monitor is that write lock, so a caller can hold it to keep a step
+ * such as journaling in the same order as the adds.
+ * readers never lock and iterate a weakly consistent view that is safe to use
+ * while other threads add and remove records.
+ * IDs are the base32 strings from IdGenerator; they are indexed by their numeric value,
+ * so lookups are case-insensitive and an ID that is not valid is simply not found.
+ * Adding and removing are O(1): the ID map points straight at the record's node in the order list.
+ * Uses various data structures:
+ * - LongObjectMap for O(1) lookup by ID
+ * - Doubly linked list in insertion order; removed nodes keep their forward link,
+ *   so a reader standing on one still reaches the rest of the list
+ */
+public class RecordStore<T> {
+    private LongObjectMap<Node<T>> byId;  // Numeric ID -> the record's node in insertion order
+    private final Node<T> head;  // Sentinel before the first record
+    private Node<T> tail;  // Last node; only touched while holding the write lock
+
+    /**
+     * A stored record and its links in insertion order
+     */
+    private static class Node<T> {
+        final T value;
+        volatile Node<T> next;  // Readers follow this without locking
+        Node<T> prev;  // Only used by writers
+        volatile boolean removed;
+
+        Node(T value) {
+            this.value = value;
+        }
+    }
+
+    public RecordStore() {
+        this.byId = new LongObjectMap<>();
+        this.head = new Node<>(null);
+        this.tail = head;
+    }
+
+    /**
+     * Add a record at the end of the insertion order
+     * @return false if a record with this ID already exists
+     * @throws IllegalArgumentException if the ID was not made by IdGenerator
+     */
+    public synchronized boolean add(String id, T value) {
+        long key = IdGenerator.decode(id);
+        if (key < 0) {
+            throw new IllegalArgumentException("Not a valid record ID: " + id);
+        }
+        if (byId.containsKey(key)) {
+            return false;
+        }
+        Node<T> node = new Node<>(value);
+        node.prev = tail;
+        tail.next = node;  // Publishes the record to readers
+        tail = node;
+        byId.put(key, node);
+        return true;
+    }
+
+    /**
+     * Add a batch of records in order, taking the write lock once
+     * Records whose ID already exists are skipped
+     * @return the number of records added
+     */
+    public synchronized int addAll(Collection<T> values, Function<T, String> idOf) {
+        int added = 0;
+        for (T value : values) {
+            if (add(idOf.apply(value), value)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Remove a record by ID
+     * @return the removed record, or null if there was none
+     */
+    public synchronized T remove(String id) {
+        Node<T> node = byId.remove(IdGenerator.decode(id));
+        if (node == null) {
+            return null;
+        }
+        node.removed = true;
+        // Unlink, but leave node.next alone so a reader standing on this node can carry on
+        node.prev.next = node.next;
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+        return node.value;
+    }
+
+    /**
+     * Wait for any write in progress, including a caller's step done while holding the write lock
+     */
+    public synchronized void awaitWriters() {
+        // Acquiring the lock is the wait
+    }
+
+    public T get(String id) {
+        Node<T> node = byId.get(IdGenerator.decode(id));
+        return node == null ? null : node.value;
+    }
+
+    public boolean contains(String id) {
+        return byId.containsKey(IdGenerator.decode(id));
+    }
+
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Live view of all records in insertion order
+     * Iteration never throws ConcurrentModificationException and needs no lock
+     */
+    public Collection<T> values() {
+        return new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new Iterator<T>() {
+                    private Node<T> next = live(head.next);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public T next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        T value = next.value;
+                        next = live(next.next);
+                        return value;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return byId.size();
+            }
+        };
+    }
+
+    /**
+     * Copy of all records in insertion order
+     */
+    public ArrayList<T> snapshot() {
+        return new ArrayList<>(values());
+    }
+
+    /**
+     * The first node from here on that has not been removed
+     */
+    private static <T> Node<T> live(Node<T> node) {
+        while (node != null && node.removed) {
+            node = node.next;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.time.LocalDateTime;
+
+/**
+ * RouteIndex class to look up flights by route without scanning every flight
+ * Safe for concurrent use: lookups never lock, and changes to the same flight are applied one at a time.
+ * Uses various data structures:
+ * - ConcurrentHashMap for origin -> destination lookup
+ * - ConcurrentSkipListMap for departure-time ordered flights on a route
+ * - ConcurrentSkipListMap per origin of departures to every destination, for connection searches
+ * - ConcurrentHashMap remembering where each flight was filed, so it can be moved after an update
+ */
+public class RouteIndex {
+    private ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentSkipListMap<DepartureKey, Flight>>> routes;
+    private ConcurrentHashMap<String, ConcurrentSkipListMap<DepartureKey, Flight>> byOrigin;  // origin -> all its departures
+    private ConcurrentHashMap<String, IndexedRoute> indexedRoutes;  // flightId -> route key the flight is filed under
+
+    /**
+     * Position of a flight on its route: departure time, ties broken by flight ID
+     */
+    private static class DepartureKey implements Comparable<DepartureKey> {
+        LocalDateTime departureTime;
+        String flightId;
+        int bound;  // -1 sorts before every flight at this time, +1 after, 0 for a real flight
+
+        DepartureKey(LocalDateTime departureTime, String flightId, int bound) {
+            this.departureTime = departureTime;
+            this.flightId = flightId;
+            this.bound = bound;
+        }
+
+        @Override
+        public int compareTo(DepartureKey other) {
+            int result = departureTime.compareTo(other.departureTime);
+            if (result != 0) {
+                return result;
+            }
+            if (bound != 0 || other.bound != 0) {
+                return Integer.compare(bound, other.bound);
+            }
+            return flightId.compareTo(other.flightId);
+        }
+    }
+
+    /**
+     * Route key a flight was filed under when it was last indexed
+     */
+    private static class IndexedRoute {
+        String origin;
+        String destination;
+        DepartureKey departure;
+
+        IndexedRoute(String origin, String destination, DepartureKey departure) {
+            this.origin = origin;
+            this.destination = destination;
+            this.departure = departure;
+        }
+    }
+
+    public RouteIndex() {
+        this.routes = new ConcurrentHashMap<>();
+        this.byOrigin = new ConcurrentHashMap<>();
+        this.indexedRoutes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Add a flight to the index under its current origin, destination and departure time
+     */
+    public void add(Flight flight) {
+        indexedRoutes.computeIfAbsent(flight.getFlightId(), id -> file(flight));
+    }
+
+    /**
+     * Remove a flight from the index
+     * Uses the key the flight was filed under, so it works even after the flight was modified
+     */
+    public void remove(Flight flight) {
+        indexedRoutes.computeIfPresent(flight.getFlightId(), (id, key) -> {
+            unfile(key);
+            return null;
+        });
+    }
+
+    /**
+     * Move a flight to its new position after its route or departure time changed
+     * Adds the flight if it was not indexed yet
+     */
+    public void reindex(Flight flight) {
+        indexedRoutes.compute(flight.getFlightId(), (id, key) -> {
+            if (key != null) {
+                unfile(key);
+            }
+            return file(flight);
+        });
+    }
+
+    public boolean contains(Flight flight) {
+        return indexedRoutes.containsKey(flight.getFlightId());
+    }
+
+    /**
+     * Find flights on a route departing within the given window
+     * @param fromTime earliest departure (inclusive), or null for no lower bound
+     * @param toTime latest departure (inclusive), or null for no upper bound
+     * @return flights ordered by departure time
+     */
+    public ArrayList<Flight> find(String origin, String destination, LocalDateTime fromTime, LocalDateTime toTime) {
+        ArrayList<Flight> result = new ArrayList<>();
+
+        ConcurrentHashMap<String, ConcurrentSkipListMap<DepartureKey, Flight>> destinations = routes.get(normalize(origin));
+        if (destinations == null) {
+            return result;
+        }
+        ConcurrentSkipListMap<DepartureKey, Flight> departures = destinations.get(normalize(destination));
+        if (departures == null) {
+            return result;
+        }
+
+        ConcurrentNavigableMap<DepartureKey, Flight> window = departures;
+        if (fromTime != null && toTime != null) {
+            if (toTime.isBefore(fromTime)) {
+                return result;
+            }
+            window = departures.subMap(new DepartureKey(fromTime, null, -1), new DepartureKey(toTime, null, 1));
+        } else if (fromTime != null) {
+            window = departures.tailMap(new DepartureKey(fromTime, null, -1));
+        } else if (toTime != null) {
+            window = departures.headMap(new DepartureKey(toTime, null, 1));
+        }
+
+        result.addAll(window.values());
+        return result;
+    }
+
+    /**
+     * Flights departing an airport for any destination within the given window
+     * @param fromTime earliest departure (inclusive)
+     * @param toTime latest departure (inclusive)
+     * @return a live view ordered by departure time; it may reflect changes made while it is read
+     */
+    public Collection<Flight> departingFrom(String origin, LocalDateTime fromTime, LocalDateTime toTime) {
+        ConcurrentSkipListMap<DepartureKey, Flight> fromOrigin = byOrigin.get(normalize(origin));
+        if (fromOrigin == null || toTime.isBefore(fromTime)) {
+            return Collections.emptyList();
+        }
+        return fromOrigin.subMap(new DepartureKey(fromTime, null, -1), new DepartureKey(toTime, null, 1)).values();
+    }
+
+    private IndexedRoute file(Flight flight) {
+        IndexedRoute key = new IndexedRoute(normalize(flight.getOrigin()), normalize(flight.getDestination()),
+                new DepartureKey(flight.getDepartureTime(), flight.getFlightId(), 0));
+        ConcurrentHashMap<String, ConcurrentSkipListMap<DepartureKey, Flight>> destinations = routes.get(key.origin);
+        if (destinations == null) {
+            destinations = routes.computeIfAbsent(key.origin, k -> new ConcurrentHashMap<>());
+        }
+        ConcurrentSkipListMap<DepartureKey, Flight> departures = destinations.get(key.destination);
+        if (departures == null) {
+            departures = destinations.computeIfAbsent(key.destination, k -> new ConcurrentSkipListMap<>());
+        }
+        departures.put(key.departure, flight);
+        ConcurrentSkipListMap<DepartureKey, Flight> fromOrigin = byOrigin.get(key.origin);
+        if (fromOrigin == null) {
+            fromOrigin = byOrigin.computeIfAbsent(key.origin, k -> new ConcurrentSkipListMap<>());
+        }
+        fromOrigin.put(key.departure, flight);
+        return key;
+    }
+
+    private void unfile(IndexedRoute key) {
+        // Empty routes are kept: there are few airports, and dropping them would race with concurrent adds
+        ConcurrentHashMap<String, ConcurrentSkipListMap<DepartureKey, Flight>> destinations = routes.get(key.origin);
+        if (destinations != null) {
+            ConcurrentSkipListMap<DepartureKey, Flight> departures = destinations.get(key.destination);
+            if (departures != null) {
+                departures.remove(key.departure);
+            }
+        }
+        ConcurrentSkipListMap<DepartureKey, Flight> fromOrigin = byOrigin.get(key.origin);
+        if (fromOrigin != null) {
+            fromOrigin.remove(key.departure);
+        }
+    }
+
+    private static String normalize(String airport) {
+        return airport == null ? "" : airport.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,291 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ScheduleImporter class to bulk load a flight schedule from a CSV or TSV file
+ * Each line holds: name, origin, destination, departure, arrival, capacity, price
+ * with times in HH:mm dd-MM-yyyy format. A first line whose first field is "name" is treated as a header.
+ *
+ * The file is streamed in chunks: chunks are parsed and validated in parallel,
+ * then inserted in file order one batch at a time. Only a bounded number of chunks
+ * is in memory at once, so the file is never materialized as a whole.
+ */
+public class ScheduleImporter {
+    private static final int CHUNK_LINES = 8192;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int FIELD_COUNT = 7;
+
+    private FlightManager flightManager;
+    private int parserThreads;
+
+    public ScheduleImporter(FlightManager flightManager) {
+        this(flightManager, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ScheduleImporter(FlightManager flightManager, int parserThreads) {
+        this.flightManager = flightManager;
+        this.parserThreads = Math.max(1, parserThreads);
+    }
+
+    /**
+     * Error found on one line of the schedule
+     */
+    public static class LineError {
+        private long lineNumber;
+        private String message;
+
+        LineError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + message;
+        }
+    }
+
+    /**
+     * Outcome of an import: how many flights were added and which lines were rejected
+     * Only the first errors are kept; getErrorCount() always has the full total
+     */
+    public static class ImportResult {
+        private long importedCount;
+        private long errorCount;
+        private ArrayList<LineError> errors = new ArrayList<>();
+
+        public long getImportedCount() {
+            return importedCount;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public ArrayList<LineError> getErrors() {
+            return errors;
+        }
+
+        void addError(LineError error) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+
+    /**
+     * A block of consecutive lines and what parsing them produced
+     */
+    private static class Chunk {
+        long firstLineNumber;
+        ArrayList<String> lines;
+        ArrayList<Flight> flights;
+        ArrayList<LineError> errors;
+
+        Chunk(long firstLineNumber, ArrayList<String> lines) {
+            this.firstLineNumber = firstLineNumber;
+            this.lines = lines;
+        }
+    }
+
+    public ImportResult importFile(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importSchedule(reader);
+        }
+    }
+
+    /**
+     * Import every flight from the reader
+     * Valid lines are added to FlightManager even if other lines fail
+     */
+    public ImportResult importSchedule(Reader source) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader ? (BufferedReader) source : new BufferedReader(source);
+        ImportResult result = new ImportResult();
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads);
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        int maxPending = parserThreads * 2;  // Bounds memory: at most this many chunks are held at once
+
+        try {
+            long lineNumber = 0;
+            ArrayList<String> lines = new ArrayList<>(CHUNK_LINES);
+            long chunkStart = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && isHeader(line)) {
+                    chunkStart = 2;
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == CHUNK_LINES) {
+                    Chunk chunk = new Chunk(chunkStart, lines);
+                    pending.add(parsers.submit(() -> parse(chunk)));
+                    lines = new ArrayList<>(CHUNK_LINES);
+                    chunkStart = lineNumber + 1;
+                    if (pending.size() >= maxPending) {
+                        insert(pending.poll(), result);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                Chunk chunk = new Chunk(chunkStart, lines);
+                pending.add(parsers.submit(() -> parse(chunk)));
+            }
+            // Chunks are inserted in submission order, so flights keep their file order
+            while (!pending.isEmpty()) {
+                insert(pending.poll(), result);
+            }
+        } finally {
+            for (Future<Chunk> future : pending) {
+                future.cancel(true);
+            }
+            parsers.shutdownNow();
+        }
+        return result;
+    }
+
+    private void insert(Future<Chunk> future, ImportResult result) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        flightManager.addFlights(chunk.flights);
+        result.importedCount += chunk.flights.size();
+        for (LineError error : chunk.errors) {
+            result.addError(error);
+        }
+    }
+
+    /**
+     * Parse and validate one chunk; runs on a parser thread
+     */
+    private static Chunk parse(Chunk chunk) {
+        chunk.flights = new ArrayList<>(chunk.lines.size());
+        chunk.errors = new ArrayList<>();
+        String[] fields = new String[FIELD_COUNT];
+
+        for (int i = 0; i < chunk.lines.size(); i++) {
+            String line = chunk.lines.get(i);
+            long lineNumber = chunk.firstLineNumber + i;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                chunk.flights.add(parseLine(line, fields));
+            } catch (IllegalArgumentException | DateTimeException | AeroLinkException e) {
+                chunk.errors.add(new LineError(lineNumber, e.getMessage()));
+            }
+        }
+        chunk.lines = null;  // Let the raw text go as soon as it is parsed
+        return chunk;
+    }
+
+    private static Flight parseLine(String line, String[] fields) {
+        char delimiter = line.indexOf('\t') >= 0 ? '\t' : ',';
+        int count = 0;
+        int start = 0;
+        while (true) {
+            if (count == FIELD_COUNT) {
+                count++;  // A delimiter after the last field means there are too many fields
+                break;
+            }
+            int end = line.indexOf(delimiter, start);
+            if (end < 0) {
+                fields[count++] = line.substring(start).trim();
+                break;
+            }
+            fields[count++] = line.substring(start, end).trim();
+            start = end + 1;
+        }
+        if (count != FIELD_COUNT) {
+            throw new IllegalArgumentException("Expected " + FIELD_COUNT + " fields: name, origin, destination, " +
+                    "departure, arrival, capacity, price");
+        }
+
+        for (int i = 0; i < 3; i++) {
+            if (fields[i].isEmpty()) {
+                throw new IllegalArgumentException("Name, origin and destination must not be empty");
+            }
+        }
+        LocalDateTime departureTime = parseDateTime(fields[3]);
+        LocalDateTime arrivalTime = parseDateTime(fields[4]);
+        int capacity;
+        double price;
+        try {
+            capacity = Integer.parseInt(fields[5]);
+            price = Double.parseDouble(fields[6]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid capacity or price");
+        }
+        FlightManager.validateFlight(departureTime, arrivalTime, capacity, price);
+
+        return new Flight(fields[0], fields[1], fields[2], departureTime, arrivalTime, capacity, price);
+    }
+
+    /**
+     * Hand-rolled parser for the fixed-width HH:mm dd-MM-yyyy format
+     * Avoids DateTimeFormatter, which dominates the cost of parsing a line
+     */
+    static LocalDateTime parseDateTime(String text) {
+        if (text.length() != 16 || text.charAt(2) != ':' || text.charAt(5) != ' ' ||
+                text.charAt(8) != '-' || text.charAt(11) != '-') {
+            throw new IllegalArgumentException("Invalid date format '" + text + "'. Please use HH:mm dd-MM-yyyy");
+        }
+        int hour = digits(text, 0, 2);
+        int minute = digits(text, 3, 5);
+        int day = digits(text, 6, 8);
+        int month = digits(text, 9, 11);
+        int year = digits(text, 12, 16);
+        if (hour < 0 || minute < 0 || day < 0 || month < 0 || year < 0) {
+            throw new IllegalArgumentException("Invalid date format '" + text + "'. Please use HH:mm dd-MM-yyyy");
+        }
+        return LocalDateTime.of(year, month, day, hour, minute);  // Rejects impossible dates such as 31-02
+    }
+
+    /**
+     * @return the decimal value of text[from, to), or -1 if it contains a non-digit
+     */
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isHeader(String line) {
+        int end = line.indexOf(line.indexOf('\t') >= 0 ? '\t' : ',');
+        String first = (end < 0 ? line : line.substring(0, end)).trim();
+        return first.equalsIgnoreCase("name") || first.equalsIgnoreCase("flight name");
+    }
+}
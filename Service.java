@@ -1,4 +1,3 @@
-import java.util.UUID;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -12,15 +11,17 @@ public class Service implements Comparable<Service> {
     private String description;
     private String location;
     private LocalDateTime requestTime;
-    private boolean completed;
-    private int priority;  // Lower number means higher priority
+    private volatile boolean completed;  // Volatile so status changes are visible to other threads
+    private volatile int priority;  // Lower number means higher priority
+    private final long sequence;  // Numeric ID; IDs are handed out in request order
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
     /**
      * Constructor for Service class
      */
     public Service(String serviceType, String description, String location, int priority) {
-        this.serviceId = UUID.randomUUID().toString().substring(0, 8);
+        this.serviceId = IdGenerator.nextId();
+        this.sequence = IdGenerator.decode(serviceId);
         this.serviceType = serviceType;
         this.description = description;
         this.location = location;
@@ -29,6 +30,22 @@ public class Service implements Comparable<Service> {
         this.priority = priority;
     }
 
+    /**
+     * Constructor used when restoring a saved service, keeping its original ID and request time
+     */
+    public Service(String serviceId, String serviceType, String description, String location,
+                   LocalDateTime requestTime, int priority) {
+        IdGenerator.observe(serviceId);  // New IDs must not reuse a restored one
+        this.serviceId = serviceId;
+        this.sequence = IdGenerator.decode(serviceId);
+        this.serviceType = serviceType;
+        this.description = description;
+        this.location = location;
+        this.requestTime = requestTime;
+        this.completed = false;
+        this.priority = priority;
+    }
+
     // Getters and setters
     public String getServiceId() {
         return serviceId;
@@ -80,10 +97,19 @@ public class Service implements Comparable<Service> {
 
     /**
      * Implementation of Comparable interface to allow sorting of services by priority
+     * Equal priorities are served first come, first served: by request time, then by request order
      */
     @Override
     public int compareTo(Service other) {
-        return Integer.compare(this.priority, other.priority);
+        int byPriority = Integer.compare(this.priority, other.priority);
+        if (byPriority != 0) {
+            return byPriority;
+        }
+        int byTime = this.requestTime.compareTo(other.requestTime);
+        if (byTime != 0) {
+            return byTime;
+        }
+        return Long.compare(this.sequence, other.sequence);
     }
 
     /**
@@ -0,0 +1,233 @@
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * ServiceConsole class with the interactive ground service menus
+ * Only prompts and prints; every operation is delegated to ServiceManager
+ */
+public class ServiceConsole {
+    private ServiceManager serviceManager;
+    private Scanner scanner;
+    private ServiceDispatcher dispatcher;  // null until the dispatcher is first started
+    private static final int NEXT_SERVICES_SHOWN = 3;
+
+    public ServiceConsole(ServiceManager serviceManager, Scanner scanner) {
+        this.serviceManager = serviceManager;
+        this.scanner = scanner;
+    }
+
+    /**
+     * Request a ground service
+     */
+    public void requestGroundService() {
+        try {
+            System.out.println("\n===== Request Ground Service =====");
+
+            // Display available service types
+            System.out.println("\nAvailable Service Types:");
+            List<String> serviceTypes = serviceManager.getServiceTypes();
+            for (int i = 0; i < serviceTypes.size(); i++) {
+                System.out.println((i + 1) + ". " + serviceTypes.get(i));
+            }
+
+            System.out.print("\nEnter Service Type: ");
+            String serviceType = scanner.nextLine().trim();
+
+            System.out.print("Enter Description: ");
+            String description = scanner.nextLine().trim();
+
+            System.out.print("Enter Location (Gate/Terminal): ");
+            String location = scanner.nextLine().trim();
+
+            System.out.print("Enter Priority (1-5, lower number means higher priority): ");
+            int priority = Integer.parseInt(scanner.nextLine().trim());
+
+            Service service = serviceManager.request(serviceType, description, location, priority);
+
+            System.out.println("Service requested successfully!");
+            System.out.println("Service ID: " + service.getServiceId());
+
+            // Display next service to be processed based on priority
+            displayNextServiceInQueue();
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter a valid priority number.");
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Error requesting service: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Display the next services to be processed based on priority, across all locations
+     */
+    private void displayNextServiceInQueue() {
+        List<Service> nextServices = serviceManager.getNextServices(NEXT_SERVICES_SHOWN);
+        if (nextServices.isEmpty()) {
+            return;
+        }
+        System.out.println("\nNext services to be processed (highest priority first):");
+        int count = 1;
+        for (Service nextService : nextServices) {
+            System.out.println(count + ". ID: " + nextService.getServiceId() +
+                    " | Type: " + nextService.getServiceType() +
+                    " | Location: " + nextService.getLocation() +
+                    " | Priority: " + nextService.getPriority());
+            count++;
+        }
+    }
+
+    /**
+     * View all services
+     */
+    public void viewAllServices() {
+        System.out.println("\n===== All Ground Services =====");
+
+        if (!serviceManager.hasServices()) {
+            System.out.println("No services available.");
+            return;
+        }
+
+        int count = 1;
+        for (Service service : serviceManager.services()) {
+            System.out.println("\nService #" + count + ":");
+            System.out.println(service);
+            System.out.println("------------------------------");
+            count++;
+        }
+    }
+
+    /**
+     * Complete a service
+     */
+    public void completeService() {
+        System.out.println("\n===== Complete Service =====");
+
+        if (!serviceManager.hasServices()) {
+            System.out.println("No services available to complete.");
+            return;
+        }
+
+        System.out.print("Enter Service ID to mark as completed: ");
+        String serviceId = scanner.nextLine().trim();
+
+        try {
+            serviceManager.complete(serviceId);
+        } catch (AeroLinkException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        System.out.println("Service marked as completed successfully!");
+
+        // Display next service to be processed based on priority
+        displayNextServiceInQueue();
+    }
+
+    /**
+     * Change the priority of a pending service
+     */
+    public void changeServicePriority() {
+        System.out.println("\n===== Change Service Priority =====");
+
+        if (serviceManager.getPendingCount() == 0) {
+            System.out.println("No pending services.");
+            return;
+        }
+
+        System.out.print("Enter Service ID: ");
+        String serviceId = scanner.nextLine().trim();
+
+        try {
+            System.out.print("Enter New Priority (1-5, lower number means higher priority): ");
+            int priority = Integer.parseInt(scanner.nextLine().trim());
+            serviceManager.changePriority(serviceId, priority);
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter a valid priority number.");
+            return;
+        } catch (AeroLinkException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        System.out.println("Service priority updated successfully!");
+
+        // Display next service to be processed based on priority
+        displayNextServiceInQueue();
+    }
+
+    /**
+     * Start the ground service dispatcher, or stop it and show its figures if it is running
+     */
+    public void toggleDispatcher() {
+        System.out.println("\n===== Ground Service Dispatcher =====");
+
+        if (dispatcher != null && dispatcher.isRunning()) {
+            stopDispatcher();
+            System.out.println("Dispatcher stopped.");
+            System.out.println(dispatcher.getStats());
+            return;
+        }
+
+        try {
+            System.out.print("Enter Crews per Location (e.g. Gate 1=3, Gate 2=2; a number alone for crews serving every location): ");
+            Map<String, Integer> crewsByLocation = parseCrews(scanner.nextLine().trim());
+            int crews = 0;
+            for (int count : crewsByLocation.values()) {
+                crews += count;
+            }
+
+            System.out.print("Enter Handling Time per Service (seconds): ");
+            long seconds = Long.parseLong(scanner.nextLine().trim());
+            if (seconds < 0) {
+                System.out.println("Error: Handling time cannot be negative.");
+                return;
+            }
+
+            Duration handlingTime = Duration.ofSeconds(seconds);
+            dispatcher = new ServiceDispatcher(serviceManager, crewsByLocation, service -> handlingTime);
+            dispatcher.start();
+            System.out.println("Dispatcher started with " + crews + " crews" +
+                    (dispatcher.usesVirtualThreads() ? " on virtual threads." : "."));
+            System.out.println("Pending services: " + serviceManager.getPendingCount());
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Please enter a valid number.");
+        } catch (AeroLinkException e) {
+            System.out.println("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read "location=count" pairs separated by commas; a plain number means crews for every location
+     */
+    private static Map<String, Integer> parseCrews(String input) {
+        Map<String, Integer> crewsByLocation = new LinkedHashMap<>();
+        for (String part : input.split(",")) {
+            int equals = part.lastIndexOf('=');
+            String location = equals < 0 ? "" : part.substring(0, equals).trim();
+            int count = Integer.parseInt(part.substring(equals + 1).trim());
+            if (count < 0) {
+                throw new NumberFormatException("Negative crew count");
+            }
+            crewsByLocation.merge(location, count, Integer::sum);
+        }
+        return crewsByLocation;
+    }
+
+    /**
+     * Stop the dispatcher if it is running, letting crews finish the services they have
+     */
+    public void stopDispatcher() {
+        if (dispatcher == null) {
+            return;
+        }
+        try {
+            dispatcher.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,387 @@
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * ServiceDispatcher class to hand pending ground services to a pool of simulated crews
+ * A dispatcher thread takes services from ServiceManager in priority order whenever a crew is free,
+ * and each task completes its service through ServiceManager after its handling time.
+ * Crews can be based at a location: they work through that location's services first and
+ * only help out elsewhere when it has nothing pending. Each round the dispatcher first gives every
+ * location's free crews that location's own work, then lets the remaining free crews take the best
+ * service anywhere; a service goes to a free crew of its own location when there is one, so a crew
+ * never takes another location's work while that location has crews sitting idle.
+ *
+ * Tasks run on virtual threads when the runtime has them (Java 21+), one per task; otherwise
+ * the handling time is simulated with a scheduled completion, so neither way needs a platform
+ * thread per task and thousands of crews can be busy at once.
+ * Uses various data structures:
+ * - Map from location to a queue of its free crews
+ * - LongAdder/AtomicLong counters for throughput and queue wait times
+ */
+public class ServiceDispatcher {
+    private ServiceManager serviceManager;
+    private final Object crewLock = new Object();  // Guards freeCrews and freeCount; signalled when a crew is freed
+    private Map<String, ArrayDeque<Crew>> freeCrews;  // Normalized location, "" for crews serving everywhere -> free crews
+    private int freeCount;
+    private Function<Service, Duration> handlingTime;  // How long a crew spends on a service
+    private ExecutorService virtualThreads;  // null when the runtime has no virtual threads
+    private ScheduledExecutorService timer;  // Simulates handling time when there are no virtual threads
+    private Thread dispatcherThread;
+    private volatile long startNanos;
+    private volatile long stopNanos;
+
+    private LongAdder dispatched = new LongAdder();
+    private LongAdder completed = new LongAdder();
+    private LongAdder totalWaitMillis = new LongAdder();
+    private AtomicLong maxWaitMillis = new AtomicLong();
+    private AtomicInteger busyCrews = new AtomicInteger();
+    private LongAdder stolen = new LongAdder();  // Services handled by a crew from another location
+
+    /**
+     * One crew; location is null for a crew that serves every location
+     */
+    private static class Crew {
+        final String location;
+        final String key;  // Normalized location, "" for a crew that serves every location
+
+        Crew(String location) {
+            this.location = location;
+            this.key = ShardedServiceQueue.normalize(location);
+        }
+    }
+
+    /**
+     * Dispatcher whose crews serve every location and where every service takes the same handling time
+     */
+    public ServiceDispatcher(ServiceManager serviceManager, int crews, Duration handlingTime) {
+        this(serviceManager, Map.of("", crews), service -> handlingTime);
+    }
+
+    /**
+     * @param crewsByLocation number of crews based at each location; "" for crews that serve every location
+     * @param handlingTime how long a crew works on a given service, e.g. by service type
+     */
+    public ServiceDispatcher(ServiceManager serviceManager, Map<String, Integer> crewsByLocation,
+                             Function<Service, Duration> handlingTime) {
+        this.serviceManager = serviceManager;
+        this.freeCrews = new LinkedHashMap<>();
+        this.handlingTime = handlingTime;
+        for (Map.Entry<String, Integer> entry : crewsByLocation.entrySet()) {
+            String location = entry.getKey().trim().isEmpty() ? null : entry.getKey().trim();
+            for (int i = 0; i < entry.getValue(); i++) {
+                releaseCrew(new Crew(location));
+            }
+        }
+        if (freeCount == 0) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT, "There must be at least one crew.");
+        }
+    }
+
+    /**
+     * Start dispatching; pending services are picked up straight away
+     */
+    public synchronized void start() {
+        if (dispatcherThread != null) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_STATE, "The dispatcher is already running.");
+        }
+        virtualThreads = newVirtualThreadExecutor();
+        if (virtualThreads == null) {
+            // A few threads, so completions waiting on the journal can share a group commit
+            timer = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), task -> {
+                Thread thread = new Thread(task, "service-crews");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        startNanos = System.nanoTime();
+        stopNanos = 0;
+        dispatcherThread = new Thread(this::dispatchLoop, "service-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    /**
+     * Stop taking new services and wait for the crews to finish the ones they have
+     * Services that were not dispatched stay in the queue
+     */
+    public synchronized void stop() throws InterruptedException {
+        if (dispatcherThread == null) {
+            return;
+        }
+        dispatcherThread.interrupt();
+        dispatcherThread.join();
+        dispatcherThread = null;
+
+        ExecutorService tasks = virtualThreads != null ? virtualThreads : timer;
+        tasks.shutdown();  // Scheduled completions still run after shutdown
+        tasks.awaitTermination(1, TimeUnit.MINUTES);
+        virtualThreads = null;
+        timer = null;
+        stopNanos = System.nanoTime();
+    }
+
+    public synchronized boolean isRunning() {
+        return dispatcherThread != null;
+    }
+
+    /**
+     * Whether tasks run on virtual threads; false means they are simulated with a timer
+     */
+    public synchronized boolean usesVirtualThreads() {
+        return virtualThreads != null;
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (true) {
+                synchronized (crewLock) {
+                    while (freeCount == 0) {
+                        crewLock.wait();
+                    }
+                }
+                if (!dispatchPending()) {
+                    // Nothing pending anywhere: wait for the next request and give it to the best free crew
+                    Service service = serviceManager.takeNextService(null);
+                    dispatch(takeCrewFor(service), service);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Hand pending services to free crews without waiting: each location's free crews take that
+     * location's services first, then the remaining free crews take the best service anywhere
+     * Only the dispatcher thread takes crews, so a free crew seen here is still free when it is taken
+     * @return whether any service was dispatched
+     */
+    private boolean dispatchPending() {
+        boolean any = false;
+        ArrayList<String> locations = new ArrayList<>();
+        synchronized (crewLock) {
+            for (Map.Entry<String, ArrayDeque<Crew>> entry : freeCrews.entrySet()) {
+                if (!entry.getKey().isEmpty() && !entry.getValue().isEmpty()) {
+                    locations.add(entry.getKey());
+                }
+            }
+        }
+        for (String location : locations) {
+            while (hasFreeCrew(location)) {
+                Service service = serviceManager.pollServiceAt(location);
+                if (service == null) {
+                    break;
+                }
+                dispatch(takeCrew(location), service);
+                any = true;
+            }
+        }
+        // Crews serving everywhere, and crews whose own location has nothing pending
+        while (hasFreeCrew(null)) {
+            Service service = serviceManager.pollNextService(null);
+            if (service == null) {
+                break;
+            }
+            dispatch(takeCrewFor(service), service);
+            any = true;
+        }
+        return any;
+    }
+
+    /**
+     * @param key a normalized location, or null for any location
+     */
+    private boolean hasFreeCrew(String key) {
+        synchronized (crewLock) {
+            if (key == null) {
+                return freeCount > 0;
+            }
+            ArrayDeque<Crew> crews = freeCrews.get(key);
+            return crews != null && !crews.isEmpty();
+        }
+    }
+
+    /**
+     * @return a free crew from the given normalized location, or null if it has none
+     */
+    private Crew takeCrew(String key) {
+        synchronized (crewLock) {
+            ArrayDeque<Crew> crews = freeCrews.get(key);
+            Crew crew = crews == null ? null : crews.poll();
+            if (crew != null) {
+                freeCount--;
+            }
+            return crew;
+        }
+    }
+
+    /**
+     * The free crew that should handle a service: one based at its location, else one serving
+     * every location, else one from another location; null if no crew is free
+     */
+    private Crew takeCrewFor(Service service) {
+        Crew crew = takeCrew(ShardedServiceQueue.normalize(service.getLocation()));
+        if (crew == null) {
+            crew = takeCrew("");
+        }
+        if (crew == null) {
+            synchronized (crewLock) {
+                for (String key : freeCrews.keySet()) {
+                    crew = takeCrew(key);
+                    if (crew != null) {
+                        break;
+                    }
+                }
+            }
+        }
+        return crew;
+    }
+
+    private void releaseCrew(Crew crew) {
+        synchronized (crewLock) {
+            freeCrews.computeIfAbsent(crew.key, key -> new ArrayDeque<>()).add(crew);
+            freeCount++;
+            crewLock.notifyAll();
+        }
+    }
+
+    private void dispatch(Crew crew, Service service) {
+        long waitMillis = Math.max(0, Duration.between(service.getRequestTime(), LocalDateTime.now()).toMillis());
+        totalWaitMillis.add(waitMillis);
+        maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+        dispatched.increment();
+        busyCrews.incrementAndGet();
+        if (crew.location != null && !crew.key.equals(ShardedServiceQueue.normalize(service.getLocation()))) {
+            stolen.increment();
+        }
+
+        Duration duration = handlingTime.apply(service);
+        if (virtualThreads != null) {
+            virtualThreads.execute(() -> {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(duration.toNanos());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finish(crew, service);
+            });
+        } else {
+            timer.schedule(() -> finish(crew, service), duration.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void finish(Crew crew, Service service) {
+        try {
+            serviceManager.complete(service.getServiceId());
+            completed.increment();
+        } catch (AeroLinkException e) {
+            // An operator completed it by hand in the meantime
+        } catch (RuntimeException e) {
+            System.err.println("Warning: Service " + service.getServiceId() + " could not be completed: " + e.getMessage());
+        } finally {
+            busyCrews.decrementAndGet();
+            releaseCrew(crew);
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() through reflection, so the code still runs on Java 17
+     * @return the executor, or null if the runtime has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Throughput and queue wait times since the dispatcher was started
+     */
+    public Stats getStats() {
+        long end = stopNanos != 0 ? stopNanos : System.nanoTime();
+        double seconds = startNanos == 0 ? 0 : (end - startNanos) / 1e9;
+        long dispatchedCount = dispatched.sum();
+        return new Stats(dispatchedCount, completed.sum(), stolen.sum(), busyCrews.get(),
+                seconds > 0 ? completed.sum() / seconds : 0,
+                dispatchedCount > 0 ? (double) totalWaitMillis.sum() / dispatchedCount : 0,
+                maxWaitMillis.get());
+    }
+
+    /**
+     * Dispatcher figures at one point in time
+     */
+    public static class Stats {
+        private long dispatched;
+        private long completed;
+        private long stolen;
+        private int busyCrews;
+        private double throughputPerSecond;
+        private double averageWaitMillis;
+        private long maxWaitMillis;
+
+        Stats(long dispatched, long completed, long stolen, int busyCrews, double throughputPerSecond,
+              double averageWaitMillis, long maxWaitMillis) {
+            this.dispatched = dispatched;
+            this.completed = completed;
+            this.stolen = stolen;
+            this.busyCrews = busyCrews;
+            this.throughputPerSecond = throughputPerSecond;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        public long getDispatched() {
+            return dispatched;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * Services handled by a crew based at another location
+         */
+        public long getStolen() {
+            return stolen;
+        }
+
+        public int getBusyCrews() {
+            return busyCrews;
+        }
+
+        public double getThroughputPerSecond() {
+            return throughputPerSecond;
+        }
+
+        public double getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Dispatched: %d | Completed: %d | From other locations: %d | Busy crews: %d%n" +
+                            "Throughput: %.1f services/s | Queue wait: avg %.0f ms, max %d ms",
+                    dispatched, completed, stolen, busyCrews, throughputPerSecond, averageWaitMillis, maxWaitMillis);
+        }
+    }
+}
@@ -1,33 +1,28 @@
-import java.util.Scanner;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.PriorityQueue;
 import java.util.List;
 
 /**
  * ServiceManager class to manage all ground service-related operations
+ * Headless API: methods take plain values and return results or throw AeroLinkException,
+ * the console prompts live in ServiceConsole. Safe to share between request threads.
  * Uses various data structures:
- * - ArrayList for storage of services
- * - HashMap for quick service lookup by ID
- * - PriorityQueue for processing services by priority
+ * - RecordStore for storage of services with quick lookup by ID
+ * - ShardedServiceQueue of pending services, one priority heap per location and service type
  * - List for service types
  */
 public class ServiceManager {
-    private ArrayList<Service> services;  // ArrayList for services storage
-    private HashMap<String, Service> serviceMap;  // HashMap for quick service lookup by ID
-    private PriorityQueue<Service> servicePriorityQueue;  // PriorityQueue for service priority
+    private RecordStore<Service> services;  // Thread-safe services storage with lookup by ID
+    private ShardedServiceQueue servicePriorityQueue;  // Pending services only, sharded by location and type
     private List<String> serviceTypes;  // List of service types
-    private Scanner scanner;
+    private volatile ChangeLog changeLog = ChangeLog.NONE;  // Journals every change once persistence is attached
 
     /**
      * Constructor initializes the data structures
      */
     public ServiceManager() {
-        this.services = new ArrayList<>();  // Dynamic array for storing all services
-        this.serviceMap = new HashMap<>();  // HashMap for O(1) lookup by ID
-        this.servicePriorityQueue = new PriorityQueue<>();  // PriorityQueue ordered by natural ordering (priority)
+        this.services = new RecordStore<>();  // Insertion-ordered storage with O(1) lookup by ID
+        this.servicePriorityQueue = new ShardedServiceQueue();  // Heaps ordered by priority, then request time
         this.serviceTypes = new ArrayList<>();  // List for service types
-        this.scanner = new Scanner(System.in);
 
         // Initialize service types
         serviceTypes.add("Baggage Handling");
@@ -38,134 +33,211 @@ public class ServiceManager {
     }
 
     /**
-     * Request a ground service
-     * Uses various data structures for efficient operations
+     * Request a ground service and queue it by priority
+     * @param priority 1-5, lower number means higher priority
+     * @return the new service
+     * @throws AeroLinkException INVALID_INPUT if the location is missing or the priority is out of range
      */
-    public void requestGroundService() {
-        try {
-            System.out.println("\n===== Request Ground Service =====");
-
-            // Display available service types
-            System.out.println("\nAvailable Service Types:");
-            for (int i = 0; i < serviceTypes.size(); i++) {
-                System.out.println((i + 1) + ". " + serviceTypes.get(i));
-            }
-
-            System.out.print("\nEnter Service Type: ");
-            String serviceType = scanner.nextLine().trim();
+    public Service request(String serviceType, String description, String location, int priority) {
+        if (location == null || location.trim().isEmpty()) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT, "Location is required.");
+        }
+        if (priority < 1 || priority > 5) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT, "Priority must be between 1 and 5.");
+        }
 
-            System.out.print("Enter Description: ");
-            String description = scanner.nextLine().trim();
+        Service service = new Service(serviceType, description, location, priority);
+        long ticket;
 
-            System.out.print("Enter Location (Gate/Terminal): ");
-            String location = scanner.nextLine().trim();
+        // Add to data structures; journaled under the store's write lock, so replay rebuilds the same order
+        synchronized (services) {
+            ticket = changeLog.serviceRequested(service);
+            services.add(service.getServiceId(), service);
+        }
+        // A concurrent complete() may already have seen the service; never queue it once completed
+        synchronized (service) {
+            if (!service.isCompleted()) {
+                servicePriorityQueue.add(service);  // Add to priority queue
+            }
+        }
+        changeLog.awaitDurable(ticket);
+        return service;
+    }
 
-            System.out.print("Enter Priority (1-5, lower number means higher priority): ");
-            int priority = Integer.parseInt(scanner.nextLine().trim());
+    /**
+     * Mark a service as completed and remove it from the priority queue
+     * @return the completed service
+     * @throws AeroLinkException NOT_FOUND, or INVALID_STATE if it was already completed
+     */
+    public Service complete(String serviceId) {
+        Service service = services.get(serviceId);
+        if (service == null) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Service not found with ID: " + serviceId);
+        }
 
-            if (priority < 1 || priority > 5) {
-                System.out.println("Error: Priority must be between 1 and 5.");
-                return;
+        long ticket;
+        synchronized (service) {
+            if (service.isCompleted()) {
+                throw new AeroLinkException(AeroLinkException.Reason.INVALID_STATE,
+                        "This service is already marked as completed.");
             }
 
-            Service service = new Service(serviceType, description, location, priority);
+            service.setCompleted(true);
+            servicePriorityQueue.remove(service);  // O(log n) in the service's shard
+            ticket = changeLog.serviceCompleted(serviceId);
+        }
 
-            // Add to data structures
-            services.add(service);
-            serviceMap.put(service.getServiceId(), service);
-            servicePriorityQueue.add(service);  // Add to priority queue
+        changeLog.awaitDurable(ticket);
+        return service;
+    }
 
-            System.out.println("Service requested successfully!");
-            System.out.println("Service ID: " + service.getServiceId());
+    /**
+     * Change the priority of a pending service and move it to its new place in the queue
+     * @param priority 1-5, lower number means higher priority
+     * @return the service
+     * @throws AeroLinkException NOT_FOUND, INVALID_INPUT, or INVALID_STATE if it was already completed
+     */
+    public Service changePriority(String serviceId, int priority) {
+        if (priority < 1 || priority > 5) {
+            throw new AeroLinkException(AeroLinkException.Reason.INVALID_INPUT, "Priority must be between 1 and 5.");
+        }
+        Service service = services.get(serviceId);
+        if (service == null) {
+            throw new AeroLinkException(AeroLinkException.Reason.NOT_FOUND, "Service not found with ID: " + serviceId);
+        }
 
-            // Display next service to be processed based on priority
-            displayNextServiceInQueue();
-        } catch (NumberFormatException e) {
-            System.out.println("Error: Please enter a valid priority number.");
-        } catch (Exception e) {
-            System.out.println("Error requesting service: " + e.getMessage());
+        long ticket;
+        synchronized (service) {
+            if (service.isCompleted()) {
+                throw new AeroLinkException(AeroLinkException.Reason.INVALID_STATE,
+                        "This service is already completed.");
+            }
+            if (!servicePriorityQueue.changePriority(service, priority)) {
+                service.setPriority(priority);  // Not queued yet; request() queues it with this priority
+            }
+            ticket = changeLog.servicePriorityChanged(service.getServiceId(), priority);
         }
+        changeLog.awaitDurable(ticket);
+        return service;
     }
 
     /**
-     * Display the next service to be processed based on priority
-     * Uses PriorityQueue to determine the highest priority service
+     * Re-apply a service request while replaying the journal
      */
-    private void displayNextServiceInQueue() {
-        if (!servicePriorityQueue.isEmpty()) {
-            System.out.println("\nNext service to be processed (highest priority):");
-
-            // Peek at the highest priority service without removing it
-            Service nextService = servicePriorityQueue.peek();
-
-            System.out.println("Service ID: " + nextService.getServiceId());
-            System.out.println("Type: " + nextService.getServiceType());
-            System.out.println("Priority: " + nextService.getPriority());
-            System.out.println("Status: " + (nextService.isCompleted() ? "Completed" : "Pending"));
+    public void restoreService(Service service) {
+        if (services.add(service.getServiceId(), service)) {
+            servicePriorityQueue.add(service);
         }
     }
 
     /**
-     * View all services
-     * Uses ArrayList for display
+     * Re-apply a service completion while replaying the journal
      */
-    public void viewAllServices() {
-        System.out.println("\n===== All Ground Services =====");
+    public void restoreCompletion(String serviceId) {
+        Service service = services.get(serviceId);
+        if (service != null && !service.isCompleted()) {
+            service.setCompleted(true);
+            servicePriorityQueue.remove(service);
+        }
+    }
 
-        if (services.isEmpty()) {
-            System.out.println("No services available.");
-            return;
+    /**
+     * Re-apply a priority change while replaying the journal
+     */
+    public void restorePriority(String serviceId, int priority) {
+        Service service = services.get(serviceId);
+        if (service != null && !servicePriorityQueue.changePriority(service, priority)) {
+            service.setPriority(priority);  // Not queued because it is completed
         }
+    }
 
-        int count = 1;
-        for (Service service : services) {
-            System.out.println("\nService #" + count + ":");
-            System.out.println(service);
-            System.out.println("------------------------------");
-            count++;
+    /**
+     * Add services loaded from a snapshot; only pending ones are queued
+     */
+    public void restoreServices(List<Service> batch) {
+        services.addAll(batch, Service::getServiceId);
+        for (Service service : batch) {
+            if (!service.isCompleted()) {
+                servicePriorityQueue.add(service);
+            }
         }
     }
 
     /**
-     * Complete a service
-     * Updates service status and removes from priority queue
+     * Wait for services that are being added to become visible, e.g. before a snapshot
      */
-    public void completeService() {
-        System.out.println("\n===== Complete Service =====");
+    public void awaitPendingInserts() {
+        services.awaitWriters();
+    }
 
-        if (services.isEmpty()) {
-            System.out.println("No services available to complete.");
-            return;
-        }
+    public void setChangeLog(ChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
 
-        System.out.print("Enter Service ID to mark as completed: ");
-        String serviceId = scanner.nextLine().trim();
+    /**
+     * The next service to be processed based on priority, without removing it
+     * @return the highest priority pending service, or null if none
+     */
+    public Service peekNextService() {
+        return servicePriorityQueue.peek();
+    }
 
-        Service service = serviceMap.get(serviceId);
-        if (service == null) {
-            System.out.println("Service not found with ID: " + serviceId);
-            return;
-        }
+    /**
+     * The next services to be processed across all locations, without removing them
+     * @return up to count pending services in priority order
+     */
+    public ArrayList<Service> getNextServices(int count) {
+        return servicePriorityQueue.topK(count);
+    }
 
-        if (service.isCompleted()) {
-            System.out.println("This service is already marked as completed.");
-            return;
-        }
+    /**
+     * Take the next pending service off the queue to work on it, waiting until there is one
+     * The service stays pending until complete() is called, so it is queued again after a restart
+     * @param location the crew's location: its services come first, others are taken only when
+     *                 it has none; null takes the best service anywhere
+     */
+    public Service takeNextService(String location) throws InterruptedException {
+        return servicePriorityQueue.take(location);
+    }
 
-        service.setCompleted(true);
+    /**
+     * Take the next pending service off the queue without waiting
+     * @param location the crew's location: its services come first, others only when it has none;
+     *                 null takes the best service anywhere
+     * @return the service, or null if nothing is pending
+     */
+    public Service pollNextService(String location) {
+        return servicePriorityQueue.poll(location);
+    }
 
-        // Rebuild priority queue without the completed service
-        PriorityQueue<Service> newQueue = new PriorityQueue<>();
-        for (Service s : services) {
-            if (!s.isCompleted()) {
-                newQueue.add(s);
-            }
-        }
-        servicePriorityQueue = newQueue;
+    /**
+     * Take the next pending service at a location off the queue, without waiting or looking elsewhere
+     * @return the service, or null if the location has nothing pending
+     */
+    public Service pollServiceAt(String location) {
+        return servicePriorityQueue.pollAt(location);
+    }
+
+    public int getPendingCount() {
+        return servicePriorityQueue.size();
+    }
 
-        System.out.println("Service marked as completed successfully!");
+    public boolean hasServices() {
+        return !services.isEmpty();
+    }
+
+    /**
+     * Live view of all services in the order they were requested, iterated without locking
+     */
+    public Iterable<Service> services() {
+        return services.values();
+    }
+
+    public Service getServiceById(String serviceId) {
+        return services.get(serviceId);
+    }
 
-        // Display next service to be processed based on priority
-        displayNextServiceInQueue();
+    public List<String> getServiceTypes() {
+        return serviceTypes;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,209 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * ShardedServiceQueue class to queue pending ground services per location and service type
+ * Each (location, type) pair has its own IndexedServiceHeap, so requests at a busy terminal
+ * do not contend with the rest of the airport on one queue lock.
+ * A crew based at a location takes the best service from its own location's shards first and
+ * only steals the best service from another location when its own has nothing pending.
+ * The global view (peek, topK) merges the heads of all shards.
+ * Uses various data structures:
+ * - ConcurrentHashMap from shard key to shard
+ * - ConcurrentHashMap from location to its shards, so a local poll only looks at that location
+ * - One IndexedServiceHeap per shard
+ */
+public class ShardedServiceQueue {
+    private ConcurrentHashMap<String, Shard> shards;  // "LOCATION|TYPE" -> shard
+    private ConcurrentHashMap<String, List<Shard>> byLocation;  // LOCATION -> its shards; shards are never removed
+    private final Object signal = new Object();  // take() waits on this when every shard is empty
+    private volatile int waiting;  // Threads in take(); written only while holding signal
+
+    /**
+     * The queue for one location and service type
+     */
+    private static class Shard {
+        final IndexedServiceHeap heap = new IndexedServiceHeap();
+    }
+
+    public ShardedServiceQueue() {
+        this.shards = new ConcurrentHashMap<>();
+        this.byLocation = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Queue a service in the shard for its location and type
+     * @return false if it is already queued
+     */
+    public boolean add(Service service) {
+        String location = normalize(service.getLocation());
+        Shard shard = shards.computeIfAbsent(location + "|" + normalize(service.getServiceType()), key -> {
+            Shard created = new Shard();
+            // Listed for its location before it is published, so a local poll never misses it
+            byLocation.computeIfAbsent(location, ignored -> new CopyOnWriteArrayList<>()).add(created);
+            return created;
+        });
+        if (!shard.heap.add(service)) {
+            return false;
+        }
+        if (waiting > 0) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the removed service, or null if it was not queued
+     */
+    public Service remove(Service service) {
+        Shard shard = shardOf(service);
+        return shard == null ? null : shard.heap.remove(service.getServiceId());
+    }
+
+    /**
+     * @return false if the service is not queued
+     */
+    public boolean changePriority(Service service, int priority) {
+        Shard shard = shardOf(service);
+        return shard != null && shard.heap.changePriority(service.getServiceId(), priority);
+    }
+
+    /**
+     * @return the first service in priority order across all shards, or null if none is pending
+     */
+    public Service peek() {
+        Shard best = bestShard(null);
+        return best == null ? null : best.heap.peek();
+    }
+
+    /**
+     * The first k services in priority order across all shards, merged from each shard's own top k
+     */
+    public ArrayList<Service> topK(int k) {
+        ArrayList<Service> merged = new ArrayList<>();
+        for (Shard shard : shards.values()) {
+            merged.addAll(shard.heap.topK(k));
+        }
+        merged.sort(null);
+        return merged.size() > k ? new ArrayList<>(merged.subList(0, k)) : merged;
+    }
+
+    /**
+     * Remove the next service for a crew based at the given location, without waiting
+     * @param location the crew's location, or null for a crew that serves every location
+     * @return the best pending service at the location, else the best one elsewhere, else null
+     */
+    public Service poll(String location) {
+        String home = location == null ? null : normalize(location);
+        while (true) {
+            Shard shard = home == null ? null : bestShard(home);
+            if (shard == null) {
+                shard = bestShard(null);  // Nothing local: steal
+            }
+            if (shard == null) {
+                return null;
+            }
+            Service service = shard.heap.poll();
+            if (service != null) {
+                return service;
+            }
+            // Another crew emptied the shard first; look again
+        }
+    }
+
+    /**
+     * Remove the best pending service at a location, without stealing from elsewhere or waiting
+     * @return the service, or null if the location has nothing pending
+     */
+    public Service pollAt(String location) {
+        String home = normalize(location);
+        while (true) {
+            Shard shard = bestShard(home);
+            if (shard == null) {
+                return null;
+            }
+            Service service = shard.heap.poll();
+            if (service != null) {
+                return service;
+            }
+        }
+    }
+
+    /**
+     * Like poll(location), but waits until a service is pending anywhere
+     */
+    public Service take(String location) throws InterruptedException {
+        while (true) {
+            Service service = poll(location);
+            if (service != null) {
+                return service;
+            }
+            synchronized (signal) {
+                waiting++;
+                try {
+                    // add() only signals when it sees a waiter, so look once more after registering
+                    service = poll(location);
+                    if (service != null) {
+                        return service;
+                    }
+                    signal.wait();
+                } finally {
+                    waiting--;
+                }
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards.values()) {
+            size += shard.heap.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of pending services at a location, over all service types
+     */
+    public int sizeAt(String location) {
+        int size = 0;
+        for (Shard shard : byLocation.getOrDefault(normalize(location), List.of())) {
+            size += shard.heap.size();
+        }
+        return size;
+    }
+
+    private Shard shardOf(Service service) {
+        return shards.get(normalize(service.getLocation()) + "|" + normalize(service.getServiceType()));
+    }
+
+    /**
+     * The shard whose head comes first in priority order
+     * @param location only consider this (normalized) location's shards, or null for all
+     */
+    private Shard bestShard(String location) {
+        Iterable<Shard> candidates = location == null ? shards.values() : byLocation.getOrDefault(location, List.of());
+        Shard best = null;
+        Service bestHead = null;
+        for (Shard shard : candidates) {
+            Service head = shard.heap.peek();
+            if (head != null && (bestHead == null || head.compareTo(bestHead) < 0)) {
+                best = shard;
+                bestHead = head;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The form locations and service types are compared in: trimmed, upper case; "" for null
+     */
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,305 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * SnapshotFile class to save and load a compact binary image of all managers
+ * A snapshot holds every flight, passenger, booking and service plus the number of the
+ * first journal segment it does not cover; startup loads it and replays only that tail.
+ *
+ * Layout: [magic][version][first journal segment] then tagged records grouped by kind
+ * (flights, passengers, bookings, services), an end tag, and a CRC32 of everything before it.
+ * It is written through a FileChannel to a temporary file that is renamed over the old
+ * snapshot, so a crash never leaves a half-written snapshot; it is read through a memory map.
+ * Seat counts are not stored: they follow from the bookings.
+ */
+public class SnapshotFile {
+    private static final int MAGIC = 0x41454C53;  // "AELS"
+    private static final int VERSION = 1;
+    private static final byte END = 0;
+    private static final byte FLIGHT = 1;
+    private static final byte PASSENGER = 2;
+    private static final byte BOOKING = 3;
+    private static final byte SERVICE = 4;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int RESTORE_BATCH = 65536;  // Records handed to a manager at a time while loading
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Write a snapshot of the managers' current state
+     * Reads the managers' live views, so concurrent changes are never blocked; changes made
+     * while it runs may or may not be included, and are replayed from the journal either way.
+     * There is no consistent cut: a booking can be included without its flight, so seat counts are
+     * recounted once the journal tail has been replayed (BookingManager.recountSeats).
+     * @param firstSegment the first journal segment the snapshot does not cover
+     */
+    public static void write(Path file, long firstSegment, FlightManager flightManager,
+                             PassengerManager passengerManager, BookingManager bookingManager,
+                             ServiceManager serviceManager) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer out = new Writer(channel);
+            out.ensure(16);
+            out.buffer.putInt(MAGIC).putInt(VERSION).putLong(firstSegment);
+
+            for (Flight flight : flightManager.flights()) {
+                byte[] id = utf8(flight.getFlightId());
+                byte[] name = utf8(flight.getFlightName());
+                byte[] origin = utf8(flight.getOrigin());
+                byte[] destination = utf8(flight.getDestination());
+                out.ensure(1 + 8 + id.length + name.length + origin.length + destination.length + 24 + 4 + 8 + 1);
+                out.buffer.put(FLIGHT);
+                out.putString(id).putString(name).putString(origin).putString(destination);
+                out.putTime(flight.getDepartureTime()).putTime(flight.getArrivalTime());
+                out.buffer.putInt(flight.getCapacity()).putDouble(flight.getPrice()).put((byte) (flight.isCancelled() ? 1 : 0));
+            }
+            for (Passenger passenger : passengerManager.passengers()) {
+                byte[] id = utf8(passenger.getPassengerId());
+                byte[] name = utf8(passenger.getName());
+                byte[] passport = utf8(passenger.getPassportNumber());
+                out.ensure(1 + 6 + id.length + name.length + passport.length + 4);
+                out.buffer.put(PASSENGER);
+                out.putString(id).putString(name);
+                out.buffer.putInt(passenger.getAge());
+                out.putString(passport);
+            }
+            for (Booking booking : bookingManager.bookings()) {
+                byte[] id = utf8(booking.getBookingId());
+                byte[] passengerId = utf8(booking.getPassengerId());
+                byte[] flightId = utf8(booking.getFlightId());
+                out.ensure(1 + 6 + id.length + passengerId.length + flightId.length + 12);
+                out.buffer.put(BOOKING);
+                out.putString(id).putString(passengerId).putString(flightId).putTime(booking.getBookingTime());
+            }
+            for (Service service : serviceManager.services()) {
+                byte[] id = utf8(service.getServiceId());
+                byte[] type = utf8(service.getServiceType());
+                byte[] description = utf8(service.getDescription());
+                byte[] location = utf8(service.getLocation());
+                out.ensure(1 + 8 + id.length + type.length + description.length + location.length + 12 + 4 + 1);
+                out.buffer.put(SERVICE);
+                out.putString(id).putString(type).putString(description).putString(location);
+                out.putTime(service.getRequestTime());
+                out.buffer.putInt(service.getPriority()).put((byte) (service.isCompleted() ? 1 : 0));
+            }
+
+            out.ensure(1);
+            out.buffer.put(END);
+            out.flush();
+            ByteBuffer trailer = ByteBuffer.allocate(4).putInt(0, (int) out.crc.getValue());
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Load a snapshot into empty managers
+     * @return the first journal segment to replay on top of it
+     */
+    public static long load(Path file, FlightManager flightManager, PassengerManager passengerManager,
+                            BookingManager bookingManager, ServiceManager serviceManager) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot is too large to map: " + file);
+            }
+            if (size < 16 + 1 + 4) {
+                throw new IOException("Snapshot is truncated: " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            ByteBuffer body = map.duplicate();
+            body.limit((int) size - 4);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != map.getInt((int) size - 4)) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+
+            if (map.getInt() != MAGIC || map.getInt() != VERSION) {
+                throw new IOException("Not an AeroLink snapshot: " + file);
+            }
+            long firstSegment = map.getLong();
+
+            Reader in = new Reader(map);
+            ArrayList<Flight> flights = new ArrayList<>();
+            ArrayList<Passenger> passengers = new ArrayList<>();
+            ArrayList<Booking> bookings = new ArrayList<>();
+            ArrayList<Service> services = new ArrayList<>();
+            // Records are grouped by kind in dependency order, so each batch can be restored as soon as it fills
+            while (true) {
+                byte tag = map.get();
+                if (tag == END) {
+                    break;
+                }
+                switch (tag) {
+                    case FLIGHT:
+                        Flight flight = new Flight(in.string(), in.string(), in.string(), in.string(),
+                                in.time(), in.time(), map.getInt(), map.getDouble());
+                        flight.setCancelled(map.get() != 0);
+                        flights.add(flight);
+                        if (flights.size() == RESTORE_BATCH) {
+                            flightManager.restoreFlights(flights);
+                            flights.clear();
+                        }
+                        break;
+                    case PASSENGER:
+                        String passengerId = in.string();
+                        String name = in.string();
+                        int age = map.getInt();
+                        passengers.add(new Passenger(passengerId, name, age, in.string()));
+                        if (passengers.size() == RESTORE_BATCH) {
+                            passengerManager.restorePassengers(passengers);
+                            passengers.clear();
+                        }
+                        break;
+                    case BOOKING:
+                        flush(flightManager, passengerManager, flights, passengers);
+                        bookings.add(new Booking(in.string(), in.string(), in.string(), in.time()));
+                        if (bookings.size() == RESTORE_BATCH) {
+                            bookingManager.restoreBookings(bookings);
+                            bookings.clear();
+                        }
+                        break;
+                    case SERVICE:
+                        Service service = new Service(in.string(), in.string(), in.string(), in.string(),
+                                in.time(), map.getInt());
+                        service.setCompleted(map.get() != 0);
+                        services.add(service);
+                        if (services.size() == RESTORE_BATCH) {
+                            serviceManager.restoreServices(services);
+                            services.clear();
+                        }
+                        break;
+                    default:
+                        throw new IOException("Unknown snapshot record type " + tag);
+                }
+            }
+            flush(flightManager, passengerManager, flights, passengers);
+            bookingManager.restoreBookings(bookings);
+            serviceManager.restoreServices(services);
+            return firstSegment;
+        } catch (RuntimeException e) {
+            // The checksum matched, so this is a snapshot the code cannot read rather than a torn write
+            throw new IOException("Corrupt snapshot " + file + ": " + e, e);
+        }
+    }
+
+    /**
+     * Restore the flights and passengers read so far; bookings need their flights in place
+     */
+    private static void flush(FlightManager flightManager, PassengerManager passengerManager,
+                              ArrayList<Flight> flights, ArrayList<Passenger> passengers) {
+        if (!flights.isEmpty()) {
+            flightManager.restoreFlights(flights);
+            flights.clear();
+        }
+        if (!passengers.isEmpty()) {
+            passengerManager.restorePassengers(passengers);
+            passengers.clear();
+        }
+    }
+
+    private static byte[] utf8(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Text too long for a snapshot: " + value.substring(0, 32) + "...");
+        }
+        return bytes;
+    }
+
+    /**
+     * fsync the directory so the rename itself survives a crash; not every platform allows it
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort
+        }
+    }
+
+    /**
+     * Buffered writer that checksums everything it writes
+     */
+    private static class Writer {
+        FileChannel channel;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        CRC32 crc = new CRC32();
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Make room for the next record
+         */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        Writer putString(byte[] bytes) {
+            buffer.putShort((short) bytes.length).put(bytes);
+            return this;
+        }
+
+        Writer putTime(LocalDateTime time) {
+            buffer.putLong(time.toEpochSecond(ZoneOffset.UTC)).putInt(time.getNano());
+            return this;
+        }
+    }
+
+    /**
+     * Decodes strings and times from the mapped snapshot
+     */
+    private static class Reader {
+        ByteBuffer map;
+        byte[] scratch = new byte[256];
+
+        Reader(ByteBuffer map) {
+            this.map = map;
+        }
+
+        String string() {
+            int length = map.getShort() & 0xFFFF;
+            if (scratch.length < length) {
+                scratch = new byte[length];
+            }
+            map.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        LocalDateTime time() {
+            long seconds = map.getLong();
+            return LocalDateTime.ofEpochSecond(seconds, map.getInt(), ZoneOffset.UTC);
+        }
+    }
+}
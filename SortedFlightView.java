@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * SortedFlightView class keeping flights permanently sorted by one attribute
+ * Flights are filed under a snapshot of their sort key, so a flight can be
+ * re-keyed after it changes without rebuilding the whole ordering.
+ * Safe for concurrent use: reads never lock, and re-keying the same flight happens one thread at a time.
+ * Uses various data structures:
+ * - ConcurrentSkipListMap for the ordering itself
+ * - ConcurrentHashMap remembering the key each flight is currently filed under
+ */
+public class SortedFlightView<K extends Comparable<? super K>> {
+    private Function<Flight, K> keyExtractor;
+    private boolean descending;
+    private ConcurrentSkipListMap<ViewKey<K>, Flight> ordered;  // Flights in view order
+    private ConcurrentHashMap<String, ViewKey<K>> keysByFlightId;  // flightId -> key it is filed under
+
+    /**
+     * Sort key snapshot, ties broken by flight ID so every flight has a unique position
+     */
+    private static class ViewKey<K extends Comparable<? super K>> implements Comparable<ViewKey<K>> {
+        K value;
+        String flightId;
+        boolean descending;
+
+        ViewKey(K value, String flightId, boolean descending) {
+            this.value = value;
+            this.flightId = flightId;
+            this.descending = descending;
+        }
+
+        @Override
+        public int compareTo(ViewKey<K> other) {
+            int result = descending ? other.value.compareTo(value) : value.compareTo(other.value);
+            return result != 0 ? result : flightId.compareTo(other.flightId);
+        }
+    }
+
+    /**
+     * @param keyExtractor reads the sort attribute from a flight
+     * @param descending true to list the largest values first
+     */
+    public SortedFlightView(Function<Flight, K> keyExtractor, boolean descending) {
+        this.keyExtractor = keyExtractor;
+        this.descending = descending;
+        this.ordered = new ConcurrentSkipListMap<>();
+        this.keysByFlightId = new ConcurrentHashMap<>();
+    }
+
+    public void add(Flight flight) {
+        keysByFlightId.compute(flight.getFlightId(), (id, oldKey) -> rekey(flight, oldKey));
+    }
+
+    public void remove(Flight flight) {
+        keysByFlightId.computeIfPresent(flight.getFlightId(), (id, key) -> {
+            ordered.remove(key);
+            return null;
+        });
+    }
+
+    /**
+     * Move a flight to its new position after its sort attribute changed
+     * Costs O(log n), and nothing at all if the attribute is unchanged
+     */
+    public void refresh(Flight flight) {
+        // The key is read inside compute, so the last refresh always files the latest value
+        keysByFlightId.computeIfPresent(flight.getFlightId(), (id, oldKey) -> rekey(flight, oldKey));
+    }
+
+    private ViewKey<K> rekey(Flight flight, ViewKey<K> oldKey) {
+        ViewKey<K> newKey = keyFor(flight);
+        if (oldKey != null && oldKey.compareTo(newKey) == 0) {
+            return oldKey;
+        }
+        if (oldKey != null) {
+            ordered.remove(oldKey);
+        }
+        ordered.put(newKey, flight);
+        return newKey;
+    }
+
+    /**
+     * All flights in view order
+     */
+    public ArrayList<Flight> list() {
+        return new ArrayList<>(ordered.values());
+    }
+
+    /**
+     * The next flights in view order after the cursor flight
+     * Costs O(log n + limit)
+     * @param after the last flight of the previous page, or null to start from the beginning
+     * @param limit maximum number of flights to return
+     */
+    public ArrayList<Flight> page(Flight after, int limit) {
+        ArrayList<Flight> page = new ArrayList<>();
+        if (limit <= 0) {
+            return page;
+        }
+
+        Iterable<Flight> tail;
+        if (after == null) {
+            tail = ordered.values();
+        } else {
+            // A cursor flight that has since been removed still marks a valid position
+            ViewKey<K> cursor = keysByFlightId.get(after.getFlightId());
+            if (cursor == null) {
+                cursor = keyFor(after);
+            }
+            tail = ordered.tailMap(cursor, false).values();
+        }
+
+        for (Flight flight : tail) {
+            page.add(flight);
+            if (page.size() == limit) {
+                break;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Flights whose sort attribute lies between two values, inclusive, in view order
+     * Costs O(log n + result size)
+     * @param from the bound that comes first in view order
+     * @param to the bound that comes last in view order
+     */
+    public ArrayList<Flight> range(K from, K to) {
+        // Flight IDs tie-break equal values; the empty string and Character.MAX_VALUE sort before and after every ID
+        ViewKey<K> low = new ViewKey<>(from, "", descending);
+        ViewKey<K> high = new ViewKey<>(to, String.valueOf(Character.MAX_VALUE), descending);
+        if (low.compareTo(high) > 0) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(ordered.subMap(low, true, high, true).values());
+    }
+
+    public int size() {
+        return keysByFlightId.size();  // The skip list's own size() walks every entry
+    }
+
+    private ViewKey<K> keyFor(Flight flight) {
+        return new ViewKey<>(keyExtractor.apply(flight), flight.getFlightId(), descending);
+    }
+}
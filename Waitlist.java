@@ -0,0 +1,159 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+/**
+ * Waitlist class to queue passengers for full flights
+ * Each flight has its own queue: higher priority first (1 = highest), then first come, first served.
+ * Safe for concurrent use: every operation holds the waitlist's lock briefly.
+ * Uses various data structures:
+ * - LongObjectMap from numeric flight ID to that flight's queue
+ * - PriorityQueue per flight ordered by priority and arrival on the waitlist
+ */
+public class Waitlist {
+    private LongObjectMap<PriorityQueue<Entry>> byFlight;
+    private long sequence;  // Order in which passengers joined, for FIFO within a priority
+
+    /**
+     * One passenger waiting for a seat on one flight
+     */
+    public static class Entry implements Comparable<Entry> {
+        private final String passengerId;
+        private final String flightId;
+        private final int priority;
+        private final long sequence;
+        private final LocalDateTime requestTime;
+
+        Entry(String passengerId, String flightId, int priority, long sequence) {
+            this.passengerId = passengerId;
+            this.flightId = flightId;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.requestTime = LocalDateTime.now();
+        }
+
+        public String getPassengerId() {
+            return passengerId;
+        }
+
+        public String getFlightId() {
+            return flightId;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public LocalDateTime getRequestTime() {
+            return requestTime;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Integer.compare(priority, other.priority);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    public Waitlist() {
+        this.byFlight = new LongObjectMap<>();
+    }
+
+    /**
+     * Put a passenger on a flight's waitlist
+     * @return the passenger's position, 1 for the next to be offered a seat
+     * @throws AeroLinkException DUPLICATE if the passenger is already waiting for this flight
+     */
+    public synchronized int add(String passengerId, String flightId, int priority) {
+        long key = IdGenerator.decode(flightId);
+        PriorityQueue<Entry> queue = byFlight.get(key);
+        if (queue == null) {
+            queue = new PriorityQueue<>();
+            byFlight.put(key, queue);
+        }
+        if (find(queue, passengerId) != null) {
+            throw new AeroLinkException(AeroLinkException.Reason.DUPLICATE,
+                    "This passenger is already on the waitlist for this flight.");
+        }
+        Entry entry = new Entry(passengerId, flightId, priority, sequence++);
+        queue.add(entry);
+        return positionOf(queue, entry);
+    }
+
+    /**
+     * Remove and return the next passenger to be offered a seat on a flight
+     * @return the entry, or null if nobody is waiting
+     */
+    public synchronized Entry poll(String flightId) {
+        PriorityQueue<Entry> queue = byFlight.get(IdGenerator.decode(flightId));
+        return queue == null ? null : queue.poll();
+    }
+
+    /**
+     * Put a polled entry back in the place it had, e.g. because its promotion failed
+     * @return false if the passenger has joined the flight's waitlist again in the meantime
+     */
+    public synchronized boolean putBack(Entry entry) {
+        long key = IdGenerator.decode(entry.flightId);
+        PriorityQueue<Entry> queue = byFlight.get(key);
+        if (queue == null) {
+            queue = new PriorityQueue<>();
+            byFlight.put(key, queue);
+        }
+        if (find(queue, entry.passengerId) != null) {
+            return false;
+        }
+        queue.add(entry);  // Its sequence number still orders it ahead of later joiners
+        return true;
+    }
+
+    /**
+     * Take a passenger off a flight's waitlist
+     * @return false if the passenger was not waiting for it
+     */
+    public synchronized boolean remove(String passengerId, String flightId) {
+        PriorityQueue<Entry> queue = byFlight.get(IdGenerator.decode(flightId));
+        Entry entry = queue == null ? null : find(queue, passengerId);
+        return entry != null && queue.remove(entry);
+    }
+
+    public synchronized boolean hasWaiting(String flightId) {
+        PriorityQueue<Entry> queue = byFlight.get(IdGenerator.decode(flightId));
+        return queue != null && !queue.isEmpty();
+    }
+
+    public synchronized int size(String flightId) {
+        PriorityQueue<Entry> queue = byFlight.get(IdGenerator.decode(flightId));
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Everyone waiting for a flight, in the order they will be offered seats
+     */
+    public synchronized ArrayList<Entry> entries(String flightId) {
+        PriorityQueue<Entry> queue = byFlight.get(IdGenerator.decode(flightId));
+        ArrayList<Entry> entries = queue == null ? new ArrayList<>() : new ArrayList<>(queue);
+        entries.sort(null);
+        return entries;
+    }
+
+    private static Entry find(PriorityQueue<Entry> queue, String passengerId) {
+        long passengerKey = IdGenerator.decode(passengerId);
+        for (Entry entry : queue) {
+            if (IdGenerator.decode(entry.passengerId) == passengerKey) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static int positionOf(PriorityQueue<Entry> queue, Entry entry) {
+        int position = 1;
+        for (Entry other : queue) {
+            if (other.compareTo(entry) < 0) {
+                position++;
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * AllTests class to run every test in this directory
+ * Build and run from the project root:
+ *   javac -d out *.java && javac -cp out -d out test/*.java && java -cp out AllTests
+ */
+public class AllTests {
+    public static void main(String[] args) throws Exception {
+        FlightSeatConcurrencyTest.main(args);
+        FlightValidationTest.main(args);
+        JournalRecoveryTest.main(args);
+        SnapshotRecoveryTest.main(args);
+        IdGeneratorTest.main(args);
+        BookingIndexTest.main(args);
+        PassportIndexTest.main(args);
+        RecordStoreTest.main(args);
+        ServiceHeapTest.main(args);
+        ServiceDispatcherTest.main(args);
+        ShardedServiceQueueTest.main(args);
+        QueryCacheTest.main(args);
+        ReaccommodatorTest.main(args);
+        BookingPipelineTest.main(args);
+        WaitlistTest.main(args);
+        GroupBookingTest.main(args);
+        DelayPropagatorTest.main(args);
+        ItinerarySearchTest.main(args);
+        DelayForecasterTest.main(args);
+        ScheduleImporterTest.main(args);
+        SortedFlightViewTest.main(args);
+        System.out.println("All tests passed.");
+    }
+}
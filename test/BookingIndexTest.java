@@ -0,0 +1,180 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BookingIndexTest class to check the passenger and flight booking indexes and the duplicate check
+ * The indexes are compared with a scan over every booking after bookings, cancellations and group
+ * bookings; manifests must not slow down as the booking history grows.
+ */
+public class BookingIndexTest {
+    public static void main(String[] args) throws Exception {
+        indexesMatchFullScan();
+        concurrentDuplicatesAreRefused();
+        manifestCostFollowsResultSize();
+        System.out.println("BookingIndexTest passed");
+    }
+
+    private static void indexesMatchFullScan() {
+        FlightManager flightManager = new FlightManager();
+        PassengerManager passengerManager = new PassengerManager();
+        BookingManager bookingManager = new BookingManager(flightManager, passengerManager);
+        List<Flight> flights = createFlights(flightManager, 10, 30);
+        List<String> passengers = createPassengers(passengerManager, 40);
+
+        for (int i = 0; i < 150; i++) {
+            String passengerId = passengers.get(i % passengers.size());
+            String flightId = flights.get((i * 7) % flights.size()).getFlightId();
+            try {
+                bookingManager.book(passengerId, flightId);
+            } catch (AeroLinkException e) {
+                Check.equal(AeroLinkException.Reason.DUPLICATE, e.getReason(), "reason a booking was refused");
+            }
+        }
+        ArrayList<Booking> all = allBookings(bookingManager);
+        for (int i = 0; i < all.size(); i += 3) {
+            bookingManager.cancelBooking(all.get(i).getBookingId());
+        }
+        Flight extra = flightManager.createFlight("AL99", "BOM", "GOI", LocalDateTime.now().plusDays(2),
+                LocalDateTime.now().plusDays(2).plusHours(1), 10, 100);
+        bookingManager.bookGroup(passengers.subList(0, 5), List.of(extra.getFlightId()));
+
+        all = allBookings(bookingManager);
+        for (Flight flight : flightManager.getAllFlights()) {
+            HashSet<Booking> expected = new HashSet<>();
+            for (Booking booking : all) {
+                if (booking.getFlightId().equals(flight.getFlightId())) {
+                    expected.add(booking);
+                }
+            }
+            ArrayList<Booking> indexed = bookingManager.getBookingsForFlight(flight.getFlightId());
+            Check.equal(expected.size(), indexed.size(), "manifest size of " + flight.getFlightName());
+            Check.equal(expected, new HashSet<>(indexed), "manifest of " + flight.getFlightName());
+            Check.equal(expected.size(), flight.getBookedSeats(), "booked seats of " + flight.getFlightName());
+        }
+        for (String passengerId : passengers) {
+            HashSet<Booking> expected = new HashSet<>();
+            for (Booking booking : all) {
+                if (booking.getPassengerId().equals(passengerId)) {
+                    expected.add(booking);
+                }
+            }
+            Check.equal(expected, new HashSet<>(bookingManager.getBookingsForPassenger(passengerId)),
+                    "itinerary of " + passengerId);
+            // Lookups forgive case like every other ID lookup
+            Check.equal(expected.size(), bookingManager.getBookingsForPassenger(passengerId.toLowerCase()).size(),
+                    "itinerary by lower-case ID");
+        }
+
+        // A cancelled pair can be booked again; a live one cannot
+        Booking live = all.get(0);
+        Check.fails(AeroLinkException.Reason.DUPLICATE,
+                () -> bookingManager.book(live.getPassengerId(), live.getFlightId()));
+        bookingManager.cancelBooking(live.getBookingId());
+        bookingManager.book(live.getPassengerId(), live.getFlightId());
+    }
+
+    /**
+     * Many threads book the same pairs at once: exactly one booking per pair
+     */
+    private static void concurrentDuplicatesAreRefused() throws Exception {
+        FlightManager flightManager = new FlightManager();
+        PassengerManager passengerManager = new PassengerManager();
+        BookingManager bookingManager = new BookingManager(flightManager, passengerManager);
+        List<Flight> flights = createFlights(flightManager, 5, 1000);
+        List<String> passengers = createPassengers(passengerManager, 100);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+
+        Check.concurrently(8, thread -> {
+            for (String passengerId : passengers) {
+                for (Flight flight : flights) {
+                    try {
+                        bookingManager.book(passengerId, flight.getFlightId());
+                        booked.incrementAndGet();
+                    } catch (AeroLinkException e) {
+                        Check.equal(AeroLinkException.Reason.DUPLICATE, e.getReason(), "reason");
+                        duplicates.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        Check.equal(passengers.size() * flights.size(), booked.get(), "bookings made");
+        Check.equal(7 * passengers.size() * flights.size(), duplicates.get(), "duplicates refused");
+        for (Flight flight : flights) {
+            Check.equal(passengers.size(), flight.getBookedSeats(), "seats of " + flight.getFlightName());
+            Check.equal(passengers.size(), bookingManager.getBookingsForFlight(flight.getFlightId()).size(),
+                    "manifest of " + flight.getFlightName());
+        }
+    }
+
+    /**
+     * A small flight's manifest costs the same with a large booking history as with a small one
+     */
+    private static void manifestCostFollowsResultSize() {
+        FlightManager flightManager = new FlightManager();
+        PassengerManager passengerManager = new PassengerManager();
+        BookingManager bookingManager = new BookingManager(flightManager, passengerManager);
+        List<Flight> big = createFlights(flightManager, 100, 2000);
+        List<String> passengers = createPassengers(passengerManager, 2000);
+        Flight small = flightManager.createFlight("SMALL", "DEL", "GOI", LocalDateTime.now().plusDays(3),
+                LocalDateTime.now().plusDays(3).plusHours(2), 10, 100);
+        for (int i = 0; i < 5; i++) {
+            bookingManager.book(passengers.get(i), small.getFlightId());
+        }
+        double before = averageManifestNanos(bookingManager, small);
+
+        for (Flight flight : big) {
+            bookingManager.bookGroup(passengers, List.of(flight.getFlightId()));  // 200k bookings
+        }
+        double after = averageManifestNanos(bookingManager, small);
+
+        Check.equal(5, bookingManager.getBookingsForFlight(small.getFlightId()).size(), "small manifest");
+        // A scan over 200k bookings would be thousands of times slower; allow generous noise
+        Check.that(after < before * 20 + 20_000, String.format(
+                "manifest slowed down with history: %.0f ns before, %.0f ns after", before, after));
+    }
+
+    private static double averageManifestNanos(BookingManager bookingManager, Flight flight) {
+        int calls = 20_000;
+        long size = 0;
+        for (int i = 0; i < calls; i++) {  // Warm up
+            size += bookingManager.getBookingsForFlight(flight.getFlightId()).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            size += bookingManager.getBookingsForFlight(flight.getFlightId()).size();
+        }
+        Check.that(size > 0, "empty manifest");
+        return (double) (System.nanoTime() - start) / calls;
+    }
+
+    private static ArrayList<Booking> allBookings(BookingManager bookingManager) {
+        ArrayList<Booking> all = new ArrayList<>();
+        for (Booking booking : bookingManager.bookings()) {
+            all.add(booking);
+        }
+        return all;
+    }
+
+    static List<Flight> createFlights(FlightManager flightManager, int count, int capacity) {
+        LocalDateTime departure = LocalDateTime.now().plusDays(1);
+        ArrayList<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            flights.add(flightManager.createFlight("AL" + i, "DEL", "BOM", departure.plusMinutes(i),
+                    departure.plusMinutes(i + 120), capacity, 100));
+        }
+        return flights;
+    }
+
+    static List<String> createPassengers(PassengerManager passengerManager, int count) {
+        ArrayList<String> passengers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            passengers.add(passengerManager.createPassenger("Passenger " + i, 30, "P" + (1_000_000 + i)).getPassengerId());
+        }
+        return passengers;
+    }
+}
@@ -0,0 +1,257 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BookingPipelineTest class to check queued booking requests succeed and fail one by one
+ * A failing request, a failed journal flush or a failing handler must only fail the requests it
+ * concerns, and the synchronous book and cancelBooking calls must go through the same pipeline.
+ */
+public class BookingPipelineTest {
+    public static void main(String[] args) throws Exception {
+        handlerFailureOnlyFailsUnhandledCommands();
+        boundedQueueAppliesEverything();
+        failedRequestsDoNotFailTheBatch();
+        durabilityFailureTakesBookingsBack();
+        synchronousCallsUseThePipeline();
+        System.out.println("BookingPipelineTest passed");
+    }
+
+    /**
+     * The handler records outcomes for two commands of a batch and then throws: only the third fails with it
+     */
+    private static void handlerFailureOnlyFailsUnhandledCommands() throws Exception {
+        Booking booking = new Booking("1", "2");
+        CountDownLatch firstTaken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BookingPipeline pipeline = new BookingPipeline(16, 16, batch -> {
+            if (firstTaken.getCount() > 0) {
+                firstTaken.countDown();
+                await(release);  // Hold the consumer so the next commands queue up as one batch
+                batch.get(0).succeed(booking);
+                return;
+            }
+            Check.equal(3, batch.size(), "second batch");
+            batch.get(0).succeed(booking);
+            batch.get(1).fail(new AeroLinkException(AeroLinkException.Reason.NO_SEATS, "Full."));
+            throw new IllegalStateException("handler broke");
+        });
+        CompletableFuture<Booking> first = pipeline.submit(BookingPipeline.Command.book("0", "0"));
+        firstTaken.await();
+        CompletableFuture<Booking> succeeded = pipeline.submit(BookingPipeline.Command.book("1", "2"));
+        CompletableFuture<Booking> failed = pipeline.submit(BookingPipeline.Command.book("3", "4"));
+        CompletableFuture<Booking> unhandled = pipeline.submit(BookingPipeline.Command.cancel("5"));
+        release.countDown();
+
+        Check.that(first.get(5, TimeUnit.SECONDS) == booking, "first batch");
+        Check.that(succeeded.get(5, TimeUnit.SECONDS) == booking, "handled command lost its result");
+        Check.equal(AeroLinkException.Reason.NO_SEATS, ((AeroLinkException) cause(failed)).getReason(), "own failure");
+        Check.that(cause(unhandled) instanceof IllegalStateException, "unhandled command did not fail");
+        Check.equal(2.0, pipeline.getAverageBatchSize(), "average batch");
+
+        BookingPipeline silent = new BookingPipeline(4, 4, batch -> { });
+        Check.that(cause(silent.submit(BookingPipeline.Command.cancel("1"))) instanceof IllegalStateException,
+                "command without an outcome completed");
+    }
+
+    /**
+     * A slow handler behind a small queue: producers wait for room and nothing is lost
+     */
+    private static void boundedQueueAppliesEverything() throws Exception {
+        AtomicInteger handled = new AtomicInteger();
+        AtomicInteger largestQueue = new AtomicInteger();
+        BookingPipeline[] pipeline = new BookingPipeline[1];
+        pipeline[0] = new BookingPipeline(4, 2, batch -> {
+            largestQueue.accumulateAndGet(pipeline[0].size(), Math::max);
+            for (BookingPipeline.Command command : batch) {
+                command.succeed(new Booking(command.getPassengerId(), command.getFlightId()));
+                handled.incrementAndGet();
+            }
+            sleep(2);
+        });
+        Check.equal(4, pipeline[0].getCapacity(), "capacity");
+        Check.concurrently(4, thread -> {
+            ArrayList<CompletableFuture<Booking>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(pipeline[0].submit(BookingPipeline.Command.book("P" + thread, "F" + i)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Check.equal("F" + i, futures.get(i).get(10, TimeUnit.SECONDS).getFlightId(), "result of request " + i);
+            }
+        });
+        Check.equal(200, handled.get(), "requests handled");
+        Check.equal(200L, pipeline[0].getAppliedCount(), "requests applied");
+        Check.that(largestQueue.get() <= 4, "queue grew past its capacity: " + largestQueue.get());
+    }
+
+    /**
+     * One request's journal write fails: it fails alone and gives its seat back
+     */
+    private static void failedRequestsDoNotFailTheBatch() throws Exception {
+        Setup setup = new Setup(100, 60);
+        String unlucky = setup.passengers.get(13);
+        setup.bookings.setChangeLog(new ChangeLog() {
+            @Override
+            public long bookingCreated(Booking booking) {
+                if (booking.getPassengerId().equals(unlucky)) {
+                    throw new UncheckedIOException("Change could not be saved: disk full", new IOException("disk full"));
+                }
+                return 0;
+            }
+        });
+        ArrayList<CompletableFuture<Booking>> futures = new ArrayList<>();
+        for (String passengerId : setup.passengers) {
+            futures.add(setup.bookings.bookAsync(passengerId, setup.flight.getFlightId()));
+        }
+        int booked = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            if (setup.passengers.get(i).equals(unlucky)) {
+                Check.that(cause(futures.get(i)) instanceof UncheckedIOException, "journal failure not reported");
+            } else if (i < 61) {
+                futures.get(i).get(5, TimeUnit.SECONDS);
+                booked++;
+            } else {
+                Check.equal(AeroLinkException.Reason.NO_SEATS, ((AeroLinkException) cause(futures.get(i))).getReason(),
+                        "request past capacity");
+            }
+        }
+        Check.equal(60, booked, "bookings made");
+        Check.equal(60, setup.flight.getBookedSeats(), "booked seats");
+    }
+
+    /**
+     * The journal cannot make a batch durable: applied requests fail, rejected ones keep their own reason.
+     * A failed booking is taken back so it can be retried; a failed cancellation stays made.
+     */
+    private static void durabilityFailureTakesBookingsBack() throws Exception {
+        Setup setup = new Setup(3, 10);
+        Booking existing = setup.bookings.book(setup.passengers.get(0), setup.flight.getFlightId());
+        AtomicLong tickets = new AtomicLong();
+        UncheckedIOException flushFailed = new UncheckedIOException("Change could not be saved", new IOException("I/O error"));
+        setup.bookings.setChangeLog(new ChangeLog() {
+            @Override
+            public long bookingCreated(Booking booking) {
+                return tickets.incrementAndGet();
+            }
+
+            @Override
+            public long bookingCancelled(String bookingId) {
+                return tickets.incrementAndGet();
+            }
+
+            @Override
+            public void awaitDurable(long ticket) {
+                if (ticket > 0) {
+                    throw flushFailed;
+                }
+            }
+        });
+
+        // Nothing applied, so nothing to wait for: the duplicate fails for itself
+        Check.fails(AeroLinkException.Reason.DUPLICATE,
+                () -> setup.bookings.book(existing.getPassengerId(), existing.getFlightId()));
+        CompletableFuture<Booking> duplicate = setup.bookings.bookAsync(existing.getPassengerId(), existing.getFlightId());
+        CompletableFuture<Booking> applied = setup.bookings.bookAsync(setup.passengers.get(1), setup.flight.getFlightId());
+        Check.equal(AeroLinkException.Reason.DUPLICATE, ((AeroLinkException) cause(duplicate)).getReason(), "duplicate");
+        Check.that(cause(applied) == flushFailed, "applied request did not report the failed flush");
+        Check.equal(0, setup.bookings.getBookingsForPassenger(setup.passengers.get(1)).size(), "bookings left behind");
+        Check.equal(1, setup.flight.getBookedSeats(), "booked seats after the failed flush");
+
+        CompletableFuture<Booking> cancelled = setup.bookings.cancelAsync(existing.getBookingId());
+        Check.that(cause(cancelled) == flushFailed, "cancellation did not report the failed flush");
+        Check.equal(0, setup.bookings.getBookingsForPassenger(existing.getPassengerId()).size(), "cancelled booking");
+        Check.equal(0, setup.flight.getBookedSeats(), "booked seats after the failed cancellation");
+
+        // Once the journal works again, the same requests go through
+        setup.bookings.setChangeLog(ChangeLog.NONE);
+        setup.bookings.book(setup.passengers.get(1), setup.flight.getFlightId());
+        setup.bookings.book(existing.getPassengerId(), existing.getFlightId());
+        Check.equal(2, setup.flight.getBookedSeats(), "booked seats after the retries");
+    }
+
+    private static void synchronousCallsUseThePipeline() throws Exception {
+        Setup setup = new Setup(400, 1_000);
+        Check.equal(0.0, setup.bookings.getAverageRequestBatch(), "batches before any request");
+        Booking booking = setup.bookings.book(setup.passengers.get(0), setup.flight.getFlightId());
+        Check.that(setup.bookings.getAverageRequestBatch() > 0, "book did not go through the pipeline");
+        Check.fails(AeroLinkException.Reason.DUPLICATE,
+                () -> setup.bookings.book(booking.getPassengerId(), booking.getFlightId()));
+        Check.fails(AeroLinkException.Reason.NOT_FOUND, () -> setup.bookings.cancelBooking("ZZZZZZZ"));
+
+        // A callback runs on the pipeline's thread; booking from it must not wait for itself
+        Booking chained = setup.bookings.cancelAsync(booking.getBookingId())
+                .thenApply(cancelled -> setup.bookings.book(cancelled.getPassengerId(), cancelled.getFlightId()))
+                .get(5, TimeUnit.SECONDS);
+        Check.equal(booking.getPassengerId(), chained.getPassengerId(), "booking made from a callback");
+        setup.bookings.cancelBooking(chained.getBookingId());
+
+        // Synchronous and queued requests from many threads, all applied by the one consumer
+        Check.concurrently(8, thread -> {
+            for (int i = thread; i < setup.passengers.size(); i += 8) {
+                String passengerId = setup.passengers.get(i);
+                Booking made = i % 2 == 0 ? setup.bookings.book(passengerId, setup.flight.getFlightId())
+                        : setup.bookings.bookAsync(passengerId, setup.flight.getFlightId()).get();
+                if (i % 3 == 0) {
+                    setup.bookings.cancelBooking(made.getBookingId());
+                }
+            }
+        });
+        int expected = 0;
+        for (int i = 0; i < setup.passengers.size(); i++) {
+            expected += i % 3 == 0 ? 0 : 1;
+        }
+        Check.equal(expected, setup.flight.getBookedSeats(), "booked seats");
+        Check.equal(expected, setup.bookings.getBookingsForFlight(setup.flight.getFlightId()).size(), "manifest");
+    }
+
+    private static Throwable cause(CompletableFuture<Booking> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("the request succeeded");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Managers with passengers and one flight
+     */
+    private static class Setup {
+        final FlightManager flights = new FlightManager();
+        final PassengerManager passengerManager = new PassengerManager();
+        final BookingManager bookings = new BookingManager(flights, passengerManager);
+        final ArrayList<String> passengers = new ArrayList<>();
+        final Flight flight;
+
+        Setup(int passengerCount, int capacity) {
+            for (int i = 0; i < passengerCount; i++) {
+                passengers.add(passengerManager.createPassenger("Passenger " + i, 30, "BP" + i).getPassengerId());
+            }
+            LocalDateTime departure = LocalDateTime.now().plusDays(1);
+            flight = flights.createFlight("AL1", "DEL", "BOM", departure, departure.plusHours(2), capacity, 100);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Check class with the assertions the tests share
+ * The tests are plain programs, so a failed check throws AssertionError and ends the run.
+ */
+final class Check {
+    private Check() {
+    }
+
+    static void that(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static void equal(Object expected, Object actual, String what) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Run an action that must be refused with the given reason
+     */
+    static AeroLinkException fails(AeroLinkException.Reason reason, Runnable action) {
+        try {
+            action.run();
+        } catch (AeroLinkException e) {
+            equal(reason, e.getReason(), "reason");
+            return e;
+        }
+        throw new AssertionError("expected " + reason + " but nothing was thrown");
+    }
+
+    /**
+     * Start the tasks on their own threads at the same moment and wait for all of them
+     */
+    static void concurrently(int threads, ThrowingTask task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Throwable[] failure = new Throwable[1];
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(index);
+                } catch (Throwable e) {
+                    synchronized (failure) {
+                        if (failure[0] == null) {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure[0] != null) {
+            throw new AssertionError("a worker thread failed: " + failure[0], failure[0]);
+        }
+    }
+
+    interface ThrowingTask {
+        void run(int thread) throws Exception;
+    }
+}
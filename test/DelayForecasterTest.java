@@ -0,0 +1,99 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * DelayForecasterTest class to check forecasts depend only on the seed and the flight
+ * Each flight draws from its own generator, so the order flights are forecast in, and how many
+ * threads forecast them, never changes a result.
+ */
+public class DelayForecasterTest {
+    private static final long SEED = 1234L;
+
+    public static void main(String[] args) throws Exception {
+        sameSeedSameForecastInParallelAndSequentially();
+        sameSeedSameForecastFromRacingThreads();
+        seedAndWeatherChangesDropCachedForecasts();
+        System.out.println("DelayForecasterTest passed");
+    }
+
+    private static void sameSeedSameForecastInParallelAndSequentially() {
+        List<Flight> flights = flights(400);
+        List<DelayPrediction> parallel = new DelayForecaster(DelayForecaster.defaultModels(), SEED).forecastAll(flights);
+        Check.equal(flights.size(), parallel.size(), "forecasts");
+
+        // Another forecaster with the same seed, one flight at a time and in reverse order
+        DelayForecaster sequential = new DelayForecaster(DelayForecaster.defaultModels(), SEED);
+        for (int i = flights.size() - 1; i >= 0; i--) {
+            Check.that(parallel.get(i).getFlight() == flights.get(i), "forecast out of order at " + i);
+            Check.equal(parallel.get(i).getFactorDelays(), sequential.forecast(flights.get(i)).getFactorDelays(),
+                    "factor delays of flight " + i);
+        }
+
+        // A different seed draws different numbers
+        List<DelayPrediction> reseeded = new DelayForecaster(DelayForecaster.defaultModels(), SEED + 1).forecastAll(flights);
+        Check.that(!factorDelaysOf(parallel).equals(factorDelaysOf(reseeded)), "the seed made no difference");
+    }
+
+    /**
+     * Threads forecast the flights of one forecaster in different shuffled orders
+     */
+    private static void sameSeedSameForecastFromRacingThreads() throws Exception {
+        List<Flight> flights = flights(400);
+        List<LinkedHashMap<String, Integer>> expected =
+                factorDelaysOf(new DelayForecaster(DelayForecaster.defaultModels(), SEED).forecastAll(flights));
+        DelayForecaster shared = new DelayForecaster(DelayForecaster.defaultModels(), SEED);
+        Check.concurrently(4, thread -> {
+            ArrayList<Integer> order = new ArrayList<>();
+            for (int i = 0; i < flights.size(); i++) {
+                order.add(i);
+            }
+            Collections.shuffle(order, new Random(thread));
+            for (int i : order) {
+                Check.equal(expected.get(i), shared.forecast(flights.get(i)).getFactorDelays(), "factor delays of flight " + i);
+            }
+        });
+    }
+
+    private static void seedAndWeatherChangesDropCachedForecasts() {
+        List<Flight> flights = flights(50);
+        DelayForecaster forecaster = new DelayForecaster(DelayForecaster.defaultModels(), SEED);
+        List<LinkedHashMap<String, Integer>> first = factorDelaysOf(forecaster.forecastAll(flights));
+
+        forecaster.setSeed(SEED + 1);
+        Check.that(!first.equals(factorDelaysOf(forecaster.forecastAll(flights))), "cached forecasts kept after a new seed");
+        forecaster.setSeed(SEED);
+        Check.equal(first, factorDelaysOf(forecaster.forecastAll(flights)), "forecasts after going back to the seed");
+
+        forecaster.setWeather("DEL", 1.0);
+        List<DelayPrediction> stormy = forecaster.forecastAll(flights);
+        for (int i = 0; i < flights.size(); i++) {
+            int before = first.get(i).get("Weather conditions");
+            Check.that(stormy.get(i).getFactorDelays().get("Weather conditions") > before,
+                    "weather delay of flight " + i + " did not grow with the storm");
+        }
+        Check.equal(stormy.get(0).getPredictedArrival(), flights.get(0).getPredictedArrival(),
+                "predicted arrival recorded on the flight");
+    }
+
+    private static List<Flight> flights(int count) {
+        LocalDateTime departure = LocalDateTime.now().plusDays(1).withHour(6).withMinute(0).withSecond(0).withNano(0);
+        ArrayList<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDateTime departs = departure.plusMinutes(7L * i);
+            flights.add(new Flight("AL" + i, "DEL", "BOM", departs, departs.plusHours(2), 100, 100));
+        }
+        return flights;
+    }
+
+    private static List<LinkedHashMap<String, Integer>> factorDelaysOf(List<DelayPrediction> predictions) {
+        ArrayList<LinkedHashMap<String, Integer>> delays = new ArrayList<>();
+        for (DelayPrediction prediction : predictions) {
+            delays.add(prediction.getFactorDelays());
+        }
+        return delays;
+    }
+}
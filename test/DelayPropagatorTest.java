@@ -0,0 +1,175 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DelayPropagatorTest class to check delays carry over turnarounds and connections, and links never go stale
+ * A delay moves only the flights downstream of it, a loop of turnarounds is refused, and links and broken
+ * connections disappear with the flights and bookings they were made from.
+ */
+public class DelayPropagatorTest {
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+
+    public static void main(String[] args) {
+        delayCascadesDownTheTurnarounds();
+        loopsAreRefused();
+        rescheduledLinkDoesNotLoop();
+        linksGoWithDeletedAndCancelledFlights();
+        brokenConnectionsGoWithTheirBookings();
+        System.out.println("DelayPropagatorTest passed");
+    }
+
+    /**
+     * A DEL-BOM, B BOM-GOI and C GOI-DEL flown by one aircraft; D an unrelated flight
+     */
+    private static void delayCascadesDownTheTurnarounds() {
+        Setup setup = new Setup();
+        Flight a = setup.flight("DEL", "BOM", 0, 120);
+        Flight b = setup.flight("BOM", "GOI", 165, 240);
+        Flight c = setup.flight("GOI", "DEL", 280, 360);
+        Flight d = setup.flight("BOM", "DEL", 200, 320);
+        setup.propagator.linkTurnaround(a.getFlightId(), b.getFlightId());
+        setup.propagator.linkTurnaround(b.getFlightId(), c.getFlightId());
+        Check.that(setup.propagator.getNextLeg(a.getFlightId()) == b, "next leg of A");
+
+        // A arrives an hour late: B can leave 30 minutes after that, C 30 minutes after B lands
+        DelayPropagator.Result result = setup.propagator.propagate(a.getFlightId(), at(180));
+        Check.equal(List.of(a, b, c), flightsOf(result), "affected flights");
+        Check.equal(45L, setup.propagator.getEstimate(b.getFlightId()).getDepartureDelay(), "departure delay of B");
+        Check.equal(at(285), setup.propagator.getEstimate(b.getFlightId()).getArrival(), "arrival of B");
+        Check.equal(35L, setup.propagator.getEstimate(c.getFlightId()).getDepartureDelay(), "departure delay of C");
+        Check.equal(0L, setup.propagator.getEstimate(d.getFlightId()).getDepartureDelay(), "departure delay of D");
+
+        // The same prediction again changes nothing
+        Check.equal(List.of(), flightsOf(setup.propagator.propagate(a.getFlightId(), at(180))), "repeat");
+
+        // A small delay is absorbed by B's turnaround: B and C are back on schedule
+        result = setup.propagator.propagate(a.getFlightId(), at(130));
+        Check.equal(List.of(a, b, c), flightsOf(result), "flights back on schedule");
+        Check.equal(0L, setup.propagator.getEstimate(c.getFlightId()).getDepartureDelay(), "departure delay of C");
+        result = setup.propagator.propagate(a.getFlightId(), at(125));
+        Check.equal(List.of(a), flightsOf(result), "walk stops where the estimate does not change");
+    }
+
+    /**
+     * Flights that take no time at all can link back to where they started; the last link is refused
+     */
+    private static void loopsAreRefused() {
+        Setup setup = new Setup();
+        Flight a = setup.flight("DEL", "BOM", 60, 60);
+        Flight b = setup.flight("BOM", "GOI", 60, 60);
+        Flight c = setup.flight("GOI", "DEL", 60, 60);
+        setup.propagator.linkTurnaround(a.getFlightId(), b.getFlightId());
+        setup.propagator.linkTurnaround(b.getFlightId(), c.getFlightId());
+        Check.fails(AeroLinkException.Reason.INVALID_STATE,
+                () -> setup.propagator.linkTurnaround(c.getFlightId(), a.getFlightId()));
+        Check.that(setup.propagator.getNextLeg(c.getFlightId()) == null, "refused link was made");
+        Check.equal(List.of(a, b, c), flightsOf(setup.propagator.propagate(a.getFlightId(), at(90))), "chain");
+    }
+
+    /**
+     * Link A to B, move A after B, then link B to A: the first link no longer holds, so nothing loops
+     */
+    private static void rescheduledLinkDoesNotLoop() {
+        Setup setup = new Setup();
+        Flight a = setup.flight("DEL", "BOM", 0, 120);
+        Flight b = setup.flight("BOM", "DEL", 180, 300);
+        setup.propagator.linkTurnaround(a.getFlightId(), b.getFlightId());
+        setup.flights.updateFlight(a.getFlightId(), null, null, null, at(360), at(480), null, null);
+        setup.propagator.linkTurnaround(b.getFlightId(), a.getFlightId());
+
+        Check.that(setup.propagator.getNextLeg(a.getFlightId()) == null, "stale link of A kept");
+        Check.that(setup.propagator.getNextLeg(b.getFlightId()) == a, "next leg of B");
+        Check.equal(List.of(b, a), flightsOf(setup.propagator.propagate(b.getFlightId(), at(420))), "affected flights");
+    }
+
+    private static void linksGoWithDeletedAndCancelledFlights() {
+        Setup setup = new Setup();
+        Flight a = setup.flight("DEL", "BOM", 0, 120);
+        Flight b = setup.flight("BOM", "GOI", 180, 240);
+        Flight spare = setup.flight("HYD", "BOM", 0, 90);
+        Flight c = setup.flight("GOI", "DEL", 300, 360);
+        setup.propagator.linkTurnaround(a.getFlightId(), b.getFlightId());
+
+        setup.flights.deleteFlight(a.getFlightId());
+        Check.fails(AeroLinkException.Reason.NOT_FOUND, () -> setup.propagator.getNextLeg(a.getFlightId()));
+        setup.propagator.linkTurnaround(spare.getFlightId(), b.getFlightId());  // B's old inbound is gone
+        Check.that(setup.propagator.getNextLeg(spare.getFlightId()) == b, "next leg of the spare aircraft");
+
+        setup.propagator.linkTurnaround(b.getFlightId(), c.getFlightId());
+        setup.flights.cancelFlight(c.getFlightId());
+        Check.that(setup.propagator.getNextLeg(b.getFlightId()) == null, "link to a cancelled flight kept");
+        Flight replacement = setup.flight("GOI", "DEL", 320, 380);
+        setup.propagator.linkTurnaround(b.getFlightId(), replacement.getFlightId());
+
+        // B rescheduled to leave before the spare aircraft lands: that link goes, B's own link stays
+        setup.flights.updateFlight(b.getFlightId(), null, null, null, at(60), at(240), null, null);
+        Check.that(setup.propagator.getNextLeg(spare.getFlightId()) == null, "link that no longer connects kept");
+        Check.that(setup.propagator.getNextLeg(b.getFlightId()) == replacement, "link that still connects dropped");
+    }
+
+    /**
+     * A passenger booked DEL-BOM and BOM-GOI with 60 minutes to connect
+     */
+    private static void brokenConnectionsGoWithTheirBookings() {
+        Setup setup = new Setup();
+        Flight inbound = setup.flight("DEL", "BOM", 0, 120);
+        Flight outbound = setup.flight("BOM", "GOI", 180, 240);
+        Flight other = setup.flight("BOM", "HYD", 200, 280);
+        String first = setup.passenger("Asha");
+        String second = setup.passenger("Ravi");
+        setup.bookings.book(first, inbound.getFlightId());
+        Booking connecting = setup.bookings.book(first, outbound.getFlightId());
+        setup.bookings.book(second, inbound.getFlightId());
+        setup.bookings.book(second, other.getFlightId());
+
+        DelayPropagator.Result result = setup.propagator.propagate(inbound.getFlightId(), at(160));
+        Check.equal(2, result.getBroken().size(), "connections broken by the delay");
+        Check.equal(2, setup.propagator.getBrokenConnections().size(), "broken connections");
+
+        setup.bookings.cancelBooking(connecting.getBookingId());
+        Check.equal(1, setup.propagator.getBrokenConnections().size(), "broken connections after a cancellation");
+        setup.flights.deleteFlight(other.getFlightId());
+        Check.equal(0, setup.propagator.getBrokenConnections().size(), "broken connections after a deletion");
+
+        // Restored connections are reported once the delay is gone
+        Booking rebooked = setup.bookings.book(first, outbound.getFlightId());
+        result = setup.propagator.propagate(inbound.getFlightId(), at(200));
+        Check.equal(rebooked, result.getBroken().get(0).getOutbound(), "connection broken again");
+        result = setup.propagator.propagate(inbound.getFlightId(), at(120));
+        Check.equal(1, result.getRestored().size(), "connections restored");
+        Check.equal(0, setup.propagator.getBrokenConnections().size(), "broken connections on schedule");
+    }
+
+    private static ArrayList<Flight> flightsOf(DelayPropagator.Result result) {
+        ArrayList<Flight> flights = new ArrayList<>();
+        for (DelayPropagator.Estimate estimate : result.getAffected()) {
+            flights.add(estimate.getFlight());
+        }
+        return flights;
+    }
+
+    private static LocalDateTime at(int minutes) {
+        return BASE.plusMinutes(minutes);
+    }
+
+    /**
+     * Managers and a propagator over them
+     */
+    private static class Setup {
+        final FlightManager flights = new FlightManager();
+        final PassengerManager passengers = new PassengerManager();
+        final BookingManager bookings = new BookingManager(flights, passengers);
+        final DelayPropagator propagator = new DelayPropagator(flights, bookings);
+        int flightCount;
+        int passengerCount;
+
+        Flight flight(String origin, String destination, int departs, int arrives) {
+            return flights.createFlight("AL" + ++flightCount, origin, destination, at(departs), at(arrives), 10, 100);
+        }
+
+        String passenger(String name) {
+            return passengers.createPassenger(name, 30, "DP" + (100000 + ++passengerCount)).getPassengerId();
+        }
+    }
+}
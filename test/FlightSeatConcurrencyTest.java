@@ -0,0 +1,162 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FlightSeatConcurrencyTest class to stress the lock-free seat inventory of Flight
+ * Many threads book, reserve and release seats at once; no flight may ever be oversold, and the
+ * sorted view that FlightManager re-keys on every seat change must stay consistent.
+ */
+public class FlightSeatConcurrencyTest {
+    private static final int THREADS = 16;
+
+    public static void main(String[] args) throws Exception {
+        bookingFillsExactlyToCapacity();
+        groupReservationsNeverOversell();
+        mixedBookAndCancelKeepsCountsAndSortedView();
+        shrinkingRacesBookingsWithoutOverselling();
+        System.out.println("FlightSeatConcurrencyTest passed");
+    }
+
+    /**
+     * Far more booking attempts than seats: exactly capacity succeed
+     */
+    private static void bookingFillsExactlyToCapacity() throws Exception {
+        FlightManager flightManager = new FlightManager();
+        List<Flight> flights = createFlights(flightManager, 20, 500);
+        AtomicInteger booked = new AtomicInteger();
+
+        Check.concurrently(THREADS, thread -> {
+            for (int i = 0; i < 1000; i++) {
+                for (Flight flight : flights) {
+                    if (flight.bookSeat()) {
+                        booked.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        for (Flight flight : flights) {
+            Check.equal(flight.getCapacity(), flight.getBookedSeats(), "booked seats of " + flight.getFlightName());
+            Check.equal(0, flight.getAvailableSeats(), "available seats of " + flight.getFlightName());
+            Check.that(!flight.bookSeat(), "a full flight accepted another booking");
+        }
+        Check.equal(20 * 500, booked.get(), "successful bookings");
+        checkSortedView(flightManager, flights.size());
+    }
+
+    /**
+     * Groups of random sizes race for the seats: a reservation is all or nothing
+     */
+    private static void groupReservationsNeverOversell() throws Exception {
+        FlightManager flightManager = new FlightManager();
+        Flight flight = createFlights(flightManager, 1, 997).get(0);
+        AtomicInteger reserved = new AtomicInteger();
+
+        Check.concurrently(THREADS, thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 2000; i++) {
+                int count = 1 + random.nextInt(30);
+                if (flight.reserveSeats(count)) {
+                    reserved.addAndGet(count);
+                }
+            }
+        });
+
+        Check.equal(reserved.get(), flight.getBookedSeats(), "booked seats");
+        Check.that(flight.getBookedSeats() <= flight.getCapacity(), "flight oversold: " + flight.getBookedSeats());
+        Check.that(flight.getCapacity() - flight.getBookedSeats() < 30, "seats left although groups were refused");
+    }
+
+    /**
+     * Threads book and release at random; the count is exact and the seat ordering matches the counts
+     */
+    private static void mixedBookAndCancelKeepsCountsAndSortedView() throws Exception {
+        FlightManager flightManager = new FlightManager();
+        List<Flight> flights = createFlights(flightManager, 50, 40);
+        AtomicInteger[] net = new AtomicInteger[flights.size()];
+        for (int i = 0; i < net.length; i++) {
+            net[i] = new AtomicInteger();
+        }
+
+        Check.concurrently(THREADS, thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 20000; i++) {
+                int index = random.nextInt(flights.size());
+                Flight flight = flights.get(index);
+                if (random.nextInt(3) > 0) {
+                    if (flight.bookSeat()) {
+                        net[index].incrementAndGet();
+                    }
+                } else if (flight.cancelBooking()) {
+                    net[index].decrementAndGet();
+                }
+                int booked = flight.getBookedSeats();
+                Check.that(booked >= 0 && booked <= flight.getCapacity(), "seat count out of range: " + booked);
+            }
+        });
+
+        for (int i = 0; i < flights.size(); i++) {
+            Check.equal(net[i].get(), flights.get(i).getBookedSeats(), "booked seats of " + flights.get(i).getFlightName());
+        }
+        checkSortedView(flightManager, flights.size());
+    }
+
+    /**
+     * One thread keeps shrinking and growing the capacity while the others book;
+     * a shrink that a booking overtakes is refused rather than leaving the flight oversold
+     */
+    private static void shrinkingRacesBookingsWithoutOverselling() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            FlightManager flightManager = new FlightManager();
+            Flight flight = createFlights(flightManager, 1, 400).get(0);
+            AtomicInteger booked = new AtomicInteger();
+
+            Check.concurrently(THREADS, thread -> {
+                for (int i = 0; i < 400; i++) {
+                    if (thread == 0) {
+                        int capacity = flight.getBookedSeats() + (i % 2 == 0 ? 1 : 400);
+                        try {
+                            flightManager.updateFlight(flight.getFlightId(), null, null, null, null, null, capacity, null);
+                        } catch (AeroLinkException e) {
+                            Check.equal(AeroLinkException.Reason.INVALID_INPUT, e.getReason(), "reason a shrink was refused");
+                        }
+                    } else if (flight.bookSeat()) {
+                        booked.incrementAndGet();
+                    }
+                    int seats = flight.getBookedSeats();
+                    Check.that(seats <= flight.getCapacity(), "flight oversold: " + seats + " of " + flight.getCapacity());
+                }
+            });
+
+            Check.equal(booked.get(), flight.getBookedSeats(), "booked seats");
+            Check.that(flight.getBookedSeats() <= flight.getCapacity(), "flight oversold at the end");
+        }
+    }
+
+    /**
+     * Every flight is listed once, most available seats first
+     */
+    private static void checkSortedView(FlightManager flightManager, int flightCount) {
+        ArrayList<Flight> sorted = flightManager.getSortedFlights("available");
+        Check.equal(flightCount, sorted.size(), "flights in the seat ordering");
+        Check.equal(flightCount, new HashSet<>(sorted).size(), "distinct flights in the seat ordering");
+        for (int i = 1; i < sorted.size(); i++) {
+            Check.that(sorted.get(i - 1).getAvailableSeats() >= sorted.get(i).getAvailableSeats(),
+                    "seat ordering is stale at position " + i);
+        }
+    }
+
+    private static List<Flight> createFlights(FlightManager flightManager, int count, int capacity) {
+        LocalDateTime departure = LocalDateTime.now().plusDays(1);
+        ArrayList<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            flights.add(flightManager.createFlight("AL" + i, "DEL", "BOM", departure.plusMinutes(i),
+                    departure.plusMinutes(i + 120), capacity, 100));
+        }
+        return flights;
+    }
+}
@@ -0,0 +1,52 @@
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * FlightValidationTest class to check that every way of adding or changing a flight applies the same rules
+ */
+public class FlightValidationTest {
+    public static void main(String[] args) {
+        LocalDateTime departure = LocalDateTime.now().plusDays(1);
+        LocalDateTime arrival = departure.plusHours(2);
+        FlightManager flightManager = new FlightManager();
+
+        for (double price : new double[]{0, -5, Double.NaN}) {
+            Check.fails(AeroLinkException.Reason.INVALID_INPUT,
+                    () -> flightManager.createFlight("AL1", "DEL", "BOM", departure, arrival, 100, price));
+        }
+        Check.fails(AeroLinkException.Reason.INVALID_INPUT,
+                () -> flightManager.createFlight("AL1", "DEL", "BOM", departure, arrival, 0, 100));
+        Check.fails(AeroLinkException.Reason.INVALID_INPUT,
+                () -> flightManager.createFlight("AL1", "DEL", "BOM", arrival, departure, 100, 100));
+        Check.that(!flightManager.hasFlights(), "an invalid flight was created");
+
+        // One bad flight rejects the whole batch
+        Flight good = new Flight("AL2", "DEL", "BOM", departure, arrival, 100, 100);
+        Flight free = new Flight("AL3", "DEL", "BOM", departure, arrival, 100, 0);
+        Check.fails(AeroLinkException.Reason.INVALID_INPUT, () -> flightManager.addFlights(List.of(good, free)));
+        Check.that(!flightManager.hasFlights(), "part of an invalid batch was added");
+
+        Flight flight = flightManager.createFlight("AL4", "DEL", "BOM", departure, arrival, 100, 100);
+        Check.fails(AeroLinkException.Reason.INVALID_INPUT,
+                () -> flightManager.updateFlight(flight.getFlightId(), null, null, null, null, null, null, -1.0));
+        Check.equal(100.0, flight.getPrice(), "price after a refused update");
+        flightManager.updateFlight(flight.getFlightId(), null, null, null, null, null, null, 120.0);
+        Check.equal(120.0, flight.getPrice(), "price after a valid update");
+
+        // Capacity follows the same rule as createFlight, whether or not seats are booked
+        for (int capacity : new int[]{0, -3}) {
+            Check.fails(AeroLinkException.Reason.INVALID_INPUT,
+                    () -> flightManager.updateFlight(flight.getFlightId(), null, null, null, null, null, capacity, null));
+        }
+        Check.equal(100, flight.getCapacity(), "capacity after a refused update");
+        Check.that(flight.reserveSeats(3), "seats on a valid flight");
+        Check.fails(AeroLinkException.Reason.INVALID_INPUT,
+                () -> flightManager.updateFlight(flight.getFlightId(), "AL5", null, null, null, null, 2, null));
+        Check.equal(100, flight.getCapacity(), "capacity after shrinking below the booked seats");
+        Check.equal("AL4", flight.getFlightName(), "name after a refused update");
+        flightManager.updateFlight(flight.getFlightId(), null, null, null, null, null, 3, null);
+        Check.equal(0, flight.getAvailableSeats(), "available seats after shrinking to the booked seats");
+
+        System.out.println("FlightValidationTest passed");
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GroupBookingTest class to check a group booking is all or nothing
+ * Whatever stops a group part way, no seat stays taken and no booking is left behind,
+ * so the same group can be booked again once the cause is gone.
+ */
+public class GroupBookingTest {
+    public static void main(String[] args) throws Exception {
+        groupIsBookedOnEveryFlight();
+        passengerAlreadyBookedRollsBack();
+        flightFillingMidGroupRollsBack();
+        journalWriteFailureRollsBack();
+        journalFlushFailureRollsBack();
+        racingGroupsNeverOversell();
+        System.out.println("GroupBookingTest passed");
+    }
+
+    private static void groupIsBookedOnEveryFlight() {
+        Setup setup = new Setup(10, 3);
+        List<Booking> created = setup.bookings.bookGroup(setup.passengers(0, 3), setup.bothFlights());
+        Check.equal(6, created.size(), "bookings made");
+        for (int i = 0; i < created.size(); i++) {
+            Flight flight = i < 3 ? setup.first : setup.second;
+            Check.equal(flight.getFlightId(), created.get(i).getFlightId(), "flight of booking " + i);
+            Check.equal(setup.passengers.get(i % 3), created.get(i).getPassengerId(), "passenger of booking " + i);
+        }
+        Check.equal(3, setup.first.getBookedSeats(), "seats on the first flight");
+        Check.equal(3, setup.second.getBookedSeats(), "seats on the second flight");
+    }
+
+    /**
+     * The third passenger of the group already has a booking on the second flight
+     */
+    private static void passengerAlreadyBookedRollsBack() {
+        Setup setup = new Setup(10, 10);
+        Booking existing = setup.bookings.book(setup.passengers.get(2), setup.second.getFlightId());
+        Check.fails(AeroLinkException.Reason.DUPLICATE,
+                () -> setup.bookings.bookGroup(setup.passengers(0, 4), setup.bothFlights()));
+        setup.checkUnchanged(0, 1);
+        Check.equal(List.of(existing), setup.bookings.getBookingsForPassenger(existing.getPassengerId()),
+                "bookings of the already booked passenger");
+
+        // Nothing was claimed for the others: the group without that passenger goes through
+        setup.bookings.bookGroup(List.of(setup.passengers.get(0), setup.passengers.get(1), setup.passengers.get(3)),
+                setup.bothFlights());
+        Check.equal(3, setup.first.getBookedSeats(), "seats on the first flight after the retry");
+        Check.equal(4, setup.second.getBookedSeats(), "seats on the second flight after the retry");
+    }
+
+    /**
+     * The first flight's seats are taken before the second turns out to be too full
+     */
+    private static void flightFillingMidGroupRollsBack() {
+        Setup setup = new Setup(10, 5);
+        setup.bookings.book(setup.passengers.get(9), setup.second.getFlightId());
+        setup.bookings.book(setup.passengers.get(8), setup.second.getFlightId());
+        Check.fails(AeroLinkException.Reason.NO_SEATS,
+                () -> setup.bookings.bookGroup(setup.passengers(0, 4), setup.bothFlights()));
+        setup.checkUnchanged(0, 2);
+
+        setup.bookings.bookGroup(setup.passengers(0, 3), setup.bothFlights());
+        Check.equal(5, setup.second.getBookedSeats(), "seats on the second flight after a group that fits");
+    }
+
+    private static void journalWriteFailureRollsBack() {
+        Setup setup = new Setup(10, 10);
+        setup.bookings.setChangeLog(new ChangeLog() {
+            @Override
+            public long bookingsCreated(List<Booking> group) {
+                throw new UncheckedIOException("Change could not be saved: disk full", new IOException("disk full"));
+            }
+        });
+        failsWithJournalError(setup);
+        setup.checkUnchanged(0, 0);
+        setup.bookings.setChangeLog(ChangeLog.NONE);
+        Check.equal(8, setup.bookings.bookGroup(setup.passengers(0, 4), setup.bothFlights()).size(), "bookings on retry");
+    }
+
+    /**
+     * The group's records are written but cannot be flushed
+     */
+    private static void journalFlushFailureRollsBack() {
+        Setup setup = new Setup(10, 10);
+        AtomicInteger cancellations = new AtomicInteger();
+        setup.bookings.setChangeLog(new ChangeLog() {
+            @Override
+            public long bookingsCreated(List<Booking> group) {
+                return 1;
+            }
+
+            @Override
+            public long bookingCancelled(String bookingId) {
+                cancellations.incrementAndGet();
+                return 2;
+            }
+
+            @Override
+            public void awaitDurable(long ticket) {
+                throw new UncheckedIOException("Change could not be saved", new IOException("I/O error"));
+            }
+        });
+        failsWithJournalError(setup);
+        setup.checkUnchanged(0, 0);
+        Check.equal(8, cancellations.get(), "cancellations journaled for the withdrawn bookings");
+        setup.bookings.setChangeLog(ChangeLog.NONE);
+        Check.equal(8, setup.bookings.bookGroup(setup.passengers(0, 4), setup.bothFlights()).size(), "bookings on retry");
+    }
+
+    /**
+     * Groups of different sizes race for one flight: it is never oversold and every group is whole or absent
+     */
+    private static void racingGroupsNeverOversell() throws Exception {
+        Setup setup = new Setup(400, 10);
+        Check.concurrently(8, thread -> {
+            for (int start = thread * 50; start < thread * 50 + 50; ) {
+                int size = 1 + (start % 7);
+                int end = Math.min(start + size, thread * 50 + 50);
+                try {
+                    setup.bookings.bookGroup(setup.passengers(start, end), List.of(setup.first.getFlightId()));
+                } catch (AeroLinkException e) {
+                    Check.equal(AeroLinkException.Reason.NO_SEATS, e.getReason(), "reason a group was refused");
+                }
+                start = end;
+            }
+        });
+        Check.that(setup.first.getBookedSeats() <= setup.first.getCapacity(), "flight oversold");
+        Check.equal(setup.first.getBookedSeats(), setup.bookings.getBookingsForFlight(setup.first.getFlightId()).size(),
+                "bookings against booked seats");
+    }
+
+    private static void failsWithJournalError(Setup setup) {
+        try {
+            setup.bookings.bookGroup(setup.passengers(0, 4), setup.bothFlights());
+        } catch (UncheckedIOException e) {
+            return;
+        }
+        throw new AssertionError("the group was booked although the journal failed");
+    }
+
+    /**
+     * Managers with passengers and two flights of the given capacities
+     */
+    private static class Setup {
+        final FlightManager flights = new FlightManager();
+        final PassengerManager passengerManager = new PassengerManager();
+        final BookingManager bookings = new BookingManager(flights, passengerManager);
+        final ArrayList<String> passengers = new ArrayList<>();
+        final Flight first;
+        final Flight second;
+
+        Setup(int firstCapacity, int secondCapacity) {
+            for (int i = 0; i < 400; i++) {
+                passengers.add(passengerManager.createPassenger("Passenger " + i, 30, "GB" + i).getPassengerId());
+            }
+            LocalDateTime departure = LocalDateTime.now().plusDays(1);
+            first = flights.createFlight("AL1", "DEL", "BOM", departure, departure.plusHours(2), firstCapacity, 100);
+            second = flights.createFlight("AL2", "BOM", "GOI", departure.plusHours(3), departure.plusHours(4),
+                    secondCapacity, 100);
+        }
+
+        List<String> passengers(int from, int to) {
+            return passengers.subList(from, to);
+        }
+
+        List<String> bothFlights() {
+            return List.of(first.getFlightId(), second.getFlightId());
+        }
+
+        /**
+         * A refused group left the flights with only the seats booked before it
+         */
+        void checkUnchanged(int firstSeats, int secondSeats) {
+            Check.equal(firstSeats, first.getBookedSeats(), "seats on the first flight");
+            Check.equal(secondSeats, second.getBookedSeats(), "seats on the second flight");
+            Check.equal(firstSeats, bookings.getBookingsForFlight(first.getFlightId()).size(), "bookings on the first flight");
+            Check.equal(secondSeats, bookings.getBookingsForFlight(second.getFlightId()).size(),
+                    "bookings on the second flight");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * IdGeneratorTest class to check that IDs are unique and monotonic under concurrency, that their
+ * encoding round-trips, and that the long-keyed map behind the ID lookups agrees with a HashMap
+ */
+public class IdGeneratorTest {
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        concurrentIdsAreUniqueAndMonotonic();
+        observedIdsAreNeverReissued();
+        encodingRoundTrips();
+        longObjectMapMatchesHashMap();
+        longObjectMapReadsDuringWrites();
+        System.out.println("IdGeneratorTest passed");
+    }
+
+    /**
+     * Each thread's IDs increase strictly, and no ID is handed out twice across threads
+     */
+    private static void concurrentIdsAreUniqueAndMonotonic() throws Exception {
+        long[][] ids = new long[THREADS][IDS_PER_THREAD];
+        Check.concurrently(THREADS, thread -> {
+            for (int i = 0; i < IDS_PER_THREAD; i++) {
+                ids[thread][i] = IdGenerator.decode(IdGenerator.nextId());
+            }
+        });
+
+        HashSet<Long> seen = new HashSet<>();
+        for (long[] sequence : ids) {
+            for (int i = 0; i < sequence.length; i++) {
+                Check.that(sequence[i] > 0, "invalid ID value " + sequence[i]);
+                Check.that(i == 0 || sequence[i] > sequence[i - 1], "IDs went backwards on one thread");
+                Check.that(seen.add(sequence[i]), "ID handed out twice: " + IdGenerator.encode(sequence[i]));
+            }
+        }
+        Check.equal(THREADS * IDS_PER_THREAD, seen.size(), "distinct IDs");
+    }
+
+    /**
+     * An ID restored from disk, even while other threads take IDs, is never handed out again
+     */
+    private static void observedIdsAreNeverReissued() throws Exception {
+        int perThread = 20_000;
+        // Further ahead than every ID this test hands out, so only a broken observe() can reach it
+        long restored = IdGenerator.decode(IdGenerator.nextId()) + 10L * THREADS * perThread;
+        String restoredId = IdGenerator.encode(restored);
+        boolean[] reissued = new boolean[THREADS];
+        Check.concurrently(THREADS, thread -> {
+            if (thread == 0) {
+                IdGenerator.observe(restoredId);
+                IdGenerator.observe(IdGenerator.encode(1));  // Older IDs never move the counter back
+            }
+            for (int i = 0; i < perThread; i++) {
+                long value = IdGenerator.decode(IdGenerator.nextId());
+                reissued[thread] |= value == restored || (thread == 0 && value < restored);
+            }
+        });
+        Check.that(IdGenerator.decode(IdGenerator.nextId()) > restored, "a new ID is not after the restored one");
+        for (boolean thread : reissued) {
+            Check.that(!thread, "the restored ID was handed out again, or an ID before it after it was observed");
+        }
+    }
+
+    private static void encodingRoundTrips() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long value = 1 + (random.nextLong() >>> 1);
+            if (i % 3 == 0) {
+                value = 1 + random.nextInt(1_000_000);
+            }
+            String id = IdGenerator.encode(value);
+            Check.equal(value, IdGenerator.decode(id), "decoded " + id);
+            Check.equal(value, IdGenerator.decode(id.toLowerCase()), "decoded lower-case " + id);
+        }
+        Check.equal(Long.MAX_VALUE, IdGenerator.decode(IdGenerator.encode(Long.MAX_VALUE)), "largest ID");
+        Check.equal(IdGenerator.decode("10"), IdGenerator.decode("1O"), "O read as zero");
+        Check.equal(IdGenerator.decode("11"), IdGenerator.decode("il"), "I and L read as one");
+        for (String invalid : new String[]{null, "", "U", "A-B", "ZZZZZZZZZZZZZ", "00000"}) {
+            Check.equal(-1L, IdGenerator.decode(invalid), "decode of invalid ID " + invalid);
+        }
+        Check.that(IdGenerator.encode(1_000_000_000L).length() <= 6, "a billion does not fit in six characters");
+    }
+
+    /**
+     * Random puts and removes, including long runs of deletes, against a HashMap
+     */
+    private static void longObjectMapMatchesHashMap() {
+        Random random = new Random(11);
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        HashMap<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 500_000; i++) {
+            long key = 1 + random.nextInt(20_000);
+            int action = random.nextInt(10);
+            if (action < 5) {
+                Check.equal(expected.put(key, (long) i), map.put(key, (long) i), "put " + key);
+            } else if (action < 8) {
+                Check.equal(expected.remove(key), map.remove(key), "remove " + key);
+            } else {
+                Check.equal(expected.get(key), map.get(key), "get " + key);
+            }
+            Check.equal(expected.size(), map.size(), "size");
+        }
+        for (long key = 1; key <= 20_000; key++) {
+            Check.equal(expected.get(key), map.get(key), "final get " + key);
+        }
+    }
+
+    /**
+     * Lock-free readers never see a wrong value while writers grow and shrink the table
+     */
+    private static void longObjectMapReadsDuringWrites() throws Exception {
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        int keys = 50_000;
+        for (long key = 1; key <= keys; key += 2) {
+            map.put(key, key * 10);  // Odd keys stay put for the whole test
+        }
+        Check.concurrently(4, thread -> {
+            if (thread == 0) {
+                for (int round = 0; round < 5; round++) {
+                    for (long key = 2; key <= keys; key += 2) {
+                        map.put(key, key * 10);
+                    }
+                    for (long key = 2; key <= keys; key += 2) {
+                        map.remove(key);
+                    }
+                }
+            } else {
+                for (int round = 0; round < 20; round++) {
+                    for (long key = 1; key <= keys; key++) {
+                        Long value = map.get(key);
+                        if (key % 2 == 1) {
+                            Check.equal(key * 10, value, "stable key " + key);
+                        } else if (value != null) {
+                            Check.equal(key * 10, value, "changing key " + key);
+                        }
+                    }
+                }
+            }
+        });
+        Check.equal(keys / 2, map.size(), "size after the writers finished");
+    }
+}
@@ -0,0 +1,218 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ItinerarySearchTest class to check connection rules, leg limits and ranking of multi-leg itineraries
+ * Hand-built networks check each rule; a random network checks the k best against every possible journey.
+ */
+public class ItinerarySearchTest {
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(2).withHour(6).withMinute(0).withSecond(0).withNano(0);
+    private static final String[] AIRPORTS = {"DEL", "BOM", "BLR", "MAA", "CCU", "HYD", "GOI"};
+
+    public static void main(String[] args) {
+        connectionsRespectMinimumAndMaximumWait();
+        journeysHaveAtMostThreeLegs();
+        cancelledAndFullLegsAreSkipped();
+        resultsAreOrderedBySortKey();
+        kBestMatchEveryPossibleJourney();
+        System.out.println("ItinerarySearchTest passed");
+    }
+
+    private static void connectionsRespectMinimumAndMaximumWait() {
+        FlightManager manager = new FlightManager();
+        Flight inbound = flight(manager, "DEL", "BOM", 0, 120, 100);
+        flight(manager, "BOM", "GOI", 120 + 30, 240, 100);  // 30 minutes: too short to connect
+        Flight justInTime = flight(manager, "BOM", "GOI", 120 + 45, 260, 100);
+        Flight lastChance = flight(manager, "BOM", "GOI", 120 + 8 * 60, 720, 100);
+        flight(manager, "BOM", "GOI", 120 + 8 * 60 + 1, 730, 100);  // A minute past the longest wait
+
+        ArrayList<ItinerarySearch.Itinerary> found = search(manager, "DEL", "GOI", 10, ItinerarySearch.SortBy.FASTEST);
+        Check.equal(List.of(List.of(inbound, justInTime), List.of(inbound, lastChance)), legsOf(found), "connections");
+    }
+
+    private static void journeysHaveAtMostThreeLegs() {
+        FlightManager manager = new FlightManager();
+        Flight first = flight(manager, "DEL", "BOM", 0, 60, 100);
+        Flight second = flight(manager, "BOM", "BLR", 120, 180, 100);
+        Flight third = flight(manager, "BLR", "MAA", 240, 300, 100);
+        flight(manager, "MAA", "GOI", 360, 420, 100);
+
+        Check.equal(List.of(), legsOf(search(manager, "DEL", "GOI", 5, ItinerarySearch.SortBy.FASTEST)), "four legs");
+        Check.equal(List.of(List.of(first, second, third)),
+                legsOf(search(manager, "DEL", "MAA", 5, ItinerarySearch.SortBy.FASTEST)), "three legs");
+        Check.equal(0, search(manager, "DEL", "DEL", 5, ItinerarySearch.SortBy.FASTEST).size(), "same airport");
+    }
+
+    private static void cancelledAndFullLegsAreSkipped() {
+        FlightManager manager = new FlightManager();
+        Flight direct = flight(manager, "DEL", "GOI", 0, 150, 300);
+        Flight toBom = flight(manager, "DEL", "BOM", 0, 60, 100);
+        Flight bomGoi = flight(manager, "BOM", "GOI", 120, 180, 100);
+        Flight toBlr = flight(manager, "DEL", "BLR", 0, 90, 100);
+        Flight blrGoi = flight(manager, "BLR", "GOI", 150, 210, 100);
+        Check.equal(3, search(manager, "DEL", "GOI", 10, ItinerarySearch.SortBy.FASTEST).size(), "journeys");
+
+        manager.cancelFlight(direct.getFlightId());
+        bomGoi.setBookedSeats(bomGoi.getCapacity());  // Full
+        Check.equal(List.of(List.of(toBlr, blrGoi)),
+                legsOf(search(manager, "DEL", "GOI", 10, ItinerarySearch.SortBy.FASTEST)), "after cancelling and filling");
+
+        // Rescheduling the connecting leg too early to make drops the last journey; moving it back restores it
+        manager.updateFlight(blrGoi.getFlightId(), null, null, null, BASE.plusMinutes(100), BASE.plusMinutes(160), null, null);
+        Check.equal(0, search(manager, "DEL", "GOI", 10, ItinerarySearch.SortBy.FASTEST).size(), "after rescheduling");
+        manager.updateFlight(blrGoi.getFlightId(), null, null, null, BASE.plusMinutes(140), BASE.plusMinutes(200), null, null);
+        bomGoi.setBookedSeats(0);
+        Check.equal(List.of(List.of(toBom, bomGoi), List.of(toBlr, blrGoi)),
+                legsOf(search(manager, "DEL", "GOI", 10, ItinerarySearch.SortBy.FASTEST)), "after restoring");
+    }
+
+    private static void resultsAreOrderedBySortKey() {
+        FlightManager manager = new FlightManager();
+        Flight slowDirect = flight(manager, "DEL", "GOI", 0, 400, 500);
+        Flight quickDirect = flight(manager, "DEL", "GOI", 30, 180, 450);
+        Flight toBom = flight(manager, "DEL", "BOM", 0, 60, 100);
+        Flight bomGoi = flight(manager, "BOM", "GOI", 120, 200, 100);
+        Flight toBlr = flight(manager, "DEL", "BLR", 0, 60, 80);
+        Flight blrMaa = flight(manager, "BLR", "MAA", 120, 180, 60);
+        Flight maaGoi = flight(manager, "MAA", "GOI", 240, 300, 40);
+
+        Check.equal(List.of(List.of(quickDirect), List.of(toBom, bomGoi), List.of(toBlr, blrMaa, maaGoi),
+                        List.of(slowDirect)),
+                legsOf(search(manager, "DEL", "GOI", 10, ItinerarySearch.SortBy.FASTEST)), "fastest first");
+        Check.equal(List.of(List.of(toBlr, blrMaa, maaGoi), List.of(toBom, bomGoi), List.of(quickDirect),
+                        List.of(slowDirect)),
+                legsOf(search(manager, "DEL", "GOI", 10, ItinerarySearch.SortBy.CHEAPEST)), "cheapest first");
+        Check.equal(List.of(List.of(toBlr, blrMaa, maaGoi), List.of(toBom, bomGoi)),
+                legsOf(search(manager, "DEL", "GOI", 2, ItinerarySearch.SortBy.CHEAPEST)), "only k results");
+    }
+
+    /**
+     * The costs of the k best itineraries equal the k lowest costs over every journey the rules allow
+     */
+    private static void kBestMatchEveryPossibleJourney() {
+        Random random = new Random(20);
+        for (int round = 0; round < 20; round++) {
+            FlightManager manager = new FlightManager();
+            ArrayList<Flight> flights = new ArrayList<>();
+            for (int i = 0; i < 150; i++) {
+                String origin = AIRPORTS[random.nextInt(AIRPORTS.length)];
+                String destination = AIRPORTS[random.nextInt(AIRPORTS.length)];
+                if (origin.equals(destination)) {
+                    continue;
+                }
+                int departs = random.nextInt(24 * 60);
+                flights.add(flight(manager, origin, destination, departs, departs + 60 + random.nextInt(240),
+                        50 + random.nextInt(400)));
+            }
+            for (Flight flight : flights) {
+                if (random.nextInt(10) == 0) {
+                    flight.setBookedSeats(flight.getCapacity());
+                }
+            }
+            String origin = AIRPORTS[random.nextInt(AIRPORTS.length)];
+            String destination = AIRPORTS[(indexOf(origin) + 1 + random.nextInt(AIRPORTS.length - 1)) % AIRPORTS.length];
+            for (ItinerarySearch.SortBy sortBy : ItinerarySearch.SortBy.values()) {
+                ArrayList<Double> all = new ArrayList<>();
+                enumerate(flights, origin, destination, new ArrayList<>(), sortBy, all);
+                all.sort(null);
+                int k = 1 + random.nextInt(8);
+                ArrayList<Double> found = new ArrayList<>();
+                for (ItinerarySearch.Itinerary itinerary : search(manager, origin, destination, k, sortBy)) {
+                    found.add(costOf(itinerary.getLegs(), sortBy));
+                }
+                Check.equal(all.subList(0, Math.min(k, all.size())), found,
+                        sortBy + " " + origin + "-" + destination + " in round " + round);
+            }
+        }
+    }
+
+    /**
+     * Every journey of up to three legs that the search rules allow, by brute force
+     */
+    private static void enumerate(List<Flight> flights, String origin, String destination, ArrayList<Flight> legs,
+                                  ItinerarySearch.SortBy sortBy, ArrayList<Double> costs) {
+        Flight last = legs.isEmpty() ? null : legs.get(legs.size() - 1);
+        for (Flight flight : flights) {
+            if (!flight.hasAvailableSeats()) {
+                continue;
+            }
+            if (last == null) {
+                if (!flight.getOrigin().equals(origin)) {
+                    continue;
+                }
+            } else {
+                Duration wait = Duration.between(last.getArrivalTime(), flight.getDepartureTime());
+                if (!flight.getOrigin().equals(last.getDestination()) || wait.toMinutes() < 45
+                        || wait.compareTo(Duration.ofHours(8)) > 0) {
+                    continue;
+                }
+            }
+            String to = flight.getDestination();
+            legs.add(flight);
+            if (to.equals(destination)) {
+                costs.add(costOf(legs, sortBy));
+            } else if (legs.size() < 3 && !visited(origin, legs)) {
+                enumerate(flights, origin, destination, legs, sortBy, costs);
+            }
+            legs.remove(legs.size() - 1);
+        }
+    }
+
+    /**
+     * Whether the last leg lands somewhere the journey has already been
+     */
+    private static boolean visited(String origin, List<Flight> legs) {
+        String to = legs.get(legs.size() - 1).getDestination();
+        if (to.equals(origin)) {
+            return true;
+        }
+        for (int i = 0; i < legs.size() - 1; i++) {
+            if (legs.get(i).getDestination().equals(to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double costOf(List<Flight> legs, ItinerarySearch.SortBy sortBy) {
+        if (sortBy == ItinerarySearch.SortBy.FASTEST) {
+            return Duration.between(legs.get(0).getDepartureTime(), legs.get(legs.size() - 1).getArrivalTime()).toMinutes();
+        }
+        double total = 0;
+        for (Flight leg : legs) {
+            total += leg.getPrice();
+        }
+        return total;
+    }
+
+    private static ArrayList<ItinerarySearch.Itinerary> search(FlightManager manager, String origin, String destination,
+                                                              int k, ItinerarySearch.SortBy sortBy) {
+        return manager.findItineraries(origin, destination, BASE, BASE.plusDays(1), k, sortBy);
+    }
+
+    private static ArrayList<List<Flight>> legsOf(List<ItinerarySearch.Itinerary> itineraries) {
+        ArrayList<List<Flight>> legs = new ArrayList<>();
+        for (ItinerarySearch.Itinerary itinerary : itineraries) {
+            legs.add(itinerary.getLegs());
+        }
+        return legs;
+    }
+
+    private static Flight flight(FlightManager manager, String origin, String destination, int departs, int arrives,
+                                 double price) {
+        return manager.createFlight(origin + destination, origin, destination, BASE.plusMinutes(departs),
+                BASE.plusMinutes(arrives), 100, price);
+    }
+
+    private static int indexOf(String airport) {
+        for (int i = 0; i < AIRPORTS.length; i++) {
+            if (AIRPORTS[i].equals(airport)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * JournalRecoveryTest class to simulate crashes in the middle of a journal write
+ * The journal is cut at arbitrary byte offsets; reopening it must replay exactly the records that
+ * were complete before the cut, drop the torn tail from the file, and keep accepting new records.
+ */
+public class JournalRecoveryTest {
+    private static final int HEADER_BYTES = 4;  // Segment header
+    private static final int FRAME_BYTES = 8;  // Length and CRC32 before each payload
+
+    public static void main(String[] args) throws Exception {
+        tornTailIsCutAtEveryOffset();
+        corruptLastRecordIsDropped();
+        managersRecoverCompletePrefix();
+        failedJournalWriteReleasesSeat();
+        System.out.println("JournalRecoveryTest passed");
+    }
+
+    /**
+     * Cut a journal of N records at many offsets, including every byte of the last record
+     */
+    private static void tornTailIsCutAtEveryOffset() throws Exception {
+        Random random = new Random(42);
+        ArrayList<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            byte[] payload = new byte[1 + random.nextInt(300)];
+            random.nextBytes(payload);
+            records.add(payload);
+        }
+        Path original = Files.createTempDirectory("journal-test");
+        try (Journal journal = Journal.open(original, 1, payload -> { })) {
+            long ticket = 0;
+            for (byte[] record : records) {
+                ticket = journal.write(record);
+            }
+            journal.awaitDurable(ticket);
+        }
+        Path segment = onlySegment(original);
+        long[] ends = new long[records.size() + 1];  // ends[k] = file offset just past the first k records
+        ends[0] = HEADER_BYTES;
+        for (int i = 0; i < records.size(); i++) {
+            ends[i + 1] = ends[i] + FRAME_BYTES + records.get(i).length;
+        }
+        Check.equal(ends[records.size()], Files.size(segment), "journal size");
+
+        ArrayList<Long> cuts = new ArrayList<>();
+        for (long offset = ends[records.size() - 1]; offset <= ends[records.size()]; offset++) {
+            cuts.add(offset);
+        }
+        for (int i = 0; i < 60; i++) {
+            cuts.add(HEADER_BYTES + (long) random.nextInt((int) (ends[records.size()] - HEADER_BYTES)));
+        }
+
+        for (long cut : cuts) {
+            Path copy = Files.createTempDirectory("journal-cut");
+            Path copied = copy.resolve(segment.getFileName());
+            Files.copy(segment, copied);
+            try (RandomAccessFile file = new RandomAccessFile(copied.toFile(), "rw")) {
+                file.setLength(cut);
+            }
+
+            int complete = 0;
+            while (complete < records.size() && ends[complete + 1] <= cut) {
+                complete++;
+            }
+            ArrayList<byte[]> replayed = new ArrayList<>();
+            try (Journal journal = Journal.open(copy, 1, replayed::add)) {
+                Check.equal(complete, replayed.size(), "records replayed after a cut at byte " + cut);
+                for (int i = 0; i < complete; i++) {
+                    Check.that(Arrays.equals(records.get(i), replayed.get(i)), "record " + i + " replayed wrong");
+                }
+                Check.equal(ends[complete], Files.size(copied), "file size after recovering from a cut at byte " + cut);
+
+                // The journal carries on after the complete prefix
+                journal.awaitDurable(journal.write(new byte[]{7, 7, 7}));
+            }
+            ArrayList<byte[]> again = new ArrayList<>();
+            Journal journal = Journal.open(copy, 1, again::add);
+            try {
+                Check.equal(complete + 1, again.size(), "records after appending to a recovered journal");
+                Check.that(Arrays.equals(new byte[]{7, 7, 7}, again.get(complete)), "appended record replayed wrong");
+            } finally {
+                journal.close();
+            }
+            deleteTree(copy);
+        }
+        deleteTree(original);
+    }
+
+    /**
+     * A last record whose bytes are all there but garbled fails its checksum and is dropped
+     */
+    private static void corruptLastRecordIsDropped() throws Exception {
+        Path directory = Files.createTempDirectory("journal-crc");
+        try (Journal journal = Journal.open(directory, 1, payload -> { })) {
+            journal.append("first".getBytes());
+            journal.append("second".getBytes());
+        }
+        Path segment = onlySegment(directory);
+        long size = Files.size(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(size - 1);
+            int last = file.read();
+            file.seek(size - 1);
+            file.write(last ^ 0xFF);
+        }
+        ArrayList<byte[]> replayed = new ArrayList<>();
+        Journal journal = Journal.open(directory, 1, replayed::add);
+        try {
+            Check.equal(1, replayed.size(), "records replayed");
+            Check.equal("first", new String(replayed.get(0)), "surviving record");
+            Check.equal((long) HEADER_BYTES + FRAME_BYTES + "first".length(), Files.size(segment), "file size");
+        } finally {
+            journal.close();
+        }
+        deleteTree(directory);
+    }
+
+    /**
+     * End to end: the managers come back with every change whose record was complete
+     */
+    private static void managersRecoverCompletePrefix() throws Exception {
+        Path directory = Files.createTempDirectory("journal-managers");
+        LocalDateTime departure = LocalDateTime.now().plusDays(1);
+        FlightManager flightManager = new FlightManager();
+        PassengerManager passengerManager = new PassengerManager();
+        BookingManager bookingManager = new BookingManager(flightManager, passengerManager);
+        ArrayList<String> flightIds = new ArrayList<>();
+        // Never closed, like a process that crashes: closing would take a final snapshot
+        PersistenceManager.open(directory, flightManager, passengerManager, bookingManager, new ServiceManager());
+        for (int i = 0; i < 10; i++) {
+            flightIds.add(flightManager.createFlight("AL" + i, "DEL", "BOM", departure.plusHours(i),
+                    departure.plusHours(i + 2), 50, 100).getFlightId());
+        }
+        Path segment = onlySegment(directory);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 3);  // Tear the last flight's record
+        }
+
+        FlightManager recovered = new FlightManager();
+        PassengerManager recoveredPassengers = new PassengerManager();
+        PersistenceManager persistence = PersistenceManager.open(directory, recovered, recoveredPassengers,
+                new BookingManager(recovered, recoveredPassengers), new ServiceManager());
+        try {
+            for (int i = 0; i < 9; i++) {
+                Check.that(recovered.getFlightById(flightIds.get(i)) != null, "flight " + i + " was lost");
+            }
+            Check.that(recovered.getFlightById(flightIds.get(9)) == null, "the torn flight record was replayed");
+        } finally {
+            persistence.close();
+        }
+        deleteTree(directory);
+    }
+
+    /**
+     * A booking whose journal record cannot be written is refused without keeping its seat
+     */
+    private static void failedJournalWriteReleasesSeat() {
+        FlightManager flightManager = new FlightManager();
+        PassengerManager passengerManager = new PassengerManager();
+        BookingManager bookingManager = new BookingManager(flightManager, passengerManager);
+        LocalDateTime departure = LocalDateTime.now().plusDays(1);
+        Flight flight = flightManager.createFlight("AL1", "DEL", "BOM", departure, departure.plusHours(2), 1, 100);
+        String passengerId = passengerManager.createPassenger("Asha", 30, "P1234567").getPassengerId();
+
+        bookingManager.setChangeLog(new ChangeLog() {
+            @Override
+            public long bookingCreated(Booking booking) {
+                throw new UncheckedIOException("Change could not be saved: disk full", new IOException("disk full"));
+            }
+        });
+        for (int i = 0; i < 3; i++) {
+            try {
+                bookingManager.book(passengerId, flight.getFlightId());
+                throw new AssertionError("the booking was accepted although it could not be journaled");
+            } catch (UncheckedIOException expected) {
+                Check.equal(0, flight.getBookedSeats(), "seats held after a failed journal write");
+            }
+        }
+
+        bookingManager.setChangeLog(ChangeLog.NONE);
+        bookingManager.book(passengerId, flight.getFlightId());  // The seat and the pair are free again
+        Check.equal(1, flight.getBookedSeats(), "seats after the journal recovered");
+    }
+
+    private static Path onlySegment(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.filter(file -> file.getFileName().toString().startsWith("journal-")).toList();
+            Check.equal(1, segments.size(), "journal segments");
+            return segments.get(0);
+        }
+    }
+
+    private static void deleteTree(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
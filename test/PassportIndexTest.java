@@ -0,0 +1,135 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PassportIndexTest class to check the passport lookup and the uniqueness check built on it
+ * The index must follow every registration, update, deletion and restore, and a passport can be
+ * claimed by only one passenger however many register it at once.
+ */
+public class PassportIndexTest {
+    public static void main(String[] args) throws Exception {
+        lookupIgnoresCaseAndSpaces();
+        indexFollowsUpdatesDeletesAndRestores();
+        concurrentRegistrationsClaimOnce();
+        lookupOnlyReturnsStoredPassengers();
+        System.out.println("PassportIndexTest passed");
+    }
+
+    private static void lookupIgnoresCaseAndSpaces() {
+        PassengerManager manager = new PassengerManager();
+        Passenger passenger = manager.createPassenger("Asha Rao", 34, "m1234567");
+
+        Check.that(manager.findByPassport("M1234567") == passenger, "upper-case lookup");
+        Check.that(manager.findByPassport("  m1234567 ") == passenger, "lookup with spaces");
+        Check.that(manager.findByPassport("M1234568") == null, "other passport found");
+        Check.that(manager.findByPassport(null) == null, "null passport found");
+        Check.fails(AeroLinkException.Reason.DUPLICATE, () -> manager.createPassenger("Someone Else", 40, " M1234567"));
+    }
+
+    private static void indexFollowsUpdatesDeletesAndRestores() {
+        PassengerManager manager = new PassengerManager();
+        Passenger first = manager.createPassenger("Asha Rao", 34, "A100");
+        Passenger second = manager.createPassenger("Vikram Shah", 51, "B200");
+
+        // Moving to a new passport releases the old one
+        manager.updatePassenger(first.getPassengerId(), null, null, "C300");
+        Check.that(manager.findByPassport("A100") == null, "old passport still indexed");
+        Check.that(manager.findByPassport("C300") == first, "new passport not indexed");
+        Check.that(manager.createPassenger("Meera Iyer", 29, "A100") != null, "released passport not reusable");
+
+        // Taking another passenger's passport is refused and changes nothing
+        Check.fails(AeroLinkException.Reason.DUPLICATE,
+                () -> manager.updatePassenger(first.getPassengerId(), "Renamed", null, "b200"));
+        Check.equal("C300", first.getPassportNumber(), "passport after refused update");
+        Check.equal("Asha Rao", first.getName(), "name after refused update");
+        Check.that(manager.findByPassport("B200") == second, "holder after refused update");
+
+        // Re-saving the passenger's own passport, in any case, is not a conflict
+        manager.updatePassenger(first.getPassengerId(), "Asha R.", null, "c300");
+        Check.that(manager.findByPassport("C300") == first, "own passport after update");
+
+        manager.deletePassenger(second.getPassengerId());
+        Check.that(manager.findByPassport("B200") == null, "deleted passenger still indexed");
+        Check.that(manager.createPassenger("Vikram S.", 51, "B200") != null, "deleted passport not reusable");
+
+        // Replaying a journal: a passenger saved, re-saved with a new passport, then deleted
+        PassengerManager restored = new PassengerManager();
+        restored.restorePassenger("P9", "Kiran Das", 45, "D400");
+        Check.that(restored.findByPassport("d400").getPassengerId().equals("P9"), "restored passport");
+        restored.restorePassenger("P9", "Kiran Das", 45, "E500");
+        Check.that(restored.findByPassport("D400") == null, "restore kept the old passport");
+        Check.that(restored.findByPassport("E500").getPassengerId().equals("P9"), "restore missed the new passport");
+        restored.restoreDeletion("P9");
+        Check.that(restored.findByPassport("E500") == null, "restored deletion still indexed");
+
+        PassengerManager loaded = new PassengerManager();
+        loaded.restorePassengers(List.of(new Passenger("P1", "Asha Rao", 34, "F600")));
+        Check.that(loaded.findByPassport(" f600").getPassengerId().equals("P1"), "snapshot passport");
+        Check.fails(AeroLinkException.Reason.DUPLICATE, () -> loaded.createPassenger("Copy", 30, "F600"));
+    }
+
+    /**
+     * Threads register the same passports at once: each passport goes to exactly one passenger
+     */
+    private static void concurrentRegistrationsClaimOnce() throws Exception {
+        PassengerManager manager = new PassengerManager();
+        int passports = 2_000;
+        int threads = 8;
+        AtomicInteger created = new AtomicInteger();
+
+        Check.concurrently(threads, thread -> {
+            for (int i = 0; i < passports; i++) {
+                String passport = (thread % 2 == 0 ? "x" : " X") + i;  // Same passport, spelled differently
+                try {
+                    manager.createPassenger("Thread " + thread, 30, passport);
+                    created.incrementAndGet();
+                } catch (AeroLinkException e) {
+                    Check.equal(AeroLinkException.Reason.DUPLICATE, e.getReason(), "reason");
+                }
+            }
+        });
+
+        Check.equal(passports, created.get(), "registrations that succeeded");
+        Check.equal(passports, manager.getAllPassengers().size(), "stored passengers");
+        for (int i = 0; i < passports; i++) {
+            Check.that(manager.findByPassport("X" + i) != null, "passport X" + i + " not found");
+        }
+    }
+
+    /**
+     * A reader racing registrations and deletions sees a passenger only while it is stored
+     */
+    private static void lookupOnlyReturnsStoredPassengers() throws Exception {
+        PassengerManager manager = new PassengerManager();
+        int count = 20_000;
+
+        Check.concurrently(2, thread -> {
+            if (thread == 0) {
+                ArrayList<String> ids = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    ids.add(manager.createPassenger("Passenger " + i, 30, "Q" + i).getPassengerId());
+                    if (i % 2 == 1) {
+                        manager.deletePassenger(ids.get(i - 1));
+                    }
+                }
+                return;
+            }
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < count; i++) {
+                    Passenger found = manager.findByPassport("Q" + i);
+                    if (found != null) {
+                        Passenger stored = manager.getPassengerById(found.getPassengerId());
+                        // Deleted right after the lookup is fine; never stored is not
+                        Check.that(stored == null || stored == found, "lookup returned an unstored passenger");
+                        Check.equal("Q" + i, found.getPassportNumber(), "passport of found passenger");
+                    }
+                }
+            }
+        });
+
+        for (int i = 0; i < count; i++) {
+            Check.equal(i % 2 == 1, manager.findByPassport("Q" + i) != null, "Q" + i + " indexed");
+        }
+    }
+}
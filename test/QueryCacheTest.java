@@ -0,0 +1,180 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * QueryCacheTest class to check cached searches stay exact and a change drops only the results it affects
+ * Cached route and keyword searches are compared with a scan over every flight after random
+ * creates, updates, cancellations and deletes.
+ */
+public class QueryCacheTest {
+    private static final String[] AIRPORTS = {"DEL", "BOM", "BLR", "MAA", "CCU", "HYD"};
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).withNano(0);
+
+    public static void main(String[] args) {
+        cachedResultsMatchScan();
+        changeDropsOnlyAffectedResults();
+        sortedListingsAreNotCached();
+        bookingsKeepCachedSearches();
+        normalizationIgnoresDefaultLocale();
+        System.out.println("QueryCacheTest passed");
+    }
+
+    private static void cachedResultsMatchScan() {
+        FlightManager manager = new FlightManager();
+        Random random = new Random(21);
+        ArrayList<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            flights.add(create(manager, random, "AL" + i));
+        }
+        for (int step = 0; step < 3_000; step++) {
+            String origin = AIRPORTS[random.nextInt(AIRPORTS.length)];
+            String destination = AIRPORTS[random.nextInt(AIRPORTS.length)];
+            LocalDateTime from = random.nextBoolean() ? null : BASE.plusHours(random.nextInt(48));
+            LocalDateTime to = from == null ? null : from.plusHours(12);
+            Check.equal(routeScan(manager, origin, destination, from, to),
+                    new HashSet<>(manager.findFlights(origin.toLowerCase(Locale.ROOT), " " + destination, from, to)),
+                    "route " + origin + "-" + destination + " at step " + step);
+            String keyword = random.nextBoolean() ? "al" + random.nextInt(70) : AIRPORTS[random.nextInt(AIRPORTS.length)];
+            Check.equal(keywordScan(manager, keyword), new HashSet<>(manager.searchFlights(keyword)),
+                    "search " + keyword + " at step " + step);
+
+            Flight flight = flights.get(random.nextInt(flights.size()));
+            switch (random.nextInt(6)) {
+                case 0:
+                    manager.updateFlight(flight.getFlightId(), null, AIRPORTS[random.nextInt(AIRPORTS.length)],
+                            null, null, null, null, null);
+                    break;
+                case 1:
+                    LocalDateTime departure = BASE.plusHours(random.nextInt(60));
+                    manager.updateFlight(flight.getFlightId(), null, null, null, departure, departure.plusHours(2), null, null);
+                    break;
+                case 2:
+                    manager.updateFlight(flight.getFlightId(), "AL" + random.nextInt(70), null, null, null, null, null, null);
+                    break;
+                case 3:
+                    if (!flight.isCancelled()) {
+                        manager.cancelFlight(flight.getFlightId());
+                    }
+                    break;
+                case 4:
+                    manager.deleteFlight(flight.getFlightId());
+                    flights.remove(flight);
+                    flights.add(create(manager, random, "AL" + random.nextInt(70)));
+                    break;
+                default:
+                    break;  // Read only, so the next searches can hit
+            }
+        }
+        Check.that(manager.getQueryCacheStats().getHits() > 0, "no search was answered from the cache");
+    }
+
+    /**
+     * Updating one flight drops only the results that contain it or that it now matches
+     */
+    private static void changeDropsOnlyAffectedResults() {
+        FlightManager manager = new FlightManager();
+        Flight moving = manager.createFlight("AL1", "DEL", "BOM", BASE, BASE.plusHours(2), 100, 100);
+        manager.createFlight("AL2", "BLR", "MAA", BASE, BASE.plusHours(2), 100, 100);
+        manager.createFlight("AL3", "CCU", "HYD", BASE, BASE.plusHours(2), 100, 100);
+
+        manager.findFlights("DEL", "BOM", null, null);  // Contains the flight
+        manager.findFlights("BLR", "MAA", null, null);  // Will contain the flight
+        manager.findFlights("CCU", "HYD", null, null);  // Unrelated
+        manager.searchFlights("AL1");  // Contains the flight
+        manager.searchFlights("BL");  // Will match the flight
+        manager.searchFlights("AL3");  // Unrelated
+        long invalidations = manager.getQueryCacheStats().getInvalidations();
+
+        manager.updateFlight(moving.getFlightId(), null, "BLR", "MAA", null, null, null, null);
+        Check.equal(invalidations + 4, manager.getQueryCacheStats().getInvalidations(), "results dropped");
+        Check.equal(2, manager.getQueryCacheStats().getSize(), "results kept");
+
+        long hits = manager.getQueryCacheStats().getHits();
+        Check.equal(1, manager.findFlights("CCU", "HYD", null, null).size(), "unrelated route");
+        Check.equal(1, manager.searchFlights("AL3").size(), "unrelated search");
+        Check.equal(hits + 2, manager.getQueryCacheStats().getHits(), "unrelated results still cached");
+        Check.equal(2, manager.findFlights("BLR", "MAA", null, null).size(), "route the flight moved to");
+        Check.equal(0, manager.findFlights("DEL", "BOM", null, null).size(), "route the flight left");
+        Check.equal(2, manager.searchFlights("BL").size(), "search the flight now matches");
+    }
+
+    private static void sortedListingsAreNotCached() {
+        FlightManager manager = new FlightManager();
+        manager.createFlight("AL1", "DEL", "BOM", BASE, BASE.plusHours(2), 100, 100);
+        manager.getSortedFlights("departure");
+        manager.getSortedFlights("DEPARTURE");
+        QueryCache.Stats stats = manager.getQueryCacheStats();
+        Check.equal(0L, stats.getHits() + stats.getMisses(), "sorted listing lookups in the cache");
+        Check.equal(0, stats.getSize(), "cached results");
+    }
+
+    /**
+     * Cached searches do not depend on seat counts, so bookings leave them in place
+     */
+    private static void bookingsKeepCachedSearches() {
+        FlightManager manager = new FlightManager();
+        Flight flight = manager.createFlight("AL1", "DEL", "BOM", BASE, BASE.plusHours(2), 100, 100);
+        manager.findFlights("DEL", "BOM", null, null);
+        flight.bookSeat();
+        flight.cancelBooking();
+        Check.equal(List.of(flight), manager.findFlights("DEL", "BOM", null, null), "route after bookings");
+        QueryCache.Stats stats = manager.getQueryCacheStats();
+        Check.equal(1L, stats.getHits(), "route lookups answered from the cache");
+        Check.equal(0L, stats.getInvalidations(), "results dropped by bookings");
+    }
+
+    /**
+     * In a Turkish default locale "I" lower-cases to a dotless i; searches must not depend on it
+     */
+    private static void normalizationIgnoresDefaultLocale() {
+        Locale original = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            FlightManager manager = new FlightManager();
+            Flight flight = manager.createFlight("TK1", "IST", "BOM", BASE, BASE.plusHours(7), 100, 100);
+            for (int round = 0; round < 2; round++) {  // Once computed, once from the cache
+                Check.equal(List.of(flight), manager.searchFlights("ist"), "search in Turkish locale");
+                Check.equal(List.of(flight), manager.findFlights("ist", "bom", null, null), "route in Turkish locale");
+            }
+            Check.equal(List.of(flight), manager.getSortedFlights("DEPARTURE"), "sorted listing in Turkish locale");
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    private static HashSet<Flight> routeScan(FlightManager manager, String origin, String destination,
+                                             LocalDateTime from, LocalDateTime to) {
+        HashSet<Flight> matches = new HashSet<>();
+        for (Flight flight : manager.getAllFlights()) {
+            if (!flight.isCancelled() && flight.getOrigin().equals(origin) && flight.getDestination().equals(destination)
+                    && (from == null || !flight.getDepartureTime().isBefore(from))
+                    && (to == null || !flight.getDepartureTime().isAfter(to))) {
+                matches.add(flight);
+            }
+        }
+        return matches;
+    }
+
+    private static HashSet<Flight> keywordScan(FlightManager manager, String keyword) {
+        String key = keyword.toLowerCase(Locale.ROOT);
+        HashSet<Flight> matches = new HashSet<>();
+        for (Flight flight : manager.getAllFlights()) {
+            if (flight.getFlightName().toLowerCase(Locale.ROOT).contains(key)
+                    || flight.getOrigin().toLowerCase(Locale.ROOT).contains(key)
+                    || flight.getDestination().toLowerCase(Locale.ROOT).contains(key)) {
+                matches.add(flight);
+            }
+        }
+        return matches;
+    }
+
+    private static Flight create(FlightManager manager, Random random, String name) {
+        LocalDateTime departure = BASE.plusHours(random.nextInt(60));
+        return manager.createFlight(name, AIRPORTS[random.nextInt(AIRPORTS.length)],
+                AIRPORTS[random.nextInt(AIRPORTS.length)], departure, departure.plusHours(2), 100, 100);
+    }
+}
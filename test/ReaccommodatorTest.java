@@ -0,0 +1,184 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * ReaccommodatorTest class to check the passengers of a cancelled flight are moved fairly and without overselling
+ * Also checks that waitlisted passengers keep their claim on seats, that a passenger already booked on
+ * one alternative is moved to the next, and that one failed move does not lose the others.
+ */
+public class ReaccommodatorTest {
+    private static final LocalDateTime DEPARTURE = LocalDateTime.now().plusDays(2).withNano(0);
+
+    public static void main(String[] args) throws InterruptedException {
+        movesEveryoneInBookingOrder();
+        waitlistedSeatsAreLeftAlone();
+        alreadyBookedPassengerTriesNextAlternative();
+        failedMovesAreReportedWithTheRest();
+        System.out.println("ReaccommodatorTest passed");
+    }
+
+    private static void movesEveryoneInBookingOrder() {
+        Setup setup = new Setup(60);
+        Flight cancelled = setup.flight("AL1", 0, 50);
+        Flight early = setup.flight("AL2", 2, 20);
+        Flight late = setup.flight("AL3", 5, 25);
+        Flight otherRoute = setup.flights.createFlight("AL4", "DEL", "BLR", DEPARTURE, DEPARTURE.plusHours(2), 100, 100);
+        ArrayList<Booking> original = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            original.add(setup.bookings.book(setup.passengers.get(i), cancelled.getFlightId()));
+        }
+        setup.bookings.book(setup.passengers.get(55), early.getFlightId());
+
+        setup.flights.cancelFlight(cancelled.getFlightId());
+        Reaccommodator.Result result = setup.reaccommodator.reaccommodate(cancelled.getFlightId());
+
+        Check.equal(44, result.getRebooked().size(), "rebooked");
+        Check.equal(6, result.getUnplaced().size(), "unplaced");
+        Check.that(result.getFailed().isEmpty() && result.getAlreadyBooked().isEmpty(), "nothing else reported");
+        // First booked, first re-booked: the earliest passengers get the earliest alternative
+        for (int i = 0; i < 44; i++) {
+            Booking moved = result.getRebooked().get(i);
+            Check.equal(original.get(i).getPassengerId(), moved.getPassengerId(), "passenger at place " + i);
+            Check.equal((i < 19 ? early : late).getFlightId(), moved.getFlightId(), "flight at place " + i);
+        }
+        Check.equal(original.subList(44, 50), result.getUnplaced(), "passengers left without a seat");
+        Check.equal(0, otherRoute.getBookedSeats(), "seats on another route");
+        setup.checkSeats();
+        Check.fails(AeroLinkException.Reason.INVALID_STATE, () -> setup.reaccommodator.reaccommodate(early.getFlightId()));
+    }
+
+    /**
+     * Seats added to a flight with a waitlist belong to the waitlisted passengers, not to moved ones
+     */
+    private static void waitlistedSeatsAreLeftAlone() throws InterruptedException {
+        Setup setup = new Setup(20);
+        Flight cancelled = setup.flight("AL1", 0, 5);
+        Flight withWaitlist = setup.flight("AL2", 1, 2);
+        Flight later = setup.flight("AL3", 3, 10);
+        for (int i = 0; i < 5; i++) {
+            setup.bookings.book(setup.passengers.get(i), cancelled.getFlightId());
+        }
+        setup.bookings.book(setup.passengers.get(10), withWaitlist.getFlightId());
+        setup.bookings.book(setup.passengers.get(11), withWaitlist.getFlightId());
+        setup.bookings.joinWaitlist(setup.passengers.get(12), withWaitlist.getFlightId(), 1);
+        Thread.sleep(200);  // Joining schedules a promotion; let it find the flight still full
+        setup.flights.updateFlight(withWaitlist.getFlightId(), null, null, null, null, null, 10, null);
+
+        setup.flights.cancelFlight(cancelled.getFlightId());
+        Reaccommodator.Result result = setup.reaccommodator.reaccommodate(cancelled.getFlightId());
+
+        Check.equal(5, result.getRebooked().size(), "rebooked");
+        for (Booking moved : result.getRebooked()) {
+            Check.equal(later.getFlightId(), moved.getFlightId(), "flight of a moved passenger");
+        }
+        Check.equal(2, withWaitlist.getBookedSeats(), "seats taken on the flight with a waitlist");
+        Check.equal(1, setup.bookings.getWaitlist(withWaitlist.getFlightId()).size(), "passengers still waitlisted");
+        setup.checkSeats();
+    }
+
+    private static void alreadyBookedPassengerTriesNextAlternative() {
+        Setup setup = new Setup(10);
+        Flight cancelled = setup.flight("AL1", 0, 5);
+        Flight first = setup.flight("AL2", 1, 5);
+        Flight second = setup.flight("AL3", 2, 5);
+        String both = setup.passengers.get(0);  // Booked on the cancelled flight and on the first alternative
+        Booking kept = setup.bookings.book(both, first.getFlightId());
+        setup.bookings.book(both, cancelled.getFlightId());
+        setup.bookings.book(setup.passengers.get(1), cancelled.getFlightId());
+
+        setup.flights.cancelFlight(cancelled.getFlightId());
+        Reaccommodator.Result result = setup.reaccommodator.reaccommodate(cancelled.getFlightId());
+
+        Check.equal(2, result.getRebooked().size(), "rebooked");
+        Check.that(result.getAlreadyBooked().isEmpty(), "passenger reported as already booked");
+        Check.equal(second.getFlightId(), result.getRebooked().get(0).getFlightId(), "flight of the passenger booked on both");
+        Check.equal(first.getFlightId(), result.getRebooked().get(1).getFlightId(), "flight of the other passenger");
+        Check.that(setup.bookings.getBookingById(kept.getBookingId()) != null, "existing booking on the alternative");
+        setup.checkSeats();
+
+        // With no other alternative the passenger keeps the booking they already hold
+        Setup only = new Setup(10);
+        Flight dead = only.flight("AL1", 0, 5);
+        Flight alternative = only.flight("AL2", 1, 5);
+        only.bookings.book(only.passengers.get(0), alternative.getFlightId());
+        Booking duplicate = only.bookings.book(only.passengers.get(0), dead.getFlightId());
+        only.flights.cancelFlight(dead.getFlightId());
+        Reaccommodator.Result alone = only.reaccommodator.reaccommodate(dead.getFlightId());
+        Check.equal(List.of(duplicate), alone.getAlreadyBooked(), "already booked");
+        Check.that(only.bookings.getBookingById(duplicate.getBookingId()) == null, "booking on the cancelled flight kept");
+        only.checkSeats();
+    }
+
+    /**
+     * The journal rejects one passenger's new booking: everyone else is still moved and no seat is lost
+     */
+    private static void failedMovesAreReportedWithTheRest() {
+        Setup setup = new Setup(30);
+        Flight cancelled = setup.flight("AL1", 0, 30);
+        Flight alternative = setup.flight("AL2", 1, 40);
+        for (int i = 0; i < 30; i++) {
+            setup.bookings.book(setup.passengers.get(i), cancelled.getFlightId());
+        }
+        String unlucky = setup.passengers.get(7);
+        setup.bookings.setChangeLog(new ChangeLog() {
+            @Override
+            public long bookingCreated(Booking booking) {
+                if (booking.getPassengerId().equals(unlucky)) {
+                    throw new UncheckedIOException("Change could not be saved: disk full", new IOException("disk full"));
+                }
+                return 0;
+            }
+        });
+
+        setup.flights.cancelFlight(cancelled.getFlightId());
+        Reaccommodator.Result result = setup.reaccommodator.reaccommodate(cancelled.getFlightId());
+
+        Check.equal(29, result.getRebooked().size(), "rebooked");
+        Check.equal(1, result.getFailed().size(), "failed");
+        Check.equal(unlucky, result.getFailed().get(0).getPassengerId(), "passenger whose move failed");
+        Check.that(result.getError() instanceof UncheckedIOException, "error " + result.getError());
+        Check.equal(29, alternative.getBookedSeats(), "seats on the alternative");
+        setup.checkSeats();
+    }
+
+    /**
+     * Managers, passengers and a re-accommodator sharing them
+     */
+    private static class Setup {
+        final FlightManager flights = new FlightManager();
+        final PassengerManager passengerManager = new PassengerManager();
+        final BookingManager bookings = new BookingManager(flights, passengerManager);
+        final Reaccommodator reaccommodator = new Reaccommodator(flights, bookings);
+        final ArrayList<String> passengers = new ArrayList<>();
+
+        Setup(int passengerCount) {
+            for (int i = 0; i < passengerCount; i++) {
+                passengers.add(passengerManager.createPassenger("Passenger " + i, 30, "RA" + i).getPassengerId());
+            }
+        }
+
+        Flight flight(String name, int hoursAfter, int capacity) {
+            LocalDateTime departure = DEPARTURE.plusHours(hoursAfter);
+            return flights.createFlight(name, "DEL", "BOM", departure, departure.plusHours(2), capacity, 100);
+        }
+
+        /**
+         * Every flight's booked seats equal its manifest, and no pair is booked twice
+         */
+        void checkSeats() {
+            for (Flight flight : flights.getAllFlights()) {
+                ArrayList<Booking> manifest = bookings.getBookingsForFlight(flight.getFlightId());
+                Check.equal(manifest.size(), flight.getBookedSeats(), "booked seats of " + flight.getFlightName());
+                Check.that(flight.getBookedSeats() <= flight.getCapacity(), "oversold " + flight.getFlightName());
+                HashSet<String> seen = new HashSet<>();
+                for (Booking booking : manifest) {
+                    Check.that(seen.add(booking.getPassengerId()), "passenger booked twice on " + flight.getFlightName());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * RecordStoreTest class to check record storage keeps insertion order and deletes in constant time
+ * Compared with a plain list after random adds and removes; purging half the records must scale
+ * linearly with the number purged, and readers must be able to iterate while records are removed.
+ */
+public class RecordStoreTest {
+    public static void main(String[] args) throws Exception {
+        keepsInsertionOrderAfterDeletes();
+        iterationToleratesConcurrentRemoval();
+        deleteIsConstantTime();
+        managersKeepViewOrderAfterDeletes();
+        System.out.println("RecordStoreTest passed");
+    }
+
+    private static void keepsInsertionOrderAfterDeletes() {
+        RecordStore<String> store = new RecordStore<>();
+        ArrayList<String> expected = new ArrayList<>();
+        Random random = new Random(14);
+        for (int step = 0; step < 20_000; step++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                String id = IdGenerator.nextId();
+                Check.that(store.add(id, id), "add of a new ID refused");
+                expected.add(id);
+            } else {
+                String id = expected.remove(random.nextInt(expected.size()));
+                Check.equal(id, store.remove(id.toLowerCase()), "removed record");
+            }
+        }
+        Check.equal(expected, store.snapshot(), "records in insertion order");
+        Check.equal(expected.size(), store.size(), "size");
+
+        String first = expected.get(0);
+        Check.that(!store.add(first, "again"), "duplicate ID added");
+        Check.that(store.remove(first) != null && store.remove(first) == null, "second removal found a record");
+        Check.that(store.get(first) == null && !store.contains(first), "removed record still found");
+        Check.that(store.get("not an id") == null, "invalid ID found");
+
+        // Removing the tail and adding again links the new record at the end
+        String last = expected.remove(expected.size() - 1);
+        expected.remove(first);
+        store.remove(last);
+        String added = IdGenerator.nextId();
+        store.add(added, added);
+        expected.add(added);
+        Check.equal(expected, store.snapshot(), "order after removing the tail");
+    }
+
+    /**
+     * A reader walks the store while a writer removes every other record and appends new ones
+     */
+    private static void iterationToleratesConcurrentRemoval() throws Exception {
+        RecordStore<Long> store = new RecordStore<>();
+        ArrayList<String> ids = new ArrayList<>();
+        for (long i = 0; i < 50_000; i++) {
+            String id = IdGenerator.nextId();
+            ids.add(id);
+            store.add(id, i);
+        }
+
+        Check.concurrently(2, thread -> {
+            if (thread == 0) {
+                for (int i = 0; i < ids.size(); i += 2) {
+                    store.remove(ids.get(i));
+                    store.add(IdGenerator.nextId(), (long) ids.size() + i);
+                }
+                return;
+            }
+            for (int round = 0; round < 20; round++) {
+                long previous = -1;
+                for (Long value : store.values()) {
+                    Check.that(value > previous, "iteration went backwards: " + previous + " then " + value);
+                    previous = value;
+                }
+            }
+        });
+
+        // Every odd record survived, followed by the appended ones; as many added as removed
+        Iterator<Long> values = store.values().iterator();
+        for (long i = 1; i < ids.size(); i += 2) {
+            Check.equal(i, values.next(), "surviving record");
+        }
+        Check.equal(ids.size(), store.size(), "size after purge");
+    }
+
+    /**
+     * Purging every other record of eight times as many records should take about eight times as long, not 64
+     */
+    private static void deleteIsConstantTime() {
+        purgeNanos(100_000);  // Warm up
+        long small = Long.MAX_VALUE;
+        long large = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            small = Math.min(small, purgeNanos(50_000));
+            large = Math.min(large, purgeNanos(400_000));
+        }
+        double ratio = (double) large / small;
+        // Linear is 8, quadratic 64; leave room for cache and GC effects
+        Check.that(ratio < 20, String.format("purge of 400k took %.1fx the purge of 50k", ratio));
+    }
+
+    private static long purgeNanos(int count) {
+        RecordStore<String> store = new RecordStore<>();
+        ArrayList<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = IdGenerator.nextId();
+            ids.add(id);
+            store.add(id, id);
+        }
+        System.gc();  // Earlier tests leave garbage; collecting it mid-purge would swamp the timing
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i += 2) {
+            store.remove(ids.get(i));
+        }
+        long elapsed = System.nanoTime() - start;
+        Check.equal(count / 2, store.size(), "size after purge");
+        return elapsed;
+    }
+
+    /**
+     * The view-all lists keep registration order for passengers and flights after deletes
+     */
+    private static void managersKeepViewOrderAfterDeletes() {
+        PassengerManager passengerManager = new PassengerManager();
+        ArrayList<Passenger> passengers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            passengers.add(passengerManager.createPassenger("Passenger " + i, 30, "R" + i));
+        }
+        for (int i = 0; i < 30; i += 3) {
+            passengerManager.deletePassenger(passengers.get(i).getPassengerId());
+        }
+        passengers.removeIf(passenger -> passengerManager.getPassengerById(passenger.getPassengerId()) == null);
+        passengers.add(passengerManager.createPassenger("Late", 30, "R99"));
+        Check.equal(passengers, passengerManager.getAllPassengers(), "passengers in registration order");
+
+        FlightManager flightManager = new FlightManager();
+        LocalDateTime departure = LocalDateTime.now().plusDays(1);
+        ArrayList<Flight> flights = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            // Departures in reverse so insertion order differs from any sorted order
+            flights.add(flightManager.createFlight("AL" + i, "DEL", "BOM", departure.minusMinutes(i),
+                    departure.minusMinutes(i).plusHours(2), 100, 100 + i));
+        }
+        for (int i = 1; i < 30; i += 4) {
+            flightManager.deleteFlight(flights.get(i).getFlightId());
+        }
+        flights.removeIf(flight -> flightManager.getFlightById(flight.getFlightId()) == null);
+        Check.equal(List.copyOf(flights), List.copyOf(flightManager.getAllFlights()), "flights in creation order");
+    }
+}
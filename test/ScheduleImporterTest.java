@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ScheduleImporterTest class to check schedule files are parsed, validated and loaded line by line
+ * A bad line is reported with its number and never stops the lines around it from loading.
+ */
+public class ScheduleImporterTest {
+    private static final String HEADER = "name,origin,destination,departure,arrival,capacity,price";
+
+    public static void main(String[] args) throws Exception {
+        datesAreParsedAndCheckedStrictly();
+        badRowsAreReportedWithTheirLineNumbers();
+        invalidFlightsAreRejectedByValidateFlight();
+        duplicateRowsAreImportedAsSeparateFlights();
+        chunksKeepFileOrderAndLineNumbers();
+        System.out.println("ScheduleImporterTest passed");
+    }
+
+    private static void datesAreParsedAndCheckedStrictly() {
+        Check.equal(LocalDateTime.of(2030, 6, 15, 9, 5), ScheduleImporter.parseDateTime("09:05 15-06-2030"), "date");
+        Check.equal(LocalDateTime.of(2028, 2, 29, 23, 59), ScheduleImporter.parseDateTime("23:59 29-02-2028"), "leap day");
+        for (String text : List.of("", "9:05 15-06-2030", "09:05 15-06-30", "09:05 15/06/2030", "09-05 15-06-2030",
+                "0a:05 15-06-2030", "09:05 15-06-2030 ", "+9:05 15-06-2030", "24:00 15-06-2030", "09:60 15-06-2030",
+                "09:05 31-06-2030", "09:05 29-02-2030", "09:05 15-13-2030", "09:05 00-06-2030")) {
+            try {
+                ScheduleImporter.parseDateTime(text);
+            } catch (IllegalArgumentException | DateTimeException e) {
+                continue;
+            }
+            throw new AssertionError("date '" + text + "' was accepted");
+        }
+    }
+
+    private static void badRowsAreReportedWithTheirLineNumbers() throws IOException {
+        FlightManager manager = new FlightManager();
+        ScheduleImporter.ImportResult result = importLines(manager,
+                HEADER,
+                row("AL1", "10:00 15-06-2030", "12:00 15-06-2030", "100", "4500"),
+                "AL2,DEL,BOM,10:00 15-06-2030,12:00 15-06-2030,100",  // Too few fields
+                row("AL3", "10:00 15-06-2030", "12:00 15-06-2030", "100", "4500") + ",",  // Too many fields
+                ",DEL,BOM,10:00 15-06-2030,12:00 15-06-2030,100,4500",  // No name
+                row("AL5", "10:00 2030-06-15", "12:00 15-06-2030", "100", "4500"),
+                row("AL6", "10:00 15-06-2030", "12:00 15-06-2030", "ten", "4500"),
+                "",  // Blank lines are skipped
+                row("AL7", "10:00 15-06-2030", "12:00 15-06-2030", "100", "free"),
+                "AL8\tDEL\tBOM\t13:00 15-06-2030\t15:00 15-06-2030\t120\t5200");  // Tab separated
+        Check.equal(2L, result.getImportedCount(), "imported flights");
+        Check.equal(6L, result.getErrorCount(), "rejected lines");
+        Check.equal(List.of(3L, 4L, 5L, 6L, 7L, 9L), lineNumbersOf(result), "lines reported");
+        Check.equal(List.of("AL1", "AL8"), namesOf(manager.getAllFlights()), "flights loaded");
+
+        Flight tabbed = manager.getAllFlights().get(1);
+        Check.equal("DEL", tabbed.getOrigin(), "origin");
+        Check.equal("BOM", tabbed.getDestination(), "destination");
+        Check.equal(LocalDateTime.of(2030, 6, 15, 15, 0), tabbed.getArrivalTime(), "arrival");
+        Check.equal(120, tabbed.getCapacity(), "capacity");
+        Check.equal(5200.0, tabbed.getPrice(), "price");
+
+        // Without a header the first line is a flight like any other
+        FlightManager other = new FlightManager();
+        result = importLines(other, row("AL1", "10:00 15-06-2030", "12:00 15-06-2030", "100", "4500"), HEADER);
+        Check.equal(1L, result.getImportedCount(), "imported flights without a header");
+        Check.equal(List.of(2L), lineNumbersOf(result), "header line after the first reported");
+    }
+
+    /**
+     * Lines that parse but break the rules createFlight enforces carry FlightManager.validateFlight's message
+     */
+    private static void invalidFlightsAreRejectedByValidateFlight() throws IOException {
+        FlightManager manager = new FlightManager();
+        ScheduleImporter.ImportResult result = importLines(manager,
+                row("AL1", "12:00 15-06-2030", "10:00 15-06-2030", "100", "4500"),
+                row("AL2", "10:00 15-06-2030", "12:00 15-06-2030", "0", "4500"),
+                row("AL3", "10:00 15-06-2030", "12:00 15-06-2030", "-5", "4500"),
+                row("AL4", "10:00 15-06-2030", "12:00 15-06-2030", "100", "0"),
+                row("AL5", "10:00 15-06-2030", "12:00 15-06-2030", "100", "NaN"),
+                row("AL6", "10:00 15-06-2030", "10:00 15-06-2030", "1", "0.5"));  // Valid, if short
+        Check.equal(List.of("AL6"), namesOf(manager.getAllFlights()), "flights loaded");
+        ArrayList<String> messages = new ArrayList<>();
+        for (ScheduleImporter.LineError error : result.getErrors()) {
+            messages.add(error.getMessage());
+        }
+        Check.equal(List.of("Arrival time cannot be before departure time.", "Capacity must be greater than zero.",
+                "Capacity must be greater than zero.", "Price must be greater than zero.",
+                "Price must be greater than zero."), messages, "messages");
+        Check.equal("Line 1: Arrival time cannot be before departure time.", result.getErrors().get(0).toString(),
+                "error text");
+    }
+
+    /**
+     * The schedule is not checked for repeats, just as createFlight does not refuse a second identical flight
+     */
+    private static void duplicateRowsAreImportedAsSeparateFlights() throws IOException {
+        FlightManager manager = new FlightManager();
+        String line = row("AL1", "10:00 15-06-2030", "12:00 15-06-2030", "100", "4500");
+        ScheduleImporter.ImportResult result = importLines(manager, HEADER, line, line, line);
+        Check.equal(3L, result.getImportedCount(), "imported flights");
+        Check.equal(0L, result.getErrorCount(), "rejected lines");
+
+        List<Flight> found = manager.findFlights("DEL", "BOM", null, null);
+        Check.equal(3, found.size(), "flights on the route");
+        Check.that(!found.get(0).getFlightId().equals(found.get(1).getFlightId())
+                && !found.get(1).getFlightId().equals(found.get(2).getFlightId())
+                && !found.get(0).getFlightId().equals(found.get(2).getFlightId()), "duplicate rows share a flight ID");
+
+        // Importing the same file again adds the flights again
+        importLines(manager, HEADER, line, line, line);
+        Check.equal(6, manager.findFlights("DEL", "BOM", null, null).size(), "flights after a second import");
+    }
+
+    /**
+     * More lines than fit in one chunk, parsed on several threads, with every tenth line bad
+     */
+    private static void chunksKeepFileOrderAndLineNumbers() throws IOException {
+        FlightManager manager = new FlightManager();
+        StringBuilder file = new StringBuilder(HEADER).append('\n');
+        ArrayList<String> expectedNames = new ArrayList<>();
+        int lines = 20000;
+        for (int i = 0; i < lines; i++) {
+            String name = "AL" + i;
+            if (i % 10 == 9) {
+                file.append(row(name, "10:00 15-06-2030", "12:00 15-06-2030", "0", "4500")).append('\n');
+            } else {
+                file.append(row(name, "10:00 15-06-2030", "12:00 15-06-2030", "100", "4500")).append('\n');
+                expectedNames.add(name);
+            }
+        }
+        ScheduleImporter.ImportResult result = new ScheduleImporter(manager, 3).importSchedule(new StringReader(file.toString()));
+
+        Check.equal((long) expectedNames.size(), result.getImportedCount(), "imported flights");
+        Check.equal(expectedNames, namesOf(manager.getAllFlights()), "flights in file order");
+        Check.equal(lines / 10L, result.getErrorCount(), "rejected lines");
+        Check.equal(1000, result.getErrors().size(), "errors kept");
+        for (int i = 0; i < result.getErrors().size(); i++) {
+            // Line 1 is the header, so the data line i sits on line i + 2
+            Check.equal(10L * i + 11, result.getErrors().get(i).getLineNumber(), "line of error " + i);
+        }
+    }
+
+    private static ScheduleImporter.ImportResult importLines(FlightManager manager, String... lines) throws IOException {
+        return new ScheduleImporter(manager, 2).importSchedule(new StringReader(String.join("\n", lines)));
+    }
+
+    private static String row(String name, String departure, String arrival, String capacity, String price) {
+        return String.join(",", name, "DEL", "BOM", departure, arrival, capacity, price);
+    }
+
+    private static ArrayList<Long> lineNumbersOf(ScheduleImporter.ImportResult result) {
+        ArrayList<Long> lineNumbers = new ArrayList<>();
+        for (ScheduleImporter.LineError error : result.getErrors()) {
+            lineNumbers.add(error.getLineNumber());
+        }
+        return lineNumbers;
+    }
+
+    private static ArrayList<String> namesOf(List<Flight> flights) {
+        ArrayList<String> names = new ArrayList<>();
+        for (Flight flight : flights) {
+            names.add(flight.getFlightName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,117 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ServiceDispatcherTest class to check the dispatcher hands every pending service to a crew and completes it
+ * Also checks that a service without a location neither gets in nor stops the dispatcher, and that
+ * crews serve their own location before helping out at another one.
+ */
+public class ServiceDispatcherTest {
+    public static void main(String[] args) throws Exception {
+        completesEveryService();
+        serviceWithoutLocationIsHandled();
+        freeLocalCrewIsPreferred();
+        busyLocationGetsHelp();
+        System.out.println("ServiceDispatcherTest passed");
+    }
+
+    private static void completesEveryService() throws Exception {
+        ServiceManager manager = new ServiceManager();
+        for (int i = 0; i < 200; i++) {
+            manager.request("Catering", "Meals " + i, "Gate " + (i % 4), 1 + i % 5);
+        }
+        ServiceDispatcher dispatcher = new ServiceDispatcher(manager, 50, Duration.ofMillis(5));
+        dispatcher.start();
+        Check.fails(AeroLinkException.Reason.INVALID_STATE, dispatcher::start);
+        for (int i = 0; i < 300; i++) {  // Requests arriving while the crews work
+            manager.request("Refueling", "Fuel " + i, "Gate " + (i % 4), 1 + i % 5);
+        }
+        awaitCompleted(dispatcher, 500);
+        dispatcher.stop();
+
+        ServiceDispatcher.Stats stats = dispatcher.getStats();
+        Check.that(!dispatcher.isRunning(), "dispatcher still running");
+        Check.equal(500L, stats.getDispatched(), "dispatched");
+        Check.equal(500L, stats.getCompleted(), "completed");
+        Check.equal(0, stats.getBusyCrews(), "busy crews after stop");
+        Check.equal(0L, stats.getStolen(), "services taken from other locations by crews serving everywhere");
+        Check.equal(0, manager.getPendingCount(), "pending");
+        for (Service service : manager.services()) {
+            Check.that(service.isCompleted(), "service " + service.getServiceId() + " not completed");
+        }
+        Check.that(stats.getThroughputPerSecond() > 0 && stats.getAverageWaitMillis() >= 0, "stats " + stats);
+    }
+
+    private static void serviceWithoutLocationIsHandled() throws Exception {
+        ServiceManager manager = new ServiceManager();
+        Check.fails(AeroLinkException.Reason.INVALID_INPUT, () -> manager.request("Catering", "Meals", null, 3));
+        Check.fails(AeroLinkException.Reason.INVALID_INPUT, () -> manager.request("Catering", "Meals", "  ", 3));
+
+        // A journal written before locations were required can still restore one
+        Service unplaced = new Service(IdGenerator.nextId(), "Catering", "Meals", null, LocalDateTime.now(), 1);
+        manager.restoreService(unplaced);
+        ServiceDispatcher dispatcher = new ServiceDispatcher(manager, Map.of("Gate 1", 1), service -> Duration.ZERO);
+        dispatcher.start();
+        awaitCompleted(dispatcher, 1);
+        Check.that(unplaced.isCompleted(), "service without a location not completed");
+
+        Service later = manager.request("Catering", "Meals", "Gate 1", 3);
+        awaitCompleted(dispatcher, 2);
+        Check.that(dispatcher.isRunning() && later.isCompleted(), "dispatcher stopped working");
+        dispatcher.stop();
+    }
+
+    /**
+     * A service goes to an idle crew of its own location, not to whichever idle crew comes first
+     */
+    private static void freeLocalCrewIsPreferred() throws Exception {
+        Map<String, Integer> crews = new LinkedHashMap<>();
+        crews.put("Gate A", 1);  // First in line, but with nothing to do at its own location
+        crews.put("Gate B", 1);
+
+        // Work already queued when the dispatcher starts
+        ServiceManager manager = new ServiceManager();
+        manager.request("Refueling", "Fuel", "Gate B", 1);
+        ServiceDispatcher dispatcher = new ServiceDispatcher(manager, crews, service -> Duration.ZERO);
+        dispatcher.start();
+        awaitCompleted(dispatcher, 1);
+        // Work arriving while every crew waits
+        Thread.sleep(20);
+        manager.request("Catering", "Meals", "gate b", 2);
+        awaitCompleted(dispatcher, 2);
+        dispatcher.stop();
+        Check.equal(0L, dispatcher.getStats().getStolen(), "services taken by the crew of another location");
+    }
+
+    /**
+     * Crews at an idle location help a busy one; the busy location still gets all its own crews' time
+     */
+    private static void busyLocationGetsHelp() throws Exception {
+        ServiceManager manager = new ServiceManager();
+        for (int i = 0; i < 40; i++) {
+            manager.request("Maintenance", "Check " + i, "Gate B", 1 + i % 5);
+        }
+        manager.request("Catering", "Meals", "Gate A", 5);
+        Map<String, Integer> crews = new LinkedHashMap<>();
+        crews.put("Gate A", 2);
+        crews.put("Gate B", 2);
+        ServiceDispatcher dispatcher = new ServiceDispatcher(manager, crews, service -> Duration.ofMillis(10));
+        dispatcher.start();
+        awaitCompleted(dispatcher, 41);
+        dispatcher.stop();
+        long stolen = dispatcher.getStats().getStolen();
+        // A's crews handle A's one service and then share B's backlog with B's two crews
+        Check.that(stolen > 5 && stolen < 35, "services taken from Gate B by Gate A's crews: " + stolen);
+    }
+
+    static void awaitCompleted(ServiceDispatcher dispatcher, long count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (dispatcher.getStats().getCompleted() < count) {
+            Check.that(System.nanoTime() < deadline,
+                    "only " + dispatcher.getStats().getCompleted() + " of " + count + " services completed");
+            Thread.sleep(5);
+        }
+    }
+}
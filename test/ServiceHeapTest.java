@@ -0,0 +1,137 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ServiceHeapTest class to check the indexed priority heap and the pending-service queue built on it
+ * Every operation is compared with a brute-force sorted list, and completing one service in a
+ * queue of 100k must cost microseconds rather than a rebuild.
+ */
+public class ServiceHeapTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    public static void main(String[] args) {
+        ordersByPriorityThenRequestTime();
+        matchesSortedList();
+        managerKeepsOnlyPendingServicesQueued();
+        completeIsFastInLargeQueue();
+        System.out.println("ServiceHeapTest passed");
+    }
+
+    private static void ordersByPriorityThenRequestTime() {
+        Service lateUrgent = service(1, 30);
+        Service early = service(3, 0);
+        Service late = service(3, 10);
+        Service sameTimeFirst = service(3, 5);
+        Service sameTimeSecond = service(3, 5);  // Requested later, same timestamp
+        IndexedServiceHeap heap = new IndexedServiceHeap();
+        for (Service service : List.of(sameTimeSecond, late, early, lateUrgent, sameTimeFirst)) {
+            Check.that(heap.add(service), "add refused");
+        }
+        Check.that(!heap.add(early), "service queued twice");
+
+        Check.equal(List.of(lateUrgent, early, sameTimeFirst, sameTimeSecond, late), heap.toSortedList(), "order");
+        Check.equal(List.of(lateUrgent, early, sameTimeFirst), heap.topK(3), "top 3");
+        Check.that(heap.peek() == lateUrgent, "peek");
+
+        Check.that(heap.remove(early.getServiceId()) == early, "remove by ID");
+        Check.that(heap.remove(early.getServiceId()) == null, "removed twice");
+        Check.that(heap.changePriority(late.getServiceId(), 1), "priority change refused");
+        Check.that(!heap.changePriority(early.getServiceId(), 1), "priority of a removed service changed");
+        Check.equal(List.of(late, lateUrgent, sameTimeFirst, sameTimeSecond), heap.toSortedList(), "order after changes");
+        Check.that(heap.poll() == late && heap.poll() == lateUrgent, "poll order");
+        Check.equal(2, heap.size(), "size");
+    }
+
+    /**
+     * Random adds, removals, priority changes and polls against a list sorted after every step
+     */
+    private static void matchesSortedList() {
+        Random random = new Random(15);
+        IndexedServiceHeap heap = new IndexedServiceHeap();
+        ArrayList<Service> expected = new ArrayList<>();
+        for (int step = 0; step < 20_000; step++) {
+            int action = random.nextInt(10);
+            if (expected.isEmpty() || action < 4) {
+                Service service = service(1 + random.nextInt(5), random.nextInt(60));
+                heap.add(service);
+                expected.add(service);
+            } else if (action < 6) {
+                Service service = expected.remove(random.nextInt(expected.size()));
+                Check.that(heap.remove(service.getServiceId()) == service, "remove by ID");
+            } else if (action < 8) {
+                Service service = expected.get(random.nextInt(expected.size()));
+                Check.that(heap.changePriority(service.getServiceId(), 1 + random.nextInt(5)), "priority change");
+            } else {
+                expected.sort(null);
+                Check.that(heap.poll() == expected.remove(0), "poll returned the wrong service");
+            }
+            if (step % 500 == 0) {
+                expected.sort(null);
+                Check.equal(expected, heap.toSortedList(), "queue at step " + step);
+                Check.equal(expected.subList(0, Math.min(7, expected.size())), heap.topK(7), "top 7 at step " + step);
+            }
+        }
+        expected.sort(null);
+        for (Service service : expected) {
+            Check.that(heap.poll() == service, "drain order");
+        }
+        Check.that(heap.isEmpty() && heap.poll() == null, "heap not empty after drain");
+    }
+
+    private static void managerKeepsOnlyPendingServicesQueued() {
+        ServiceManager manager = new ServiceManager();
+        Service cleaning = manager.request("Aircraft Cleaning", "Cabin", "Gate 1", 3);
+        Service fuel = manager.request("Refueling", "Top up", "Gate 2", 2);
+        Service catering = manager.request("Catering", "Meals", "Gate 1", 4);
+
+        Check.equal(List.of(fuel, cleaning, catering), manager.getNextServices(5), "pending order");
+        manager.changePriority(catering.getServiceId(), 1);
+        Check.that(manager.peekNextService() == catering, "re-prioritized service not first");
+        manager.complete(catering.getServiceId());
+        Check.that(catering.isCompleted(), "service not marked completed");
+        Check.equal(List.of(fuel, cleaning), manager.getNextServices(5), "pending after completion");
+        Check.fails(AeroLinkException.Reason.INVALID_STATE, () -> manager.complete(catering.getServiceId()));
+        Check.fails(AeroLinkException.Reason.INVALID_STATE, () -> manager.changePriority(catering.getServiceId(), 2));
+        Check.fails(AeroLinkException.Reason.INVALID_INPUT, () -> manager.changePriority(fuel.getServiceId(), 6));
+        Check.fails(AeroLinkException.Reason.NOT_FOUND, () -> manager.complete("ZZZZZZ"));
+        Check.equal(2, manager.getPendingCount(), "pending count");
+    }
+
+    /**
+     * Completing services at random places in a queue of 100k pending ones
+     */
+    private static void completeIsFastInLargeQueue() {
+        ServiceManager manager = new ServiceManager();
+        ArrayList<Service> services = new ArrayList<>();
+        Random random = new Random(100);
+        for (int i = 0; i < 100_000; i++) {
+            services.add(manager.request("Maintenance", "Check " + i, "Gate 1", 1 + random.nextInt(5)));
+        }
+        Collections.shuffle(services, random);
+        int completions = 5_000;
+        for (int i = 0; i < completions; i++) {  // Warm up
+            manager.complete(services.get(i).getServiceId());
+        }
+        // Best of several rounds, so a GC pause or another test's thread does not decide the result
+        double micros = Double.MAX_VALUE;
+        for (int round = 1; round <= 3; round++) {
+            System.gc();
+            long start = System.nanoTime();
+            for (int i = round * completions; i < (round + 1) * completions; i++) {
+                manager.complete(services.get(i).getServiceId());
+            }
+            micros = Math.min(micros, (System.nanoTime() - start) / 1e3 / completions);
+        }
+
+        Check.equal(services.size() - 4 * completions, manager.getPendingCount(), "pending count");
+        // A rebuild of 90k services takes milliseconds; allow generous noise
+        Check.that(micros < 100, String.format("completing a service took %.1f us", micros));
+    }
+
+    private static Service service(int priority, int minutes) {
+        return new Service(IdGenerator.nextId(), "Maintenance", "Check", "Gate 1", BASE.plusMinutes(minutes), priority);
+    }
+}
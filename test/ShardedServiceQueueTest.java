@@ -0,0 +1,103 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ShardedServiceQueueTest class to check per-location queues, work stealing and the merged global view
+ * A crew's own location always comes first; it steals the best service elsewhere only when its
+ * location has nothing pending.
+ */
+public class ShardedServiceQueueTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    public static void main(String[] args) throws Exception {
+        localWorkComesBeforeStealing();
+        mergedViewMatchesSortedList();
+        takeWaitsForARequest();
+        System.out.println("ShardedServiceQueueTest passed");
+    }
+
+    private static void localWorkComesBeforeStealing() {
+        ShardedServiceQueue queue = new ShardedServiceQueue();
+        Service urgentAtB = service("Gate B", "Refueling", 1, 0);
+        Service routineAtA = service("Gate A", "Catering", 5, 0);
+        Service cleaningAtA = service("gate a ", "Aircraft Cleaning", 4, 10);  // Same location, spelled differently
+        Service laterAtB = service("Gate B", "Catering", 2, 0);
+        for (Service service : List.of(urgentAtB, routineAtA, cleaningAtA, laterAtB)) {
+            Check.that(queue.add(service), "add refused");
+        }
+        Check.that(!queue.add(urgentAtB), "service queued twice");
+        Check.equal(2, queue.sizeAt("GATE A"), "pending at Gate A");
+
+        // A's crew takes A's best service, across service types, even though B's are more urgent
+        Check.that(queue.poll("Gate A") == cleaningAtA, "local service by priority");
+        Check.that(queue.pollAt("Gate A") == routineAtA, "local-only poll");
+        Check.that(queue.pollAt("Gate A") == null, "local-only poll stole");
+        // Nothing left at A: steal the best service elsewhere
+        Check.that(queue.poll("Gate A") == urgentAtB, "steal takes the best service elsewhere");
+        Check.that(queue.poll(null) == laterAtB, "poll anywhere");
+        Check.that(queue.poll("Gate B") == null && queue.size() == 0, "queue not empty");
+
+        Service moved = service("Gate C", "Maintenance", 3, 0);
+        queue.add(moved);
+        queue.add(service("Gate D", "Maintenance", 2, 0));
+        Check.that(queue.changePriority(moved, 1), "priority change refused");
+        Check.that(queue.peek() == moved, "re-prioritized service not first");
+        Check.that(queue.remove(moved) == moved && queue.remove(moved) == null, "remove");
+        Check.that(!queue.changePriority(moved, 2), "priority of a removed service changed");
+    }
+
+    /**
+     * peek and topK across many shards agree with all pending services sorted together
+     */
+    private static void mergedViewMatchesSortedList() {
+        ShardedServiceQueue queue = new ShardedServiceQueue();
+        ArrayList<Service> expected = new ArrayList<>();
+        Random random = new Random(17);
+        String[] types = {"Catering", "Refueling", "Maintenance"};
+        for (int i = 0; i < 3_000; i++) {
+            Service service = service("Gate " + random.nextInt(12), types[random.nextInt(types.length)],
+                    1 + random.nextInt(5), random.nextInt(600));
+            queue.add(service);
+            expected.add(service);
+            if (i % 3 == 0) {
+                Service removed = expected.remove(random.nextInt(expected.size()));
+                queue.remove(removed);
+            }
+        }
+        expected.sort(null);
+        Check.equal(expected.size(), queue.size(), "size");
+        Check.that(queue.peek() == expected.get(0), "peek");
+        for (int k : new int[] {0, 1, 10, 250, expected.size() + 5}) {
+            Check.equal(expected.subList(0, Math.min(k, expected.size())), queue.topK(k), "top " + k);
+        }
+        for (Service service : expected) {
+            Check.that(queue.poll(null) == service, "global poll order");
+        }
+    }
+
+    private static void takeWaitsForARequest() throws Exception {
+        ShardedServiceQueue queue = new ShardedServiceQueue();
+        AtomicReference<Service> taken = new AtomicReference<>();
+        Thread crew = new Thread(() -> {
+            try {
+                taken.set(queue.take("Gate A"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        crew.start();
+        Thread.sleep(50);
+        Check.that(crew.isAlive(), "take returned with nothing queued");
+        Service elsewhere = service("Gate B", "Catering", 3, 0);
+        queue.add(elsewhere);  // Nothing at A, so the waiting crew steals it
+        crew.join(5_000);
+        Check.that(taken.get() == elsewhere, "waiting crew did not take the new service");
+    }
+
+    private static Service service(String location, String type, int priority, int minutes) {
+        return new Service(IdGenerator.nextId(), type, "Task", location, BASE.plusMinutes(minutes), priority);
+    }
+}
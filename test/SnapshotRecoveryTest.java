@@ -0,0 +1,113 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+/**
+ * SnapshotRecoveryTest class to check startup from a snapshot plus the journal tail
+ */
+public class SnapshotRecoveryTest {
+    public static void main(String[] args) throws Exception {
+        bookingSnapshottedWithoutItsFlightKeepsItsSeat();
+        snapshotAndTailRestoreSameState();
+        System.out.println("SnapshotRecoveryTest passed");
+    }
+
+    /**
+     * The snapshot's flight pass runs before a flight is created and its booking pass after the flight is booked:
+     * the snapshot holds the booking but not the flight, which the journal tail restores afterwards
+     */
+    private static void bookingSnapshottedWithoutItsFlightKeepsItsSeat() throws Exception {
+        Path directory = Files.createTempDirectory("snapshot-cut");
+        LocalDateTime departure = LocalDateTime.now().plusDays(1);
+        FlightManager flightManager = new FlightManager();
+        PassengerManager passengerManager = new PassengerManager();
+        BookingManager bookingManager = new BookingManager(flightManager, passengerManager);
+        ServiceManager serviceManager = new ServiceManager();
+        PersistenceManager.open(directory, flightManager, passengerManager, bookingManager, serviceManager);
+
+        Flight flight = flightManager.createFlight("AL1", "DEL", "BOM", departure, departure.plusHours(2), 2, 100);
+        String first = passengerManager.createPassenger("Asha", 30, "P1000001").getPassengerId();
+        bookingManager.book(first, flight.getFlightId());
+        // The flight pass saw no flights yet; the booking pass saw the booking. The journal still starts at segment 1.
+        SnapshotFile.write(directory.resolve("snapshot.dat"), 1, new FlightManager(), passengerManager,
+                bookingManager, serviceManager);
+
+        FlightManager restoredFlights = new FlightManager();
+        PassengerManager restoredPassengers = new PassengerManager();
+        BookingManager restoredBookings = new BookingManager(restoredFlights, restoredPassengers);
+        PersistenceManager persistence = PersistenceManager.open(directory, restoredFlights, restoredPassengers,
+                restoredBookings, new ServiceManager());
+        try {
+            Flight restored = restoredFlights.getFlightById(flight.getFlightId());
+            Check.equal(1, restored.getBookedSeats(), "booked seats of the restored flight");
+
+            String second = restoredPassengers.createPassenger("Ravi", 40, "P1000002").getPassengerId();
+            String third = restoredPassengers.createPassenger("Meera", 35, "P1000003").getPassengerId();
+            restoredBookings.book(second, flight.getFlightId());
+            Check.fails(AeroLinkException.Reason.NO_SEATS, () -> restoredBookings.book(third, flight.getFlightId()));
+            Check.equal(2, restored.getBookedSeats(), "booked seats after filling the flight");
+        } finally {
+            persistence.close();
+        }
+        deleteTree(directory);
+    }
+
+    /**
+     * Snapshot in the middle of the history; the restored state matches the live one
+     */
+    private static void snapshotAndTailRestoreSameState() throws Exception {
+        Path directory = Files.createTempDirectory("snapshot-tail");
+        LocalDateTime departure = LocalDateTime.now().plusDays(1);
+        FlightManager flightManager = new FlightManager();
+        PassengerManager passengerManager = new PassengerManager();
+        BookingManager bookingManager = new BookingManager(flightManager, passengerManager);
+        PersistenceManager persistence = PersistenceManager.open(directory, flightManager, passengerManager,
+                bookingManager, new ServiceManager());
+
+        Flight[] flights = new Flight[4];
+        for (int i = 0; i < flights.length; i++) {
+            flights[i] = flightManager.createFlight("AL" + i, "DEL", "BOM", departure.plusHours(i),
+                    departure.plusHours(i + 2), 10, 100);
+        }
+        String[] passengers = new String[12];
+        for (int i = 0; i < passengers.length; i++) {
+            passengers[i] = passengerManager.createPassenger("P" + i, 30, "PP" + (100000 + i)).getPassengerId();
+        }
+        for (int i = 0; i < 6; i++) {
+            bookingManager.book(passengers[i], flights[i % flights.length].getFlightId());
+        }
+        persistence.snapshot();
+        for (int i = 6; i < passengers.length; i++) {
+            bookingManager.book(passengers[i], flights[i % flights.length].getFlightId());
+        }
+        bookingManager.cancelBooking(bookingManager.getBookingsForPassenger(passengers[0]).get(0).getBookingId());
+
+        FlightManager restoredFlights = new FlightManager();
+        PassengerManager restoredPassengers = new PassengerManager();
+        BookingManager restoredBookings = new BookingManager(restoredFlights, restoredPassengers);
+        PersistenceManager reopened = PersistenceManager.open(directory, restoredFlights, restoredPassengers,
+                restoredBookings, new ServiceManager());
+        try {
+            for (Flight flight : flights) {
+                Flight restored = restoredFlights.getFlightById(flight.getFlightId());
+                Check.equal(flight.getBookedSeats(), restored.getBookedSeats(), "seats of " + flight.getFlightName());
+                Check.equal(bookingManager.getBookingsForFlight(flight.getFlightId()).size(),
+                        restoredBookings.getBookingsForFlight(flight.getFlightId()).size(),
+                        "bookings of " + flight.getFlightName());
+            }
+        } finally {
+            reopened.close();
+        }
+        deleteTree(directory);
+    }
+
+    private static void deleteTree(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * SortedFlightViewTest class to check paging through a sorted view when many flights share a sort key
+ * Ties are split across page boundaries on purpose: every flight must appear exactly once, in a stable order.
+ */
+public class SortedFlightViewTest {
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).withHour(6).withMinute(0).withSecond(0).withNano(0);
+
+    public static void main(String[] args) {
+        pagesSplitTiesWithoutSkipsOrRepeats();
+        descendingPagesSplitTies();
+        removedCursorStillMarksItsPlace();
+        rangeIncludesEveryTie();
+        System.out.println("SortedFlightViewTest passed");
+    }
+
+    /**
+     * 47 flights over 5 departure times, read in pages of every size from 1 to 12
+     */
+    private static void pagesSplitTiesWithoutSkipsOrRepeats() {
+        FlightManager manager = new FlightManager();
+        for (int i = 0; i < 47; i++) {
+            flight(manager, "AL" + i, 60 * (i % 5), 10);
+        }
+        ArrayList<Flight> expected = manager.getAllFlights();
+        expected.sort(Comparator.comparing(Flight::getDepartureTime).thenComparing(Flight::getFlightId));
+        Check.equal(expected, manager.getSortedFlights("departure"), "sorted flights");
+        for (int limit = 1; limit <= 12; limit++) {
+            Check.equal(expected, readAllPages(manager, "departure", limit), "pages of " + limit);
+        }
+    }
+
+    /**
+     * Most free seats first; bookings move flights between groups of equal seat counts
+     */
+    private static void descendingPagesSplitTies() {
+        FlightManager manager = new FlightManager();
+        for (int i = 0; i < 30; i++) {
+            Flight flight = flight(manager, "AL" + i, i, 10);
+            flight.setBookedSeats(i % 3);
+        }
+        ArrayList<Flight> expected = manager.getAllFlights();
+        expected.sort(Comparator.comparing(Flight::getAvailableSeats).reversed().thenComparing(Flight::getFlightId));
+        for (int limit = 1; limit <= 8; limit++) {
+            Check.equal(expected, readAllPages(manager, "available", limit), "pages of " + limit);
+        }
+    }
+
+    /**
+     * The flight that ended a page is deleted before the next page is read
+     */
+    private static void removedCursorStillMarksItsPlace() {
+        FlightManager manager = new FlightManager();
+        for (int i = 0; i < 12; i++) {
+            flight(manager, "AL" + i, 0, 10);  // All at the same time: only flight IDs order them
+        }
+        ArrayList<Flight> all = manager.getSortedFlights("departure");
+        List<Flight> first = manager.getSortedFlightsPage("departure", null, 5);
+        Check.equal(all.subList(0, 5), first, "first page");
+
+        manager.deleteFlight(first.get(4).getFlightId());
+        Check.equal(all.subList(5, 10), manager.getSortedFlightsPage("departure", first.get(4), 5), "page after a deleted cursor");
+        Check.equal(all.subList(10, 12), manager.getSortedFlightsPage("departure", all.get(9), 5), "last page");
+        Check.equal(List.of(), manager.getSortedFlightsPage("departure", all.get(11), 5), "page after the end");
+        Check.equal(List.of(), manager.getSortedFlightsPage("departure", null, 0), "empty page");
+    }
+
+    private static void rangeIncludesEveryTie() {
+        SortedFlightView<Integer> view = new SortedFlightView<>(Flight::getCapacity, false);
+        SortedFlightView<Integer> descending = new SortedFlightView<>(Flight::getCapacity, true);
+        ArrayList<Flight> twenties = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Flight flight = new Flight("AL" + i, "DEL", "BOM", BASE, BASE.plusHours(2), 10 * (1 + i % 3), 100);
+            view.add(flight);
+            descending.add(flight);
+            if (flight.getCapacity() == 20) {
+                twenties.add(flight);
+            }
+        }
+        twenties.sort(Comparator.comparing(Flight::getFlightId));
+        Check.equal(30, view.size(), "flights in the view");
+        Check.equal(twenties, view.range(20, 20), "flights with a capacity of 20");
+        Check.equal(twenties, descending.range(20, 20), "flights with a capacity of 20, descending");
+        Check.equal(20, view.range(10, 20).size(), "flights with a capacity from 10 to 20");
+        Check.equal(20, descending.range(30, 20).size(), "flights with a capacity from 30 down to 20");
+        Check.equal(0, view.range(20, 10).size(), "range given backwards");
+    }
+
+    /**
+     * Read a sorted listing page by page, each page starting after the last flight of the one before
+     */
+    private static ArrayList<Flight> readAllPages(FlightManager manager, String attribute, int limit) {
+        ArrayList<Flight> read = new ArrayList<>();
+        HashSet<String> seen = new HashSet<>();
+        Flight after = null;
+        while (true) {
+            ArrayList<Flight> page = manager.getSortedFlightsPage(attribute, after, limit);
+            Check.that(page.size() <= limit, "page longer than " + limit);
+            for (Flight flight : page) {
+                Check.that(seen.add(flight.getFlightId()), "flight " + flight.getFlightId() + " listed twice");
+            }
+            read.addAll(page);
+            if (page.size() < limit) {
+                return read;
+            }
+            after = page.get(page.size() - 1);
+        }
+    }
+
+    private static Flight flight(FlightManager manager, String name, int departs, int capacity) {
+        return manager.createFlight(name, "DEL", "BOM", BASE.plusMinutes(departs), BASE.plusMinutes(departs + 120),
+                capacity, 100);
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * WaitlistTest class to check waitlisted passengers get freed seats in order and nobody jumps the queue
+ * Promotions run on a background thread, so the checks wait for their outcome instead of sleeping.
+ */
+public class WaitlistTest {
+    public static void main(String[] args) throws Exception {
+        cancellationPromotesNextPassenger();
+        promotionFollowsPriorityThenArrival();
+        walkUpIsRefusedWhileOthersWait();
+        journalFailureKeepsPlaceOnWaitlist();
+        durabilityFailureKeepsPromotion();
+        System.out.println("WaitlistTest passed");
+    }
+
+    private static void cancellationPromotesNextPassenger() throws Exception {
+        Setup setup = new Setup(3, 2);
+        Booking first = setup.book(0);
+        setup.book(1);
+        Check.fails(AeroLinkException.Reason.INVALID_STATE, () -> setup.bookings.joinWaitlist(setup.passengers.get(2),
+                setup.otherFlight.getFlightId(), 3));  // The other flight still has seats
+        Check.equal(1, setup.join(2, 3), "position on the waitlist");
+        Check.fails(AeroLinkException.Reason.DUPLICATE, () -> setup.join(2, 3));
+
+        setup.bookings.cancelBooking(first.getBookingId());
+        waitFor(() -> setup.bookedOnFlight(2), "waitlisted passenger was not promoted");
+        Check.equal(2, setup.flight.getBookedSeats(), "booked seats after the promotion");
+        Check.equal(0, setup.bookings.getWaitlist(setup.flight.getFlightId()).size(), "passengers still waiting");
+        Check.equal(1L, setup.bookings.getPromotedCount(), "promotions");
+    }
+
+    /**
+     * Higher priority first, then the order passengers joined in
+     */
+    private static void promotionFollowsPriorityThenArrival() throws Exception {
+        Setup setup = new Setup(6, 3);
+        ArrayList<Booking> seated = new ArrayList<>(List.of(setup.book(0), setup.book(1), setup.book(2)));
+        Check.equal(1, setup.join(3, 3), "position of the first joiner");
+        Check.equal(1, setup.join(4, 1), "position of a higher priority joiner");
+        Check.equal(3, setup.join(5, 3), "position of the last joiner");
+        ArrayList<String> expected = new ArrayList<>(List.of(setup.passengers.get(4), setup.passengers.get(3),
+                setup.passengers.get(5)));
+        ArrayList<String> waiting = new ArrayList<>();
+        for (Waitlist.Entry entry : setup.bookings.getWaitlist(setup.flight.getFlightId())) {
+            waiting.add(entry.getPassengerId());
+        }
+        Check.equal(expected, waiting, "waitlist order");
+
+        for (int i = 0; i < seated.size(); i++) {
+            setup.bookings.cancelBooking(seated.get(i).getBookingId());
+            int promotedSoFar = i + 1;
+            waitFor(() -> setup.bookings.getPromotedCount() == promotedSoFar, "promotion " + promotedSoFar);
+        }
+        ArrayList<String> promoted = new ArrayList<>();
+        for (Booking booking : setup.bookings.getBookingsForFlight(setup.flight.getFlightId())) {
+            promoted.add(booking.getPassengerId());
+        }
+        Check.equal(expected, promoted, "promotion order");
+    }
+
+    /**
+     * A seat frees up without a cancellation: a walk-up booking is refused and the seat goes to the waitlist
+     */
+    private static void walkUpIsRefusedWhileOthersWait() throws Exception {
+        Setup setup = new Setup(3, 1);
+        setup.book(0);
+        setup.join(1, 3);
+        setup.flights.updateFlight(setup.flight.getFlightId(), null, null, null, null, null, 2, null);
+        Check.fails(AeroLinkException.Reason.NO_SEATS, () -> setup.book(2));
+        Check.fails(AeroLinkException.Reason.NO_SEATS, () -> setup.bookings.bookGroup(
+                List.of(setup.passengers.get(2)), List.of(setup.flight.getFlightId())));
+        Check.that(!setup.bookings.reserveSeat(setup.flight), "a move took a seat meant for the waitlist");
+        waitFor(() -> setup.bookedOnFlight(1), "the refused walk-up did not start a promotion");
+        Check.that(!setup.bookedOnFlight(2), "walk-up passenger was booked");
+        Check.equal(2, setup.flight.getBookedSeats(), "booked seats");
+    }
+
+    /**
+     * The promoted booking cannot be journaled: the passenger keeps their place and gets the seat later
+     */
+    private static void journalFailureKeepsPlaceOnWaitlist() throws Exception {
+        Setup setup = new Setup(3, 1);
+        Booking seated = setup.book(0);
+        setup.join(1, 2);
+        String waiter = setup.passengers.get(1);
+        setup.bookings.setChangeLog(new ChangeLog() {
+            @Override
+            public long bookingCreated(Booking booking) {
+                if (booking.getPassengerId().equals(waiter)) {
+                    throw new UncheckedIOException("Change could not be saved: disk full", new IOException("disk full"));
+                }
+                return 0;
+            }
+        });
+        setup.bookings.cancelBooking(seated.getBookingId());
+        waitFor(() -> setup.flight.getBookedSeats() == 0, "held seat was not given back");
+        Check.that(!setup.bookedOnFlight(1), "promotion survived a journal failure");
+        Check.equal(1, setup.bookings.getWaitlist(setup.flight.getFlightId()).size(), "passengers still waiting");
+        Check.equal(waiter, setup.bookings.getWaitlist(setup.flight.getFlightId()).get(0).getPassengerId(),
+                "passenger still waiting");
+
+        // Once the journal works again, the next attempt on the flight promotes the passenger
+        setup.bookings.setChangeLog(ChangeLog.NONE);
+        Check.fails(AeroLinkException.Reason.NO_SEATS, () -> setup.book(2));
+        waitFor(() -> setup.bookedOnFlight(1), "waitlisted passenger was not promoted after the journal recovered");
+        Check.equal(1, setup.flight.getBookedSeats(), "booked seats");
+    }
+
+    /**
+     * The promotion is journaled but not flushed: it stays made and later promotions still run
+     */
+    private static void durabilityFailureKeepsPromotion() throws Exception {
+        Setup setup = new Setup(4, 2);
+        Booking first = setup.book(0);
+        Booking second = setup.book(1);
+        setup.join(2, 3);
+        setup.join(3, 3);
+        String waiter = setup.passengers.get(2);
+        AtomicInteger failedFlushes = new AtomicInteger();
+        setup.bookings.setChangeLog(new ChangeLog() {
+            @Override
+            public long bookingCreated(Booking booking) {
+                return booking.getPassengerId().equals(waiter) ? 7 : 0;
+            }
+
+            @Override
+            public void awaitDurable(long ticket) {
+                if (ticket == 7) {  // Only the promotion's flush fails
+                    failedFlushes.incrementAndGet();
+                    throw new UncheckedIOException("Change could not be saved", new IOException("I/O error"));
+                }
+            }
+        });
+        setup.bookings.cancelBooking(first.getBookingId());
+        waitFor(() -> failedFlushes.get() == 1, "the promotion was not flushed");
+        Check.that(setup.bookedOnFlight(2), "promotion was undone by the failed flush");
+        setup.bookings.setChangeLog(ChangeLog.NONE);
+        setup.bookings.cancelBooking(second.getBookingId());
+        waitFor(() -> setup.bookedOnFlight(3), "the promoter stopped after a failed flush");
+        Check.equal(2, setup.flight.getBookedSeats(), "booked seats");
+    }
+
+    private static void waitFor(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            Check.that(System.nanoTime() < deadline, message);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Managers with passengers, one flight with the given capacity and another with room to spare
+     */
+    private static class Setup {
+        final FlightManager flights = new FlightManager();
+        final PassengerManager passengerManager = new PassengerManager();
+        final BookingManager bookings = new BookingManager(flights, passengerManager);
+        final ArrayList<String> passengers = new ArrayList<>();
+        final Flight flight;
+        final Flight otherFlight;
+
+        Setup(int passengerCount, int capacity) {
+            for (int i = 0; i < passengerCount; i++) {
+                passengers.add(passengerManager.createPassenger("Passenger " + i, 30, "WL" + i).getPassengerId());
+            }
+            LocalDateTime departure = LocalDateTime.now().plusDays(1);
+            flight = flights.createFlight("AL1", "DEL", "BOM", departure, departure.plusHours(2), capacity, 100);
+            otherFlight = flights.createFlight("AL2", "DEL", "BOM", departure, departure.plusHours(2), 10, 100);
+        }
+
+        Booking book(int passenger) {
+            return bookings.book(passengers.get(passenger), flight.getFlightId());
+        }
+
+        int join(int passenger, int priority) {
+            return bookings.joinWaitlist(passengers.get(passenger), flight.getFlightId(), priority);
+        }
+
+        boolean bookedOnFlight(int passenger) {
+            for (Booking booking : bookings.getBookingsForPassenger(passengers.get(passenger))) {
+                if (booking.getFlightId().equals(flight.getFlightId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}